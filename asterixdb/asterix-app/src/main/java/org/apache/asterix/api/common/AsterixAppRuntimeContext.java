@@ -18,6 +18,7 @@
  */
 package org.apache.asterix.api.common;
 
+import java.io.File;
 import java.io.IOException;
 import java.rmi.RemoteException;
 import java.rmi.server.UnicastRemoteObject;
@@ -42,6 +43,7 @@ import org.apache.asterix.common.config.AsterixTransactionProperties;
 import org.apache.asterix.common.config.IAsterixPropertiesProvider;
 import org.apache.asterix.common.context.AsterixFileMapManager;
 import org.apache.asterix.common.context.DatasetLifecycleManager;
+import org.apache.asterix.common.context.StorageMemoryTuner;
 import org.apache.asterix.common.exceptions.ACIDException;
 import org.apache.asterix.common.exceptions.AsterixException;
 import org.apache.asterix.common.library.ILibraryManager;
@@ -78,8 +80,8 @@ import org.apache.hyracks.api.lifecycle.ILifeCycleComponentManager;
 import org.apache.hyracks.storage.am.lsm.common.api.ILSMIOOperationScheduler;
 import org.apache.hyracks.storage.am.lsm.common.api.ILSMMergePolicyFactory;
 import org.apache.hyracks.storage.am.lsm.common.api.ILSMOperationTracker;
-import org.apache.hyracks.storage.am.lsm.common.impls.AsynchronousScheduler;
 import org.apache.hyracks.storage.am.lsm.common.impls.PrefixMergePolicyFactory;
+import org.apache.hyracks.storage.am.lsm.common.impls.PrioritizedIOScheduler;
 import org.apache.hyracks.storage.common.buffercache.BufferCache;
 import org.apache.hyracks.storage.common.buffercache.ClockPageReplacementStrategy;
 import org.apache.hyracks.storage.common.buffercache.DelayPageCleanerPolicy;
@@ -88,6 +90,7 @@ import org.apache.hyracks.storage.common.buffercache.IBufferCache;
 import org.apache.hyracks.storage.common.buffercache.ICacheMemoryAllocator;
 import org.apache.hyracks.storage.common.buffercache.IPageCleanerPolicy;
 import org.apache.hyracks.storage.common.buffercache.IPageReplacementStrategy;
+import org.apache.hyracks.storage.common.buffercache.TwoQueueClockPageReplacementStrategy;
 import org.apache.hyracks.storage.common.file.IFileMapManager;
 import org.apache.hyracks.storage.common.file.IFileMapProvider;
 import org.apache.hyracks.storage.common.file.ILocalResourceRepository;
@@ -96,6 +99,7 @@ import org.apache.hyracks.storage.common.file.IResourceIdFactory;
 
 public class AsterixAppRuntimeContext implements IAsterixAppRuntimeContext, IAsterixPropertiesProvider {
     private static final Logger LOGGER = Logger.getLogger(AsterixAppRuntimeContext.class.getName());
+    private static final String BUFFER_CACHE_WARMUP_FILE_NAME = "buffercache_warmup";
 
     private ILSMMergePolicyFactory metadataMergePolicyFactory;
     private final INCApplicationContext ncApplicationContext;
@@ -165,11 +169,11 @@ public class AsterixAppRuntimeContext implements IAsterixAppRuntimeContext, IAst
         ICacheMemoryAllocator allocator = new HeapBufferAllocator();
         IPageCleanerPolicy pcp = new DelayPageCleanerPolicy(600000);
         ioManager = ncApplicationContext.getRootContext().getIOManager();
-        IPageReplacementStrategy prs = new ClockPageReplacementStrategy(allocator,
-                storageProperties.getBufferCachePageSize(), storageProperties.getBufferCacheNumPages());
+        IPageReplacementStrategy prs = createPageReplacementStrategy(allocator);
 
-        AsynchronousScheduler.INSTANCE.init(ncApplicationContext.getThreadFactory());
-        lsmIOScheduler = AsynchronousScheduler.INSTANCE;
+        lsmIOScheduler = new PrioritizedIOScheduler(ncApplicationContext.getThreadFactory(),
+                storageProperties.getLSMIOMaxOperationsPerDevice(), storageProperties.getLSMIOMaxMergesPerDevice(),
+                storageProperties.getLSMIOMergeRate());
 
         metadataMergePolicyFactory = new PrefixMergePolicyFactory();
 
@@ -202,6 +206,7 @@ public class AsterixAppRuntimeContext implements IAsterixAppRuntimeContext, IAst
         activeManager = new ActiveManager(ncApplicationContext.getNodeId(),
                 feedProperties.getMemoryComponentGlobalBudget(), compilerProperties.getFrameSize());
 
+        BufferCache diskBufferCache;
         if (replicationProperties.isReplicationEnabled()) {
             String nodeId = ncApplicationContext.getNodeId();
 
@@ -239,13 +244,20 @@ public class AsterixAppRuntimeContext implements IAsterixAppRuntimeContext, IAst
 
             remoteRecoveryManager = new RemoteRecoveryManager(replicationManager, this, replicationProperties);
 
-            bufferCache =
+            diskBufferCache =
                     new BufferCache(ioManager, prs, pcp, fileMapManager, storageProperties.getBufferCacheMaxOpenFiles(),
                             ncApplicationContext.getThreadFactory(), replicationManager);
         } else {
-            bufferCache = new BufferCache(ioManager, prs, pcp, fileMapManager,
+            diskBufferCache = new BufferCache(ioManager, prs, pcp, fileMapManager,
                     storageProperties.getBufferCacheMaxOpenFiles(), ncApplicationContext.getThreadFactory());
         }
+        diskBufferCache.setDirectIO(storageProperties.isBufferCacheDirectIO());
+        diskBufferCache.setMemoryMappedReads(storageProperties.isBufferCacheMemoryMappedReads());
+        if (storageProperties.isBufferCacheWarmup()) {
+            diskBufferCache.setWarmupFile(
+                    new File(ioManager.getIODevices().get(0).getPath(), BUFFER_CACHE_WARMUP_FILE_NAME));
+        }
+        bufferCache = diskBufferCache;
 
         // The order of registration is important. The buffer cache must registered before recovery and transaction managers.
         //Notes: registered components are stopped in reversed order
@@ -268,6 +280,9 @@ public class AsterixAppRuntimeContext implements IAsterixAppRuntimeContext, IAst
          * Stopping indexLifecycleManager will flush and close all datasets.
          */
         lccm.register((ILifeCycleComponent) datasetLifecycleManager);
+        lccm.register(new StorageMemoryTuner(diskBufferCache, (DatasetLifecycleManager) datasetLifecycleManager,
+                ncApplicationContext.getThreadFactory(), storageProperties.getMemoryTuningInterval() * 1000L,
+                storageProperties.getMemoryTuningStep()));
         lccm.register((ILifeCycleComponent) txnSubsystem.getTransactionManager());
         lccm.register((ILifeCycleComponent) txnSubsystem.getLockManager());
 
@@ -277,6 +292,20 @@ public class AsterixAppRuntimeContext implements IAsterixAppRuntimeContext, IAst
         libraryManager = new ExternalLibraryManager();
     }
 
+    private IPageReplacementStrategy createPageReplacementStrategy(ICacheMemoryAllocator allocator) {
+        String policy = storageProperties.getBufferCacheReplacementPolicy();
+        int pageSize = storageProperties.getBufferCachePageSize();
+        int numPages = storageProperties.getBufferCacheNumPages();
+        switch (policy.toLowerCase()) {
+            case AsterixStorageProperties.STORAGE_BUFFERCACHE_REPLACEMENTPOLICY_CLOCK:
+                return new ClockPageReplacementStrategy(allocator, pageSize, numPages);
+            case AsterixStorageProperties.STORAGE_BUFFERCACHE_REPLACEMENTPOLICY_2Q:
+                return new TwoQueueClockPageReplacementStrategy(allocator, pageSize, numPages);
+            default:
+                throw new IllegalArgumentException("Unknown buffer cache replacement policy: " + policy);
+        }
+    }
+
     @Override
     public boolean isShuttingdown() {
         return isShuttingdown;
@@ -126,7 +126,11 @@ public class DatasetOperations {
                         new PrimaryIndexOperationTrackerProvider(dataset.getDatasetId()),
                         AsterixRuntimeComponentsProvider.RUNTIME_PROVIDER, LSMBTreeIOOperationCallbackFactory.INSTANCE,
                         storageProperties.getBloomFilterFalsePositiveRate(), true, filterTypeTraits, filterCmpFactories,
-                        btreeFields, filterFields, !temp));
+                        btreeFields, filterFields, !temp,
+                        storageProperties.isBlockedBloomFilter(), DatasetUtils.isPageCompressed(dataset),
+                        storageProperties.isLSMBTreeFencePointers(),
+                        storageProperties.getLSMBTreeMergeParallelism(),
+                        storageProperties.isLSMBTreePipelinedLoad()));
         AlgebricksPartitionConstraintHelper.setPartitionConstraintInJobSpec(specPrimary, primaryBtreeDrop,
                 splitsAndConstraint.second);
 
@@ -184,7 +188,11 @@ public class DatasetOperations {
         //prepare a LocalResourceMetadata which will be stored in NC's local resource repository
         ILocalResourceMetadata localResourceMetadata = new LSMBTreeLocalResourceMetadata(typeTraits,
                 comparatorFactories, bloomFilterKeyFields, true, dataset.getDatasetId(), compactionInfo.first,
-                compactionInfo.second, filterTypeTraits, filterCmpFactories, btreeFields, filterFields);
+                compactionInfo.second, filterTypeTraits, filterCmpFactories, btreeFields, filterFields,
+                storageProperties.isBlockedBloomFilter(), DatasetUtils.isPageCompressed(dataset),
+                storageProperties.isLSMBTreeFencePointers(),
+                storageProperties.getLSMBTreeMergeParallelism(),
+                storageProperties.isLSMBTreePipelinedLoad());
         ILocalResourceFactoryProvider localResourceFactoryProvider = new PersistentLocalResourceFactoryProvider(
                 localResourceMetadata, LocalResource.LSMBTreeResource);
 
@@ -196,7 +204,11 @@ public class DatasetOperations {
                         new PrimaryIndexOperationTrackerProvider(dataset.getDatasetId()),
                         AsterixRuntimeComponentsProvider.RUNTIME_PROVIDER, LSMBTreeIOOperationCallbackFactory.INSTANCE,
                         storageProperties.getBloomFilterFalsePositiveRate(), true, filterTypeTraits, filterCmpFactories,
-                        btreeFields, filterFields, !temp),
+                        btreeFields, filterFields, !temp,
+                        storageProperties.isBlockedBloomFilter(), DatasetUtils.isPageCompressed(dataset),
+                        storageProperties.isLSMBTreeFencePointers(),
+                        storageProperties.getLSMBTreeMergeParallelism(),
+                        storageProperties.isLSMBTreePipelinedLoad()),
                 localResourceFactoryProvider, NoOpOperationCallbackFactory.INSTANCE);
         AlgebricksPartitionConstraintHelper.setPartitionConstraintInJobSpec(spec, indexCreateOp,
                 splitsAndConstraint.second);
@@ -248,7 +260,11 @@ public class DatasetOperations {
                         new PrimaryIndexOperationTrackerProvider(dataset.getDatasetId()),
                         AsterixRuntimeComponentsProvider.RUNTIME_PROVIDER, LSMBTreeIOOperationCallbackFactory.INSTANCE,
                         storageProperties.getBloomFilterFalsePositiveRate(), true, filterTypeTraits, filterCmpFactories,
-                        btreeFields, filterFields, !temp),
+                        btreeFields, filterFields, !temp,
+                        storageProperties.isBlockedBloomFilter(), DatasetUtils.isPageCompressed(dataset),
+                        storageProperties.isLSMBTreeFencePointers(),
+                        storageProperties.getLSMBTreeMergeParallelism(),
+                        storageProperties.isLSMBTreePipelinedLoad()),
                 NoOpOperationCallbackFactory.INSTANCE);
         AlgebricksPartitionConstraintHelper.setPartitionConstraintInJobSpec(spec, compactOp,
                 splitsAndConstraint.second);
@@ -358,7 +358,11 @@ public abstract class SecondaryIndexOperationsHelper {
                         new PrimaryIndexOperationTrackerProvider(dataset.getDatasetId()),
                         AsterixRuntimeComponentsProvider.RUNTIME_PROVIDER, LSMBTreeIOOperationCallbackFactory.INSTANCE,
                         storageProperties.getBloomFilterFalsePositiveRate(), true, filterTypeTraits, filterCmpFactories,
-                        primaryBTreeFields, primaryFilterFields, !temp),
+                        primaryBTreeFields, primaryFilterFields, !temp,
+                        storageProperties.isBlockedBloomFilter(), DatasetUtils.isPageCompressed(dataset),
+                        storageProperties.isLSMBTreeFencePointers(),
+                        storageProperties.getLSMBTreeMergeParallelism(),
+                        storageProperties.isLSMBTreePipelinedLoad()),
                 false, false, null, searchCallbackFactory, null, null);
 
         AlgebricksPartitionConstraintHelper.setPartitionConstraintInJobSpec(spec, primarySearchOp,
@@ -46,6 +46,7 @@ public interface IDatasetLifecycleManager extends IIndexLifecycleManager {
 
     /**
      * Schedules asynchronous flush on datasets that have memory components with first LSN < nonSharpCheckpointTargetLSN.
+     * The flushes of the datasets with the oldest memory components are scheduled first.
      *
      * @param nonSharpCheckpointTargetLSN
      * @throws HyracksDataException
@@ -31,6 +31,21 @@ public class AsterixStorageProperties extends AbstractAsterixProperties {
     private static final String STORAGE_BUFFERCACHE_MAXOPENFILES_KEY = "storage.buffercache.maxopenfiles";
     private static int STORAGE_BUFFERCACHE_MAXOPENFILES_DEFAULT = Integer.MAX_VALUE;
 
+    public static final String STORAGE_BUFFERCACHE_REPLACEMENTPOLICY_CLOCK = "clock";
+    public static final String STORAGE_BUFFERCACHE_REPLACEMENTPOLICY_2Q = "2q";
+    private static final String STORAGE_BUFFERCACHE_REPLACEMENTPOLICY_KEY = "storage.buffercache.replacementpolicy";
+    private static final String STORAGE_BUFFERCACHE_REPLACEMENTPOLICY_DEFAULT =
+            STORAGE_BUFFERCACHE_REPLACEMENTPOLICY_CLOCK;
+
+    private static final String STORAGE_BUFFERCACHE_DIRECTIO_KEY = "storage.buffercache.directio";
+    private static final boolean STORAGE_BUFFERCACHE_DIRECTIO_DEFAULT = false;
+
+    private static final String STORAGE_BUFFERCACHE_MMAP_KEY = "storage.buffercache.mmap";
+    private static final boolean STORAGE_BUFFERCACHE_MMAP_DEFAULT = false;
+
+    private static final String STORAGE_BUFFERCACHE_WARMUP_KEY = "storage.buffercache.warmup";
+    private static final boolean STORAGE_BUFFERCACHE_WARMUP_DEFAULT = false;
+
     private static final String STORAGE_MEMORYCOMPONENT_PAGESIZE_KEY = "storage.memorycomponent.pagesize";
     private static final int STORAGE_MEMORYCOMPONENT_PAGESIZE_DEFAULT = (128 << 10); // 128KB
 
@@ -43,12 +58,42 @@ public class AsterixStorageProperties extends AbstractAsterixProperties {
     private static final String STORAGE_MEMORYCOMPONENT_NUMCOMPONENTS_KEY = "storage.memorycomponent.numcomponents";
     private static final int STORAGE_MEMORYCOMPONENT_NUMCOMPONENTS_DEFAULT = 2; // 2 components
 
+    private static final String STORAGE_MEMORYCOMPONENT_FLUSHTHRESHOLD_KEY = "storage.memorycomponent.flushthreshold";
+    private static final double STORAGE_MEMORYCOMPONENT_FLUSHTHRESHOLD_DEFAULT = 1.0; // flush when full
+
     private static final String STORAGE_MEMORYCOMPONENT_GLOBALBUDGET_KEY = "storage.memorycomponent.globalbudget";
     private static final long STORAGE_MEMORYCOMPONENT_GLOBALBUDGET_DEFAULT = 536870912; // 512MB
 
+    private static final String STORAGE_MEMORY_TUNING_INTERVAL_KEY = "storage.memory.tuning.interval";
+    private static final int STORAGE_MEMORY_TUNING_INTERVAL_DEFAULT = 0; // disabled
+
+    private static final String STORAGE_MEMORY_TUNING_STEP_KEY = "storage.memory.tuning.step";
+    private static final long STORAGE_MEMORY_TUNING_STEP_DEFAULT = (32 << 20); // 32MB
+
     private static final String STORAGE_LSM_BLOOMFILTER_FALSEPOSITIVERATE_KEY = "storage.lsm.bloomfilter.falsepositiverate";
     private static double STORAGE_LSM_BLOOMFILTER_FALSEPOSITIVERATE_DEFAULT = 0.01;
 
+    private static final String STORAGE_LSM_BLOOMFILTER_BLOCKED_KEY = "storage.lsm.bloomfilter.blocked";
+    private static final boolean STORAGE_LSM_BLOOMFILTER_BLOCKED_DEFAULT = false;
+
+    private static final String STORAGE_LSM_BTREE_FENCEPOINTERS_KEY = "storage.lsm.btree.fencepointers";
+    private static final boolean STORAGE_LSM_BTREE_FENCEPOINTERS_DEFAULT = false;
+
+    private static final String STORAGE_LSM_BTREE_MERGEPARALLELISM_KEY = "storage.lsm.btree.mergeparallelism";
+    private static final int STORAGE_LSM_BTREE_MERGEPARALLELISM_DEFAULT = 1;
+
+    private static final String STORAGE_LSM_BTREE_PIPELINEDLOAD_KEY = "storage.lsm.btree.pipelinedload";
+    private static final boolean STORAGE_LSM_BTREE_PIPELINEDLOAD_DEFAULT = false;
+
+    private static final String STORAGE_LSM_IO_MAXOPERATIONSPERDEVICE_KEY = "storage.lsm.io.maxoperationsperdevice";
+    private static final int STORAGE_LSM_IO_MAXOPERATIONSPERDEVICE_DEFAULT = 4;
+
+    private static final String STORAGE_LSM_IO_MAXMERGESPERDEVICE_KEY = "storage.lsm.io.maxmergesperdevice";
+    private static final int STORAGE_LSM_IO_MAXMERGESPERDEVICE_DEFAULT = 2;
+
+    private static final String STORAGE_LSM_IO_MERGERATE_KEY = "storage.lsm.io.mergerate";
+    private static final long STORAGE_LSM_IO_MERGERATE_DEFAULT = 0; // unlimited
+
     public AsterixStorageProperties(AsterixPropertiesAccessor accessor) {
         super(accessor);
     }
@@ -72,6 +117,26 @@ public class AsterixStorageProperties extends AbstractAsterixProperties {
                 PropertyInterpreters.getIntegerPropertyInterpreter());
     }
 
+    public String getBufferCacheReplacementPolicy() {
+        return accessor.getProperty(STORAGE_BUFFERCACHE_REPLACEMENTPOLICY_KEY,
+                STORAGE_BUFFERCACHE_REPLACEMENTPOLICY_DEFAULT, PropertyInterpreters.getStringPropertyInterpreter());
+    }
+
+    public boolean isBufferCacheDirectIO() {
+        return accessor.getProperty(STORAGE_BUFFERCACHE_DIRECTIO_KEY, STORAGE_BUFFERCACHE_DIRECTIO_DEFAULT,
+                PropertyInterpreters.getBooleanPropertyInterpreter());
+    }
+
+    public boolean isBufferCacheMemoryMappedReads() {
+        return accessor.getProperty(STORAGE_BUFFERCACHE_MMAP_KEY, STORAGE_BUFFERCACHE_MMAP_DEFAULT,
+                PropertyInterpreters.getBooleanPropertyInterpreter());
+    }
+
+    public boolean isBufferCacheWarmup() {
+        return accessor.getProperty(STORAGE_BUFFERCACHE_WARMUP_KEY, STORAGE_BUFFERCACHE_WARMUP_DEFAULT,
+                PropertyInterpreters.getBooleanPropertyInterpreter());
+    }
+
     public int getMemoryComponentPageSize() {
         return accessor.getProperty(STORAGE_MEMORYCOMPONENT_PAGESIZE_KEY, STORAGE_MEMORYCOMPONENT_PAGESIZE_DEFAULT,
                 PropertyInterpreters.getIntegerPropertyInterpreter());
@@ -94,13 +159,63 @@ public class AsterixStorageProperties extends AbstractAsterixProperties {
                 STORAGE_MEMORYCOMPONENT_NUMCOMPONENTS_DEFAULT, PropertyInterpreters.getIntegerPropertyInterpreter());
     }
 
+    public double getMemoryComponentFlushThreshold() {
+        return accessor.getProperty(STORAGE_MEMORYCOMPONENT_FLUSHTHRESHOLD_KEY,
+                STORAGE_MEMORYCOMPONENT_FLUSHTHRESHOLD_DEFAULT, PropertyInterpreters.getDoublePropertyInterpreter());
+    }
+
     public long getMemoryComponentGlobalBudget() {
         return accessor.getProperty(STORAGE_MEMORYCOMPONENT_GLOBALBUDGET_KEY,
                 STORAGE_MEMORYCOMPONENT_GLOBALBUDGET_DEFAULT, PropertyInterpreters.getLongPropertyInterpreter());
     }
 
+    public int getMemoryTuningInterval() {
+        return accessor.getProperty(STORAGE_MEMORY_TUNING_INTERVAL_KEY, STORAGE_MEMORY_TUNING_INTERVAL_DEFAULT,
+                PropertyInterpreters.getIntegerPropertyInterpreter());
+    }
+
+    public long getMemoryTuningStep() {
+        return accessor.getProperty(STORAGE_MEMORY_TUNING_STEP_KEY, STORAGE_MEMORY_TUNING_STEP_DEFAULT,
+                PropertyInterpreters.getLongPropertyInterpreter());
+    }
+
     public double getBloomFilterFalsePositiveRate() {
         return accessor.getProperty(STORAGE_LSM_BLOOMFILTER_FALSEPOSITIVERATE_KEY,
                 STORAGE_LSM_BLOOMFILTER_FALSEPOSITIVERATE_DEFAULT, PropertyInterpreters.getDoublePropertyInterpreter());
     }
+
+    public boolean isBlockedBloomFilter() {
+        return accessor.getProperty(STORAGE_LSM_BLOOMFILTER_BLOCKED_KEY, STORAGE_LSM_BLOOMFILTER_BLOCKED_DEFAULT,
+                PropertyInterpreters.getBooleanPropertyInterpreter());
+    }
+
+    public boolean isLSMBTreeFencePointers() {
+        return accessor.getProperty(STORAGE_LSM_BTREE_FENCEPOINTERS_KEY, STORAGE_LSM_BTREE_FENCEPOINTERS_DEFAULT,
+                PropertyInterpreters.getBooleanPropertyInterpreter());
+    }
+
+    public int getLSMBTreeMergeParallelism() {
+        return accessor.getProperty(STORAGE_LSM_BTREE_MERGEPARALLELISM_KEY,
+                STORAGE_LSM_BTREE_MERGEPARALLELISM_DEFAULT, PropertyInterpreters.getIntegerPropertyInterpreter());
+    }
+
+    public boolean isLSMBTreePipelinedLoad() {
+        return accessor.getProperty(STORAGE_LSM_BTREE_PIPELINEDLOAD_KEY, STORAGE_LSM_BTREE_PIPELINEDLOAD_DEFAULT,
+                PropertyInterpreters.getBooleanPropertyInterpreter());
+    }
+
+    public int getLSMIOMaxOperationsPerDevice() {
+        return accessor.getProperty(STORAGE_LSM_IO_MAXOPERATIONSPERDEVICE_KEY,
+                STORAGE_LSM_IO_MAXOPERATIONSPERDEVICE_DEFAULT, PropertyInterpreters.getIntegerPropertyInterpreter());
+    }
+
+    public int getLSMIOMaxMergesPerDevice() {
+        return accessor.getProperty(STORAGE_LSM_IO_MAXMERGESPERDEVICE_KEY, STORAGE_LSM_IO_MAXMERGESPERDEVICE_DEFAULT,
+                PropertyInterpreters.getIntegerPropertyInterpreter());
+    }
+
+    public long getLSMIOMergeRate() {
+        return accessor.getProperty(STORAGE_LSM_IO_MERGERATE_KEY, STORAGE_LSM_IO_MERGERATE_DEFAULT,
+                PropertyInterpreters.getLongPropertyInterpreter());
+    }
 }
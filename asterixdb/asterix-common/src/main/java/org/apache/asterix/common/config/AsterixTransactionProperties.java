@@ -62,6 +62,9 @@ public class AsterixTransactionProperties extends AbstractAsterixProperties {
     private static final long TXN_JOB_RECOVERY_MEMORY_SIZE_DEFAULT = StorageUtil.getSizeInBytes(64L,
             StorageUnit.MEGABYTE);
 
+    private static final String TXN_RECOVERY_REDO_THREADS_KEY = "txn.recovery.redo.threads";
+    private static final int TXN_RECOVERY_REDO_THREADS_DEFAULT = 0; // the number of available processors
+
     public AsterixTransactionProperties(AsterixPropertiesAccessor accessor) {
         super(accessor);
     }
@@ -133,4 +136,9 @@ public class AsterixTransactionProperties extends AbstractAsterixProperties {
         return accessor.getProperty(TXN_JOB_RECOVERY_MEMORY_SIZE_KEY, TXN_JOB_RECOVERY_MEMORY_SIZE_DEFAULT,
                 PropertyInterpreters.getLongPropertyInterpreter());
     }
+
+    public int getRecoveryRedoThreads() {
+        return accessor.getProperty(TXN_RECOVERY_REDO_THREADS_KEY, TXN_RECOVERY_REDO_THREADS_DEFAULT,
+                PropertyInterpreters.getIntegerPropertyInterpreter());
+    }
 }
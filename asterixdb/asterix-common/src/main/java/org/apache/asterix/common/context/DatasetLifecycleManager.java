@@ -27,6 +27,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.asterix.common.api.IDatasetLifecycleManager;
 import org.apache.asterix.common.api.ILocalResourceMetadata;
@@ -47,6 +48,7 @@ import org.apache.hyracks.storage.am.lsm.common.api.IVirtualBufferCache;
 import org.apache.hyracks.storage.am.lsm.common.impls.AbstractLSMIndex;
 import org.apache.hyracks.storage.am.lsm.common.impls.MultitenantVirtualBufferCache;
 import org.apache.hyracks.storage.am.lsm.common.impls.VirtualBufferCache;
+import org.apache.hyracks.storage.common.buffercache.BufferCacheStats;
 import org.apache.hyracks.storage.common.buffercache.ResourceHeapBufferAllocator;
 import org.apache.hyracks.storage.common.file.ILocalResourceRepository;
 import org.apache.hyracks.storage.common.file.LocalResource;
@@ -58,8 +60,10 @@ public class DatasetLifecycleManager implements IDatasetLifecycleManager, ILifeC
     private final Map<Integer, DatasetInfo> datasetInfos;
     private final ILocalResourceRepository resourceRepository;
     private final int firstAvilableUserDatasetID;
-    private final long capacity;
+    private long capacity;
     private long used;
+    // number of times datasets had to be closed, or could not be opened, because the memory budget was used up
+    private long numBudgetShortages;
     private final ILogManager logManager;
     private final LogRecord logRecord;
     private final int numPartitions;
@@ -522,32 +526,60 @@ public class DatasetLifecycleManager implements IDatasetLifecycleManager, ILifeC
 
     @Override
     public synchronized void scheduleAsyncFlushForLaggingDatasets(long targetLSN) throws HyracksDataException {
-        //schedule flush for datasets with min LSN (Log Serial Number) < targetLSN
+        //find the datasets with memory components whose first LSN (Log Serial Number) < targetLSN
+        List<DatasetInfo> laggingDatasets = new ArrayList<>();
+        Map<Integer, Long> firstLSNs = new HashMap<>();
         for (DatasetInfo dsInfo : datasetInfos.values()) {
             PrimaryIndexOperationTracker opTracker = (PrimaryIndexOperationTracker) getOperationTracker(
                     dsInfo.datasetID);
             synchronized (opTracker) {
-                for (IndexInfo iInfo : dsInfo.indexes.values()) {
-                    AbstractLSMIOOperationCallback ioCallback = (AbstractLSMIOOperationCallback) iInfo.index
-                            .getIOOperationCallback();
-                    if (!(((AbstractLSMIndex) iInfo.index).isCurrentMutableComponentEmpty()
-                            || ioCallback.hasPendingFlush() || opTracker.isFlushLogCreated()
-                            || opTracker.isFlushOnExit())) {
-                        long firstLSN = ioCallback.getFirstLSN();
-                        if (firstLSN < targetLSN) {
-                            opTracker.setFlushOnExit(true);
-                            if (opTracker.getNumActiveOperations() == 0) {
-                                // No Modify operations currently, we need to trigger the flush and we can do so safely
-                                opTracker.flushIfRequested();
-                            }
-                            break;
-                        }
+                long firstLSN = getUnflushedFirstLSN(dsInfo, opTracker);
+                if (firstLSN < targetLSN) {
+                    laggingDatasets.add(dsInfo);
+                    firstLSNs.put(dsInfo.datasetID, firstLSN);
+                }
+            }
+        }
+        //request the flushes of the oldest components first, since they hold back the start of the log to replay
+        Collections.sort(laggingDatasets,
+                (d1, d2) -> Long.compare(firstLSNs.get(d1.datasetID), firstLSNs.get(d2.datasetID)));
+        for (DatasetInfo dsInfo : laggingDatasets) {
+            PrimaryIndexOperationTracker opTracker = (PrimaryIndexOperationTracker) getOperationTracker(
+                    dsInfo.datasetID);
+            synchronized (opTracker) {
+                //the dataset may have been flushed in the meantime
+                if (getUnflushedFirstLSN(dsInfo, opTracker) < targetLSN) {
+                    opTracker.setFlushOnExit(true);
+                    if (opTracker.getNumActiveOperations() == 0) {
+                        // No Modify operations currently, we need to trigger the flush and we can do so safely
+                        opTracker.flushIfRequested();
                     }
                 }
             }
         }
     }
 
+    /**
+     * @return the smallest first LSN of the dataset's memory components that hold updates which are not being flushed
+     *         yet, or Long.MAX_VALUE if there are none. The caller must hold the monitor of the operation tracker.
+     */
+    private static long getUnflushedFirstLSN(DatasetInfo dsInfo, PrimaryIndexOperationTracker opTracker)
+            throws HyracksDataException {
+        if (opTracker.isFlushLogCreated() || opTracker.isFlushOnExit()) {
+            return Long.MAX_VALUE;
+        }
+        long minFirstLSN = Long.MAX_VALUE;
+        for (IndexInfo iInfo : dsInfo.indexes.values()) {
+            AbstractLSMIOOperationCallback ioCallback = (AbstractLSMIOOperationCallback) iInfo.index
+                    .getIOOperationCallback();
+            if (!(((AbstractLSMIndex) iInfo.index).isCurrentMutableComponentEmpty()
+                    || ioCallback.hasPendingFlush())) {
+                minFirstLSN = Math.min(minFirstLSN, ioCallback.getFirstLSN());
+            }
+        }
+        return minFirstLSN;
+    }
+
     /*
      * This method can only be called asynchronously safely if we're sure no modify operation will take place until the flush is scheduled
      */
@@ -688,10 +720,64 @@ public class DatasetLifecycleManager implements IDatasetLifecycleManager, ILifeC
                         iInfo.index));
             }
         }
+        sb.append("\n");
+
+        String statsHeaderFormat = "%-10s %-11s %-12s %-12s %-12s %-12s %-12s %-12s %-12s\n";
+        String statsFormat = "%-10d %-11s %-12d %-12d %-12d %-12d %-12d %-12d %-12d\n";
+
+        sb.append("[Buffer Cache]\n");
+        sb.append(String.format(statsHeaderFormat, "DatasetID", "ResourceID", "Pins", "Hits", "Misses", "Reads",
+                "Writes", "Evictions", "Dirty Waits"));
+        for (DatasetInfo dsInfo : datasetInfos.values()) {
+            BufferCacheStats dsStats = new BufferCacheStats();
+            for (Map.Entry<Long, IndexInfo> entry : dsInfo.indexes.entrySet()) {
+                BufferCacheStats idxStats = ((AbstractLSMIndex) entry.getValue().index).getBufferCacheStats();
+                dsStats.add(idxStats);
+                appendBufferCacheStats(sb, statsFormat, dsInfo.datasetID, entry.getKey().toString(), idxStats);
+            }
+            appendBufferCacheStats(sb, statsFormat, dsInfo.datasetID, "all", dsStats);
+        }
+        sb.append("\n");
+
+        String mergeHeaderFormat = "%-10s %-11s %-12s %-16s %-16s %-12s\n";
+        String mergeFormat = "%-10d %-11d %-12d %-16d %-16d %-12.2f\n";
+
+        sb.append("[Merges]\n");
+        sb.append(String.format(mergeHeaderFormat, "DatasetID", "ResourceID", "Components", "Added Bytes",
+                "Merged Bytes", "Write Amp"));
+        for (DatasetInfo dsInfo : datasetInfos.values()) {
+            for (Map.Entry<Long, IndexInfo> entry : dsInfo.indexes.entrySet()) {
+                AbstractLSMIndex index = (AbstractLSMIndex) entry.getValue().index;
+                sb.append(String.format(mergeFormat, dsInfo.datasetID, entry.getKey(), index.getDiskComponentCount(),
+                        index.getAddedComponentBytes(), index.getMergedComponentBytes(),
+                        index.getWriteAmplification()));
+            }
+        }
+        sb.append("\n");
+
+        String stallHeaderFormat = "%-10s %-11s %-12s %-16s\n";
+        String stallFormat = "%-10d %-11d %-12d %-16d\n";
+
+        sb.append("[Write Stalls]\n");
+        sb.append(String.format(stallHeaderFormat, "DatasetID", "ResourceID", "Stalls", "Stall Time (ms)"));
+        for (DatasetInfo dsInfo : datasetInfos.values()) {
+            for (Map.Entry<Long, IndexInfo> entry : dsInfo.indexes.entrySet()) {
+                AbstractLSMIndex index = (AbstractLSMIndex) entry.getValue().index;
+                sb.append(String.format(stallFormat, dsInfo.datasetID, entry.getKey(), index.getWriteStallCount(),
+                        TimeUnit.NANOSECONDS.toMillis(index.getWriteStallNanos())));
+            }
+        }
 
         outputStream.write(sb.toString().getBytes());
     }
 
+    private static void appendBufferCacheStats(StringBuilder sb, String format, int datasetId, String resource,
+            BufferCacheStats stats) {
+        sb.append(String.format(format, datasetId, resource, stats.getPinCount(), stats.getHitCount(),
+                stats.getMissCount(), stats.getReadCount(), stats.getWriteCount(), stats.getEvictionCount(),
+                stats.getDirtyPageWaitCount()));
+    }
+
     private synchronized void allocateDatasetMemory(int datasetId) throws HyracksDataException {
         DatasetInfo dsInfo = datasetInfos.get(datasetId);
         if (dsInfo == null) {
@@ -702,6 +788,9 @@ public class DatasetLifecycleManager implements IDatasetLifecycleManager, ILifeC
             // This is not needed for external datasets' indexes since they never use the virtual buffer cache.
             if (!dsInfo.memoryAllocated && !dsInfo.isExternal) {
                 long additionalSize = getVirtualBufferCaches(dsInfo.datasetID).getTotalSize();
+                if (used + additionalSize > capacity) {
+                    numBudgetShortages++;
+                }
                 while (used + additionalSize > capacity) {
                     if (!evictCandidateDataset()) {
                         throw new HyracksDataException("Cannot allocate dataset " + dsInfo.datasetID
@@ -714,6 +803,32 @@ public class DatasetLifecycleManager implements IDatasetLifecycleManager, ILifeC
         }
     }
 
+    public synchronized long getMemoryBudget() {
+        return capacity;
+    }
+
+    public synchronized long getUsedMemory() {
+        return used;
+    }
+
+    public synchronized long getNumMemoryBudgetShortages() {
+        return numBudgetShortages;
+    }
+
+    /**
+     * Changes the global memory budget of the memory components at runtime. The budget cannot be made smaller than
+     * the memory that is allocated to open datasets.
+     *
+     * @return true if the budget was changed
+     */
+    public synchronized boolean setMemoryBudget(long budget) {
+        if (budget < used) {
+            return false;
+        }
+        capacity = budget;
+        return true;
+    }
+
     private synchronized void deallocateDatasetMemory(int datasetId) throws HyracksDataException {
         DatasetInfo dsInfo = datasetInfos.get(datasetId);
         if (dsInfo == null) {
@@ -755,7 +870,8 @@ public class DatasetLifecycleManager implements IDatasetLifecycleManager, ILifeC
                                 new ResourceHeapBufferAllocator(DatasetLifecycleManager.this,
                                         Integer.toString(datasetID)),
                                 storageProperties.getMemoryComponentPageSize(),
-                                numPages / storageProperties.getMemoryComponentsNum() / numPartitions));
+                                numPages / storageProperties.getMemoryComponentsNum() / numPartitions,
+                                storageProperties.getMemoryComponentFlushThreshold()));
                 vbcs.add(vbc);
             }
             ioDeviceVirtualBufferCaches.put(ioDeviceNum, vbcs);
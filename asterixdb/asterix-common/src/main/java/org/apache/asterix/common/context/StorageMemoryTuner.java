@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.asterix.common.context;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.hyracks.api.lifecycle.ILifeCycleComponent;
+import org.apache.hyracks.storage.common.buffercache.BufferCache;
+import org.apache.hyracks.storage.common.buffercache.IBufferCache;
+
+/**
+ * Periodically moves memory between the disk buffer cache and the global budget of the memory components.
+ * If datasets had to be closed (or could not be opened) because the memory component budget was used up, and the
+ * buffer cache hit ratio is at its target, one step of memory moves from the buffer cache to the memory components.
+ * If the hit ratio is below its target and the memory component budget has unused memory, one step moves the other
+ * way. Neither side shrinks below half of its configured size, and their sum stays constant. A shrunk buffer cache
+ * releases its pages as they are evicted, so the memory is only freed gradually.
+ */
+public class StorageMemoryTuner implements ILifeCycleComponent {
+    private static final Logger LOGGER = Logger.getLogger(StorageMemoryTuner.class.getName());
+    public static final double TARGET_HIT_RATIO = 0.9;
+    private static final double MIN_SIZE_FRACTION = 0.5;
+    // hit ratios of intervals with fewer page accesses are not acted on
+    private static final long MIN_PAGE_ACCESSES = 1000;
+
+    private final BufferCache bufferCache;
+    private final DatasetLifecycleManager datasetLifecycleManager;
+    private final ThreadFactory threadFactory;
+    private final long intervalMillis;
+    private final long stepSize;
+    private final long pageSizeWithHeader;
+    private final int minBufferCachePages;
+    private final long minMemoryComponentBudget;
+
+    private long lastHits;
+    private long lastMisses;
+    private long lastShortages;
+    private long bytesMovedToBufferCache;
+    private long bytesMovedToMemoryComponents;
+    private volatile boolean stopped;
+    private Thread thread;
+
+    public StorageMemoryTuner(BufferCache bufferCache, DatasetLifecycleManager datasetLifecycleManager,
+            ThreadFactory threadFactory, long intervalMillis, long stepSize) {
+        this.bufferCache = bufferCache;
+        this.datasetLifecycleManager = datasetLifecycleManager;
+        this.threadFactory = threadFactory;
+        this.intervalMillis = intervalMillis;
+        this.stepSize = stepSize;
+        this.pageSizeWithHeader = (long) bufferCache.getPageSize() + IBufferCache.RESERVED_HEADER_BYTES;
+        this.minBufferCachePages = (int) (bufferCache.getNumPages() * MIN_SIZE_FRACTION);
+        this.minMemoryComponentBudget = (long) (datasetLifecycleManager.getMemoryBudget() * MIN_SIZE_FRACTION);
+    }
+
+    @Override
+    public synchronized void start() {
+        if (intervalMillis <= 0 || thread != null) {
+            return;
+        }
+        lastHits = bufferCache.getPageHitCount();
+        lastMisses = bufferCache.getPageMissCount();
+        lastShortages = datasetLifecycleManager.getNumMemoryBudgetShortages();
+        thread = threadFactory.newThread(() -> {
+            Thread.currentThread().setName("Storage Memory Tuner");
+            while (!stopped) {
+                try {
+                    Thread.sleep(intervalMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                tune();
+            }
+        });
+        thread.start();
+    }
+
+    /**
+     * Compares the buffer cache hit ratio and the memory component budget shortages of the interval since the last
+     * call, and moves at most one step of memory.
+     */
+    public synchronized void tune() {
+        long hits = bufferCache.getPageHitCount();
+        long misses = bufferCache.getPageMissCount();
+        long shortages = datasetLifecycleManager.getNumMemoryBudgetShortages();
+        long accesses = (hits - lastHits) + (misses - lastMisses);
+        double hitRatio = accesses == 0 ? 1.0 : (double) (hits - lastHits) / accesses;
+        boolean memoryComponentsShort = shortages > lastShortages;
+        lastHits = hits;
+        lastMisses = misses;
+        lastShortages = shortages;
+        if (memoryComponentsShort && hitRatio >= TARGET_HIT_RATIO) {
+            moveToMemoryComponents();
+        } else if (!memoryComponentsShort && accesses >= MIN_PAGE_ACCESSES && hitRatio < TARGET_HIT_RATIO) {
+            moveToBufferCache();
+        }
+    }
+
+    private void moveToMemoryComponents() {
+        int numPages = bufferCache.getNumPages();
+        int pages = (int) Math.min(stepSize / pageSizeWithHeader, numPages - minBufferCachePages);
+        if (pages <= 0) {
+            return;
+        }
+        bufferCache.setNumPages(numPages - pages);
+        long bytes = pages * pageSizeWithHeader;
+        synchronized (datasetLifecycleManager) {
+            datasetLifecycleManager.setMemoryBudget(datasetLifecycleManager.getMemoryBudget() + bytes);
+        }
+        bytesMovedToMemoryComponents += bytes;
+        if (LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.info("Moved " + bytes + " bytes from the buffer cache to the memory components");
+        }
+    }
+
+    private void moveToBufferCache() {
+        long bytes;
+        synchronized (datasetLifecycleManager) {
+            long budget = datasetLifecycleManager.getMemoryBudget();
+            long unused = Math.min(budget - datasetLifecycleManager.getUsedMemory(), budget - minMemoryComponentBudget);
+            bytes = Math.min(stepSize, unused) / pageSizeWithHeader * pageSizeWithHeader;
+            if (bytes <= 0 || !datasetLifecycleManager.setMemoryBudget(budget - bytes)) {
+                return;
+            }
+        }
+        bufferCache.setNumPages(bufferCache.getNumPages() + (int) (bytes / pageSizeWithHeader));
+        bytesMovedToBufferCache += bytes;
+        if (LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.info("Moved " + bytes + " bytes from the memory components to the buffer cache");
+        }
+    }
+
+    @Override
+    public void stop(boolean dumpState, OutputStream outputStream) throws IOException {
+        if (dumpState) {
+            dumpState(outputStream);
+        }
+        Thread t;
+        synchronized (this) {
+            stopped = true;
+            t = thread;
+        }
+        if (t != null) {
+            t.interrupt();
+        }
+    }
+
+    @Override
+    public synchronized void dumpState(OutputStream outputStream) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("Buffer cache pages = %d\n", bufferCache.getNumPages()));
+        sb.append(String.format("Memory component budget = %d\n", datasetLifecycleManager.getMemoryBudget()));
+        sb.append(String.format("Moved to buffer cache = %d\n", bytesMovedToBufferCache));
+        sb.append(String.format("Moved to memory components = %d\n", bytesMovedToMemoryComponents));
+        outputStream.write(sb.toString().getBytes());
+    }
+}
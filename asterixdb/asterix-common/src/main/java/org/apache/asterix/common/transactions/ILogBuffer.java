@@ -20,10 +20,13 @@ package org.apache.asterix.common.transactions;
 
 public interface ILogBuffer {
 
-    public void append(ILogRecord logRecord, long appendLsn);
+    /**
+     * Writes a log record into the space at the given offset, which was handed out to the caller.
+     */
+    public void append(ILogRecord logRecord, int offset, long appendLsn);
 
     public void flush();
 
-    public void appendWithReplication(ILogRecord logRecord, long appendLSN);
+    public void appendWithReplication(ILogRecord logRecord, int offset, long appendLSN);
 
 }
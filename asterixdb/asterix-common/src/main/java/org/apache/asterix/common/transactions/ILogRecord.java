@@ -32,6 +32,14 @@ public interface ILogRecord {
         LARGE_RECORD
     }
 
+    /**
+     * The version of the log format, which is kept in the upper bits of the log source byte of every record.
+     * Records of version 0 are checksummed with CRC32, and records of version 1 with CRC32C.
+     */
+    public static final int LOG_FORMAT_VERSION = 1;
+    public static final int LOG_FORMAT_VERSION_SHIFT = 4;
+    public static final int LOG_SOURCE_MASK = (1 << LOG_FORMAT_VERSION_SHIFT) - 1;
+
     public static final int CHKSUM_LEN = Long.BYTES;
     public static final int FLDCNT_LEN = Integer.BYTES;
     public static final int DS_LEN = Integer.BYTES;
@@ -25,6 +25,7 @@ import java.util.zip.CRC32;
 
 import org.apache.asterix.common.context.PrimaryIndexOperationTracker;
 import org.apache.asterix.common.replication.IReplicationThread;
+import org.apache.asterix.common.utils.CRC32C;
 import org.apache.hyracks.dataflow.common.data.accessors.ITupleReference;
 import org.apache.hyracks.storage.am.common.tuples.SimpleTupleReference;
 import org.apache.hyracks.storage.am.common.tuples.SimpleTupleWriter;
@@ -33,7 +34,7 @@ import org.apache.hyracks.storage.am.common.tuples.SimpleTupleWriter;
  * == LogRecordFormat ==
  * ---------------------------
  * [Header1] (6 bytes) : for all log types
- * LogSource(1)
+ * LogFormatVersion(4 bits) and LogSource(4 bits)
  * LogType(1)
  * JobId(4)
  * ---------------------------
@@ -55,7 +56,7 @@ import org.apache.hyracks.storage.am.common.tuples.SimpleTupleWriter;
  * NewValue(NewValueSize)
  * ---------------------------
  * [Tail] (8 bytes) : for all log types
- * Checksum(8)
+ * Checksum(8) //CRC32C of the record up to the checksum, CRC32 in records of log format version 0
  * ---------------------------
  * = LogSize =
  * 1) JOB_COMMIT_LOG_SIZE: 14 bytes (Header1(6) + Tail(8))
@@ -71,8 +72,15 @@ import org.apache.hyracks.storage.am.common.tuples.SimpleTupleWriter;
 
 public class LogRecord implements ILogRecord {
 
+    // the table driven CRC32C is much slower than the CRC32 of the JVM, so JVMs without CRC32C write version 0 records
+    private static final int WRITE_LOG_FORMAT_VERSION = CRC32C.isProvidedByJvm() ? LOG_FORMAT_VERSION : 0;
+    // each thread that writes or reads log records reuses its checksums, so that checksumming does not allocate
+    private static final ThreadLocal<CRC32C> CHECKSUM_GEN = ThreadLocal.withInitial(CRC32C::new);
+    private static final ThreadLocal<CRC32> LEGACY_CHECKSUM_GEN = ThreadLocal.withInitial(CRC32::new);
+
     // ------------- fields in a log record (begin) ------------//
     private byte logSource;
+    private int logFormatVersion;
     private byte logType;
     private int jobId;
     private int datasetId;
@@ -101,7 +109,6 @@ public class LogRecord implements ILogRecord {
     private final PrimaryKeyTupleReference readPKValue;
     private final SimpleTupleReference readNewValue;
     private final SimpleTupleReference readOldValue;
-    private final CRC32 checksumGen;
     private int[] PKFields;
     private PrimaryIndexOperationTracker opTracker;
     private IReplicationThread replicationThread;
@@ -119,7 +126,6 @@ public class LogRecord implements ILogRecord {
         readPKValue = new PrimaryKeyTupleReference();
         readNewValue = SimpleTupleWriter.INSTANCE.createTupleReference();
         readOldValue = SimpleTupleWriter.INSTANCE.createTupleReference();
-        checksumGen = new CRC32();
         logSource = LogSource.LOCAL;
     }
 
@@ -128,7 +134,7 @@ public class LogRecord implements ILogRecord {
     }
 
     private void doWriteLogRecord(ByteBuffer buffer) {
-        buffer.put(logSource);
+        buffer.put((byte) (WRITE_LOG_FORMAT_VERSION << LOG_FORMAT_VERSION_SHIFT | logSource));
         buffer.put(logType);
         buffer.putInt(jobId);
         switch (logType) {
@@ -180,7 +186,7 @@ public class LogRecord implements ILogRecord {
     public void writeLogRecord(ByteBuffer buffer) {
         int beginOffset = buffer.position();
         doWriteLogRecord(buffer);
-        checksum = generateChecksum(buffer, beginOffset, logSize - CHKSUM_LEN);
+        checksum = generateChecksum(buffer, beginOffset, logSize - CHKSUM_LEN, WRITE_LOG_FORMAT_VERSION);
         buffer.putLong(checksum);
     }
 
@@ -209,17 +215,32 @@ public class LogRecord implements ILogRecord {
 
     private void writeTuple(ByteBuffer buffer, ITupleReference tuple, int size) {
         if (logSource == LogSource.LOCAL) {
-            SimpleTupleWriter.INSTANCE.writeTuple(tuple, buffer.array(), buffer.position());
+            // the fields are copied from the tuple into the log page directly, whether it is on or off heap
+            SimpleTupleWriter.INSTANCE.writeTuple(tuple, buffer, buffer.position());
+            buffer.position(buffer.position() + size);
         } else {
             //since the tuple is already serialized in remote logs, just copy it from beginning to end.
-            System.arraycopy(tuple.getFieldData(0), 0, buffer.array(), buffer.position(), size);
+            buffer.put(tuple.getFieldData(0), 0, size);
         }
-        buffer.position(buffer.position() + size);
     }
 
-    private long generateChecksum(ByteBuffer buffer, int offset, int len) {
+    private static long generateChecksum(ByteBuffer buffer, int offset, int len, int version) {
+        if (version == 0) {
+            CRC32 legacyChecksumGen = LEGACY_CHECKSUM_GEN.get();
+            legacyChecksumGen.reset();
+            if (buffer.hasArray()) {
+                legacyChecksumGen.update(buffer.array(), buffer.arrayOffset() + offset, len);
+            } else {
+                ByteBuffer range = buffer.duplicate();
+                range.limit(offset + len);
+                range.position(offset);
+                legacyChecksumGen.update(range);
+            }
+            return legacyChecksumGen.getValue();
+        }
+        CRC32C checksumGen = CHECKSUM_GEN.get();
         checksumGen.reset();
-        checksumGen.update(buffer.array(), offset, len);
+        checksumGen.update(buffer, offset, len);
         return checksumGen.getValue();
     }
 
@@ -240,7 +261,9 @@ public class LogRecord implements ILogRecord {
             return RecordReadStatus.TRUNCATED;
         }
         checksum = buffer.getLong();
-        if (checksum != generateChecksum(buffer, beginOffset, logSize - CHKSUM_LEN)) {
+        // a record of a newer log format than this one knows cannot be verified
+        if (logFormatVersion > LOG_FORMAT_VERSION
+                || checksum != generateChecksum(buffer, beginOffset, logSize - CHKSUM_LEN, logFormatVersion)) {
             return RecordReadStatus.BAD_CHKSUM;
         }
 
@@ -252,7 +275,9 @@ public class LogRecord implements ILogRecord {
         if (buffer.remaining() < ALL_RECORD_HEADER_LEN) {
             return RecordReadStatus.TRUNCATED;
         }
-        logSource = buffer.get();
+        int versionAndSource = buffer.get() & 0xFF;
+        logFormatVersion = versionAndSource >>> LOG_FORMAT_VERSION_SHIFT;
+        logSource = (byte) (versionAndSource & LOG_SOURCE_MASK);
         logType = buffer.get();
         jobId = buffer.getInt();
         switch (logType) {
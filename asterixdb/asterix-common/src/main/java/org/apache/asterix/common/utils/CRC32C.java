@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.asterix.common.utils;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.ByteBuffer;
+import java.util.zip.Checksum;
+
+/**
+ * Computes CRC-32C (Castagnoli) checksums. On JVMs that provide {@code java.util.zip.CRC32C}, which is compiled to
+ * the CRC32 instructions of the processor, the checksum is computed by it; otherwise it is computed by a table driven
+ * implementation that processes 8 bytes per step. Both heap and direct buffers can be checksummed.
+ */
+public class CRC32C implements Checksum {
+    private static final int POLYNOMIAL = 0x82F63B78;
+    private static final int[][] TABLES = createTables();
+    private static final MethodHandle JDK_CONSTRUCTOR;
+    private static final MethodHandle JDK_UPDATE_BUFFER;
+
+    static {
+        MethodHandle constructor = null;
+        MethodHandle updateBuffer = null;
+        try {
+            Class<?> jdkClass = Class.forName("java.util.zip.CRC32C");
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            constructor = lookup.findConstructor(jdkClass, MethodType.methodType(void.class))
+                    .asType(MethodType.methodType(Checksum.class));
+            updateBuffer = lookup.findVirtual(jdkClass, "update", MethodType.methodType(void.class, ByteBuffer.class))
+                    .asType(MethodType.methodType(void.class, Checksum.class, ByteBuffer.class));
+        } catch (ReflectiveOperationException e) {
+            // the JVM does not provide CRC32C, fall back to the table driven implementation
+        }
+        JDK_CONSTRUCTOR = constructor;
+        JDK_UPDATE_BUFFER = updateBuffer;
+    }
+
+    private final Checksum jdkChecksum;
+    private int crc = 0xFFFFFFFF;
+
+    public CRC32C() {
+        jdkChecksum = JDK_CONSTRUCTOR == null ? null : newJdkChecksum();
+    }
+
+    /**
+     * @return whether the checksums are computed by the JVM's own implementation
+     */
+    public static boolean isProvidedByJvm() {
+        return JDK_CONSTRUCTOR != null;
+    }
+
+    private static Checksum newJdkChecksum() {
+        try {
+            return (Checksum) JDK_CONSTRUCTOR.invokeExact();
+        } catch (Throwable th) {
+            throw new IllegalStateException(th);
+        }
+    }
+
+    @Override
+    public void update(int b) {
+        if (jdkChecksum != null) {
+            jdkChecksum.update(b);
+        } else {
+            crc = (crc >>> 8) ^ TABLES[0][(crc ^ b) & 0xFF];
+        }
+    }
+
+    @Override
+    public void update(byte[] b, int off, int len) {
+        if (jdkChecksum != null) {
+            jdkChecksum.update(b, off, len);
+            return;
+        }
+        int[] t0 = TABLES[0];
+        int[] t1 = TABLES[1];
+        int[] t2 = TABLES[2];
+        int[] t3 = TABLES[3];
+        int[] t4 = TABLES[4];
+        int[] t5 = TABLES[5];
+        int[] t6 = TABLES[6];
+        int[] t7 = TABLES[7];
+        int c = crc;
+        int end = off + len;
+        for (; off + Long.BYTES <= end; off += Long.BYTES) {
+            int lo = c ^ ((b[off] & 0xFF) | (b[off + 1] & 0xFF) << 8 | (b[off + 2] & 0xFF) << 16
+                    | (b[off + 3] & 0xFF) << 24);
+            int hi = (b[off + 4] & 0xFF) | (b[off + 5] & 0xFF) << 8 | (b[off + 6] & 0xFF) << 16
+                    | (b[off + 7] & 0xFF) << 24;
+            c = t7[lo & 0xFF] ^ t6[(lo >>> 8) & 0xFF] ^ t5[(lo >>> 16) & 0xFF] ^ t4[lo >>> 24] ^ t3[hi & 0xFF]
+                    ^ t2[(hi >>> 8) & 0xFF] ^ t1[(hi >>> 16) & 0xFF] ^ t0[hi >>> 24];
+        }
+        for (; off < end; off++) {
+            c = (c >>> 8) ^ t0[(c ^ b[off]) & 0xFF];
+        }
+        crc = c;
+    }
+
+    /**
+     * Checksums length bytes of the buffer starting at offset without changing the position of the buffer.
+     */
+    public void update(ByteBuffer buffer, int offset, int length) {
+        if (buffer.hasArray()) {
+            update(buffer.array(), buffer.arrayOffset() + offset, length);
+        } else if (jdkChecksum != null) {
+            ByteBuffer range = buffer.duplicate();
+            range.limit(offset + length);
+            range.position(offset);
+            try {
+                JDK_UPDATE_BUFFER.invokeExact(jdkChecksum, range);
+            } catch (Throwable th) {
+                throw new IllegalStateException(th);
+            }
+        } else {
+            int c = crc;
+            for (int i = offset, end = offset + length; i < end; i++) {
+                c = (c >>> 8) ^ TABLES[0][(c ^ buffer.get(i)) & 0xFF];
+            }
+            crc = c;
+        }
+    }
+
+    @Override
+    public long getValue() {
+        return jdkChecksum != null ? jdkChecksum.getValue() : ~crc & 0xFFFFFFFFL;
+    }
+
+    @Override
+    public void reset() {
+        if (jdkChecksum != null) {
+            jdkChecksum.reset();
+        } else {
+            crc = 0xFFFFFFFF;
+        }
+    }
+
+    /**
+     * Table k holds the checksums of each byte followed by k zero bytes, which lets 8 bytes be folded in one step.
+     */
+    private static int[][] createTables() {
+        int[][] tables = new int[Long.BYTES][256];
+        for (int i = 0; i < 256; i++) {
+            int c = i;
+            for (int bit = 0; bit < Byte.SIZE; bit++) {
+                c = (c & 1) != 0 ? (c >>> 1) ^ POLYNOMIAL : c >>> 1;
+            }
+            tables[0][i] = c;
+        }
+        for (int k = 1; k < Long.BYTES; k++) {
+            for (int i = 0; i < 256; i++) {
+                int c = tables[k - 1][i];
+                tables[k][i] = (c >>> 8) ^ tables[0][c & 0xFF];
+            }
+        }
+        return tables;
+    }
+}
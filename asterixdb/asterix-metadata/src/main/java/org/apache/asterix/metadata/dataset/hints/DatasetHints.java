@@ -57,6 +57,7 @@ public class DatasetHints {
         Set<IHint> hints = new HashSet<IHint>();
         hints.add(new DatasetCardinalityHint());
         hints.add(new DatasetNodegroupCardinalityHint());
+        hints.add(new DatasetPageCompressionHint());
         return hints;
     }
 
@@ -129,4 +130,27 @@ public class DatasetHints {
 
     }
 
+    /**
+     * Hint representing whether the disk components of the dataset's primary index store their pages compressed.
+     */
+    public static class DatasetPageCompressionHint implements IHint {
+        public static final String NAME = "PAGE_COMPRESSION";
+
+        public static final boolean DEFAULT = false;
+
+        @Override
+        public String getName() {
+            return NAME;
+        }
+
+        @Override
+        public Pair<Boolean, String> validateValue(String value) {
+            if (!"true".equalsIgnoreCase(value) && !"false".equalsIgnoreCase(value)) {
+                return new Pair<Boolean, String>(false, "Value must be true or false");
+            }
+            return new Pair<Boolean, String>(true, null);
+        }
+
+    }
+
 }
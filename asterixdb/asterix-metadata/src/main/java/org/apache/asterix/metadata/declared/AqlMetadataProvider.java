@@ -688,7 +688,12 @@ public class AqlMetadataProvider implements IMetadataProvider<AqlSourceId, Strin
                                         : new PrimaryIndexOperationTrackerProvider(dataset.getDatasetId()),
                                 rtcProvider, LSMBTreeIOOperationCallbackFactory.INSTANCE,
                                 storageProperties.getBloomFilterFalsePositiveRate(), !isSecondary, filterTypeTraits,
-                                filterCmpFactories, btreeFields, filterFields, !temp),
+                                filterCmpFactories, btreeFields, filterFields, !temp,
+                                storageProperties.isBlockedBloomFilter(),
+                                !isSecondary && DatasetUtils.isPageCompressed(dataset),
+                                !isSecondary && storageProperties.isLSMBTreeFencePointers(),
+                                storageProperties.getLSMBTreeMergeParallelism(),
+                                storageProperties.isLSMBTreePipelinedLoad()),
                         retainInput, retainMissing, context.getMissingWriterFactory(), searchCallbackFactory,
                         minFilterFieldIndexes, maxFilterFieldIndexes);
             } else {
@@ -1086,7 +1091,11 @@ public class AqlMetadataProvider implements IMetadataProvider<AqlSourceId, Strin
                             AsterixRuntimeComponentsProvider.RUNTIME_PROVIDER,
                             LSMBTreeIOOperationCallbackFactory.INSTANCE,
                             storageProperties.getBloomFilterFalsePositiveRate(), true, filterTypeTraits,
-                            filterCmpFactories, btreeFields, filterFields, !temp));
+                            filterCmpFactories, btreeFields, filterFields, !temp,
+                            storageProperties.isBlockedBloomFilter(), DatasetUtils.isPageCompressed(dataset),
+                            storageProperties.isLSMBTreeFencePointers(),
+                            storageProperties.getLSMBTreeMergeParallelism(),
+                            storageProperties.isLSMBTreePipelinedLoad()));
             return new Pair<IOperatorDescriptor, AlgebricksPartitionConstraint>(btreeBulkLoad,
                     splitsAndConstraint.second);
         } catch (MetadataException me) {
@@ -1178,7 +1187,11 @@ public class AqlMetadataProvider implements IMetadataProvider<AqlSourceId, Strin
                     new PrimaryIndexOperationTrackerProvider(dataset.getDatasetId()),
                     AsterixRuntimeComponentsProvider.RUNTIME_PROVIDER, LSMBTreeIOOperationCallbackFactory.INSTANCE,
                     storageProperties.getBloomFilterFalsePositiveRate(), true, filterTypeTraits, filterCmpFactories,
-                    btreeFields, filterFields, !temp);
+                    btreeFields, filterFields, !temp,
+                    storageProperties.isBlockedBloomFilter(), DatasetUtils.isPageCompressed(dataset),
+                    storageProperties.isLSMBTreeFencePointers(),
+                    storageProperties.getLSMBTreeMergeParallelism(),
+                    storageProperties.isLSMBTreePipelinedLoad());
             IOperatorDescriptor op;
             if (bulkload) {
                 long numElementsHint = getCardinalityPerPartitionHint(dataset);
@@ -2352,7 +2365,11 @@ public class AqlMetadataProvider implements IMetadataProvider<AqlSourceId, Strin
                     new PrimaryIndexOperationTrackerProvider(dataset.getDatasetId()),
                     AsterixRuntimeComponentsProvider.RUNTIME_PROVIDER, LSMBTreeIOOperationCallbackFactory.INSTANCE,
                     storageProperties.getBloomFilterFalsePositiveRate(), true, filterTypeTraits, filterCmpFactories,
-                    btreeFields, filterFields, !temp);
+                    btreeFields, filterFields, !temp,
+                    storageProperties.isBlockedBloomFilter(), DatasetUtils.isPageCompressed(dataset),
+                    storageProperties.isLSMBTreeFencePointers(),
+                    storageProperties.getLSMBTreeMergeParallelism(),
+                    storageProperties.isLSMBTreePipelinedLoad());
             AsterixLSMTreeUpsertOperatorDescriptor op;
 
             ITypeTraits[] outputTypeTraits =
@@ -35,6 +35,7 @@ import org.apache.asterix.formats.nontagged.AqlTypeTraitProvider;
 import org.apache.asterix.metadata.MetadataException;
 import org.apache.asterix.metadata.MetadataManager;
 import org.apache.asterix.metadata.MetadataTransactionContext;
+import org.apache.asterix.metadata.dataset.hints.DatasetHints.DatasetPageCompressionHint;
 import org.apache.asterix.metadata.declared.AqlMetadataProvider;
 import org.apache.asterix.metadata.entities.CompactionPolicy;
 import org.apache.asterix.metadata.entities.Dataset;
@@ -250,6 +251,14 @@ public class DatasetUtils {
         return new Pair<ILSMMergePolicyFactory, Map<String, String>>(mergePolicyFactory, properties);
     }
 
+    /**
+     * @return whether the disk components of the dataset's primary index store their pages compressed
+     */
+    public static boolean isPageCompressed(Dataset dataset) {
+        String hintValue = dataset.getHints().get(DatasetPageCompressionHint.NAME);
+        return hintValue == null ? DatasetPageCompressionHint.DEFAULT : Boolean.parseBoolean(hintValue);
+    }
+
     @SuppressWarnings("unchecked")
     public static void writePropertyTypeRecord(String name, String value, DataOutput out, ARecordType recordType)
             throws HyracksDataException {
@@ -44,11 +44,29 @@ public class LSMBTreeLocalResourceMetadata extends AbstractLSMLocalResourceMetad
     protected final ILSMMergePolicyFactory mergePolicyFactory;
     protected final Map<String, String> mergePolicyProperties;
     protected final int[] btreeFields;
+    // resources created before these fields were added deserialize them as false
+    protected final boolean blockedBloomFilter;
+    protected final boolean pageCompression;
+    protected final boolean fencePointers;
+    // resources created before this field was added deserialize it as 0, which merges on a single thread
+    protected final int mergeParallelism;
+    protected final boolean pipelinedLoad;
 
     public LSMBTreeLocalResourceMetadata(ITypeTraits[] typeTraits, IBinaryComparatorFactory[] cmpFactories,
             int[] bloomFilterKeyFields, boolean isPrimary, int datasetID, ILSMMergePolicyFactory mergePolicyFactory,
             Map<String, String> mergePolicyProperties, ITypeTraits[] filterTypeTraits,
             IBinaryComparatorFactory[] filterCmpFactories, int[] btreeFields, int[] filterFields) {
+        this(typeTraits, cmpFactories, bloomFilterKeyFields, isPrimary, datasetID, mergePolicyFactory,
+                mergePolicyProperties, filterTypeTraits, filterCmpFactories, btreeFields, filterFields, false,
+                false, false, 1, false);
+    }
+
+    public LSMBTreeLocalResourceMetadata(ITypeTraits[] typeTraits, IBinaryComparatorFactory[] cmpFactories,
+            int[] bloomFilterKeyFields, boolean isPrimary, int datasetID, ILSMMergePolicyFactory mergePolicyFactory,
+            Map<String, String> mergePolicyProperties, ITypeTraits[] filterTypeTraits,
+            IBinaryComparatorFactory[] filterCmpFactories, int[] btreeFields, int[] filterFields,
+            boolean blockedBloomFilter, boolean pageCompression, boolean fencePointers, int mergeParallelism,
+            boolean pipelinedLoad) {
         super(datasetID, filterTypeTraits, filterCmpFactories, filterFields);
         this.typeTraits = typeTraits;
         this.cmpFactories = cmpFactories;
@@ -57,6 +75,11 @@ public class LSMBTreeLocalResourceMetadata extends AbstractLSMLocalResourceMetad
         this.mergePolicyFactory = mergePolicyFactory;
         this.mergePolicyProperties = mergePolicyProperties;
         this.btreeFields = btreeFields;
+        this.blockedBloomFilter = blockedBloomFilter;
+        this.pageCompression = pageCompression;
+        this.fencePointers = fencePointers;
+        this.mergeParallelism = mergeParallelism;
+        this.pipelinedLoad = pipelinedLoad;
     }
 
     @Override
@@ -72,7 +95,8 @@ public class LSMBTreeLocalResourceMetadata extends AbstractLSMLocalResourceMetad
                         : new BaseOperationTracker(datasetID, datasetLifecycleManager.getDatasetInfo(datasetID)),
                 runtimeContextProvider.getLSMIOScheduler(),
                 LSMBTreeIOOperationCallbackFactory.INSTANCE.createIOOperationCallback(), isPrimary, filterTypeTraits,
-                filterCmpFactories, btreeFields, filterFields, true);
+                filterCmpFactories, btreeFields, filterFields, true, blockedBloomFilter,
+                pageCompression, fencePointers, mergeParallelism, pipelinedLoad);
         return lsmBTree;
     }
 
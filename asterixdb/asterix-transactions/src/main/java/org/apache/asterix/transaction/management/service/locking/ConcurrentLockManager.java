@@ -37,9 +37,13 @@ import org.apache.hyracks.api.lifecycle.ILifeCycleComponent;
 
 /**
  * A concurrent implementation of the ILockManager interface.
+ * Uncontended S and X locks on entities are held as thin locks in a ThinLockTable, which only takes a single CAS.
+ * The locks are moved into the arenas (inflated) as soon as another request for a resource of the same ResourceGroup
+ * needs to see them.
  *
  * @see ResourceGroupTable
  * @see ResourceGroup
+ * @see ThinLockTable
  */
 public class ConcurrentLockManager implements ILockManager, ILifeCycleComponent {
 
@@ -54,6 +58,7 @@ public class ConcurrentLockManager implements ILockManager, ILifeCycleComponent
     public static final boolean CHECK_CONSISTENCY = false;
 
     private ResourceGroupTable table;
+    private ThinLockTable thinLocks;
     private ResourceArenaManager resArenaMgr;
     private RequestArenaManager reqArenaMgr;
     private JobArenaManager jobArenaMgr;
@@ -93,6 +98,7 @@ public class ConcurrentLockManager implements ILockManager, ILifeCycleComponent
     public ConcurrentLockManager(final int lockManagerShrinkTimer, final int noArenas, final int tableSize)
             throws ACIDException {
         this.table = new ResourceGroupTable(tableSize);
+        this.thinLocks = new ThinLockTable(tableSize);
         resArenaMgr = new ResourceArenaManager(noArenas, lockManagerShrinkTimer);
         reqArenaMgr = new RequestArenaManager(noArenas, lockManagerShrinkTimer);
         jobArenaMgr = new JobArenaManager(noArenas, lockManagerShrinkTimer);
@@ -107,11 +113,16 @@ public class ConcurrentLockManager implements ILockManager, ILifeCycleComponent
 
         final int dsId = datasetId.getId();
         final int jobId = txnContext.getJobId().getId();
+        final int stripe = table.getIndex(dsId, entityHashValue);
+        if (tryThinLock(dsId, stripe, entityHashValue, lockMode, txnContext)) {
+            return;
+        }
         final long jobSlot = findOrAllocJobSlot(jobId);
-        final ResourceGroup group = table.get(dsId, entityHashValue);
+        final ResourceGroup group = table.get(stripe);
         group.getLatch();
         try {
             validateJob(txnContext);
+            inflate(group, dsId, stripe, true);
 
             final long resSlot = findOrAllocResourceSlot(group, dsId, entityHashValue);
             final long reqSlot = allocRequestSlot(resSlot, jobSlot, lockMode);
@@ -327,8 +338,10 @@ public class ConcurrentLockManager implements ILockManager, ILifeCycleComponent
 
         final int dsId = datasetId.getId();
         final int jobId = txnContext.getJobId().getId();
-        final ResourceGroup group = table.get(dsId, entityHashValue);
-        if (group.firstResourceIndex.get() == NILL) {
+        final int stripe = table.getIndex(dsId, entityHashValue);
+        final ResourceGroup group = table.get(stripe);
+        final boolean thinConflict = conflictsWithThinLock(dsId, stripe, entityHashValue, lockMode, jobId);
+        if (!thinConflict && group.firstResourceIndex.get() == NILL) {
             validateJob(txnContext);
             // if we do not have a resource in the group, we know that the
             // resource that we are looking for is not locked
@@ -341,6 +354,10 @@ public class ConcurrentLockManager implements ILockManager, ILifeCycleComponent
         group.getLatch();
         try {
             validateJob(txnContext);
+            if (thinConflict) {
+                // we have to wait for the thin lock, so it needs to be in the arenas
+                inflate(group, dsId, stripe, false);
+            }
 
             final long resSlot = findResourceInGroup(group, dsId, entityHashValue);
             if (resSlot < 0) {
@@ -389,12 +406,17 @@ public class ConcurrentLockManager implements ILockManager, ILifeCycleComponent
 
         final int dsId = datasetId.getId();
         final int jobId = txnContext.getJobId().getId();
+        final int stripe = table.getIndex(dsId, entityHashValue);
+        if (tryThinLock(dsId, stripe, entityHashValue, lockMode, txnContext)) {
+            return true;
+        }
         final long jobSlot = findOrAllocJobSlot(jobId);
-        final ResourceGroup group = table.get(dsId, entityHashValue);
+        final ResourceGroup group = table.get(stripe);
         group.getLatch();
 
         try {
             validateJob(txnContext);
+            inflate(group, dsId, stripe, true);
 
             final long resSlot = findOrAllocResourceSlot(group, dsId, entityHashValue);
             final long reqSlot = allocRequestSlot(resSlot, jobSlot, lockMode);
@@ -426,7 +448,12 @@ public class ConcurrentLockManager implements ILockManager, ILifeCycleComponent
 
         final int dsId = datasetId.getId();
         final int jobId = txnContext.getJobId().getId();
-        final ResourceGroup group = table.get(dsId, entityHashValue);
+        final int stripe = table.getIndex(dsId, entityHashValue);
+        if (conflictsWithThinLock(dsId, stripe, entityHashValue, lockMode, jobId)) {
+            validateJob(txnContext);
+            return false;
+        }
+        final ResourceGroup group = table.get(stripe);
         if (group.firstResourceIndex.get() == NILL) {
             validateJob(txnContext);
             // if we do not have a resource in the group, we know that the
@@ -468,17 +495,31 @@ public class ConcurrentLockManager implements ILockManager, ILifeCycleComponent
             throws ACIDException {
         log("unlock", datasetId.getId(), entityHashValue, lockMode, txnContext);
         final int jobId = txnContext.getJobId().getId();
-        final long jobSlot = jobId2JobSlotMap.get(jobId);
-
         final int dsId = datasetId.getId();
-        unlock(dsId, entityHashValue, lockMode, jobSlot);
+        final int stripe = table.getIndex(dsId, entityHashValue);
+        if (thinLocks.unlock(dsId, stripe, jobId, lockMode, entityHashValue)) {
+            stats.unlock();
+            return;
+        }
+        // another job might be moving the thin lock into the arenas, which it does while holding the latch of the
+        // group, so the job slot is only known once we have the latch
+        final ResourceGroup group = table.get(stripe);
+        group.getLatch();
+        try {
+            final long jobSlot = jobId2JobSlotMap.get(jobId);
+
+            unlock(dsId, entityHashValue, lockMode, jobSlot);
+        } finally {
+            group.releaseLatch();
+        }
     }
 
     private void unlock(int dsId, int entityHashValue, byte lockMode, long jobSlot) throws ACIDException {
         log("unlock", dsId, entityHashValue, lockMode, null);
         stats.unlock();
 
-        ResourceGroup group = table.get(dsId, entityHashValue);
+        final int stripe = table.getIndex(dsId, entityHashValue);
+        ResourceGroup group = table.get(stripe);
         group.getLatch();
         try {
 
@@ -510,6 +551,9 @@ public class ConcurrentLockManager implements ILockManager, ILifeCycleComponent
                 if (DEBUG_MODE)
                     LOGGER.finer("del res slot " + TypeUtil.Global.toString(resource));
                 resArenaMgr.deallocate(resource);
+                if (!hasResourceOfDataset(group, dsId)) {
+                    thinLocks.deflate(dsId, stripe);
+                }
             } else {
                 final int oldMaxMode = resArenaMgr.getMaxMode(resource);
                 final int newMaxMode = determineNewMaxMode(resource, oldMaxMode);
@@ -527,6 +571,8 @@ public class ConcurrentLockManager implements ILockManager, ILifeCycleComponent
         stats.releaseLocks();
 
         int jobId = txnContext.getJobId().getId();
+        // after the thin locks are released, the locks that other jobs moved into the arenas are in the job queue
+        thinLocks.releaseLocks(jobId);
         Long jobSlot = jobId2JobSlotMap.get(jobId);
         if (jobSlot == null) {
             // we don't know the job, so there are no locks for it - we're done
@@ -555,7 +601,70 @@ public class ConcurrentLockManager implements ILockManager, ILifeCycleComponent
             LOGGER.finer("del job slot " + TypeUtil.Global.toString(jobSlot));
         jobArenaMgr.deallocate(jobSlot);
         jobId2JobSlotMap.remove(jobId);
-        stats.logCounters(LOGGER, Level.INFO, true);
+        stats.logCounters(LOGGER, LVL, true);
+    }
+
+    /**
+     * tries to acquire a lock as a thin lock
+     *
+     * @return true if the lock was acquired, false if it has to be acquired in the arenas
+     */
+    private boolean tryThinLock(int dsId, int stripe, int entityHashValue, byte lockMode,
+            ITransactionContext txnContext) throws ACIDException {
+        final int jobId = txnContext.getJobId().getId();
+        if (!ThinLockTable.isThinnable(jobId, entityHashValue, lockMode)) {
+            return false;
+        }
+        validateJob(txnContext);
+        if (thinLocks.tryLock(dsId, stripe, jobId, lockMode, entityHashValue)) {
+            stats.thinLock();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * determines if a job would have to wait for the thin lock of a stripe
+     */
+    private boolean conflictsWithThinLock(int dsId, int stripe, int entityHashValue, byte lockMode, int jobId) {
+        final long thinLock = thinLocks.get(dsId, stripe);
+        return ThinLockTable.isThin(thinLock) && ThinLockTable.getJobId(thinLock) != jobId
+                && ThinLockTable.getEntityHashValue(thinLock) == entityHashValue
+                && ACTION_MATRIX[ThinLockTable.getLockMode(thinLock)][lockMode] == LockAction.WAIT;
+    }
+
+    /**
+     * moves the thin lock of a stripe (if any) into the arenas, so that the requests for the resources of the stripe
+     * are handled by the arenas. Requires the latch of the ResourceGroup of the stripe.
+     *
+     * @param claimFree
+     *            whether a FREE stripe is marked as inflated, which is needed before a resource is added to the group
+     */
+    private void inflate(ResourceGroup group, int dsId, int stripe, boolean claimFree) {
+        final long thinLock = thinLocks.inflate(dsId, stripe, claimFree);
+        if (!ThinLockTable.isThin(thinLock)) {
+            return;
+        }
+        stats.inflate();
+        final int jobId = ThinLockTable.getJobId(thinLock);
+        final byte lockMode = ThinLockTable.getLockMode(thinLock);
+        final long jobSlot = findOrAllocJobSlot(jobId);
+        final long resSlot = findOrAllocResourceSlot(group, dsId, ThinLockTable.getEntityHashValue(thinLock));
+        final long reqSlot = allocRequestSlot(resSlot, jobSlot, lockMode);
+        resArenaMgr.setMaxMode(resSlot, lockMode);
+        addHolder(reqSlot, resSlot, jobSlot);
+        thinLocks.inflated(jobId);
+    }
+
+    private boolean hasResourceOfDataset(ResourceGroup group, int dsId) {
+        long resSlot = group.firstResourceIndex.get();
+        while (resSlot != NILL) {
+            if (resArenaMgr.getDatasetId(resSlot) == dsId) {
+                return true;
+            }
+            resSlot = resArenaMgr.getNext(resSlot);
+        }
+        return false;
     }
 
     private long findOrAllocJobSlot(int jobId) {
@@ -1031,11 +1140,11 @@ public class ConcurrentLockManager implements ILockManager, ILifeCycleComponent
     }
 
     private TablePrinter getResourceTablePrinter() {
-        return new ResourceTablePrinter(table, resArenaMgr, reqArenaMgr, jobArenaMgr);
+        return new ResourceTablePrinter(table, resArenaMgr, reqArenaMgr, jobArenaMgr, thinLocks);
     }
 
     private TablePrinter getDumpTablePrinter() {
-        return new DumpTablePrinter(table, resArenaMgr, reqArenaMgr, jobArenaMgr, jobId2JobSlotMap);
+        return new DumpTablePrinter(table, resArenaMgr, reqArenaMgr, jobArenaMgr, jobId2JobSlotMap, thinLocks);
     }
 
     public String printByResource() {
@@ -27,14 +27,16 @@ public class DumpTablePrinter implements TablePrinter {
     private RequestArenaManager reqArenaMgr;
     private JobArenaManager jobArenaMgr;
     private ConcurrentHashMap<Integer, Long> jobId2JobSlotMap;
+    private ThinLockTable thinLocks;
 
     DumpTablePrinter(ResourceGroupTable table, ResourceArenaManager resArenaMgr, RequestArenaManager reqArenaMgr,
-            JobArenaManager jobArenaMgr, ConcurrentHashMap<Integer, Long> jobId2JobSlotMap) {
+            JobArenaManager jobArenaMgr, ConcurrentHashMap<Integer, Long> jobId2JobSlotMap, ThinLockTable thinLocks) {
         this.table = table;
         this.resArenaMgr = resArenaMgr;
         this.reqArenaMgr = reqArenaMgr;
         this.jobArenaMgr = jobArenaMgr;
         this.jobId2JobSlotMap = jobId2JobSlotMap;
+        this.thinLocks = thinLocks;
     }
 
     public StringBuilder append(StringBuilder sb) {
@@ -63,6 +65,10 @@ public class DumpTablePrinter implements TablePrinter {
             sb.append(">>dump_begin\t>>----- [jobArenaMgr] -----\n");
             jobArenaMgr.append(sb);
             sb.append(">>dump_end\t>>----- [jobArenaMgr] -----\n");
+
+            sb.append(">>dump_begin\t>>----- [thinLocks] -----\n");
+            thinLocks.append(sb);
+            sb.append(">>dump_end\t>>----- [thinLocks] -----\n");
         } finally {
             table.releaseAllLatches();
         }
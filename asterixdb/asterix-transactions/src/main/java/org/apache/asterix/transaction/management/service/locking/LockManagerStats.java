@@ -32,6 +32,8 @@ final class LockManagerStats {
     private final AtomicLong itlCnt = new AtomicLong();
     private final AtomicLong ulCnt = new AtomicLong();
     private final AtomicLong rlCnt = new AtomicLong();
+    private final AtomicLong thinCnt = new AtomicLong();
+    private final AtomicLong inflCnt = new AtomicLong();
 
     LockManagerStats(int loggingPeriod) {
         this.loggingPeriod = loggingPeriod;
@@ -43,6 +45,8 @@ final class LockManagerStats {
     final void instantTryLock() { itlCnt.incrementAndGet(); }
     final void unlock()         { ulCnt.incrementAndGet(); }
     final void releaseLocks()   { rlCnt.incrementAndGet(); }
+    final void thinLock()       { thinCnt.incrementAndGet(); }
+    final void inflate()        { inflCnt.incrementAndGet(); }
 
     final int requestSum() {
         return lCnt.intValue() + ilCnt.intValue() + tlCnt.intValue()
@@ -57,6 +61,8 @@ final class LockManagerStats {
         .append(", instantTryLock : ").append(itlCnt)
         .append(", unlock : ").append(ulCnt)
         .append(", releaseLocks : ").append(rlCnt)
+        .append(", thinLock : ").append(thinCnt)
+        .append(", inflate : ").append(inflCnt)
         .append(" }");
         return sb;
     }
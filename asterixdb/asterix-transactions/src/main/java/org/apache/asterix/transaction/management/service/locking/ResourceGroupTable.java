@@ -41,10 +41,14 @@ class ResourceGroupTable {
     }
 
     ResourceGroup get(int dId, int entityHashValue) {
+        return table[getIndex(dId, entityHashValue)];
+    }
+
+    int getIndex(int dId, int entityHashValue) {
         // TODO ensure good properties of hash function
         int h = Math.abs(dId ^ entityHashValue);
         if (h < 0) h = 0;
-        return table[h % size];
+        return h % size;
     }
 
     ResourceGroup get(int i) {
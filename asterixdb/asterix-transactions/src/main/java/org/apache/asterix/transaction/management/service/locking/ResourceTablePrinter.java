@@ -24,7 +24,7 @@ import org.apache.asterix.transaction.management.service.transaction.Transaction
 /**
  * Creates a JSON serialization of the lock table of the ConcurrentLockManager organized by resource. I.e. the
  * serialization will contain all resources for which lock request are recorded in the table - along with a list of
- * the requests for each resource.
+ * the requests for each resource. Thin locks are shown as resources with a single holder.
  *
  * @see ConcurrentLockManager
  */
@@ -33,39 +33,46 @@ public class ResourceTablePrinter implements TablePrinter {
     private ResourceArenaManager resArenaMgr;
     private RequestArenaManager reqArenaMgr;
     private JobArenaManager jobArenaMgr;
+    private ThinLockTable thinLocks;
 
     ResourceTablePrinter(ResourceGroupTable table, ResourceArenaManager resArenaMgr, RequestArenaManager reqArenaMgr,
-            JobArenaManager jobArenaMgr) {
+            JobArenaManager jobArenaMgr, ThinLockTable thinLocks) {
         this.table = table;
         this.resArenaMgr = resArenaMgr;
         this.reqArenaMgr = reqArenaMgr;
         this.jobArenaMgr = jobArenaMgr;
+        this.thinLocks = thinLocks;
     }
 
     @Override
     public StringBuilder append(StringBuilder sb) {
         table.getAllLatches();
         sb.append("[\n");
-        int i = 0;
-        long res = -1;
-        while (res == -1 && i < table.size) {
-            res = table.get(i++).firstResourceIndex.get();
-        }
-        while (i < table.size) {
-            sb = appendResource(sb, res);
-            res = resArenaMgr.getNext(res);
-            while (res == -1 && i < table.size) {
-                res = table.get(i++).firstResourceIndex.get();
-            }
-            if (res == -1) {
-                sb.append("\n");
-                break;
-            } else {
-                sb.append(",\n");
+        final int start = sb.length();
+        for (int i = 0; i < table.size; ++i) {
+            long res = table.get(i).firstResourceIndex.get();
+            while (res != -1) {
+                appendResource(separate(sb, start), res);
+                res = resArenaMgr.getNext(res);
             }
         }
+        thinLocks.visit((dsId, thinLock) -> appendThinLock(separate(sb, start), dsId, thinLock));
         table.releaseAllLatches();
-        return sb.append("]");
+        return sb.append(sb.length() > start ? "\n" : "").append("]");
+    }
+
+    private static StringBuilder separate(StringBuilder sb, int start) {
+        return sb.length() > start ? sb.append(",\n") : sb;
+    }
+
+    StringBuilder appendThinLock(StringBuilder sb, int dsId, long thinLock) {
+        String mode = string(ThinLockTable.getLockMode(thinLock));
+        sb.append("{ \"dataset\": ").append(dsId);
+        sb.append(", \"hash\": ").append(ThinLockTable.getEntityHashValue(thinLock));
+        sb.append(", \"max mode\": ").append(mode);
+        sb.append(", \"holders\": [ { \"job\": ").append(ThinLockTable.getJobId(thinLock));
+        sb.append(", \"mode\": \"").append(mode);
+        return sb.append("\" } ] }");
     }
 
     StringBuilder appendResource(StringBuilder sb, long res) {
@@ -0,0 +1,306 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.asterix.transaction.management.service.locking;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.apache.asterix.transaction.management.service.transaction.TransactionManagementConstants.LockManagerConstants.LockMode;
+
+/**
+ * A table of thin locks that records uncontended S and X entity locks without the arenas of the
+ * ConcurrentLockManager. For each dataset the table has one word per ResourceGroup of the ResourceGroupTable (a
+ * stripe), which is either
+ * a) FREE - there are no locks on the resources of the dataset in the group,
+ * b) a thin lock - the only lock on the resources of the dataset in the group is held by a single job (the word
+ * contains the job id, the lock mode and the entity hash value), or
+ * c) INFLATED - the locks on the resources of the dataset in the group are kept in the arenas.
+ * A thin lock is acquired with a single CAS from FREE. Any other request for a resource of the stripe latches the
+ * ResourceGroup and inflates the stripe, i.e. it moves the thin lock into the arenas. A stripe returns from INFLATED
+ * to FREE only when the arenas do not contain a resource of the dataset in the group anymore, so a resource is never
+ * locked both in the table and in the arenas.
+ *
+ * @see ConcurrentLockManager
+ * @see ResourceGroupTable
+ */
+class ThinLockTable {
+    static final long FREE = 0L;
+    static final long INFLATED = -1L;
+
+    private static final int JOB_ID_SHIFT = 33;
+    private static final long EXCLUSIVE_BIT = 1L << 32;
+    private static final long ENTITY_HASH_MASK = 0xFFFFFFFFL;
+    // keeps the sign bit of a thin lock clear
+    private static final int MAX_JOB_ID = (1 << 30) - 1;
+
+    private final int size;
+    private final ConcurrentHashMap<Integer, AtomicLongArray> dsId2Stripes;
+    private final ConcurrentHashMap<Integer, JobThinLocks> jobId2ThinLocks;
+
+    ThinLockTable(int size) {
+        this.size = size;
+        dsId2Stripes = new ConcurrentHashMap<Integer, AtomicLongArray>();
+        jobId2ThinLocks = new ConcurrentHashMap<Integer, JobThinLocks>();
+    }
+
+    /**
+     * @return true if a lock can be held as a thin lock, i.e. if it is an S or X lock on an entity
+     */
+    static boolean isThinnable(int jobId, int entityHashValue, byte lockMode) {
+        return jobId > 0 && jobId <= MAX_JOB_ID && entityHashValue != ConcurrentLockManager.NIL
+                && (lockMode == LockMode.S || lockMode == LockMode.X);
+    }
+
+    static boolean isThin(long word) {
+        return word > 0;
+    }
+
+    static int getJobId(long word) {
+        return (int) (word >>> JOB_ID_SHIFT);
+    }
+
+    static byte getLockMode(long word) {
+        return (word & EXCLUSIVE_BIT) != 0 ? LockMode.X : LockMode.S;
+    }
+
+    static int getEntityHashValue(long word) {
+        return (int) (word & ENTITY_HASH_MASK);
+    }
+
+    private static long encode(int jobId, byte lockMode, int entityHashValue) {
+        return ((long) jobId << JOB_ID_SHIFT) | (lockMode == LockMode.X ? EXCLUSIVE_BIT : 0L)
+                | (entityHashValue & ENTITY_HASH_MASK);
+    }
+
+    /**
+     * @return the word of a stripe
+     */
+    long get(int dsId, int stripe) {
+        AtomicLongArray stripes = dsId2Stripes.get(dsId);
+        return stripes == null ? FREE : stripes.get(stripe);
+    }
+
+    /**
+     * tries to acquire a thin lock, which only succeeds if the stripe is FREE
+     *
+     * @return true if the lock was acquired, false if the lock has to be acquired in the arenas
+     */
+    boolean tryLock(int dsId, int stripe, int jobId, byte lockMode, int entityHashValue) {
+        AtomicLongArray stripes = getOrCreateStripes(dsId);
+        if (stripes.get(stripe) != FREE) {
+            return false;
+        }
+        // record the lock before it can be seen, so that releaseLocks does not miss it
+        JobThinLocks jobLocks = getOrCreateJobLocks(jobId);
+        jobLocks.count.incrementAndGet();
+        jobLocks.addStripe(dsId, stripe);
+        if (stripes.compareAndSet(stripe, FREE, encode(jobId, lockMode, entityHashValue))) {
+            return true;
+        }
+        jobLocks.count.decrementAndGet();
+        return false;
+    }
+
+    /**
+     * tries to release a thin lock of a job. If the value of the parameter lockMode is LockMode.ANY the lock is
+     * released independent of its LockMode.
+     *
+     * @return true if the lock was released, false if it has to be released in the arenas
+     */
+    boolean unlock(int dsId, int stripe, int jobId, byte lockMode, int entityHashValue) {
+        AtomicLongArray stripes = dsId2Stripes.get(dsId);
+        if (stripes == null) {
+            return false;
+        }
+        long word = stripes.get(stripe);
+        if (!isThin(word) || getJobId(word) != jobId || getEntityHashValue(word) != entityHashValue
+                || (lockMode != LockMode.ANY && lockMode != getLockMode(word))) {
+            return false;
+        }
+        if (!stripes.compareAndSet(stripe, word, FREE)) {
+            // the lock was moved into the arenas in the meantime
+            return false;
+        }
+        jobId2ThinLocks.get(jobId).count.decrementAndGet();
+        return true;
+    }
+
+    /**
+     * marks a stripe as INFLATED. Requires the latch of the ResourceGroup of the stripe.
+     * If the stripe contained a thin lock, the caller has to move the lock into the arenas and to call
+     * {@link #inflated(int)} afterwards.
+     *
+     * @param claimFree
+     *            whether a FREE stripe is marked as well, which is needed before a resource of the stripe is added to
+     *            the arenas
+     * @return the thin lock that was replaced, FREE or INFLATED otherwise
+     */
+    long inflate(int dsId, int stripe, boolean claimFree) {
+        AtomicLongArray stripes = claimFree ? getOrCreateStripes(dsId) : dsId2Stripes.get(dsId);
+        if (stripes == null) {
+            return FREE;
+        }
+        while (true) {
+            long word = stripes.get(stripe);
+            if (word == INFLATED || (word == FREE && !claimFree)) {
+                return word;
+            }
+            if (stripes.compareAndSet(stripe, word, INFLATED)) {
+                return word;
+            }
+        }
+    }
+
+    /**
+     * notes that a thin lock of a job was moved into the arenas
+     */
+    void inflated(int jobId) {
+        jobId2ThinLocks.get(jobId).count.decrementAndGet();
+    }
+
+    /**
+     * marks an INFLATED stripe as FREE, after the last resource of the stripe was removed from the arenas. Requires
+     * the latch of the ResourceGroup of the stripe.
+     */
+    void deflate(int dsId, int stripe) {
+        AtomicLongArray stripes = dsId2Stripes.get(dsId);
+        if (stripes != null) {
+            stripes.compareAndSet(stripe, INFLATED, FREE);
+        }
+    }
+
+    /**
+     * releases all thin locks of a job. Only the stripes that the job locked are visited. When this method returns,
+     * the locks of the job that were moved into the arenas concurrently can be found in the arenas.
+     */
+    void releaseLocks(int jobId) {
+        JobThinLocks jobLocks = jobId2ThinLocks.get(jobId);
+        if (jobLocks == null) {
+            return;
+        }
+        AtomicInteger count = jobLocks.count;
+        while (count.get() > 0) {
+            for (Map.Entry<Integer, AtomicLongArray> entry : jobLocks.dsId2LockedStripes.entrySet()) {
+                AtomicLongArray stripes = dsId2Stripes.get(entry.getKey());
+                AtomicLongArray lockedStripes = entry.getValue();
+                for (int i = 0; i < lockedStripes.length() && count.get() > 0; ++i) {
+                    long bits = lockedStripes.get(i);
+                    while (bits != 0) {
+                        int stripe = i * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                        bits &= bits - 1;
+                        long word = stripes.get(stripe);
+                        if (isThin(word) && getJobId(word) == jobId && stripes.compareAndSet(stripe, word, FREE)) {
+                            count.decrementAndGet();
+                        }
+                    }
+                }
+            }
+            if (count.get() > 0) {
+                // other jobs are moving locks of this job into the arenas
+                Thread.yield();
+            }
+        }
+        jobId2ThinLocks.remove(jobId);
+    }
+
+    private AtomicLongArray getOrCreateStripes(int dsId) {
+        AtomicLongArray stripes = dsId2Stripes.get(dsId);
+        if (stripes == null) {
+            stripes = new AtomicLongArray(size);
+            AtomicLongArray oldStripes = dsId2Stripes.putIfAbsent(dsId, stripes);
+            if (oldStripes != null) {
+                stripes = oldStripes;
+            }
+        }
+        return stripes;
+    }
+
+    private JobThinLocks getOrCreateJobLocks(int jobId) {
+        JobThinLocks jobLocks = jobId2ThinLocks.get(jobId);
+        if (jobLocks == null) {
+            jobLocks = new JobThinLocks();
+            JobThinLocks oldJobLocks = jobId2ThinLocks.putIfAbsent(jobId, jobLocks);
+            if (oldJobLocks != null) {
+                jobLocks = oldJobLocks;
+            }
+        }
+        return jobLocks;
+    }
+
+    /**
+     * The thin locks of a job. The stripes that the job locked are kept as a bit per stripe, so that releaseLocks
+     * does not need to visit all stripes and the record does not grow when a job locks the same stripe repeatedly.
+     */
+    private class JobThinLocks {
+        // the number of thin locks of the job, including the ones that are being moved into the arenas
+        final AtomicInteger count = new AtomicInteger();
+        final ConcurrentHashMap<Integer, AtomicLongArray> dsId2LockedStripes =
+                new ConcurrentHashMap<Integer, AtomicLongArray>();
+
+        void addStripe(int dsId, int stripe) {
+            AtomicLongArray lockedStripes = dsId2LockedStripes.get(dsId);
+            if (lockedStripes == null) {
+                lockedStripes = new AtomicLongArray((size + Long.SIZE - 1) / Long.SIZE);
+                AtomicLongArray oldLockedStripes = dsId2LockedStripes.putIfAbsent(dsId, lockedStripes);
+                if (oldLockedStripes != null) {
+                    lockedStripes = oldLockedStripes;
+                }
+            }
+            final int i = stripe / Long.SIZE;
+            final long bit = 1L << (stripe % Long.SIZE);
+            long bits = lockedStripes.get(i);
+            // the threads of a job often lock the same stripes, which then only need to be read
+            while ((bits & bit) == 0 && !lockedStripes.compareAndSet(i, bits, bits | bit)) {
+                bits = lockedStripes.get(i);
+            }
+        }
+    }
+
+    interface Visitor {
+        void visit(int dsId, long thinLock);
+    }
+
+    /**
+     * visits the thin locks that are currently held
+     */
+    void visit(Visitor visitor) {
+        for (Map.Entry<Integer, AtomicLongArray> entry : dsId2Stripes.entrySet()) {
+            AtomicLongArray stripes = entry.getValue();
+            for (int i = 0; i < size; ++i) {
+                long word = stripes.get(i);
+                if (isThin(word)) {
+                    visitor.visit(entry.getKey(), word);
+                }
+            }
+        }
+    }
+
+    public StringBuilder append(StringBuilder sb) {
+        visit((dsId, thinLock) -> {
+            sb.append("{ dataset : ").append(dsId);
+            sb.append(" , entity : ").append(getEntityHashValue(thinLock));
+            sb.append(" , mode : ").append(LockMode.toString(getLockMode(thinLock)));
+            sb.append(" , jobId : ").append(getJobId(thinLock));
+            sb.append(" }\n");
+        });
+        return sb;
+    }
+}
@@ -23,6 +23,7 @@ import java.nio.ByteBuffer;
 import java.nio.channels.FileChannel;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 import org.apache.asterix.common.context.PrimaryIndexOperationTracker;
@@ -45,13 +46,24 @@ public class LogBuffer implements ILogBuffer {
 
     public static final boolean IS_DEBUG_MODE = false;//true
     private static final Logger LOGGER = Logger.getLogger(LogBuffer.class.getName());
+    // the reserved offset of a page that does not take more records
+    private static final int CLOSED = -1;
+    // how often a writer checks whether the records before its own were written before it yields
+    private static final int MAX_SPINS = 100;
     private final TransactionSubsystem txnSubsystem;
     private final LogBufferTailReader logBufferTailReader;
     private final int logPageSize;
     private final MutableLong flushLSN;
     private final AtomicBoolean full;
-    private int appendOffset;
+    // the end of the space that was handed out to writers, or CLOSED
+    private final AtomicInteger reservedOffset;
+    // the end of the space that was handed out when the page was closed
+    private volatile int closedOffset;
+    // the end of the records that were written, which only grows in LSN order
+    private volatile int appendOffset;
     private int flushOffset;
+    private long startLSN;
+    private int capacity;
     private final ByteBuffer appendBuffer;
     private final ByteBuffer flushBuffer;
     private final ByteBuffer unlockBuffer;
@@ -73,6 +85,8 @@ public class LogBuffer implements ILogBuffer {
         unlockBuffer = appendBuffer.duplicate();
         logBufferTailReader = getLogBufferTailReader();
         full = new AtomicBoolean(false);
+        reservedOffset = new AtomicInteger(0);
+        capacity = logPageSize;
         appendOffset = 0;
         flushOffset = 0;
         isLastPage = false;
@@ -87,9 +101,54 @@ public class LogBuffer implements ILogBuffer {
     // LogAppender Methods
     ////////////////////////////////////
 
+    /**
+     * Hands out space for a log record. Writers that are handed out space copy their records into the page in
+     * parallel.
+     *
+     * @return the offset of the space in the page, or -1 if the page is closed or does not have enough space left
+     */
+    public int reserve(int logSize) {
+        while (true) {
+            int offset = reservedOffset.get();
+            if (offset == CLOSED || offset + logSize > capacity) {
+                return -1;
+            }
+            if (reservedOffset.compareAndSet(offset, offset + logSize)) {
+                return offset;
+            }
+        }
+    }
+
+    /**
+     * Stops handing out space. The page is flushed completely once the records in the space that was handed out
+     * before are written.
+     *
+     * @return the LSN after the end of the space that was handed out
+     */
+    public long close() {
+        int offset = reservedOffset.getAndSet(CLOSED);
+        if (offset != CLOSED) {
+            closedOffset = offset;
+        }
+        return startLSN + closedOffset;
+    }
+
+    /**
+     * @return the LSN of the next record of the page
+     */
+    public long getAppendLSN() {
+        int offset = reservedOffset.get();
+        return startLSN + (offset == CLOSED ? closedOffset : offset);
+    }
+
+    public long getStartLSN() {
+        return startLSN;
+    }
+
     @Override
-    public void append(ILogRecord logRecord, long appendLSN) {
-        logRecord.writeLogRecord(appendBuffer);
+    public void append(ILogRecord logRecord, int offset, long appendLSN) {
+        write(logRecord, offset);
+        waitForPrecedingRecords(offset);
         if (logRecord.getLogType() != LogType.FLUSH && logRecord.getLogType() != LogType.WAIT) {
             logRecord.getTxnCtx().setLastLSN(appendLSN);
         }
@@ -112,9 +171,9 @@ public class LogBuffer implements ILogBuffer {
     }
 
     @Override
-    public void appendWithReplication(ILogRecord logRecord, long appendLSN) {
-        logRecord.writeLogRecord(appendBuffer);
-
+    public void appendWithReplication(ILogRecord logRecord, int offset, long appendLSN) {
+        write(logRecord, offset);
+        waitForPrecedingRecords(offset);
         if (logRecord.getLogSource() == LogSource.LOCAL && logRecord.getLogType() != LogType.FLUSH
                 && logRecord.getLogType() != LogType.WAIT) {
             logRecord.getTxnCtx().setLastLSN(appendLSN);
@@ -143,6 +202,26 @@ public class LogBuffer implements ILogBuffer {
         }
     }
 
+    private void write(ILogRecord logRecord, int offset) {
+        ByteBuffer buffer = appendBuffer.duplicate();
+        buffer.position(offset);
+        logRecord.writeLogRecord(buffer);
+    }
+
+    /**
+     * Waits until the records in the space before the given offset are written. The records are handed to the
+     * flusher and their waiters are queued in LSN order, because the flusher matches the records it flushed with
+     * the queued waiters in that order. The writers of those records were handed out their space before and are
+     * copying them, so the wait is short.
+     */
+    private void waitForPrecedingRecords(int offset) {
+        for (int spins = 0; appendOffset != offset; spins++) {
+            if (spins >= MAX_SPINS) {
+                Thread.yield();
+            }
+        }
+    }
+
     public void setFileChannel(FileChannel fileChannel) {
         this.fileChannel = fileChannel;
     }
@@ -164,11 +243,20 @@ public class LogBuffer implements ILogBuffer {
         this.isLastPage = isLastPage;
     }
 
-    public boolean hasSpace(int logSize) {
-        return appendOffset + logSize <= logPageSize;
-    }
-
-    public void reset() {
+    /**
+     * Prepares the page for the records that start at the given LSN.
+     *
+     * @param capacity
+     *            the number of bytes of the page that may be handed out, which is less than the size of the page at
+     *            the end of a log file
+     * @param reservedSize
+     *            the number of bytes at the start of the page that are handed out to the caller. Writers that still
+     *            hold the page from before it was reset may be handed out space as soon as the page is reset, so the
+     *            caller cannot reserve its space afterwards and rely on getting offset 0.
+     */
+    public void reset(long startLSN, int capacity, int reservedSize) {
+        this.startLSN = startLSN;
+        this.capacity = capacity;
         appendBuffer.position(0);
         appendBuffer.limit(logPageSize);
         flushBuffer.position(0);
@@ -176,10 +264,13 @@ public class LogBuffer implements ILogBuffer {
         unlockBuffer.position(0);
         unlockBuffer.limit(logPageSize);
         full.set(false);
+        closedOffset = 0;
         appendOffset = 0;
         flushOffset = 0;
         isLastPage = false;
         stop = false;
+        // last, since it lets writers into the page
+        reservedOffset.set(reservedSize);
     }
 
     ////////////////////////////////////
@@ -211,6 +302,18 @@ public class LogBuffer implements ILogBuffer {
                 }
                 internalFlush(flushOffset, endOffset);
             }
+            if (full.get()) {
+                // the writers that were handed out space before the page was closed may still be copying records
+                synchronized (this) {
+                    while (appendOffset < closedOffset) {
+                        try {
+                            this.wait();
+                        } catch (InterruptedException e) {
+                            //ignore
+                        }
+                    }
+                }
+            }
             internalFlush(flushOffset, appendOffset);
             if (isLastPage) {
                 fileChannel.close();
@@ -67,9 +67,10 @@ public class LogManager implements ILogManager, ILifeCycleComponent {
     private final MutableLong flushLSN;
     private LinkedBlockingQueue<LogBuffer> emptyQ;
     private LinkedBlockingQueue<LogBuffer> flushQ;
+    // the LSN at which the current append page starts
     protected final AtomicLong appendLSN;
     private FileChannel appendChannel;
-    protected LogBuffer appendPage;
+    protected volatile LogBuffer appendPage;
     private LogFlusher logFlusher;
     private Future<? extends Object> futureLogFlusher;
     private static final long SMALLEST_LOG_FILE_ID = 0;
@@ -107,7 +108,7 @@ public class LogManager implements ILogManager, ILifeCycleComponent {
             LOGGER.info("LogManager starts logging in LSN: " + appendLSN);
         }
         appendChannel = getFileChannel(appendLSN.get(), false);
-        getAndInitNewPage();
+        appendPage = getAndInitNewPage(0);
         logFlusher = new LogFlusher(this, emptyQ, flushQ);
         futureLogFlusher = txnSubsystem.getAsterixAppRuntimeContextProvider().getThreadExecutor().submit(logFlusher);
         if (!flushLogsLogger.isAlive()) {
@@ -125,10 +126,12 @@ public class LogManager implements ILogManager, ILifeCycleComponent {
     }
 
     protected void appendToLogTail(ILogRecord logRecord) throws ACIDException {
-        syncAppendToLogTail(logRecord);
+        appendToLogBuffer(logRecord);
 
         if ((logRecord.getLogType() == LogType.JOB_COMMIT || logRecord.getLogType() == LogType.ABORT
                 || logRecord.getLogType() == LogType.WAIT) && !logRecord.isFlushed()) {
+            // the log flusher forces the records of all the writers that appended before it flushed with one write,
+            // and notifies each of their commit records afterwards
             synchronized (logRecord) {
                 while (!logRecord.isFlushed()) {
                     try {
@@ -141,7 +144,38 @@ public class LogManager implements ILogManager, ILifeCycleComponent {
         }
     }
 
-    protected synchronized void syncAppendToLogTail(ILogRecord logRecord) throws ACIDException {
+    /**
+     * Appends a log record to the append page without holding the log manager's monitor: the writer is handed out
+     * space in the page, and copies its record into it in parallel with other writers. Only a writer that finds the
+     * page full takes the monitor to switch to the next page.
+     */
+    protected void appendToLogBuffer(ILogRecord logRecord) throws ACIDException {
+        validateLogRecord(logRecord);
+        int logSize = logRecord.getLogSize();
+        while (true) {
+            LogBuffer page = appendPage;
+            int offset = page.reserve(logSize);
+            if (offset < 0) {
+                page = switchPage(page, logSize);
+                if (page == null) {
+                    // another writer switched the page
+                    continue;
+                }
+                offset = 0;
+            }
+            long lsn = page.getStartLSN() + offset;
+            if (logRecord.getLogType() == LogType.FLUSH) {
+                logRecord.setLSN(lsn);
+            }
+            appendToPage(page, logRecord, offset, lsn);
+            if (logRecord.isMarker()) {
+                logRecord.logAppended(lsn);
+            }
+            return;
+        }
+    }
+
+    protected void validateLogRecord(ILogRecord logRecord) throws ACIDException {
         if (logRecord.getLogType() != LogType.FLUSH) {
             ITransactionContext txnCtx = logRecord.getTxnCtx();
             if (txnCtx.getTxnState() == ITransactionManager.ABORTED && logRecord.getLogType() != LogType.ABORT) {
@@ -149,55 +183,69 @@ public class LogManager implements ILogManager, ILifeCycleComponent {
                         "Aborted job(" + txnCtx.getJobId() + ") tried to write non-abort type log record.");
             }
         }
+    }
+
+    protected void appendToPage(LogBuffer page, ILogRecord logRecord, int offset, long lsn) {
+        page.append(logRecord, offset, lsn);
+    }
 
+    /**
+     * Closes a full append page and makes the next page the append page.
+     *
+     * @return the next page, in which the space for the log record at offset 0 was handed out to the caller, or null
+     *         if the given page is not the append page anymore
+     */
+    protected synchronized LogBuffer switchPage(LogBuffer page, int logSize) {
+        if (page != appendPage) {
+            return null;
+        }
+        appendLSN.set(page.close());
         /**
          * To eliminate the case where the modulo of the next appendLSN = 0 (the next
          * appendLSN = the first LSN of the next log file), we do not allow a log to be
          * written at the last offset of the current file.
          */
-        if (getLogFileOffset(appendLSN.get()) + logRecord.getLogSize() >= logFileSize) {
+        if (getLogFileOffset(appendLSN.get()) + logSize >= logFileSize) {
             prepareNextLogFile();
-            appendPage.isFull(true);
-            getAndInitNewPage();
-        } else if (!appendPage.hasSpace(logRecord.getLogSize())) {
-            appendPage.isFull(true);
-            if (logRecord.getLogSize() > logPageSize) {
-                getAndInitNewLargePage(logRecord.getLogSize());
-            } else {
-                getAndInitNewPage();
-            }
         }
-        appendPage.append(logRecord, appendLSN.get());
-
-        if (logRecord.getLogType() == LogType.FLUSH) {
-            logRecord.setLSN(appendLSN.get());
-        }
-        if (logRecord.isMarker()) {
-            logRecord.logAppended(appendLSN.get());
-        }
-        appendLSN.addAndGet(logRecord.getLogSize());
+        page.isFull(true);
+        LogBuffer nextPage = logSize > logPageSize ? getAndInitNewLargePage(logSize) : getAndInitNewPage(logSize);
+        appendPage = nextPage;
+        return nextPage;
     }
 
-    protected void getAndInitNewLargePage(int logSize) {
+    protected LogBuffer getAndInitNewLargePage(int logSize) {
         // for now, alloc a new buffer for each large page
         // TODO: pool large pages
-        appendPage = new LogBuffer(txnSubsystem, logSize, flushLSN);
-        appendPage.setFileChannel(appendChannel);
-        flushQ.offer(appendPage);
+        LogBuffer page = new LogBuffer(txnSubsystem, logSize, flushLSN);
+        initPage(page, logSize);
+        return page;
     }
 
-    protected void getAndInitNewPage() {
-        appendPage = null;
-        while (appendPage == null) {
+    /**
+     * @param reservedSize
+     *            the number of bytes at the start of the page that are handed out to the caller
+     */
+    protected LogBuffer getAndInitNewPage(int reservedSize) {
+        LogBuffer page = null;
+        while (page == null) {
             try {
-                appendPage = emptyQ.take();
+                page = emptyQ.take();
             } catch (InterruptedException e) {
                 //ignore
             }
         }
-        appendPage.reset();
-        appendPage.setFileChannel(appendChannel);
-        flushQ.offer(appendPage);
+        initPage(page, reservedSize);
+        return page;
+    }
+
+    private void initPage(LogBuffer page, int reservedSize) {
+        long lsn = appendLSN.get();
+        // the page must not hand out the last offset of the log file
+        page.reset(lsn, (int) Math.min(page.getLogPageSize(), logFileSize - 1 - getLogFileOffset(lsn)),
+                reservedSize);
+        page.setFileChannel(appendChannel);
+        flushQ.offer(page);
     }
 
     protected void prepareNextLogFile() {
@@ -241,7 +289,7 @@ public class LogManager implements ILogManager, ILifeCycleComponent {
 
     @Override
     public long getAppendLSN() {
-        return appendLSN.get();
+        return appendPage.getAppendLSN();
     }
 
     @Override
@@ -285,7 +333,7 @@ public class LogManager implements ILogManager, ILifeCycleComponent {
         try {
             StringBuilder sb = new StringBuilder();
             sb.append("\n>>dump_begin\t>>----- [LSNInfo] -----");
-            sb.append("\nappendLsn: " + appendLSN);
+            sb.append("\nappendLsn: " + getAppendLSN());
             sb.append("\nflushLsn: " + flushLSN.get());
             sb.append("\n>>dump_end\t>>----- [LSNInfo] -----\n");
             os.write(sb.toString().getBytes());
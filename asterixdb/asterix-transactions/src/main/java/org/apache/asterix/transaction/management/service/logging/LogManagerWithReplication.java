@@ -21,8 +21,6 @@ package org.apache.asterix.transaction.management.service.logging;
 import org.apache.asterix.common.exceptions.ACIDException;
 import org.apache.asterix.common.replication.IReplicationManager;
 import org.apache.asterix.common.transactions.ILogRecord;
-import org.apache.asterix.common.transactions.ITransactionContext;
-import org.apache.asterix.common.transactions.ITransactionManager;
 import org.apache.asterix.common.transactions.LogSource;
 import org.apache.asterix.common.transactions.LogType;
 import org.apache.asterix.transaction.management.service.transaction.TransactionSubsystem;
@@ -51,7 +49,7 @@ public class LogManagerWithReplication extends LogManager {
 
     @Override
     protected void appendToLogTail(ILogRecord logRecord) throws ACIDException {
-        syncAppendToLogTail(logRecord);
+        appendToLogBuffer(logRecord);
 
         if (logRecord.isReplicated()) {
             try {
@@ -89,34 +87,15 @@ public class LogManagerWithReplication extends LogManager {
     }
 
     @Override
-    protected synchronized void syncAppendToLogTail(ILogRecord logRecord) throws ACIDException {
-        if (logRecord.getLogSource() == LogSource.LOCAL && logRecord.getLogType() != LogType.FLUSH) {
-            ITransactionContext txnCtx = logRecord.getTxnCtx();
-            if (txnCtx.getTxnState() == ITransactionManager.ABORTED && logRecord.getLogType() != LogType.ABORT) {
-                throw new ACIDException(
-                        "Aborted job(" + txnCtx.getJobId() + ") tried to write non-abort type log record.");
-            }
-        }
-
-        if (getLogFileOffset(appendLSN.get()) + logRecord.getLogSize() > logFileSize) {
-            prepareNextLogFile();
-            appendPage.isFull(true);
-            getAndInitNewPage();
-        } else if (!appendPage.hasSpace(logRecord.getLogSize())) {
-            appendPage.isFull(true);
-            if (logRecord.getLogSize() > logPageSize) {
-                getAndInitNewLargePage(logRecord.getLogSize());
-            } else {
-                getAndInitNewPage();
-            }
-        }
-        appendPage.appendWithReplication(logRecord, appendLSN.get());
-
-        if (logRecord.getLogType() == LogType.FLUSH) {
-            logRecord.setLSN(appendLSN.get());
+    protected void validateLogRecord(ILogRecord logRecord) throws ACIDException {
+        if (logRecord.getLogSource() == LogSource.LOCAL) {
+            super.validateLogRecord(logRecord);
         }
+    }
 
-        appendLSN.addAndGet(logRecord.getLogSize());
+    @Override
+    protected void appendToPage(LogBuffer page, ILogRecord logRecord, int offset, long lsn) {
+        page.appendWithReplication(logRecord, offset, lsn);
     }
 
     @Override
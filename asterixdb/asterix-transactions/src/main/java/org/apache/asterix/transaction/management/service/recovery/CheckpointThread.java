@@ -24,6 +24,13 @@ import org.apache.asterix.common.transactions.IRecoveryManager;
 import org.apache.hyracks.api.exceptions.HyracksDataException;
 import org.apache.hyracks.storage.am.common.api.IIndexLifecycleManager;
 
+/**
+ * Takes non-sharp checkpoints in the background. A crash is recovered by replaying the log from the smallest first LSN
+ * of the memory components that were not flushed, so the thread keeps that LSN at most lsnThreshold behind the end of
+ * the log: every poll, only the memory components whose first LSN is further behind are flushed, oldest first, and the
+ * checkpoint records the new low-water mark of the log without stopping the transactions. The log to replay after a
+ * crash is thus bounded by lsnThreshold plus what is logged between two polls.
+ */
 public class CheckpointThread extends Thread {
 
     private long lsnThreshold;
@@ -45,10 +52,10 @@ public class CheckpointThread extends Thread {
 
         Thread.currentThread().setName("Checkpoint Thread");
 
-        long currentCheckpointAttemptMinLSN = -1;
-        long lastCheckpointLSN = -1;
+        long lastCheckpointLogLSN = -1;
         long currentLogLSN = 0;
         long targetCheckpointLSN = 0;
+        long currentCheckpointAttemptMinLSN = -1;
         while (true) {
             try {
                 sleep(checkpointTermInSecs * 1000);
@@ -56,40 +63,27 @@ public class CheckpointThread extends Thread {
                 //ignore
             }
 
-
-            if(lastCheckpointLSN == -1)
-            {
-                try {
-                    //Since the system just started up after sharp checkpoint, last checkpoint LSN is considered as the min LSN of the current log partition
-                    lastCheckpointLSN = logManager.getReadableSmallestLSN();
-                } catch (Exception e) {
-                    lastCheckpointLSN = 0;
-                }
-            }
-
             //1. get current log LSN
             currentLogLSN = logManager.getAppendLSN();
 
-            //2. if current log LSN - previous checkpoint > threshold, do checkpoint
-            if (currentLogLSN - lastCheckpointLSN > lsnThreshold) {
-                try {
-                    // in check point:
-                    //1. get minimum first LSN (MFL) from open indexes.
-                    //2. if current MinFirstLSN < targetCheckpointLSN, schedule async flush for any open index witch has first LSN < force flush delta
-                    //3. next time checkpoint comes, it will be able to remove log files which have end range less than current targetCheckpointLSN
-
-                    targetCheckpointLSN = lastCheckpointLSN + lsnThreshold;
-                    currentCheckpointAttemptMinLSN = recoveryMgr.checkpoint(false, targetCheckpointLSN);
-
-                    //checkpoint was completed at target LSN or above
-                    if(currentCheckpointAttemptMinLSN >= targetCheckpointLSN)
-                    {
-                        lastCheckpointLSN = currentCheckpointAttemptMinLSN;
-                    }
+            //2. if nothing was logged since the last complete checkpoint, there is nothing to do
+            if (currentLogLSN == lastCheckpointLogLSN) {
+                continue;
+            }
 
-                } catch (ACIDException | HyracksDataException e) {
-                    throw new Error("failed to checkpoint", e);
+            try {
+                //3. checkpoint at the min first LSN (MFL) of the memory components if it advanced since the last
+                //checkpoint, and schedule flushes of the components more than lsnThreshold behind the log LSN
+                targetCheckpointLSN = currentLogLSN - lsnThreshold;
+                currentCheckpointAttemptMinLSN = recoveryMgr.checkpoint(false, targetCheckpointLSN);
+
+                //4. if no flush was needed, skip the checkpoints until something is logged. Otherwise, the flushes
+                //log their completion, and the next checkpoint will record the advanced MFL
+                if (currentCheckpointAttemptMinLSN >= targetCheckpointLSN) {
+                    lastCheckpointLogLSN = currentLogLSN;
                 }
+            } catch (ACIDException | HyracksDataException e) {
+                throw new Error("failed to checkpoint", e);
             }
         }
     }
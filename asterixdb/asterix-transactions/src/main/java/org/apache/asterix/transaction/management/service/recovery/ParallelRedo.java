@@ -0,0 +1,293 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.asterix.transaction.management.service.recovery;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.asterix.common.api.AsterixThreadExecutor;
+import org.apache.asterix.common.api.IDatasetLifecycleManager;
+import org.apache.asterix.common.exceptions.ACIDException;
+import org.apache.asterix.common.transactions.ILogRecord;
+import org.apache.hyracks.dataflow.common.data.accessors.ITupleReference;
+import org.apache.hyracks.storage.am.common.impls.NoOpOperationCallback;
+import org.apache.hyracks.storage.am.common.ophelpers.IndexOperation;
+import org.apache.hyracks.storage.am.common.tuples.SimpleTupleReference;
+import org.apache.hyracks.storage.am.common.tuples.SimpleTupleWriter;
+import org.apache.hyracks.storage.am.lsm.common.api.ILSMIndex;
+import org.apache.hyracks.storage.am.lsm.common.api.ILSMIndexAccessor;
+
+/**
+ * Applies the update log records of the redo phase of recovery on several threads. The log is still read by a single
+ * thread, which decides which records have to be redone, but the records are applied to the indexes by workers that
+ * each own a set of partitions. All records of a partition go to the same worker in log order, so the updates of
+ * every index are redone in the order in which they were logged, while different partitions are redone in parallel.
+ * The partitions are assigned to the workers by the number of their update log records that the analysis phase found,
+ * largest first, each to the worker with the fewest records so far.
+ * The log reader reuses the record that it returns, so the records are copied into batches that are handed to the
+ * workers through bounded queues, which keeps the reader from running arbitrarily far ahead of the workers.
+ */
+public class ParallelRedo {
+    private static final Logger LOGGER = Logger.getLogger(ParallelRedo.class.getName());
+    private static final int BATCH_SIZE = 256 * 1024;
+    private static final int MAX_PENDING_BATCHES = 4;
+    // dataset id, resource id, operation, field count and size of the tuple
+    private static final int ENTRY_HEADER_SIZE = 4 + 8 + 1 + 4 + 4;
+    private static final ByteBuffer END_OF_LOG = ByteBuffer.allocate(0);
+
+    private final RedoWorker[] workers;
+    private final Future<?>[] futures;
+    private final Map<Integer, RedoWorker> partition2Worker = new HashMap<>();
+    private boolean finished;
+
+    /**
+     * @param partition2UpdateCount
+     *            the number of update log records of every partition, which is used to balance the partitions over
+     *            the workers
+     * @param numThreads
+     *            the maximum number of workers; the available processors if it is not positive
+     */
+    public ParallelRedo(IDatasetLifecycleManager datasetLifecycleManager, AsterixThreadExecutor executor,
+            Map<Integer, Integer> partition2UpdateCount, int numThreads) {
+        if (numThreads <= 0) {
+            numThreads = Runtime.getRuntime().availableProcessors();
+        }
+        int numWorkers = Math.max(1, Math.min(numThreads, partition2UpdateCount.size()));
+        workers = new RedoWorker[numWorkers];
+        for (int i = 0; i < numWorkers; i++) {
+            workers[i] = new RedoWorker(datasetLifecycleManager);
+        }
+        List<Map.Entry<Integer, Integer>> partitions = new ArrayList<>(partition2UpdateCount.entrySet());
+        Collections.sort(partitions, (p1, p2) -> Integer.compare(p2.getValue(), p1.getValue()));
+        for (Map.Entry<Integer, Integer> partition : partitions) {
+            RedoWorker leastLoaded = workers[0];
+            for (RedoWorker worker : workers) {
+                if (worker.assignedCount < leastLoaded.assignedCount) {
+                    leastLoaded = worker;
+                }
+            }
+            leastLoaded.assignedCount += partition.getValue();
+            partition2Worker.put(partition.getKey(), leastLoaded);
+        }
+        futures = new Future<?>[numWorkers];
+        for (int i = 0; i < numWorkers; i++) {
+            futures[i] = executor.submit(workers[i]);
+        }
+        if (LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.info("Redoing " + partition2UpdateCount.size() + " partitions on " + numWorkers + " threads");
+        }
+    }
+
+    /**
+     * Hands an update log record to the worker of its partition. The record may be reused once this returns.
+     *
+     * @throws ACIDException
+     *             if the worker failed to redo an earlier record
+     */
+    public void redo(ILogRecord logRecord) throws ACIDException {
+        int partition = logRecord.getResourcePartition();
+        RedoWorker worker = partition2Worker.get(partition);
+        if (worker == null) {
+            worker = workers[Math.floorMod(partition, workers.length)];
+            partition2Worker.put(partition, worker);
+        }
+        worker.add(logRecord);
+    }
+
+    /**
+     * Waits for the workers to redo all records that were handed to them.
+     *
+     * @return the number of redone records
+     * @throws ACIDException
+     *             if a worker failed to redo a record
+     */
+    public int finish() throws ACIDException {
+        if (finished) {
+            throw new IllegalStateException("The redo has already finished");
+        }
+        finished = true;
+        for (RedoWorker worker : workers) {
+            worker.end();
+        }
+        int redoCount = 0;
+        Throwable failure = null;
+        for (int i = 0; i < workers.length; i++) {
+            try {
+                futures[i].get();
+            } catch (ExecutionException e) {
+                failure = failure == null ? e.getCause() : failure;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ACIDException("Interrupted while waiting for the redo", e);
+            }
+            if (workers[i].failure != null && failure == null) {
+                failure = workers[i].failure;
+            }
+            redoCount += workers[i].redoCount;
+        }
+        if (failure != null) {
+            throw new ACIDException("Failed to redo", failure);
+        }
+        return redoCount;
+    }
+
+    /**
+     * Stops the workers if the redo did not finish, e.g. because reading the log failed. The indexes that the workers
+     * use must not be closed before this returns.
+     */
+    public void close() {
+        if (!finished) {
+            try {
+                finish();
+            } catch (ACIDException e) {
+                LOGGER.log(Level.WARNING, "Failure while stopping the redo", e);
+            }
+        }
+    }
+
+    private static class RedoWorker implements Callable<Void> {
+        private final IDatasetLifecycleManager datasetLifecycleManager;
+        private final BlockingQueue<ByteBuffer> pendingBatches = new ArrayBlockingQueue<>(MAX_PENDING_BATCHES);
+        private final BlockingQueue<ByteBuffer> freeBatches = new LinkedBlockingQueue<>();
+        private final Map<Long, ILSMIndexAccessor> accessors = new HashMap<>();
+        private final SimpleTupleReference tuple = SimpleTupleWriter.INSTANCE.createTupleReference();
+        // the batch that the log reader fills
+        private ByteBuffer batch;
+        private long assignedCount;
+        private volatile Throwable failure;
+        private volatile int redoCount;
+
+        RedoWorker(IDatasetLifecycleManager datasetLifecycleManager) {
+            this.datasetLifecycleManager = datasetLifecycleManager;
+        }
+
+        void add(ILogRecord logRecord) throws ACIDException {
+            if (failure != null) {
+                throw new ACIDException("Failed to redo", failure);
+            }
+            ITupleReference newValue = logRecord.getNewValue();
+            int tupleSize = SimpleTupleWriter.INSTANCE.bytesRequired(newValue);
+            int entrySize = ENTRY_HEADER_SIZE + tupleSize;
+            if (batch != null && batch.remaining() < entrySize) {
+                submit(batch);
+                batch = null;
+            }
+            if (batch == null) {
+                batch = entrySize <= BATCH_SIZE ? freeBatches.poll() : null;
+                if (batch == null) {
+                    batch = ByteBuffer.allocate(Math.max(BATCH_SIZE, entrySize));
+                }
+            }
+            batch.putInt(logRecord.getDatasetId());
+            batch.putLong(logRecord.getResourceId());
+            batch.put(logRecord.getNewOp());
+            batch.putInt(newValue.getFieldCount());
+            batch.putInt(tupleSize);
+            SimpleTupleWriter.INSTANCE.writeTuple(newValue, batch, batch.position());
+            batch.position(batch.position() + tupleSize);
+        }
+
+        void end() throws ACIDException {
+            if (batch != null) {
+                submit(batch);
+                batch = null;
+            }
+            submit(END_OF_LOG);
+        }
+
+        private void submit(ByteBuffer buffer) throws ACIDException {
+            if (buffer != END_OF_LOG) {
+                buffer.flip();
+            }
+            try {
+                pendingBatches.put(buffer);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new ACIDException("Interrupted while handing log records to the redo", e);
+            }
+        }
+
+        @Override
+        public Void call() throws InterruptedException {
+            while (true) {
+                ByteBuffer buffer = pendingBatches.take();
+                if (buffer == END_OF_LOG) {
+                    return null;
+                }
+                // after a failure, the batches are only drained so that the log reader does not block
+                if (failure == null) {
+                    try {
+                        redo(buffer);
+                    } catch (Throwable th) {
+                        LOGGER.log(Level.SEVERE, "Failed to redo", th);
+                        failure = th;
+                    }
+                }
+                if (buffer.capacity() == BATCH_SIZE) {
+                    buffer.clear();
+                    freeBatches.offer(buffer);
+                }
+            }
+        }
+
+        private void redo(ByteBuffer buffer) throws Exception {
+            int count = redoCount;
+            while (buffer.hasRemaining()) {
+                int datasetId = buffer.getInt();
+                long resourceId = buffer.getLong();
+                byte newOp = buffer.get();
+                tuple.setFieldCount(buffer.getInt());
+                int tupleSize = buffer.getInt();
+                tuple.resetByTupleOffset(buffer, buffer.position());
+                buffer.position(buffer.position() + tupleSize);
+                ILSMIndexAccessor indexAccessor = getAccessor(datasetId, resourceId);
+                if (newOp == IndexOperation.INSERT.ordinal()) {
+                    indexAccessor.forceInsert(tuple);
+                } else if (newOp == IndexOperation.DELETE.ordinal()) {
+                    indexAccessor.forceDelete(tuple);
+                } else {
+                    throw new IllegalStateException("Unsupported OperationType: " + newOp);
+                }
+                redoCount = ++count;
+            }
+        }
+
+        private ILSMIndexAccessor getAccessor(int datasetId, long resourceId) throws Exception {
+            ILSMIndexAccessor indexAccessor = accessors.get(resourceId);
+            if (indexAccessor == null) {
+                ILSMIndex index = (ILSMIndex) datasetLifecycleManager.getIndex(datasetId, resourceId);
+                indexAccessor = index.createAccessor(NoOpOperationCallback.INSTANCE, NoOpOperationCallback.INSTANCE);
+                accessors.put(resourceId, indexAccessor);
+            }
+            return indexAccessor;
+        }
+    }
+}
@@ -103,6 +103,8 @@ public class RecoveryManager implements IRecoveryManager, ILifeCycleComponent {
      */
     private static final String CHECKPOINT_FILENAME_PREFIX = "checkpoint_";
     private SystemState state;
+    // the min first LSN that the last checkpoint of this manager recorded, guarded by this
+    private long lastCheckpointMinFirstLSN = Long.MIN_VALUE;
 
     public RecoveryManager(TransactionSubsystem txnSubsystem) {
         this.txnSubsystem = txnSubsystem;
@@ -179,6 +181,7 @@ public class RecoveryManager implements IRecoveryManager, ILifeCycleComponent {
     public void startRecovery(boolean synchronous) throws IOException, ACIDException {
         state = SystemState.RECOVERING;
         LOGGER.log(Level.INFO, "starting recovery ...");
+        long startTime = System.currentTimeMillis();
 
         long readableSmallestLSN = logMgr.getReadableSmallestLSN();
         CheckpointObject checkpointObject = readCheckpoint();
@@ -193,14 +196,22 @@ public class RecoveryManager implements IRecoveryManager, ILifeCycleComponent {
         //get active partitions on this node
         Set<Integer> activePartitions = localResourceRepository.getNodeOrignalPartitions();
         replayPartitionsLogs(activePartitions, logMgr.getLogReader(true), lowWaterMarkLSN);
+        LOGGER.info("Recovery completed in " + (System.currentTimeMillis() - startTime) + " ms");
     }
 
     @Override
     public synchronized void replayPartitionsLogs(Set<Integer> partitions, ILogReader logReader, long lowWaterMarkLSN)
             throws IOException, ACIDException {
         try {
-            Set<Integer> winnerJobSet = startRecoverysAnalysisPhase(partitions, logReader, lowWaterMarkLSN);
-            startRecoveryRedoPhase(partitions, logReader, lowWaterMarkLSN, winnerJobSet);
+            Map<Integer, Integer> partition2UpdateCount = new HashMap<>();
+            long startTime = System.currentTimeMillis();
+            Set<Integer> winnerJobSet =
+                    startRecoverysAnalysisPhase(partitions, logReader, lowWaterMarkLSN, partition2UpdateCount);
+            long analysisTime = System.currentTimeMillis() - startTime;
+            startTime = System.currentTimeMillis();
+            startRecoveryRedoPhase(partitions, logReader, lowWaterMarkLSN, winnerJobSet, partition2UpdateCount);
+            LOGGER.info("Logs analysis phase took " + analysisTime + " ms, REDO phase took "
+                    + (System.currentTimeMillis() - startTime) + " ms");
         } finally {
             logReader.close();
             deleteRecoveryTemporaryFiles();
@@ -208,7 +219,7 @@ public class RecoveryManager implements IRecoveryManager, ILifeCycleComponent {
     }
 
     private synchronized Set<Integer> startRecoverysAnalysisPhase(Set<Integer> partitions, ILogReader logReader,
-            long lowWaterMarkLSN) throws IOException, ACIDException {
+            long lowWaterMarkLSN, Map<Integer, Integer> partition2UpdateCount) throws IOException, ACIDException {
         int updateLogCount = 0;
         int entityCommitLogCount = 0;
         int jobCommitLogCount = 0;
@@ -234,6 +245,7 @@ public class RecoveryManager implements IRecoveryManager, ILifeCycleComponent {
                 case LogType.UPDATE:
                     if (partitions.contains(logRecord.getResourcePartition())) {
                         updateLogCount++;
+                        partition2UpdateCount.merge(logRecord.getResourcePartition(), 1, Integer::sum);
                     }
                     break;
                 case LogType.JOB_COMMIT:
@@ -292,7 +304,8 @@ public class RecoveryManager implements IRecoveryManager, ILifeCycleComponent {
     }
 
     private synchronized void startRecoveryRedoPhase(Set<Integer> partitions, ILogReader logReader,
-            long lowWaterMarkLSN, Set<Integer> winnerJobSet) throws IOException, ACIDException {
+            long lowWaterMarkLSN, Set<Integer> winnerJobSet, Map<Integer, Integer> partition2UpdateCount)
+            throws IOException, ACIDException {
         int redoCount = 0;
         int jobId = -1;
 
@@ -312,6 +325,9 @@ public class RecoveryManager implements IRecoveryManager, ILifeCycleComponent {
         Map<Long, Long> resourceId2MaxLSNMap = new HashMap<Long, Long>();
         TxnId tempKeyTxnId = new TxnId(-1, -1, -1, null, -1, false);
 
+        //the scan decides what to redo, the records are applied by a worker per set of partitions
+        ParallelRedo parallelRedo = new ParallelRedo(datasetLifecycleManager, appRuntimeContext.getThreadExecutor(),
+                partition2UpdateCount, txnSubsystem.getTransactionProperties().getRecoveryRedoThreads());
         ILogRecord logRecord = null;
         try {
             logReader.initializeScan(lowWaterMarkLSN);
@@ -395,8 +411,7 @@ public class RecoveryManager implements IRecoveryManager, ILifeCycleComponent {
                                 }
 
                                 if (LSN > maxDiskLastLsn) {
-                                    redo(logRecord, datasetLifecycleManager);
-                                    redoCount++;
+                                    parallelRedo.redo(logRecord);
                                 }
                             }
                         }
@@ -414,8 +429,11 @@ public class RecoveryManager implements IRecoveryManager, ILifeCycleComponent {
                 }
                 logRecord = logReader.next();
             }
+            redoCount = parallelRedo.finish();
             LOGGER.info("Logs REDO phase completed. Redo logs count: " + redoCount);
         } finally {
+            //the workers must be done with the indexes before they are closed
+            parallelRedo.close();
             //close all indexes
             Set<Long> resourceIdList = resourceId2MaxLSNMap.keySet();
             for (long r : resourceIdList) {
@@ -432,7 +450,6 @@ public class RecoveryManager implements IRecoveryManager, ILifeCycleComponent {
     public synchronized long checkpoint(boolean isSharpCheckpoint, long nonSharpCheckpointTargetLSN)
             throws ACIDException, HyracksDataException {
         long minMCTFirstLSN;
-        boolean nonSharpCheckpointSucceeded = false;
 
         if (isSharpCheckpoint) {
             LOGGER.log(Level.INFO, "Starting sharp checkpoint ... ");
@@ -487,10 +504,12 @@ public class RecoveryManager implements IRecoveryManager, ILifeCycleComponent {
             }
         } else {
             minMCTFirstLSN = getMinFirstLSN();
-            if (minMCTFirstLSN >= nonSharpCheckpointTargetLSN) {
-                nonSharpCheckpointSucceeded = true;
-            } else {
+            if (minMCTFirstLSN < nonSharpCheckpointTargetLSN) {
                 //flush datasets with indexes behind target checkpoint LSN
+                if (LOGGER.isLoggable(Level.INFO)) {
+                    LOGGER.info("Min first LSN " + minMCTFirstLSN + " is behind the checkpoint target LSN "
+                            + nonSharpCheckpointTargetLSN + ", flushing the lagging datasets");
+                }
                 datasetLifecycleManager.scheduleAsyncFlushForLaggingDatasets(nonSharpCheckpointTargetLSN);
                 if (replicationEnabled) {
                     //request remote replicas to flush lagging indexes
@@ -503,6 +522,10 @@ public class RecoveryManager implements IRecoveryManager, ILifeCycleComponent {
                     }
                 }
             }
+            if (minMCTFirstLSN == lastCheckpointMinFirstLSN) {
+                //the low-water mark of the log did not move, so the last checkpoint is still up to date
+                return minMCTFirstLSN;
+            }
         }
 
         CheckpointObject checkpointObject = new CheckpointObject(logMgr.getAppendLSN(), minMCTFirstLSN,
@@ -517,6 +540,10 @@ public class RecoveryManager implements IRecoveryManager, ILifeCycleComponent {
         } catch (IOException e) {
             throw new ACIDException("Failed to checkpoint", e);
         }
+        lastCheckpointMinFirstLSN = minMCTFirstLSN;
+
+        //save the cached pages to warm up the buffer cache with if the node restarts
+        txnSubsystem.getAsterixAppRuntimeContextProvider().getBufferCache().saveWarmupPages();
 
         //#. delete the previous checkpoint files
         if (prevCheckpointFiles != null) {
@@ -539,7 +566,8 @@ public class RecoveryManager implements IRecoveryManager, ILifeCycleComponent {
             }
         }
 
-        if (nonSharpCheckpointSucceeded) {
+        //recovery does not need the log before the min first LSN, even if the target was not reached yet
+        if (!isSharpCheckpoint) {
             logMgr.deleteOldLogFiles(minMCTFirstLSN);
         }
 
@@ -874,25 +902,6 @@ public class RecoveryManager implements IRecoveryManager, ILifeCycleComponent {
         }
     }
 
-    private static void redo(ILogRecord logRecord, IDatasetLifecycleManager datasetLifecycleManager) {
-        try {
-            ILSMIndex index =
-                    (ILSMIndex) datasetLifecycleManager.getIndex(logRecord.getDatasetId(), logRecord.getResourceId());
-            ILSMIndexAccessor indexAccessor =
-                    index.createAccessor(NoOpOperationCallback.INSTANCE, NoOpOperationCallback.INSTANCE);
-            if (logRecord.getNewOp() == IndexOperation.INSERT.ordinal()) {
-                indexAccessor.forceInsert(logRecord.getNewValue());
-            } else if (logRecord.getNewOp() == IndexOperation.DELETE.ordinal()) {
-                indexAccessor.forceDelete(logRecord.getNewValue());
-            } else {
-                throw new IllegalStateException("Unsupported OperationType: " + logRecord.getNewOp());
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
-            throw new IllegalStateException("Failed to redo", e);
-        }
-    }
-
     private class JobEntityCommits {
         private static final String PARTITION_FILE_NAME_SEPARATOR = "_";
         private final int jobId;
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.asterix.transaction.management.service.locking;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.asterix.common.transactions.DatasetId;
+import org.apache.asterix.common.transactions.ITransactionContext;
+import org.apache.asterix.common.transactions.JobId;
+import org.apache.asterix.transaction.management.service.transaction.TransactionContext;
+import org.apache.asterix.transaction.management.service.transaction.TransactionManagementConstants.LockManagerConstants.LockMode;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs jobs that lock and unlock distinct entities from an increasing number of threads and reports the rate of
+ * lock manager calls. Uncontended entity locks are held as thin locks. For comparison, the same jobs are run while
+ * another job holds locks in every ResourceGroup of the dataset, which keeps all locks of the dataset in the arenas.
+ */
+public class LockManagerThroughputTest {
+    private static final Logger LOGGER = Logger.getLogger(LockManagerThroughputTest.class.getName());
+    private static final int LOCK_MGR_SHRINK_TIMER = 5000;
+    private static final int LOCK_MGR_ARENAS = 4;
+    private static final int LOCK_MGR_TABLE_SIZE = 1024;
+    private static final int[] NUM_THREADS = { 1, 2, 4, 8 };
+    private static final int NUM_JOBS_PER_THREAD = 1000;
+    private static final int NUM_LOCKS_PER_JOB = 16;
+    private static final DatasetId DATASET_ID = new DatasetId(1);
+    // the entities of the other job, which cover every ResourceGroup of the dataset twice
+    private static final int NUM_BLOCKER_LOCKS = 2 * LOCK_MGR_TABLE_SIZE;
+
+    private ConcurrentLockManager lockMgr;
+    private int nextJobId;
+
+    @Before
+    public void setUp() throws Exception {
+        lockMgr = new ConcurrentLockManager(LOCK_MGR_SHRINK_TIMER, LOCK_MGR_ARENAS, LOCK_MGR_TABLE_SIZE);
+        nextJobId = 1;
+    }
+
+    @Test
+    public void thinLocks() throws Exception {
+        run("thin");
+        assertNoLocks();
+    }
+
+    @Test
+    public void inflatedLocks() throws Exception {
+        ITransactionContext blocker = new TransactionContext(new JobId(nextJobId++), null);
+        for (int i = 0; i < NUM_BLOCKER_LOCKS; i++) {
+            lockMgr.lock(DATASET_ID, i, LockMode.X, blocker);
+        }
+        run("inflated");
+        lockMgr.releaseLocks(blocker);
+        assertNoLocks();
+    }
+
+    private void run(String name) throws Exception {
+        for (int numThreads : NUM_THREADS) {
+            List<List<ITransactionContext>> jobs = new ArrayList<>();
+            for (int i = 0; i < numThreads; i++) {
+                List<ITransactionContext> threadJobs = new ArrayList<>();
+                for (int j = 0; j < NUM_JOBS_PER_THREAD; j++) {
+                    threadJobs.add(new TransactionContext(new JobId(nextJobId++), null));
+                }
+                jobs.add(threadJobs);
+            }
+            long startTime = System.nanoTime();
+            List<Thread> lockers = new ArrayList<>();
+            List<Throwable> failures = new ArrayList<>();
+            for (int i = 0; i < numThreads; i++) {
+                final int firstEntity = NUM_BLOCKER_LOCKS + i * NUM_LOCKS_PER_JOB;
+                final List<ITransactionContext> threadJobs = jobs.get(i);
+                lockers.add(new Thread(() -> {
+                    try {
+                        for (ITransactionContext txnCtx : threadJobs) {
+                            runJob(txnCtx, firstEntity);
+                        }
+                    } catch (Throwable th) {
+                        synchronized (failures) {
+                            failures.add(th);
+                        }
+                    }
+                }));
+            }
+            for (Thread locker : lockers) {
+                locker.start();
+            }
+            for (Thread locker : lockers) {
+                locker.join();
+            }
+            long elapsedNanos = System.nanoTime() - startTime;
+            Assert.assertTrue(failures.toString(), failures.isEmpty());
+            // every job locks its entities, unlocks half of them and releases the rest
+            long numCalls = (long) numThreads * NUM_JOBS_PER_THREAD * (NUM_LOCKS_PER_JOB * 3 / 2 + 1);
+            if (LOGGER.isLoggable(Level.INFO)) {
+                LOGGER.info(name + " locks, " + numThreads + " threads: "
+                        + (numCalls * 1000000000L / Math.max(1, elapsedNanos)) + " calls/sec");
+            }
+        }
+    }
+
+    private void runJob(ITransactionContext txnCtx, int firstEntity) throws Exception {
+        for (int i = 0; i < NUM_LOCKS_PER_JOB; i++) {
+            // the entities of a thread are locked by one job at a time, so the locks never conflict
+            byte lockMode = i % 2 == 0 ? LockMode.X : LockMode.S;
+            if (i % 4 < 2) {
+                lockMgr.lock(DATASET_ID, firstEntity + i, lockMode, txnCtx);
+            } else {
+                Assert.assertTrue(lockMgr.tryLock(DATASET_ID, firstEntity + i, lockMode, txnCtx));
+            }
+        }
+        for (int i = 0; i < NUM_LOCKS_PER_JOB / 2; i++) {
+            lockMgr.unlock(DATASET_ID, firstEntity + i, i % 2 == 0 ? LockMode.X : LockMode.S, txnCtx);
+        }
+        lockMgr.releaseLocks(txnCtx);
+    }
+
+    private void assertNoLocks() {
+        Assert.assertEquals("[\n]", lockMgr.printByResource().trim());
+    }
+}
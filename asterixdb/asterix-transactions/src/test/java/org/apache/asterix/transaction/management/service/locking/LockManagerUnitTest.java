@@ -40,6 +40,7 @@ import org.apache.asterix.common.transactions.JobId;
 import org.apache.asterix.transaction.management.service.locking.Request.Kind;
 import org.apache.asterix.transaction.management.service.transaction.TransactionManagementConstants.LockManagerConstants.LockMode;
 import org.junit.After;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
@@ -148,6 +149,84 @@ public class LockManagerUnitTest {
         expectError(execute(reqs), j(1), IllegalStateException.class);
     }
 
+    @Test
+    public void testThinLockInflation() throws Exception {
+        // e(1) and e(11) are in the same ResourceGroup
+        lockMgr.lock(d(1), e(1), LockMode.X, j(1));
+        Assert.assertFalse(lockMgr.instantTryLock(d(1), e(1), LockMode.S, j(2)));
+        Assert.assertTrue(lockMgr.instantTryLock(d(1), e(11), LockMode.X, j(2)));
+        Assert.assertFalse(lockMgr.tryLock(d(1), e(1), LockMode.S, j(2)));
+        Assert.assertTrue(lockMgr.tryLock(d(1), e(11), LockMode.X, j(2)));
+        lockMgr.unlock(d(1), e(1), LockMode.X, j(1));
+        Assert.assertTrue(lockMgr.instantTryLock(d(1), e(1), LockMode.X, j(2)));
+        lockMgr.lock(d(1), e(1), LockMode.S, j(3));
+        lockMgr.releaseLocks(j(1));
+        lockMgr.releaseLocks(j(2));
+        lockMgr.releaseLocks(j(3));
+        Assert.assertEquals("[\n]", ((ConcurrentLockManager) lockMgr).printByResource().trim());
+    }
+
+    @Test
+    public void testReleaseThinLocks() throws Exception {
+        lockMgr.lock(d(1), e(1), LockMode.X, j(1));
+        lockMgr.lock(d(1), e(2), LockMode.S, j(1));
+        lockMgr.lock(d(2), e(1), LockMode.X, j(1));
+        lockMgr.lock(d(1), e(3), LockMode.X, j(2));
+        lockMgr.releaseLocks(j(1));
+        Assert.assertTrue(lockMgr.instantTryLock(d(1), e(1), LockMode.X, j(3)));
+        Assert.assertTrue(lockMgr.instantTryLock(d(1), e(2), LockMode.X, j(3)));
+        Assert.assertTrue(lockMgr.instantTryLock(d(2), e(1), LockMode.X, j(3)));
+        // the locks of other jobs are kept
+        Assert.assertFalse(lockMgr.instantTryLock(d(1), e(3), LockMode.S, j(3)));
+        lockMgr.releaseLocks(j(2));
+        Assert.assertEquals("[\n]", ((ConcurrentLockManager) lockMgr).printByResource().trim());
+    }
+
+    @Test
+    public void testUnlockWhileInflating() throws Exception {
+        // the jobs of one thread take thin locks on e(1) and unlock them while the jobs of the other thread lock e(11)
+        // in the same ResourceGroup, which moves the thin locks into the arenas
+        final int numJobs = 10000;
+        final List<ITransactionContext> unlockers = new ArrayList<>();
+        final List<ITransactionContext> inflaters = new ArrayList<>();
+        for (int i = 1; i <= numJobs; i++) {
+            unlockers.add(j(i));
+            inflaters.add(j(numJobs + i));
+        }
+        final List<Throwable> failures = new ArrayList<>();
+        Thread unlocker = new Thread(() -> {
+            try {
+                for (ITransactionContext txnCtx : unlockers) {
+                    lockMgr.lock(d(1), e(1), LockMode.X, txnCtx);
+                    lockMgr.unlock(d(1), e(1), LockMode.X, txnCtx);
+                    lockMgr.releaseLocks(txnCtx);
+                }
+            } catch (Throwable th) {
+                synchronized (failures) {
+                    failures.add(th);
+                }
+            }
+        });
+        Thread inflater = new Thread(() -> {
+            try {
+                for (ITransactionContext txnCtx : inflaters) {
+                    lockMgr.lock(d(1), e(11), LockMode.X, txnCtx);
+                    lockMgr.releaseLocks(txnCtx);
+                }
+            } catch (Throwable th) {
+                synchronized (failures) {
+                    failures.add(th);
+                }
+            }
+        });
+        unlocker.start();
+        inflater.start();
+        unlocker.join();
+        inflater.join();
+        Assert.assertTrue(failures.toString(), failures.isEmpty());
+        Assert.assertEquals("[\n]", ((ConcurrentLockManager) lockMgr).printByResource().trim());
+    }
+
     //--------------------------------------------------------------------
     // Helper methods
     //--------------------------------------------------------------------
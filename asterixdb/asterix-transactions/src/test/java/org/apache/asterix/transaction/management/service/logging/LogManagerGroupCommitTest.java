@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.asterix.transaction.management.service.logging;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.asterix.common.api.AsterixThreadExecutor;
+import org.apache.asterix.common.api.IAsterixAppRuntimeContext;
+import org.apache.asterix.common.config.AsterixReplicationProperties;
+import org.apache.asterix.common.config.AsterixTransactionProperties;
+import org.apache.asterix.common.config.IAsterixPropertiesProvider;
+import org.apache.asterix.common.transactions.IAsterixAppRuntimeContextProvider;
+import org.apache.asterix.common.transactions.ILogManager;
+import org.apache.asterix.common.transactions.ILogReader;
+import org.apache.asterix.common.transactions.ILogRecord;
+import org.apache.asterix.common.transactions.ITransactionContext;
+import org.apache.asterix.common.transactions.JobId;
+import org.apache.asterix.common.transactions.LogRecord;
+import org.apache.asterix.common.transactions.LogType;
+import org.apache.asterix.common.utils.TransactionUtil;
+import org.apache.asterix.transaction.management.service.transaction.TransactionSubsystem;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Commits jobs from an increasing number of threads and reports the commit rate. The commit records of concurrent
+ * writers are appended to the log pages without a global lock and forced to disk in groups, so the rate should grow
+ * with the number of writers. The small log files make the writers switch pages and log files often.
+ */
+public class LogManagerGroupCommitTest {
+    private static final Logger LOGGER = Logger.getLogger(LogManagerGroupCommitTest.class.getName());
+    private static final String NODE_ID = "nc1";
+    private static final int LOG_PAGE_SIZE = 4096;
+    private static final int NUM_LOG_PAGES = 8;
+    private static final long LOG_PARTITION_SIZE = 64L * LOG_PAGE_SIZE * NUM_LOG_PAGES;
+    private static final int[] NUM_WRITERS = { 1, 2, 4, 8, 16 };
+    private static final int NUM_COMMITS_PER_WRITER = 500;
+
+    private File logDir;
+    private TransactionSubsystem txnSubsystem;
+
+    @Before
+    public void setUp() throws Exception {
+        logDir = new File(System.getProperty("java.io.tmpdir"), LogManagerGroupCommitTest.class.getSimpleName());
+        FileUtils.deleteQuietly(logDir);
+        logDir.mkdirs();
+
+        AsterixTransactionProperties txnProperties = mock(AsterixTransactionProperties.class);
+        when(txnProperties.getLogDirectory(NODE_ID)).thenReturn(logDir.getAbsolutePath());
+        when(txnProperties.getLogBufferPageSize()).thenReturn(LOG_PAGE_SIZE);
+        when(txnProperties.getLogBufferNumPages()).thenReturn(NUM_LOG_PAGES);
+        when(txnProperties.getLogPartitionSize()).thenReturn(LOG_PARTITION_SIZE);
+        when(txnProperties.getCheckpointLSNThreshold()).thenReturn(Integer.MAX_VALUE);
+        when(txnProperties.getCheckpointPollFrequency()).thenReturn(3600);
+        when(txnProperties.getLockManagerShrinkTimer()).thenReturn(5000);
+
+        IAsterixAppRuntimeContext appContext =
+                mock(IAsterixAppRuntimeContext.class, withSettings().extraInterfaces(IAsterixPropertiesProvider.class));
+        when(((IAsterixPropertiesProvider) appContext).getReplicationProperties())
+                .thenReturn(mock(AsterixReplicationProperties.class));
+        IAsterixAppRuntimeContextProvider provider = mock(IAsterixAppRuntimeContextProvider.class);
+        when(provider.getThreadExecutor()).thenReturn(new AsterixThreadExecutor(Executors.defaultThreadFactory()));
+        when(provider.getAppContext()).thenReturn(appContext);
+
+        txnSubsystem = new TransactionSubsystem(NODE_ID, provider, txnProperties);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        ((LogManager) txnSubsystem.getLogManager()).stop(false, null);
+        FileUtils.deleteQuietly(logDir);
+    }
+
+    @Test
+    public void concurrentCommits() throws Exception {
+        ILogManager logManager = txnSubsystem.getLogManager();
+        long beginLSN = logManager.getAppendLSN();
+        AtomicInteger nextJobId = new AtomicInteger();
+        int numJobs = 0;
+        for (int numWriters : NUM_WRITERS) {
+            long startTime = System.nanoTime();
+            List<Thread> writers = new ArrayList<>();
+            List<Throwable> failures = new ArrayList<>();
+            for (int i = 0; i < numWriters; i++) {
+                writers.add(new Thread(() -> {
+                    try {
+                        for (int j = 0; j < NUM_COMMITS_PER_WRITER; j++) {
+                            commit(nextJobId.getAndIncrement());
+                        }
+                    } catch (Throwable th) {
+                        synchronized (failures) {
+                            failures.add(th);
+                        }
+                    }
+                }));
+            }
+            for (Thread writer : writers) {
+                writer.start();
+            }
+            for (Thread writer : writers) {
+                writer.join();
+            }
+            long elapsedNanos = System.nanoTime() - startTime;
+            Assert.assertTrue(failures.toString(), failures.isEmpty());
+            int numCommits = numWriters * NUM_COMMITS_PER_WRITER;
+            numJobs += numCommits;
+            if (LOGGER.isLoggable(Level.INFO)) {
+                LOGGER.info(numWriters + " writers: " + (numCommits * 1000000000L / Math.max(1, elapsedNanos))
+                        + " commits/sec");
+            }
+        }
+        Assert.assertTrue(logManager.getAppendLSN() > beginLSN);
+
+        // every commit is durable and intact, and the log is readable across pages and log files
+        boolean[] committed = new boolean[numJobs];
+        ILogReader logReader = logManager.getLogReader(true);
+        try {
+            logReader.initializeScan(beginLSN);
+            ILogRecord logRecord;
+            while ((logRecord = logReader.next()) != null) {
+                Assert.assertEquals(LogType.JOB_COMMIT, logRecord.getLogType());
+                Assert.assertFalse(committed[logRecord.getJobId()]);
+                committed[logRecord.getJobId()] = true;
+            }
+        } finally {
+            logReader.close();
+        }
+        for (int jobId = 0; jobId < numJobs; jobId++) {
+            Assert.assertTrue("missing commit of job " + jobId, committed[jobId]);
+        }
+    }
+
+    private void commit(int jobId) throws Exception {
+        ITransactionContext txnCtx = txnSubsystem.getTransactionManager().getTransactionContext(new JobId(jobId), true);
+        LogRecord logRecord = new LogRecord();
+        TransactionUtil.formJobTerminateLogRecord(txnCtx, logRecord, true);
+        txnSubsystem.getLogManager().log(logRecord);
+        Assert.assertTrue(logRecord.isFlushed());
+    }
+}
@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.asterix.transaction.management.service.logging;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.CRC32;
+
+import org.apache.asterix.common.transactions.ILogRecord;
+import org.apache.asterix.common.transactions.ILogRecord.RecordReadStatus;
+import org.apache.asterix.common.transactions.LogRecord;
+import org.apache.asterix.common.transactions.LogSource;
+import org.apache.asterix.common.transactions.LogType;
+import org.apache.asterix.common.utils.CRC32C;
+import org.apache.asterix.common.utils.TransactionUtil;
+import org.apache.hyracks.data.std.primitive.IntegerPointable;
+import org.apache.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
+import org.apache.hyracks.dataflow.common.comm.io.ArrayTupleReference;
+import org.apache.hyracks.dataflow.common.data.marshalling.IntegerSerializerDeserializer;
+import org.apache.hyracks.storage.am.common.tuples.SimpleTupleWriter;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LogRecordChecksumTest {
+    private static final int PAGE_SIZE = 4096;
+
+    @Test
+    public void crc32cOfKnownInputs() {
+        Assert.assertEquals(0xE3069283L, crc32c("123456789".getBytes(StandardCharsets.US_ASCII)));
+        Assert.assertEquals(0x8A9136AAL, crc32c(new byte[32]));
+        byte[] ones = new byte[32];
+        java.util.Arrays.fill(ones, (byte) 0xFF);
+        Assert.assertEquals(0x62A8AB43L, crc32c(ones));
+    }
+
+    @Test
+    public void crc32cOfHeapAndDirectBuffers() {
+        byte[] bytes = new byte[1021];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) (i * 31 + 7);
+        }
+        ByteBuffer direct = ByteBuffer.allocateDirect(bytes.length);
+        direct.put(bytes);
+        for (int offset : new int[] { 0, 1, 7, 100 }) {
+            int length = bytes.length - offset - 3;
+            CRC32C heapChecksum = new CRC32C();
+            heapChecksum.update(ByteBuffer.wrap(bytes), offset, length);
+            CRC32C directChecksum = new CRC32C();
+            directChecksum.update(direct, offset, length);
+            // byte at a time, which does not take the 8 byte steps
+            CRC32C byteChecksum = new CRC32C();
+            for (int i = offset; i < offset + length; i++) {
+                byteChecksum.update(bytes[i]);
+            }
+            Assert.assertEquals(byteChecksum.getValue(), heapChecksum.getValue());
+            Assert.assertEquals(byteChecksum.getValue(), directChecksum.getValue());
+        }
+    }
+
+    @Test
+    public void updateRecordsInHeapAndDirectPages() throws Exception {
+        LogRecord logRecord = createUpdateLogRecord();
+        ByteBuffer heapPage = ByteBuffer.allocate(PAGE_SIZE);
+        ByteBuffer directPage = ByteBuffer.allocateDirect(PAGE_SIZE);
+        heapPage.position(17);
+        directPage.position(17);
+        logRecord.writeLogRecord(heapPage);
+        logRecord.writeLogRecord(directPage);
+        Assert.assertEquals(17 + logRecord.getLogSize(), heapPage.position());
+        Assert.assertEquals(heapPage.position(), directPage.position());
+        heapPage.flip();
+        directPage.flip();
+        Assert.assertEquals(heapPage, directPage);
+
+        heapPage.position(17);
+        LogRecord readRecord = new LogRecord();
+        Assert.assertEquals(RecordReadStatus.OK, readRecord.readLogRecord(heapPage));
+        Assert.assertEquals(LogType.UPDATE, readRecord.getLogType());
+        Assert.assertEquals(LogSource.LOCAL, readRecord.getLogSource());
+        Assert.assertEquals(logRecord.getLogSize(), readRecord.getLogSize());
+        Assert.assertEquals(logRecord.getChecksum(), readRecord.getChecksum());
+        Assert.assertEquals(logRecord.getResourceId(), readRecord.getResourceId());
+        Assert.assertEquals(2, readRecord.getNewValue().getFieldCount());
+        Assert.assertEquals(42, IntegerPointable.getInteger(readRecord.getNewValue().getFieldData(1),
+                readRecord.getNewValue().getFieldStart(1)));
+        Assert.assertEquals(41, IntegerPointable.getInteger(readRecord.getOldValue().getFieldData(1),
+                readRecord.getOldValue().getFieldStart(1)));
+    }
+
+    @Test
+    public void corruptRecord() {
+        ByteBuffer page = writeJobCommitLogRecord();
+        page.put(3, (byte) (page.get(3) + 1));
+        Assert.assertEquals(RecordReadStatus.BAD_CHKSUM, new LogRecord().readLogRecord(page));
+    }
+
+    @Test
+    public void recordOfPreviousLogFormat() {
+        // a version 0 record has the plain log source in its first byte and is checksummed with CRC32
+        ByteBuffer page = writeJobCommitLogRecord();
+        int checksumOffset = ILogRecord.JOB_TERMINATE_LOG_SIZE - ILogRecord.CHKSUM_LEN;
+        page.put(0, LogSource.LOCAL);
+        CRC32 crc32 = new CRC32();
+        crc32.update(page.array(), 0, checksumOffset);
+        page.putLong(checksumOffset, crc32.getValue());
+        LogRecord readRecord = new LogRecord();
+        Assert.assertEquals(RecordReadStatus.OK, readRecord.readLogRecord(page));
+        Assert.assertEquals(LogType.JOB_COMMIT, readRecord.getLogType());
+        Assert.assertEquals(LogSource.LOCAL, readRecord.getLogSource());
+        Assert.assertEquals(7, readRecord.getJobId());
+    }
+
+    @Test
+    public void recordOfNewerLogFormat() {
+        ByteBuffer page = writeJobCommitLogRecord();
+        page.put(0, (byte) ((ILogRecord.LOG_FORMAT_VERSION + 1) << ILogRecord.LOG_FORMAT_VERSION_SHIFT));
+        Assert.assertEquals(RecordReadStatus.BAD_CHKSUM, new LogRecord().readLogRecord(page));
+    }
+
+    private static long crc32c(byte[] bytes) {
+        CRC32C checksum = new CRC32C();
+        checksum.update(bytes, 0, bytes.length);
+        return checksum.getValue();
+    }
+
+    private static ByteBuffer writeJobCommitLogRecord() {
+        LogRecord logRecord = new LogRecord();
+        TransactionUtil.formJobTerminateLogRecord(logRecord, 7, true);
+        ByteBuffer page = ByteBuffer.allocate(PAGE_SIZE);
+        logRecord.writeLogRecord(page);
+        page.flip();
+        return page;
+    }
+
+    private static LogRecord createUpdateLogRecord() throws Exception {
+        ArrayTupleReference newValue = createTuple(1, 42);
+        ArrayTupleReference oldValue = createTuple(1, 41);
+        LogRecord logRecord = new LogRecord();
+        logRecord.setLogType(LogType.UPDATE);
+        logRecord.setJobId(3);
+        logRecord.setDatasetId(5);
+        logRecord.setResourceId(11L);
+        logRecord.setResourcePartition(0);
+        logRecord.setNewOp((byte) 0);
+        logRecord.setPKHashValue(1);
+        logRecord.setPKFields(new int[] { 0 });
+        logRecord.setPKFieldCnt(1);
+        logRecord.setPKValue(newValue);
+        logRecord.computeAndSetPKValueSize();
+        logRecord.setNewValueSize(SimpleTupleWriter.INSTANCE.bytesRequired(newValue));
+        logRecord.setNewValue(newValue);
+        logRecord.setOldValueSize(SimpleTupleWriter.INSTANCE.bytesRequired(oldValue));
+        logRecord.setOldValue(oldValue);
+        logRecord.computeAndSetLogSize();
+        return logRecord;
+    }
+
+    private static ArrayTupleReference createTuple(int key, int value) throws Exception {
+        ArrayTupleBuilder tb = new ArrayTupleBuilder(2);
+        tb.addField(IntegerSerializerDeserializer.INSTANCE, key);
+        tb.addField(IntegerSerializerDeserializer.INSTANCE, value);
+        ArrayTupleReference tuple = new ArrayTupleReference();
+        tuple.reset(tb.getFieldEndOffsets(), tb.getByteArray());
+        return tuple;
+    }
+}
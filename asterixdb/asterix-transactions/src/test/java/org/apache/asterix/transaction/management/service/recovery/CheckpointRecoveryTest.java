@@ -0,0 +1,227 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.asterix.transaction.management.service.recovery;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anySetOf;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.Executors;
+
+import org.apache.asterix.common.api.AsterixThreadExecutor;
+import org.apache.asterix.common.api.IAsterixAppRuntimeContext;
+import org.apache.asterix.common.api.IDatasetLifecycleManager;
+import org.apache.asterix.common.config.AsterixReplicationProperties;
+import org.apache.asterix.common.config.AsterixTransactionProperties;
+import org.apache.asterix.common.config.IAsterixPropertiesProvider;
+import org.apache.asterix.common.ioopcallbacks.AbstractLSMIOOperationCallback;
+import org.apache.asterix.common.transactions.IAsterixAppRuntimeContextProvider;
+import org.apache.asterix.common.transactions.ILogManager;
+import org.apache.asterix.common.transactions.ILogReader;
+import org.apache.asterix.common.transactions.IRecoveryManager;
+import org.apache.asterix.common.transactions.ITransactionContext;
+import org.apache.asterix.common.transactions.JobId;
+import org.apache.asterix.common.transactions.LogRecord;
+import org.apache.asterix.common.utils.TransactionUtil;
+import org.apache.asterix.transaction.management.resource.PersistentLocalResourceRepository;
+import org.apache.asterix.transaction.management.service.logging.LogManager;
+import org.apache.asterix.transaction.management.service.transaction.TransactionSubsystem;
+import org.apache.commons.io.FileUtils;
+import org.apache.hyracks.storage.am.common.api.IIndex;
+import org.apache.hyracks.storage.am.lsm.common.impls.AbstractLSMIndex;
+import org.apache.hyracks.storage.common.buffercache.IBufferCache;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Takes non-sharp checkpoints while the memory component of an index holds updates that are older than the
+ * checkpoint target, as the checkpoint thread does, and checks that the lagging dataset is flushed, that recovery
+ * replays the log from the checkpointed min first LSN and that the log before it is deleted.
+ */
+public class CheckpointRecoveryTest {
+    private static final String NODE_ID = "nc1";
+    private static final int PARTITION = 0;
+    private static final int LOG_PAGE_SIZE = 4096;
+    private static final int NUM_LOG_PAGES = 4;
+    private static final long LOG_PARTITION_SIZE = 4L * LOG_PAGE_SIZE;
+    // enough commits to fill a few log files
+    private static final int NUM_COMMITS = 2000;
+
+    private File logDir;
+    private AbstractLSMIndex index;
+    private AbstractLSMIOOperationCallback ioCallback;
+    private IDatasetLifecycleManager datasetLifecycleManager;
+    private IBufferCache bufferCache;
+    private TransactionSubsystem txnSubsystem;
+    private int nextJobId;
+
+    @Before
+    public void setUp() throws Exception {
+        logDir = new File(System.getProperty("java.io.tmpdir"), CheckpointRecoveryTest.class.getSimpleName());
+        FileUtils.deleteQuietly(logDir);
+        logDir.mkdirs();
+
+        AsterixTransactionProperties txnProperties = mock(AsterixTransactionProperties.class);
+        when(txnProperties.getLogDirectory(NODE_ID)).thenReturn(logDir.getAbsolutePath());
+        when(txnProperties.getLogBufferPageSize()).thenReturn(LOG_PAGE_SIZE);
+        when(txnProperties.getLogBufferNumPages()).thenReturn(NUM_LOG_PAGES);
+        when(txnProperties.getLogPartitionSize()).thenReturn(LOG_PARTITION_SIZE);
+        when(txnProperties.getCheckpointLSNThreshold()).thenReturn(Integer.MAX_VALUE);
+        when(txnProperties.getCheckpointPollFrequency()).thenReturn(3600);
+        when(txnProperties.getLockManagerShrinkTimer()).thenReturn(5000);
+
+        // the only open index, which has an empty memory component until a test fills it
+        index = mock(AbstractLSMIndex.class);
+        ioCallback = mock(AbstractLSMIOOperationCallback.class);
+        when(index.getIOOperationCallback()).thenReturn(ioCallback);
+        when(index.isCurrentMutableComponentEmpty()).thenReturn(true);
+        datasetLifecycleManager = mock(IDatasetLifecycleManager.class);
+        when(datasetLifecycleManager.getOpenIndexes()).thenReturn(Collections.<IIndex> singletonList(index));
+
+        PersistentLocalResourceRepository localResourceRepository = mock(PersistentLocalResourceRepository.class);
+        when(localResourceRepository.getNodeOrignalPartitions()).thenReturn(Collections.singleton(PARTITION));
+        bufferCache = mock(IBufferCache.class);
+
+        IAsterixAppRuntimeContext appContext =
+                mock(IAsterixAppRuntimeContext.class, withSettings().extraInterfaces(IAsterixPropertiesProvider.class));
+        when(((IAsterixPropertiesProvider) appContext).getReplicationProperties())
+                .thenReturn(mock(AsterixReplicationProperties.class));
+        IAsterixAppRuntimeContextProvider provider = mock(IAsterixAppRuntimeContextProvider.class);
+        when(provider.getThreadExecutor()).thenReturn(new AsterixThreadExecutor(Executors.defaultThreadFactory()));
+        when(provider.getAppContext()).thenReturn(appContext);
+        when(provider.getDatasetLifecycleManager()).thenReturn(datasetLifecycleManager);
+        when(provider.getLocalResourceRepository()).thenReturn(localResourceRepository);
+        when(provider.getBufferCache()).thenReturn(bufferCache);
+
+        txnSubsystem = new TransactionSubsystem(NODE_ID, provider, txnProperties);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        ((LogManager) txnSubsystem.getLogManager()).stop(false, null);
+        FileUtils.deleteQuietly(logDir);
+    }
+
+    @Test
+    public void laggingDatasetIsFlushedAndRecoveryStartsAtCheckpoint() throws Exception {
+        ILogManager logManager = txnSubsystem.getLogManager();
+        IRecoveryManager recoveryManager = txnSubsystem.getRecoveryManager();
+        commit(NUM_COMMITS);
+        long firstLSN = logManager.getAppendLSN();
+        fillMemoryComponent(firstLSN);
+        commit(NUM_COMMITS);
+
+        // the memory component is behind the target, so its dataset is flushed and the checkpoint stays behind it
+        long targetLSN = logManager.getAppendLSN();
+        Assert.assertEquals(firstLSN, recoveryManager.checkpoint(false, targetLSN));
+        verify(datasetLifecycleManager).scheduleAsyncFlushForLaggingDatasets(targetLSN);
+        assertRecoveryStartsAt(firstLSN);
+        long readableSmallestLSN = logManager.getReadableSmallestLSN();
+        Assert.assertTrue(readableSmallestLSN > 0);
+        Assert.assertTrue(readableSmallestLSN <= firstLSN);
+
+        // once the flush emptied the memory component, the next checkpoint is at the end of the log
+        when(index.isCurrentMutableComponentEmpty()).thenReturn(true);
+        commit(NUM_COMMITS);
+        long appendLSN = logManager.getAppendLSN();
+        Assert.assertEquals(appendLSN, recoveryManager.checkpoint(false, appendLSN));
+        verify(datasetLifecycleManager, times(1)).scheduleAsyncFlushForLaggingDatasets(anyLong());
+        assertRecoveryStartsAt(appendLSN);
+        Assert.assertTrue(logManager.getReadableSmallestLSN() > firstLSN);
+    }
+
+    @Test
+    public void checkpointIsSkippedUntilTheMinFirstLSNAdvances() throws Exception {
+        ILogManager logManager = txnSubsystem.getLogManager();
+        IRecoveryManager recoveryManager = txnSubsystem.getRecoveryManager();
+        long firstLSN = logManager.getAppendLSN();
+        fillMemoryComponent(firstLSN);
+        commit(NUM_COMMITS);
+        Assert.assertEquals(firstLSN, recoveryManager.checkpoint(false, logManager.getAppendLSN()));
+        verify(bufferCache, times(1)).saveWarmupPages();
+
+        // the flush of the lagging dataset has not completed yet, so the last checkpoint still holds
+        commit(NUM_COMMITS);
+        Assert.assertEquals(firstLSN, recoveryManager.checkpoint(false, logManager.getAppendLSN()));
+        verify(bufferCache, times(1)).saveWarmupPages();
+        verify(datasetLifecycleManager, times(2)).scheduleAsyncFlushForLaggingDatasets(anyLong());
+
+        when(index.isCurrentMutableComponentEmpty()).thenReturn(true);
+        long appendLSN = logManager.getAppendLSN();
+        Assert.assertEquals(appendLSN, recoveryManager.checkpoint(false, appendLSN));
+        verify(bufferCache, times(2)).saveWarmupPages();
+        assertRecoveryStartsAt(appendLSN);
+    }
+
+    @Test
+    public void checkpointWithinTheTargetDoesNotFlush() throws Exception {
+        ILogManager logManager = txnSubsystem.getLogManager();
+        commit(NUM_COMMITS);
+        long firstLSN = logManager.getAppendLSN();
+        fillMemoryComponent(firstLSN);
+        commit(NUM_COMMITS);
+        Assert.assertEquals(firstLSN, txnSubsystem.getRecoveryManager().checkpoint(false, firstLSN));
+        verify(datasetLifecycleManager, never()).scheduleAsyncFlushForLaggingDatasets(anyLong());
+        assertRecoveryStartsAt(firstLSN);
+    }
+
+    private void fillMemoryComponent(long firstLSN) throws Exception {
+        when(index.isCurrentMutableComponentEmpty()).thenReturn(false);
+        when(ioCallback.getFirstLSN()).thenReturn(firstLSN);
+    }
+
+    /**
+     * Recovers a new recovery manager from the checkpoint files without replaying the log, and checks where the
+     * replay of the log would have started.
+     */
+    private void assertRecoveryStartsAt(long lowWaterMarkLSN) throws Exception {
+        RecoveryManager recoveryManager = spy(new RecoveryManager(txnSubsystem));
+        doAnswer(invocation -> {
+            ((ILogReader) invocation.getArguments()[1]).close();
+            return null;
+        }).when(recoveryManager).replayPartitionsLogs(anySetOf(Integer.class), any(ILogReader.class), anyLong());
+        recoveryManager.startRecovery(true);
+        Set<Integer> partitions = Collections.singleton(PARTITION);
+        verify(recoveryManager).replayPartitionsLogs(eq(partitions), any(ILogReader.class), eq(lowWaterMarkLSN));
+    }
+
+    private void commit(int numCommits) throws Exception {
+        for (int i = 0; i < numCommits; i++) {
+            ITransactionContext txnCtx =
+                    txnSubsystem.getTransactionManager().getTransactionContext(new JobId(nextJobId++), true);
+            LogRecord logRecord = new LogRecord();
+            TransactionUtil.formJobTerminateLogRecord(txnCtx, logRecord, true);
+            txnSubsystem.getLogManager().log(logRecord);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.asterix.transaction.management.service.recovery;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+
+import org.apache.asterix.common.api.AsterixThreadExecutor;
+import org.apache.asterix.common.api.IDatasetLifecycleManager;
+import org.apache.asterix.common.exceptions.ACIDException;
+import org.apache.asterix.common.transactions.LogRecord;
+import org.apache.asterix.common.transactions.LogType;
+import org.apache.hyracks.data.std.primitive.IntegerPointable;
+import org.apache.hyracks.dataflow.common.data.accessors.ITupleReference;
+import org.apache.hyracks.dataflow.common.util.TupleUtils;
+import org.apache.hyracks.storage.am.common.api.IModificationOperationCallback;
+import org.apache.hyracks.storage.am.common.api.ISearchOperationCallback;
+import org.apache.hyracks.storage.am.common.ophelpers.IndexOperation;
+import org.apache.hyracks.storage.am.lsm.common.api.ILSMIndex;
+import org.apache.hyracks.storage.am.lsm.common.api.ILSMIndexAccessor;
+import org.junit.Assert;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+public class ParallelRedoTest {
+    private static final int NUM_PARTITIONS = 8;
+    private static final int NUM_RESOURCES = 3 * NUM_PARTITIONS;
+    private static final int NUM_RECORDS = 4000 * NUM_RESOURCES;
+
+    private final AsterixThreadExecutor executor = new AsterixThreadExecutor(Executors.defaultThreadFactory());
+    // the signed values of the tuples that were redone per resource, negative for deletes
+    private final Map<Long, List<Integer>> redone = new ConcurrentHashMap<>();
+
+    @Test
+    public void testRedoKeepsTheOrderOfEveryResource() throws Exception {
+        ParallelRedo parallelRedo = new ParallelRedo(createDatasetLifecycleManager(-1), executor,
+                countUpdatesPerPartition(), 4);
+        try {
+            LogRecord logRecord = new LogRecord();
+            for (int i = 0; i < NUM_RECORDS; i++) {
+                setUpdate(logRecord, i);
+                parallelRedo.redo(logRecord);
+            }
+            Assert.assertEquals(NUM_RECORDS, parallelRedo.finish());
+        } finally {
+            parallelRedo.close();
+        }
+        Assert.assertEquals(NUM_RESOURCES, redone.size());
+        for (Map.Entry<Long, List<Integer>> entry : redone.entrySet()) {
+            List<Integer> values = entry.getValue();
+            Assert.assertEquals(NUM_RECORDS / NUM_RESOURCES, values.size());
+            for (int i = 0; i < values.size(); i++) {
+                int value = i * NUM_RESOURCES + entry.getKey().intValue();
+                Assert.assertEquals(isDelete(value) ? -value : value, values.get(i).intValue());
+            }
+        }
+    }
+
+    @Test
+    public void testRedoFailureIsReported() throws Exception {
+        int failingValue = NUM_RECORDS / 2;
+        ParallelRedo parallelRedo = new ParallelRedo(createDatasetLifecycleManager(failingValue), executor,
+                countUpdatesPerPartition(), 4);
+        try {
+            LogRecord logRecord = new LogRecord();
+            for (int i = 0; i < NUM_RECORDS; i++) {
+                setUpdate(logRecord, i);
+                parallelRedo.redo(logRecord);
+            }
+            parallelRedo.finish();
+            Assert.fail("the failure to redo a record was not reported");
+        } catch (ACIDException e) {
+            Assert.assertEquals("redo of " + failingValue, e.getCause().getMessage());
+        } finally {
+            parallelRedo.close();
+        }
+    }
+
+    private static Map<Integer, Integer> countUpdatesPerPartition() {
+        Map<Integer, Integer> partition2UpdateCount = new HashMap<>();
+        for (int i = 0; i < NUM_RECORDS; i++) {
+            partition2UpdateCount.merge(i % NUM_PARTITIONS, 1, Integer::sum);
+        }
+        return partition2UpdateCount;
+    }
+
+    private static boolean isDelete(int value) {
+        return value % 5 == 0;
+    }
+
+    private static void setUpdate(LogRecord logRecord, int value) throws Exception {
+        logRecord.setLogType(LogType.UPDATE);
+        logRecord.setDatasetId(1);
+        logRecord.setResourceId(value % NUM_RESOURCES);
+        logRecord.setResourcePartition(value % NUM_PARTITIONS);
+        logRecord.setNewOp((byte) (isDelete(value) ? IndexOperation.DELETE : IndexOperation.INSERT).ordinal());
+        logRecord.setNewValue(TupleUtils.createIntegerTuple(value));
+    }
+
+    private IDatasetLifecycleManager createDatasetLifecycleManager(int failingValue) throws Exception {
+        IDatasetLifecycleManager datasetLifecycleManager = mock(IDatasetLifecycleManager.class);
+        when(datasetLifecycleManager.getIndex(anyInt(), anyLong())).thenAnswer(new Answer<ILSMIndex>() {
+            @Override
+            public ILSMIndex answer(InvocationOnMock invocation) throws Throwable {
+                long resourceId = (Long) invocation.getArguments()[1];
+                List<Integer> values = Collections.synchronizedList(new ArrayList<Integer>());
+                redone.put(resourceId, values);
+                ILSMIndexAccessor accessor = mock(ILSMIndexAccessor.class);
+                doAnswer(createRedoAnswer(values, 1, failingValue)).when(accessor)
+                        .forceInsert(any(ITupleReference.class));
+                doAnswer(createRedoAnswer(values, -1, failingValue)).when(accessor)
+                        .forceDelete(any(ITupleReference.class));
+                ILSMIndex index = mock(ILSMIndex.class);
+                when(index.createAccessor(any(IModificationOperationCallback.class),
+                        any(ISearchOperationCallback.class))).thenReturn(accessor);
+                return index;
+            }
+        });
+        return datasetLifecycleManager;
+    }
+
+    private static Answer<Void> createRedoAnswer(List<Integer> values, int sign, int failingValue) {
+        return new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) throws Throwable {
+                ITupleReference tuple = (ITupleReference) invocation.getArguments()[0];
+                int value = IntegerPointable.getInteger(tuple.getFieldData(0), tuple.getFieldStart(0));
+                if (value == failingValue) {
+                    throw new IllegalStateException("redo of " + value);
+                }
+                values.add(sign * value);
+                return null;
+            }
+        };
+    }
+}
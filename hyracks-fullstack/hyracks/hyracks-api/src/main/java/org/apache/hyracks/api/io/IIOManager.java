@@ -25,9 +25,21 @@ import java.util.concurrent.Executor;
 import org.apache.hyracks.api.exceptions.HyracksDataException;
 
 public interface IIOManager {
+    /**
+     * The alignment of the offsets and lengths of writes to files opened with
+     * {@link FileReadWriteMode#READ_WRITE_DIRECT}, which is a multiple of the block size of common file systems.
+     */
+    int DIRECT_IO_ALIGNMENT = 4096;
+
     public enum FileReadWriteMode {
         READ_ONLY,
-        READ_WRITE
+        READ_WRITE,
+        /**
+         * Like READ_WRITE, but transfers bypass the operating system's page cache (O_DIRECT). Writes have to start
+         * and end at multiples of {@link IIOManager#DIRECT_IO_ALIGNMENT}. Falls back to READ_WRITE if the JVM or the
+         * file system does not support direct I/O.
+         */
+        READ_WRITE_DIRECT
     }
 
     public enum FileSyncMode {
@@ -57,8 +69,25 @@ public interface IIOManager {
 
     public void setExecutor(Executor executor);
 
+    /**
+     * @return the executor used for asynchronous I/O requests, or null if none has been set
+     */
+    public Executor getExecutor();
+
     public long getSize(IFileHandle fileHandle);
 
+    /**
+     * Maps a region of the file into memory for reading. The mapping stays valid after the file is closed or deleted,
+     * and is released by {@link #unmap(ByteBuffer)} or once the returned buffer is garbage collected.
+     */
+    public ByteBuffer map(IFileHandle fileHandle, long offset, long length) throws HyracksDataException;
+
+    /**
+     * Releases a mapping returned by {@link #map(IFileHandle, long, long)} right away, if the JVM supports it. The
+     * caller has to make sure that the buffer and its views are not accessed anymore.
+     */
+    public void unmap(ByteBuffer buffer);
+
     public void deleteWorkspaceFiles();
 
     /**
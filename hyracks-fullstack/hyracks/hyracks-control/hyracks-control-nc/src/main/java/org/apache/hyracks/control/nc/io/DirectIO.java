@@ -0,0 +1,230 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.hyracks.control.nc.io;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.hyracks.api.io.IIOManager;
+
+/**
+ * Reads and writes files that were opened with O_DIRECT.
+ * Direct I/O requires the file offset, the length and the memory address of every transfer to be aligned to the
+ * block size of the file system. Writes have to start and end at block boundaries, see
+ * {@link IIOManager#DIRECT_IO_ALIGNMENT}, so a write never shares a block with another write and never has to read
+ * the block first. Reads may start and end anywhere; they read the enclosing blocks. The data is copied through an
+ * aligned bounce buffer, because the buffers of the callers are not aligned.
+ * O_DIRECT is only available from Java 10 on, so it is looked up reflectively.
+ */
+class DirectIO {
+    private static final Logger LOGGER = Logger.getLogger(DirectIO.class.getName());
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final OpenOption DIRECT_OPEN_OPTION;
+    private static final Method GET_BLOCK_SIZE;
+    private static final Method ALIGNED_SLICE;
+
+    static {
+        OpenOption directOpenOption = null;
+        Method getBlockSize = null;
+        Method alignedSlice = null;
+        try {
+            Class<?> extendedOpenOption = Class.forName("com.sun.nio.file.ExtendedOpenOption");
+            for (Object option : extendedOpenOption.getEnumConstants()) {
+                if ("DIRECT".equals(((Enum<?>) option).name())) {
+                    directOpenOption = (OpenOption) option;
+                }
+            }
+            getBlockSize = FileStore.class.getMethod("getBlockSize");
+            alignedSlice = ByteBuffer.class.getMethod("alignedSlice", int.class);
+        } catch (ReflectiveOperationException e) {
+            if (LOGGER.isLoggable(Level.INFO)) {
+                LOGGER.info("Direct I/O is not supported by this JVM");
+            }
+        }
+        boolean supported = directOpenOption != null && getBlockSize != null && alignedSlice != null;
+        DIRECT_OPEN_OPTION = supported ? directOpenOption : null;
+        GET_BLOCK_SIZE = getBlockSize;
+        ALIGNED_SLICE = alignedSlice;
+    }
+
+    // aligned bounce buffers by block size
+    private final Map<Integer, Queue<ByteBuffer>> buffers = new ConcurrentHashMap<>();
+
+    /**
+     * @return the open option that turns on O_DIRECT, or null if the JVM does not support it
+     */
+    static OpenOption getDirectOpenOption() {
+        return DIRECT_OPEN_OPTION;
+    }
+
+    /**
+     * @return the block size that direct transfers on the file have to be aligned to
+     */
+    static int getBlockSize(Path path) throws IOException {
+        try {
+            long blockSize = (Long) GET_BLOCK_SIZE.invoke(Files.getFileStore(path));
+            if (blockSize <= 0 || blockSize > BUFFER_SIZE || Long.bitCount(blockSize) != 1) {
+                throw new IOException("Unsupported block size for direct I/O: " + blockSize);
+            }
+            return (int) blockSize;
+        } catch (ReflectiveOperationException e) {
+            throw new IOException(e);
+        }
+    }
+
+    /**
+     * Same contract as {@link IOManager#syncRead}: reads up to data.remaining() bytes and returns the number of bytes
+     * read, or -1 if the offset is at or beyond the end of the file.
+     */
+    int read(FileHandle fHandle, long offset, ByteBuffer data) throws IOException {
+        final long size = fHandle.getFileChannel().size();
+        if (offset >= size) {
+            return data.hasRemaining() ? -1 : 0;
+        }
+        final int blockSize = fHandle.getBlockSize();
+        ByteBuffer buf = checkoutBuffer(blockSize);
+        try {
+            int n = 0;
+            while (data.hasRemaining() && offset < size) {
+                long blockStart = alignDown(offset, blockSize);
+                int skip = (int) (offset - blockStart);
+                int len = (int) Math.min(Math.min(data.remaining(), buf.capacity() - skip), size - offset);
+                buf.clear();
+                buf.limit((int) alignUp(skip + len, blockSize));
+                int available = Math.min(len, readBlocks(fHandle.getFileChannel(), buf, blockStart) - skip);
+                if (available <= 0) {
+                    break;
+                }
+                buf.limit(skip + available);
+                buf.position(skip);
+                data.put(buf);
+                n += available;
+                offset += available;
+                if (available < len) {
+                    break;
+                }
+            }
+            return n == 0 ? -1 : n;
+        } finally {
+            returnBuffer(blockSize, buf);
+        }
+    }
+
+    /**
+     * Writes all of the buffers one after the other at the given offset. The offset and the total length have to be
+     * multiples of the block size.
+     *
+     * @return the number of bytes written
+     */
+    long write(FileHandle fHandle, long offset, ByteBuffer... dataArray) throws IOException {
+        final int blockSize = fHandle.getBlockSize();
+        long length = 0;
+        for (ByteBuffer data : dataArray) {
+            length += data.remaining();
+        }
+        if (alignDown(offset, blockSize) != offset || alignDown(length, blockSize) != length) {
+            throw new IOException("Direct write of " + length + " bytes at offset " + offset + " to "
+                    + fHandle.getFileReference() + " is not aligned to " + blockSize + " byte blocks");
+        }
+        final FileChannel channel = fHandle.getFileChannel();
+        ByteBuffer buf = checkoutBuffer(blockSize);
+        try {
+            long n = 0;
+            int next = 0;
+            while (n < length) {
+                // gather as much of the data as fits into the bounce buffer, which is a multiple of the block size
+                buf.clear();
+                while (buf.hasRemaining() && next < dataArray.length) {
+                    ByteBuffer data = dataArray[next];
+                    int len = Math.min(data.remaining(), buf.remaining());
+                    ByteBuffer src = data.duplicate();
+                    src.limit(src.position() + len);
+                    buf.put(src);
+                    data.position(data.position() + len);
+                    if (!data.hasRemaining()) {
+                        next++;
+                    }
+                }
+                buf.flip();
+                while (buf.hasRemaining()) {
+                    channel.write(buf, offset + buf.position());
+                }
+                offset += buf.limit();
+                n += buf.limit();
+            }
+            return n;
+        } finally {
+            returnBuffer(blockSize, buf);
+        }
+    }
+
+    /**
+     * Reads whole blocks into buf from its position to its limit. A direct read only returns less than requested at
+     * the end of the file, and must not be continued from the unaligned position it stopped at.
+     *
+     * @return the number of bytes read
+     */
+    private static int readBlocks(FileChannel channel, ByteBuffer buf, long offset) throws IOException {
+        return Math.max(channel.read(buf, offset), 0);
+    }
+
+    private ByteBuffer checkoutBuffer(int blockSize) throws IOException {
+        ByteBuffer buf = getBuffers(blockSize).poll();
+        return buf != null ? buf : allocateAligned(BUFFER_SIZE, blockSize);
+    }
+
+    private void returnBuffer(int blockSize, ByteBuffer buf) {
+        getBuffers(blockSize).offer(buf);
+    }
+
+    private Queue<ByteBuffer> getBuffers(int blockSize) {
+        return buffers.computeIfAbsent(blockSize, k -> new ConcurrentLinkedQueue<>());
+    }
+
+    private static ByteBuffer allocateAligned(int capacity, int alignment) throws IOException {
+        try {
+            ByteBuffer aligned = (ByteBuffer) ALIGNED_SLICE.invoke(ByteBuffer.allocateDirect(capacity + alignment),
+                    alignment);
+            aligned.limit(capacity);
+            return aligned.slice();
+        } catch (ReflectiveOperationException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static long alignDown(long offset, int blockSize) {
+        return offset & -blockSize;
+    }
+
+    private static long alignUp(long offset, int blockSize) {
+        return (offset + blockSize - 1) & -blockSize;
+    }
+}
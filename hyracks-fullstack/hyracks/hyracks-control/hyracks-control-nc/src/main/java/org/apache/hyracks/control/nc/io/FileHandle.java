@@ -21,18 +21,31 @@ package org.apache.hyracks.control.nc.io;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.channels.FileChannel;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.apache.hyracks.api.io.FileReference;
 import org.apache.hyracks.api.io.IFileHandle;
 import org.apache.hyracks.api.io.IIOManager;
 
 public class FileHandle implements IFileHandle {
+    private static final Logger LOGGER = Logger.getLogger(FileHandle.class.getName());
+
     private final FileReference fileRef;
 
     private RandomAccessFile raf;
 
     private FileChannel channel;
 
+    // only set if the file was opened with O_DIRECT
+    private boolean direct;
+    private int blockSize;
+
     public FileHandle(FileReference fileRef) {
         this.fileRef = fileRef;
     }
@@ -46,22 +59,15 @@ public class FileHandle implements IFileHandle {
 
             case READ_WRITE:
                 fileRef.getFile().getAbsoluteFile().getParentFile().mkdirs();
-                switch (syncMode) {
-                    case METADATA_ASYNC_DATA_ASYNC:
-                        mode = "rw";
-                        break;
-
-                    case METADATA_ASYNC_DATA_SYNC:
-                        mode = "rwd";
-                        break;
-
-                    case METADATA_SYNC_DATA_SYNC:
-                        mode = "rws";
-                        break;
+                mode = getReadWriteMode(syncMode);
+                break;
 
-                    default:
-                        throw new IllegalArgumentException();
+            case READ_WRITE_DIRECT:
+                fileRef.getFile().getAbsoluteFile().getParentFile().mkdirs();
+                if (openDirect(syncMode)) {
+                    return;
                 }
+                mode = getReadWriteMode(syncMode);
                 break;
 
             default:
@@ -71,15 +77,94 @@ public class FileHandle implements IFileHandle {
         channel = raf.getChannel();
     }
 
+    private static String getReadWriteMode(IIOManager.FileSyncMode syncMode) {
+        switch (syncMode) {
+            case METADATA_ASYNC_DATA_ASYNC:
+                return "rw";
+
+            case METADATA_ASYNC_DATA_SYNC:
+                return "rwd";
+
+            case METADATA_SYNC_DATA_SYNC:
+                return "rws";
+
+            default:
+                throw new IllegalArgumentException();
+        }
+    }
+
+    /**
+     * Opens the file with O_DIRECT.
+     *
+     * @return false if the JVM or the file system does not support direct I/O, or the block size of the file system
+     *         does not divide {@link IIOManager#DIRECT_IO_ALIGNMENT}, in which case the file is not open
+     */
+    private boolean openDirect(IIOManager.FileSyncMode syncMode) throws IOException {
+        OpenOption directOption = DirectIO.getDirectOpenOption();
+        if (directOption == null) {
+            return false;
+        }
+        Set<OpenOption> options = new HashSet<>();
+        options.add(StandardOpenOption.READ);
+        options.add(StandardOpenOption.WRITE);
+        options.add(StandardOpenOption.CREATE);
+        options.add(directOption);
+        switch (syncMode) {
+            case METADATA_ASYNC_DATA_ASYNC:
+                break;
+
+            case METADATA_ASYNC_DATA_SYNC:
+                options.add(StandardOpenOption.DSYNC);
+                break;
+
+            case METADATA_SYNC_DATA_SYNC:
+                options.add(StandardOpenOption.SYNC);
+                break;
+
+            default:
+                throw new IllegalArgumentException();
+        }
+        Path path = fileRef.getFile().toPath();
+        try {
+            channel = FileChannel.open(path, options);
+        } catch (IOException | UnsupportedOperationException e) {
+            if (LOGGER.isLoggable(Level.WARNING)) {
+                LOGGER.log(Level.WARNING, "Unable to open " + fileRef + " for direct I/O, using buffered I/O", e);
+            }
+            return false;
+        }
+        try {
+            blockSize = DirectIO.getBlockSize(path);
+            if (IIOManager.DIRECT_IO_ALIGNMENT % blockSize != 0) {
+                throw new IOException("The block size " + blockSize + " does not divide the direct I/O alignment "
+                        + IIOManager.DIRECT_IO_ALIGNMENT);
+            }
+        } catch (IOException e) {
+            channel.close();
+            channel = null;
+            if (LOGGER.isLoggable(Level.WARNING)) {
+                LOGGER.log(Level.WARNING, "Unable to use direct I/O for " + fileRef + ", using buffered I/O", e);
+            }
+            return false;
+        }
+        direct = true;
+        return true;
+    }
+
     public void close() throws IOException {
         channel.close();
-        raf.close();
+        if (raf != null) {
+            raf.close();
+        }
     }
 
     public FileReference getFileReference() {
         return fileRef;
     }
 
+    /**
+     * @return the file, or null if the file was opened for direct I/O
+     */
     public RandomAccessFile getRandomAccessFile() {
         return raf;
     }
@@ -88,6 +173,14 @@ public class FileHandle implements IFileHandle {
         return channel;
     }
 
+    public boolean isDirect() {
+        return direct;
+    }
+
+    int getBlockSize() {
+        return blockSize;
+    }
+
     public void sync(boolean metadata) throws IOException {
         channel.force(metadata);
     }
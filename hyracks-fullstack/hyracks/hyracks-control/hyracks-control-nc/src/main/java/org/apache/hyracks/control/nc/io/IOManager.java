@@ -42,6 +42,7 @@ public class IOManager implements IIOManager {
     private Executor executor;
     private final List<IODeviceHandle> workAreaIODevices;
     private int workAreaDeviceIndex;
+    private final DirectIO directIO = new DirectIO();
 
     public IOManager(List<IODeviceHandle> devices, Executor executor) throws HyracksException {
         this(devices);
@@ -67,6 +68,11 @@ public class IOManager implements IIOManager {
         this.executor = executor;
     }
 
+    @Override
+    public Executor getExecutor() {
+        return executor;
+    }
+
     @Override
     public List<IODeviceHandle> getIODevices() {
         return ioDevices;
@@ -90,6 +96,9 @@ public class IOManager implements IIOManager {
             if (fHandle == null) {
                 throw new IllegalStateException("Trying to write to a deleted file.");
             }
+            if (((FileHandle) fHandle).isDirect()) {
+                return (int) directIO.write((FileHandle) fHandle, offset, data);
+            }
             int n = 0;
             int remaining = data.remaining();
             while (remaining > 0) {
@@ -110,14 +119,21 @@ public class IOManager implements IIOManager {
         }
     }
 
+    /**
+     * Writes the buffers one after the other starting at the given offset with a gather write. FileChannel has no
+     * positional gather write, so the writers of the file are serialized on the position of its channel.
+     */
     @Override
     public long syncWrite(IFileHandle fHandle, long offset, ByteBuffer[] dataArray) throws HyracksDataException {
         try {
             if (fHandle == null) {
                 throw new IllegalStateException("Trying to write to a deleted file.");
             }
-            int n = 0;
-            int remaining = 0;
+            if (((FileHandle) fHandle).isDirect()) {
+                return directIO.write((FileHandle) fHandle, offset, dataArray);
+            }
+            long n = 0;
+            long remaining = 0;
             for (ByteBuffer buf : dataArray) {
                 remaining += buf.remaining();
             }
@@ -157,6 +173,9 @@ public class IOManager implements IIOManager {
     @Override
     public int syncRead(IFileHandle fHandle, long offset, ByteBuffer data) throws HyracksDataException {
         try {
+            if (((FileHandle) fHandle).isDirect()) {
+                return directIO.read((FileHandle) fHandle, offset, data);
+            }
             int n = 0;
             int remaining = data.remaining();
             while (remaining > 0) {
@@ -300,6 +319,20 @@ public class IOManager implements IIOManager {
         return ((FileHandle) fileHandle).getFileReference().getFile().length();
     }
 
+    @Override
+    public ByteBuffer map(IFileHandle fileHandle, long offset, long length) throws HyracksDataException {
+        try {
+            return ((FileHandle) fileHandle).getFileChannel().map(FileChannel.MapMode.READ_ONLY, offset, length);
+        } catch (IOException e) {
+            throw new HyracksDataException(e);
+        }
+    }
+
+    @Override
+    public void unmap(ByteBuffer buffer) {
+        Unmapper.unmap(buffer);
+    }
+
     @Override
     public void deleteWorkspaceFiles() {
         for (IODeviceHandle ioDevice : workAreaIODevices) {
@@ -32,6 +32,14 @@ import org.apache.hyracks.storage.common.buffercache.IFIFOPageQueue;
 import org.apache.hyracks.storage.common.file.BufferedFileHandle;
 import org.apache.hyracks.storage.common.file.IFileMapProvider;
 
+/**
+ * A Bloom filter that is stored in the pages of a file after a metadata page.
+ * In the standard layout, the k bits of a key are spread over the whole filter, so a lookup may pin k pages. In the
+ * blocked layout, all bits of a key are set in a single block of {@link #BLOCK_SIZE} bytes (a cache line) that is
+ * chosen by the first half of the key's hash, so a lookup pins one page and touches one cache line. The blocked
+ * layout has a slightly higher false positive rate for the same number of bits. The layout of a filter is recorded in
+ * its metadata page, so a filter is always read with the layout it was built with.
+ */
 public class BloomFilter {
 
     private final static int METADATA_PAGE_ID = 0;
@@ -39,11 +47,17 @@ public class BloomFilter {
     private final static int NUM_HASHES_USED_OFFSET = NUM_PAGES_OFFSET + 4; // 4
     private final static int NUM_ELEMENTS_OFFSET = NUM_HASHES_USED_OFFSET + 4; // 8
     private final static int NUM_BITS_OFFSET = NUM_ELEMENTS_OFFSET + 8; // 12
+    private final static int LAYOUT_OFFSET = NUM_BITS_OFFSET + 8; // 20
+    // marks the blocked layout; filters written before the layout was recorded have arbitrary bytes there
+    private final static int BLOCKED_LAYOUT = 0x424C4B44;
+    public final static int BLOCK_SIZE = 64;
 
     private final IBufferCache bufferCache;
     private final IFileMapProvider fileMapProvider;
     private final FileReference file;
     private final int[] keyFields;
+    // the layout of filters built by this instance
+    private final boolean useBlockedLayout;
     private int fileId = -1;
     private boolean isActivated = false;
 
@@ -51,17 +65,26 @@ public class BloomFilter {
     private int numHashes;
     private long numElements;
     private long numBits;
+    private boolean blocked;
     private final int numBitsPerPage;
+    private final int numBitsPerBlock;
     private final static byte[] ZERO_BUFFER = new byte[131072]; // 128kb
     private final static long SEED = 0L;
 
     public BloomFilter(IBufferCache bufferCache, IFileMapProvider fileMapProvider, FileReference file, int[] keyFields)
             throws HyracksDataException {
+        this(bufferCache, fileMapProvider, file, keyFields, false);
+    }
+
+    public BloomFilter(IBufferCache bufferCache, IFileMapProvider fileMapProvider, FileReference file, int[] keyFields,
+            boolean useBlockedLayout) throws HyracksDataException {
         this.bufferCache = bufferCache;
         this.fileMapProvider = fileMapProvider;
         this.file = file;
         this.keyFields = keyFields;
+        this.useBlockedLayout = useBlockedLayout;
         this.numBitsPerPage = bufferCache.getPageSize() * Byte.SIZE;
+        this.numBitsPerBlock = Math.min(BLOCK_SIZE * Byte.SIZE, numBitsPerPage);
     }
 
     public int getFileId() {
@@ -86,11 +109,21 @@ public class BloomFilter {
         return numElements;
     }
 
+    public boolean isBlocked() throws HyracksDataException {
+        if (!isActivated) {
+            throw new HyracksDataException("The bloom filter is not activated.");
+        }
+        return blocked;
+    }
+
     public boolean contains(ITupleReference tuple, long[] hashes) throws HyracksDataException {
         if (numPages == 0) {
             return false;
         }
         MurmurHash128Bit.hash3_x64_128(tuple, keyFields, SEED, hashes);
+        if (blocked) {
+            return containsInBlock(hashes);
+        }
         for (int i = 0; i < numHashes; ++i) {
             long hash = Math.abs((hashes[0] + i * hashes[1]) % numBits);
 
@@ -116,6 +149,44 @@ public class BloomFilter {
         return true;
     }
 
+    private boolean containsInBlock(long[] hashes) throws HyracksDataException {
+        long block = getBlock(hashes, numBits);
+        ICachedPage page = bufferCache.pin(BufferedFileHandle.getDiskPageId(fileId, getBlockPage(block) + 1), false);
+        page.acquireReadLatch();
+        try {
+            ByteBuffer buffer = page.getBuffer();
+            int blockStart = getBlockStart(block);
+            for (int i = 0; i < numHashes; ++i) {
+                int bit = blockStart + getBitInBlock(hashes, i);
+                if ((buffer.get(bit >> 3) & (1 << (bit & 0x07))) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            page.releaseReadLatch();
+            bufferCache.unpin(page);
+        }
+    }
+
+    private long getBlock(long[] hashes, long numBits) {
+        return (hashes[0] & Long.MAX_VALUE) % (numBits / numBitsPerBlock);
+    }
+
+    private int getBlockPage(long block) {
+        return (int) (block / (numBitsPerPage / numBitsPerBlock));
+    }
+
+    // the first bit of the block within its page
+    private int getBlockStart(long block) {
+        return (int) (block % (numBitsPerPage / numBitsPerBlock)) * numBitsPerBlock;
+    }
+
+    // the bits within the block come from the second half of the hash, so they are independent of the block
+    private int getBitInBlock(long[] hashes, int i) {
+        return (int) (((hashes[1] >>> 32) + i * ((hashes[1] & 0xFFFFFFFFL) | 1)) % numBitsPerBlock);
+    }
+
     private void prepareFile() throws HyracksDataException {
         boolean fileIsMapped = false;
         synchronized (fileMapProvider) {
@@ -161,6 +232,7 @@ public class BloomFilter {
             numHashes = 0;
             numElements = 0;
             numBits = 0;
+            blocked = false;
             return;
         }
         ICachedPage metaPage = bufferCache.pin(BufferedFileHandle.getDiskPageId(fileId, METADATA_PAGE_ID), false);
@@ -170,6 +242,7 @@ public class BloomFilter {
             numHashes = metaPage.getBuffer().getInt(NUM_HASHES_USED_OFFSET);
             numElements = metaPage.getBuffer().getLong(NUM_ELEMENTS_OFFSET);
             numBits = metaPage.getBuffer().getLong(NUM_BITS_OFFSET);
+            blocked = metaPage.getBuffer().getInt(LAYOUT_OFFSET) == BLOCKED_LAYOUT;
         } finally {
             metaPage.releaseReadLatch();
             bufferCache.unpin(metaPage);
@@ -208,6 +281,7 @@ public class BloomFilter {
         private final int numHashes;
         private final long numBits;
         private final int numPages;
+        private final boolean blocked;
         private IFIFOPageQueue queue;
         private ICachedPage[] pages;
         private ICachedPage metaDataPage = null;
@@ -219,7 +293,14 @@ public class BloomFilter {
             queue = bufferCache.createFIFOQueue();
             this.numElements = numElements;
             this.numHashes = numHashes;
-            numBits = this.numElements * numBitsPerElement;
+            blocked = useBlockedLayout;
+            if (blocked) {
+                // whole blocks, and a block never spans two pages
+                long numBlocks = (long) Math.ceil(this.numElements * numBitsPerElement / (double) numBitsPerBlock);
+                numBits = numBlocks * numBitsPerBlock;
+            } else {
+                numBits = this.numElements * numBitsPerElement;
+            }
             long tmp = (long) Math.ceil(numBits / (double) numBitsPerPage);
             if (tmp > Integer.MAX_VALUE) {
                 throw new HyracksDataException("Cannot create a bloom filter with his huge number of pages.");
@@ -256,6 +337,7 @@ public class BloomFilter {
             metaDataPage.getBuffer().putInt(NUM_HASHES_USED_OFFSET, numHashes);
             metaDataPage.getBuffer().putLong(NUM_ELEMENTS_OFFSET, numElements);
             metaDataPage.getBuffer().putLong(NUM_BITS_OFFSET, numBits);
+            metaDataPage.getBuffer().putInt(LAYOUT_OFFSET, blocked ? BLOCKED_LAYOUT : 0);
         }
 
         @Override
@@ -265,6 +347,16 @@ public class BloomFilter {
                         "Cannot add elements to this filter since it is supposed to be empty (number of elements hint passed to the filter during construction was 0).");
             }
             MurmurHash128Bit.hash3_x64_128(tuple, keyFields, SEED, hashes);
+            if (blocked) {
+                long block = getBlock(hashes, numBits);
+                ByteBuffer buffer = pages[getBlockPage(block)].getBuffer();
+                int blockStart = getBlockStart(block);
+                for (int i = 0; i < numHashes; ++i) {
+                    int bit = blockStart + getBitInBlock(hashes, i);
+                    buffer.put(bit >> 3, (byte) (buffer.get(bit >> 3) | (1 << (bit & 0x07))));
+                }
+                return;
+            }
             for (int i = 0; i < numHashes; ++i) {
                 long hash = Math.abs((hashes[0] + i * hashes[1]) % numBits);
                 ICachedPage page = pages[((int) (hash / numBitsPerPage))];
@@ -290,6 +382,7 @@ public class BloomFilter {
             BloomFilter.this.numHashes = numHashes;
             BloomFilter.this.numElements = numElements;
             BloomFilter.this.numPages = numPages;
+            BloomFilter.this.blocked = blocked;
         }
 
         @Override
@@ -21,5 +21,6 @@ package org.apache.hyracks.storage.am.btree.frames;
 
 public enum BTreeLeafFrameType {
     REGULAR_NSM,
-    FIELD_PREFIX_COMPRESSED_NSM
+    FIELD_PREFIX_COMPRESSED_NSM,
+    DELTA_COMPRESSED_NSM
 }
@@ -20,13 +20,16 @@
 package org.apache.hyracks.storage.am.btree.frames;
 
 import java.nio.ByteBuffer;
+import java.util.Arrays;
 
 import org.apache.hyracks.api.exceptions.HyracksDataException;
 import org.apache.hyracks.dataflow.common.data.accessors.ITupleReference;
 import org.apache.hyracks.storage.am.btree.api.IBTreeLeafFrame;
 import org.apache.hyracks.storage.am.btree.impls.BTreeOpContext.PageValidationInfo;
 import org.apache.hyracks.storage.am.common.api.ISplitKey;
+import org.apache.hyracks.storage.am.common.api.ITreeIndexEncodedFrame;
 import org.apache.hyracks.storage.am.common.api.ITreeIndexFrame;
+import org.apache.hyracks.storage.am.common.api.ITreeIndexTupleDecoder;
 import org.apache.hyracks.storage.am.common.api.ITreeIndexTupleReference;
 import org.apache.hyracks.storage.am.common.api.ITreeIndexTupleWriter;
 import org.apache.hyracks.storage.am.common.api.TreeIndexException;
@@ -38,18 +41,58 @@ import org.apache.hyracks.storage.am.common.ophelpers.FindTupleMode;
 import org.apache.hyracks.storage.am.common.ophelpers.FindTupleNoExactMatchPolicy;
 import org.apache.hyracks.storage.am.common.ophelpers.MultiComparator;
 import org.apache.hyracks.storage.common.buffercache.IBufferCache;
+import org.apache.hyracks.storage.common.buffercache.ICachedPage;
 import org.apache.hyracks.storage.common.buffercache.IExtraPageBlockHelper;
-
-public class BTreeNSMLeafFrame extends TreeIndexNSMFrame implements IBTreeLeafFrame {
+import org.apache.hyracks.util.encoding.VarLenIntEncoderDecoder;
+import org.apache.hyracks.util.encoding.VarLenIntEncoderDecoder.VarLenIntDecoder;
+
+/**
+ * Leaf frame of a B-tree that stores tuples in the format of its tuple writer.
+ * If delta encoding is on, leaf pages that are filled by a bulk load are delta encoded instead: every entry only
+ * stores the bytes of its key fields that differ from the key of the previous entry. Every
+ * {@link #DELTA_RESTART_INTERVAL}th entry is a restart point that stores its whole key, and the offsets of the
+ * restart points are kept at the end of the page for binary search. Tuples of such pages are decoded by the tuple
+ * references, and the pages cannot be modified. Delta encoded pages are marked in the page header, so any leaf frame
+ * of the same tuple writer can read them.
+ * Page layout of a delta encoded page:
+ * [page header][entry 0]...[entry n-1][free space][restart point k-1]...[restart point 0]
+ * Entry layout:
+ * [shared key length][unshared key length][tuple header length][remaining length][tuple header][unshared key]
+ * [remaining fields]
+ */
+public class BTreeNSMLeafFrame extends TreeIndexNSMFrame implements IBTreeLeafFrame, ITreeIndexEncodedFrame {
     protected static final int nextLeafOff = flagOff + 1; // 22
 
+    public static final int DELTA_RESTART_INTERVAL = 16;
+    private static final int RESTART_SLOT_SIZE = 4;
+    // the four lengths in front of an entry take up to 5 bytes each
+    private static final int DELTA_ENCODING_RESERVE = 4 * 5;
+
     private MultiComparator cmp;
 
     private final ITreeIndexTupleReference previousFt;
 
+    private final boolean deltaEncoding;
+    // changes whenever the frame is set to a page, so that decoders can tell whether their state is still valid
+    private int pageGeneration = 0;
+    // the last tuple appended to a delta encoded page, and the one appended before it
+    private final ITreeIndexTupleReference appendTuple;
+    private ByteBuffer appendBuf;
+    private ByteBuffer lastAppendBuf;
+    private int lastAppendKeyStart;
+    private int lastAppendKeyEnd;
+    private int lastAppendGeneration = -1;
+    private int lastAppendIndex = -1;
+
     public BTreeNSMLeafFrame(ITreeIndexTupleWriter tupleWriter) {
+        this(tupleWriter, false);
+    }
+
+    public BTreeNSMLeafFrame(ITreeIndexTupleWriter tupleWriter, boolean deltaEncoding) {
         super(tupleWriter, new OrderedSlotManager());
         previousFt = tupleWriter.createTupleReference();
+        this.deltaEncoding = deltaEncoding;
+        this.appendTuple = deltaEncoding ? tupleWriter.createTupleReference() : null;
     }
 
     @Override
@@ -59,13 +102,48 @@ public class BTreeNSMLeafFrame extends TreeIndexNSMFrame implements IBTreeLeafFr
 
     @Override
     public int getBytesRequiredToWriteTuple(ITupleReference tuple) {
-        return tupleWriter.bytesRequired(tuple) + slotManager.getSlotSize();
+        int bytesRequired = tupleWriter.bytesRequired(tuple) + slotManager.getSlotSize();
+        return deltaEncoding ? bytesRequired + DELTA_ENCODING_RESERVE : bytesRequired;
     }
 
     @Override
     public void initBuffer(byte level) {
         super.initBuffer(level);
         buf.putInt(nextLeafOff, -1);
+        if (deltaEncoding && level == 0) {
+            buf.put(flagOff, (byte) (buf.get(flagOff) | deltaFlagBit));
+        }
+        pageGeneration++;
+    }
+
+    @Override
+    public void setPage(ICachedPage page) {
+        super.setPage(page);
+        pageGeneration++;
+    }
+
+    @Override
+    public boolean isEncoded() {
+        return (buf.get(flagOff) & deltaFlagBit) != 0;
+    }
+
+    @Override
+    public ITreeIndexTupleDecoder createTupleDecoder() {
+        return new DeltaTupleDecoder();
+    }
+
+    /**
+     * Delta encoded pages are only written by bulk loads. An empty one is turned back into a regular page, a
+     * non-empty one cannot be modified.
+     */
+    private void ensureModifiable() {
+        if (isEncoded()) {
+            if (getTupleCount() > 0) {
+                throw new UnsupportedOperationException(
+                        "Delta encoded leaf pages are written by bulk loads and cannot be modified");
+            }
+            buf.put(flagOff, (byte) (buf.get(flagOff) & ~deltaFlagBit));
+        }
     }
 
     @Override
@@ -161,6 +239,7 @@ public class BTreeNSMLeafFrame extends TreeIndexNSMFrame implements IBTreeLeafFr
 
     @Override
     public void insert(ITupleReference tuple, int tupleIndex) {
+        ensureModifiable();
         int freeSpace = buf.getInt(freeSpaceOff);
         slotManager.insertSlot(tupleIndex, freeSpace);
         int bytesWritten = tupleWriter.writeTuple(tuple, buf.array(), freeSpace);
@@ -171,7 +250,69 @@ public class BTreeNSMLeafFrame extends TreeIndexNSMFrame implements IBTreeLeafFr
 
     @Override
     public void insertSorted(ITupleReference tuple) {
-        insert(tuple, slotManager.getGreatestKeyIndicator());
+        if (isEncoded()) {
+            appendEncoded(tuple);
+        } else {
+            insert(tuple, slotManager.getGreatestKeyIndicator());
+        }
+    }
+
+    private void appendEncoded(ITupleReference tuple) {
+        int tupleSize = tupleWriter.bytesRequired(tuple);
+        if (appendBuf == null || appendBuf.capacity() < tupleSize) {
+            appendBuf = ByteBuffer.allocate(tupleSize);
+        }
+        tupleWriter.writeTuple(tuple, appendBuf.array(), 0);
+        appendTuple.resetByTupleOffset(appendBuf, 0);
+        int keyFieldCount = cmp.getKeyFieldCount();
+        int headerLength = appendTuple.getFieldStart(0);
+        int keyEnd = appendTuple.getFieldStart(keyFieldCount - 1) + appendTuple.getFieldLength(keyFieldCount - 1);
+
+        int tupleIndex = getTupleCount();
+        int shared = 0;
+        if (tupleIndex % DELTA_RESTART_INTERVAL != 0 && lastAppendGeneration == pageGeneration
+                && lastAppendIndex == tupleIndex - 1) {
+            byte[] lastKey = lastAppendBuf.array();
+            byte[] key = appendBuf.array();
+            int maxShared = Math.min(lastAppendKeyEnd - lastAppendKeyStart, keyEnd - headerLength);
+            while (shared < maxShared && lastKey[lastAppendKeyStart + shared] == key[headerLength + shared]) {
+                shared++;
+            }
+        }
+
+        // the unshared part of the key and the remaining fields are contiguous in the tuple
+        int entryOff = buf.getInt(freeSpaceOff);
+        byte[] page = buf.array();
+        int pos = entryOff;
+        pos += VarLenIntEncoderDecoder.encode(shared, page, pos);
+        pos += VarLenIntEncoderDecoder.encode(keyEnd - headerLength - shared, page, pos);
+        pos += VarLenIntEncoderDecoder.encode(headerLength, page, pos);
+        pos += VarLenIntEncoderDecoder.encode(tupleSize - keyEnd, page, pos);
+        System.arraycopy(appendBuf.array(), 0, page, pos, headerLength);
+        pos += headerLength;
+        System.arraycopy(appendBuf.array(), headerLength + shared, page, pos, tupleSize - headerLength - shared);
+        pos += tupleSize - headerLength - shared;
+
+        int bytesWritten = pos - entryOff;
+        if (tupleIndex % DELTA_RESTART_INTERVAL == 0) {
+            buf.putInt(getRestartSlotOff(tupleIndex / DELTA_RESTART_INTERVAL), entryOff);
+            bytesWritten += RESTART_SLOT_SIZE;
+        }
+        buf.putInt(tupleCountOff, tupleIndex + 1);
+        buf.putInt(freeSpaceOff, pos);
+        buf.putInt(totalFreeSpaceOff, buf.getInt(totalFreeSpaceOff) - bytesWritten);
+
+        ByteBuffer lastBuf = lastAppendBuf;
+        lastAppendBuf = appendBuf;
+        appendBuf = lastBuf;
+        lastAppendKeyStart = headerLength;
+        lastAppendKeyEnd = keyEnd;
+        lastAppendGeneration = pageGeneration;
+        lastAppendIndex = tupleIndex;
+    }
+
+    private int getRestartSlotOff(int restartIndex) {
+        return buf.capacity() - (restartIndex + 1) * RESTART_SLOT_SIZE;
     }
 
     boolean isLargeTuple(int tupleSize) {
@@ -180,6 +321,7 @@ public class BTreeNSMLeafFrame extends TreeIndexNSMFrame implements IBTreeLeafFr
 
     @Override
     public FrameOpSpaceStatus hasSpaceInsert(ITupleReference tuple) throws HyracksDataException {
+        ensureModifiable();
         int tupleSize = getBytesRequiredToWriteTuple(tuple);
 
         if (isLargeTuple(tupleSize)) {
@@ -193,6 +335,7 @@ public class BTreeNSMLeafFrame extends TreeIndexNSMFrame implements IBTreeLeafFr
 
     @Override
     public FrameOpSpaceStatus hasSpaceUpdate(ITupleReference newTuple, int oldTupleIndex) {
+        ensureModifiable();
         frameTuple.resetByTupleIndex(this, oldTupleIndex);
         int oldTupleBytes = frameTuple.getTupleSize();
         int newTupleBytes = tupleWriter.bytesRequired(newTuple);
@@ -208,6 +351,7 @@ public class BTreeNSMLeafFrame extends TreeIndexNSMFrame implements IBTreeLeafFr
     public void split(ITreeIndexFrame rightFrame, ITupleReference tuple, ISplitKey splitKey,
                       IExtraPageBlockHelper extraPageBlockHelper, IBufferCache bufferCache)
             throws HyracksDataException {
+        ensureModifiable();
 
         int tupleSize = getBytesRequiredToWriteTuple(tuple);
 
@@ -297,6 +441,7 @@ public class BTreeNSMLeafFrame extends TreeIndexNSMFrame implements IBTreeLeafFr
 
     public void ensureCapacity(IBufferCache bufferCache, ITupleReference tuple,
                                IExtraPageBlockHelper extraPageBlockHelper) throws HyracksDataException {
+        ensureModifiable();
         // we call ensureCapacity() for large tuples- ensure large flag is set
         setLargeFlag(true);
         int gapBytes = getBytesRequiredToWriteTuple(tuple) - getFreeContiguousSpace();
@@ -334,9 +479,90 @@ public class BTreeNSMLeafFrame extends TreeIndexNSMFrame implements IBTreeLeafFr
     @Override
     public int findTupleIndex(ITupleReference searchKey, ITreeIndexTupleReference pageTuple, MultiComparator cmp,
             FindTupleMode ftm, FindTupleNoExactMatchPolicy ftp) throws HyracksDataException {
+        if (isEncoded()) {
+            return findEncodedTupleIndex(searchKey, pageTuple, cmp, ftm, ftp);
+        }
         return slotManager.findTupleIndex(searchKey, pageTuple, cmp, ftm, ftp);
     }
 
+    /**
+     * Same results as {@link OrderedSlotManager#findTupleIndex}, except that the first of several matching tuples is
+     * returned.
+     */
+    private int findEncodedTupleIndex(ITupleReference searchKey, ITreeIndexTupleReference pageTuple,
+            MultiComparator cmp, FindTupleMode ftm, FindTupleNoExactMatchPolicy ftp) throws HyracksDataException {
+        int tupleCount = getTupleCount();
+        if (tupleCount <= 0) {
+            return slotManager.getGreatestKeyIndicator();
+        }
+        int index = findFirstTupleIndex(searchKey, pageTuple, cmp, true);
+        boolean match = false;
+        if (index < tupleCount) {
+            pageTuple.resetByTupleIndex(this, index);
+            match = cmp.compare(searchKey, pageTuple) == 0;
+        }
+        if (match) {
+            if (ftm == FindTupleMode.EXCLUSIVE_ERROR_IF_EXISTS) {
+                return slotManager.getErrorIndicator();
+            }
+            if (ftm != FindTupleMode.EXCLUSIVE) {
+                return index;
+            }
+            if (ftp == FindTupleNoExactMatchPolicy.HIGHER_KEY) {
+                index = findFirstTupleIndex(searchKey, pageTuple, cmp, false);
+            }
+        } else if (ftm == FindTupleMode.EXACT) {
+            return slotManager.getErrorIndicator();
+        }
+        if (ftp == FindTupleNoExactMatchPolicy.HIGHER_KEY) {
+            return index < tupleCount ? index : slotManager.getGreatestKeyIndicator();
+        }
+        return index > 0 ? index - 1 : slotManager.getGreatestKeyIndicator();
+    }
+
+    /**
+     * Binary searches the restart points, and scans the entries that follow the last restart point before the key.
+     *
+     * @return the index of the first tuple that is not smaller than the search key (inclusive) or greater than the
+     *         search key (exclusive), or the tuple count if there is none
+     */
+    private int findFirstTupleIndex(ITupleReference searchKey, ITreeIndexTupleReference pageTuple,
+            MultiComparator cmp, boolean inclusive) throws HyracksDataException {
+        int tupleCount = getTupleCount();
+        int begin = 0;
+        int end = (tupleCount - 1) / DELTA_RESTART_INTERVAL;
+        int restart = -1;
+        while (begin <= end) {
+            int mid = (begin + end) / 2;
+            pageTuple.resetByTupleIndex(this, mid * DELTA_RESTART_INTERVAL);
+            if (isBefore(searchKey, pageTuple, cmp, inclusive)) {
+                restart = mid;
+                begin = mid + 1;
+            } else {
+                end = mid - 1;
+            }
+        }
+        if (restart < 0) {
+            return 0;
+        }
+        int index = restart * DELTA_RESTART_INTERVAL + 1;
+        int blockEnd = Math.min(tupleCount, index + DELTA_RESTART_INTERVAL - 1);
+        while (index < blockEnd) {
+            pageTuple.resetByTupleIndex(this, index);
+            if (!isBefore(searchKey, pageTuple, cmp, inclusive)) {
+                break;
+            }
+            index++;
+        }
+        return index;
+    }
+
+    private static boolean isBefore(ITupleReference searchKey, ITupleReference pageTuple, MultiComparator cmp,
+            boolean inclusive) throws HyracksDataException {
+        int c = cmp.compare(searchKey, pageTuple);
+        return inclusive ? c > 0 : c >= 0;
+    }
+
     @Override
     public void setMultiComparator(MultiComparator cmp) {
         this.cmp = cmp;
@@ -361,10 +587,113 @@ public class BTreeNSMLeafFrame extends TreeIndexNSMFrame implements IBTreeLeafFr
         }
     }
 
+    @Override
+    public int getTupleOffset(int slotNum) {
+        if (isEncoded()) {
+            throw new UnsupportedOperationException("Tuples of delta encoded leaf pages have to be decoded");
+        }
+        return super.getTupleOffset(slotNum);
+    }
+
+    @Override
+    public int getTotalFreeSpace() {
+        int totalFreeSpace = super.getTotalFreeSpace();
+        // keep room for the lengths in front of the next entry, which are not part of the tuple
+        return isEncoded() ? Math.max(0, totalFreeSpace - DELTA_ENCODING_RESERVE) : totalFreeSpace;
+    }
+
+    @Override
+    public boolean compact() {
+        ensureModifiable();
+        return super.compact();
+    }
+
+    @Override
+    public void delete(ITupleReference tuple, int tupleIndex) {
+        ensureModifiable();
+        super.delete(tuple, tupleIndex);
+    }
+
+    @Override
+    public void update(ITupleReference newTuple, int oldTupleIndex, boolean inPlace) {
+        ensureModifiable();
+        super.update(newTuple, oldTupleIndex, inPlace);
+    }
+
     @Override
     public String printHeader() {
         StringBuilder strBuilder = new StringBuilder(super.printHeader());
         strBuilder.append("nextLeafOff:       " + nextLeafOff + "\n");
         return strBuilder.toString();
     }
+
+    /**
+     * Decodes the tuples of delta encoded pages. Decoding starts at the closest restart point before the tuple, or
+     * continues from the previously decoded tuple if it is in the same block, so a sequential scan decodes every
+     * entry once.
+     */
+    private static class DeltaTupleDecoder implements ITreeIndexTupleDecoder {
+        private final VarLenIntDecoder lengthDecoder = VarLenIntEncoderDecoder.createDecoder();
+        private ByteBuffer tupleBuf = ByteBuffer.allocate(0);
+        private byte[] key = new byte[0];
+        private int keyLength;
+        // the frame, page and index of the previously decoded entry, and the offset of the following entry
+        private BTreeNSMLeafFrame frame;
+        private int pageGeneration;
+        private int tupleIndex = -1;
+        private int nextEntryOff;
+
+        @Override
+        public ByteBuffer decode(ITreeIndexEncodedFrame encodedFrame, int tupleIndex) {
+            BTreeNSMLeafFrame leafFrame = (BTreeNSMLeafFrame) encodedFrame;
+            int restartIndex = tupleIndex - tupleIndex % DELTA_RESTART_INTERVAL;
+            int index;
+            int entryOff;
+            if (frame == leafFrame && pageGeneration == leafFrame.pageGeneration && this.tupleIndex >= restartIndex
+                    && this.tupleIndex <= tupleIndex) {
+                if (this.tupleIndex == tupleIndex) {
+                    return tupleBuf;
+                }
+                index = this.tupleIndex + 1;
+                entryOff = nextEntryOff;
+            } else {
+                frame = leafFrame;
+                pageGeneration = leafFrame.pageGeneration;
+                index = restartIndex;
+                entryOff = leafFrame.buf.getInt(leafFrame.getRestartSlotOff(restartIndex / DELTA_RESTART_INTERVAL));
+            }
+            byte[] page = leafFrame.buf.array();
+            while (true) {
+                lengthDecoder.reset(page, entryOff);
+                int shared = lengthDecoder.decode();
+                int unshared = lengthDecoder.decode();
+                int headerLength = lengthDecoder.decode();
+                int remainingLength = lengthDecoder.decode();
+                int headerOff = lengthDecoder.getPos();
+                int unsharedOff = headerOff + headerLength;
+                keyLength = shared + unshared;
+                if (key.length < keyLength) {
+                    key = Arrays.copyOf(key, Math.max(keyLength, key.length * 2));
+                }
+                System.arraycopy(page, unsharedOff, key, shared, unshared);
+                entryOff = unsharedOff + unshared + remainingLength;
+                if (index == tupleIndex) {
+                    int tupleLength = headerLength + keyLength + remainingLength;
+                    if (tupleBuf.capacity() < tupleLength) {
+                        tupleBuf = ByteBuffer.allocate(Math.max(tupleLength, tupleBuf.capacity() * 2));
+                    }
+                    byte[] tupleBytes = tupleBuf.array();
+                    System.arraycopy(page, headerOff, tupleBytes, 0, headerLength);
+                    System.arraycopy(key, 0, tupleBytes, headerLength, keyLength);
+                    System.arraycopy(page, unsharedOff + unshared, tupleBytes, headerLength + keyLength,
+                            remainingLength);
+                    break;
+                }
+                index++;
+            }
+            this.tupleIndex = tupleIndex;
+            this.nextEntryOff = entryOff;
+            return tupleBuf;
+        }
+    }
 }
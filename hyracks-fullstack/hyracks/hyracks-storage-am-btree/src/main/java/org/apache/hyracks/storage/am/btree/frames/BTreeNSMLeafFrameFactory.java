@@ -28,14 +28,24 @@ public class BTreeNSMLeafFrameFactory implements ITreeIndexFrameFactory {
     private static final long serialVersionUID = 1L;
 
     private final ITreeIndexTupleWriterFactory tupleWriterFactory;
+    private final boolean deltaEncoding;
 
     public BTreeNSMLeafFrameFactory(ITreeIndexTupleWriterFactory tupleWriterFactory) {
+        this(tupleWriterFactory, false);
+    }
+
+    /**
+     * @param deltaEncoding
+     *            whether leaf pages filled by bulk loads are delta encoded
+     */
+    public BTreeNSMLeafFrameFactory(ITreeIndexTupleWriterFactory tupleWriterFactory, boolean deltaEncoding) {
         this.tupleWriterFactory = tupleWriterFactory;
+        this.deltaEncoding = deltaEncoding;
     }
 
     @Override
     public IBTreeLeafFrame createFrame() {
-        return new BTreeNSMLeafFrame(tupleWriterFactory.createTupleWriter());
+        return new BTreeNSMLeafFrame(tupleWriterFactory.createTupleWriter(), deltaEncoding);
     }
 
     @Override
@@ -82,6 +82,9 @@ public class BTree extends AbstractTreeIndex {
     private final AtomicInteger smoCounter;
     private final ReadWriteLock treeLatch;
     private final int maxTupleSize;
+    // whether the tree keeps fence pointers to its leaves once it is bulk loaded or activated
+    private boolean fencePointersEnabled = false;
+    private volatile BTreeFencePointers fencePointers;
 
     public BTree(IBufferCache bufferCache, IFileMapProvider fileMapProvider, IMetaDataPageManager freePageManager,
             ITreeIndexFrameFactory interiorFrameFactory, ITreeIndexFrameFactory leafFrameFactory,
@@ -96,6 +99,44 @@ public class BTree extends AbstractTreeIndex {
                 interiorFrame.getMaxTupleSize(bufferCache.getPageSize()));
     }
 
+    /**
+     * Sets whether searches find their leaf page through {@link BTreeFencePointers} instead of descending from the
+     * root. The fence pointers are only valid while the tree is not modified, so this should only be enabled for
+     * trees that are only bulk loaded, such as the disk components of LSM indexes.
+     */
+    public void setFencePointers(boolean fencePointersEnabled) {
+        this.fencePointersEnabled = fencePointersEnabled;
+    }
+
+    public BTreeFencePointers getFencePointers() {
+        return fencePointers;
+    }
+
+    @Override
+    public synchronized void activate() throws HyracksDataException {
+        super.activate();
+        if (fencePointersEnabled && !isEmptyTree(leafFrameFactory.createFrame())) {
+            fencePointers = buildFencePointers();
+        }
+    }
+
+    @Override
+    public synchronized void deactivate() throws HyracksDataException {
+        fencePointers = null;
+        super.deactivate();
+    }
+
+    @Override
+    public synchronized void clear() throws HyracksDataException {
+        fencePointers = null;
+        super.clear();
+    }
+
+    private BTreeFencePointers buildFencePointers() throws HyracksDataException {
+        return BTreeFencePointers.build(bufferCache, fileId, rootPage, interiorFrameFactory,
+                MultiComparator.create(cmpFactories));
+    }
+
     private void diskOrderScan(ITreeIndexCursor icursor, BTreeOpContext ctx) throws HyracksDataException {
         TreeIndexDiskOrderScanCursor cursor = (TreeIndexDiskOrderScanCursor) icursor;
         ctx.reset();
@@ -197,18 +238,23 @@ public class BTree extends AbstractTreeIndex {
         if (ctx.pred.getHighKeyComparator() == null) {
             ctx.pred.setHighKeyComparator(ctx.cmp);
         }
-        // we use this loop to deal with possibly multiple operation restarts
-        // due to ongoing structure modifications during the descent
-        boolean repeatOp = true;
-        while (repeatOp && ctx.opRestarts < MAX_RESTARTS) {
-            performOp(rootPage, null, true, ctx);
-            // if we reach this stage then we need to restart from the (possibly
-            // new) root
-            if (!ctx.pageLsns.isEmpty() && ctx.pageLsns.getLast() == RESTART_OP) {
-                ctx.pageLsns.removeLast(); // pop the restart op indicator
-                continue;
+        BTreeFencePointers currentFencePointers = fencePointers;
+        if (currentFencePointers != null) {
+            searchLeaf(currentFencePointers.findLeafPageId(ctx.pred), ctx);
+        } else {
+            // we use this loop to deal with possibly multiple operation restarts
+            // due to ongoing structure modifications during the descent
+            boolean repeatOp = true;
+            while (repeatOp && ctx.opRestarts < MAX_RESTARTS) {
+                performOp(rootPage, null, true, ctx);
+                // if we reach this stage then we need to restart from the (possibly
+                // new) root
+                if (!ctx.pageLsns.isEmpty() && ctx.pageLsns.getLast() == RESTART_OP) {
+                    ctx.pageLsns.removeLast(); // pop the restart op indicator
+                    continue;
+                }
+                repeatOp = false;
             }
-            repeatOp = false;
         }
         cursor.setBufferCache(bufferCache);
         cursor.setFileId(fileId);
@@ -295,8 +341,33 @@ public class BTree extends AbstractTreeIndex {
         }
     }
 
+    /**
+     * Opens the search cursor on a leaf that was found without descending the tree.
+     */
+    private void searchLeaf(int pageId, BTreeOpContext ctx) throws HyracksDataException, TreeIndexException {
+        ICachedPage node = bufferCache.pin(BufferedFileHandle.getDiskPageId(fileId, pageId), false);
+        node.acquireReadLatch();
+        try {
+            ctx.cursorInitialState.setSearchOperationCallback(ctx.searchCallback);
+            ctx.cursorInitialState.setOriginialKeyComparator(ctx.cmp);
+            ctx.cursorInitialState.setPage(node);
+            ctx.cursorInitialState.setPageId(pageId);
+            ctx.cursor.open(ctx.cursorInitialState, ctx.pred);
+        } catch (HyracksDataException | TreeIndexException e) {
+            node.releaseReadLatch();
+            bufferCache.unpin(node);
+            throw e;
+        } catch (IndexException e) {
+            node.releaseReadLatch();
+            bufferCache.unpin(node);
+            throw new BTreeException(e);
+        }
+    }
+
     private void insertUpdateOrDelete(ITupleReference tuple, BTreeOpContext ctx)
             throws HyracksDataException, TreeIndexException {
+        // the leaves of the tree may change
+        fencePointers = null;
         ctx.reset();
         ctx.pred.setLowKeyComparator(ctx.cmp);
         ctx.pred.setHighKeyComparator(ctx.cmp);
@@ -1196,6 +1267,9 @@ public class BTree extends AbstractTreeIndex {
             try {
                 persistFrontiers(0, -1);
                 super.end();
+                if (fencePointersEnabled) {
+                    fencePointers = buildFencePointers();
+                }
             } catch (HyracksDataException | RuntimeException e) {
                 handleException();
                 throw e;
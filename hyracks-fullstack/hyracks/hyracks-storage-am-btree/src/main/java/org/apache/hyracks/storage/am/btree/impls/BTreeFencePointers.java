@@ -0,0 +1,220 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.hyracks.storage.am.btree.impls;
+
+import java.util.Arrays;
+
+import org.apache.hyracks.api.exceptions.HyracksDataException;
+import org.apache.hyracks.data.std.primitive.IntegerPointable;
+import org.apache.hyracks.dataflow.common.data.accessors.ITupleReference;
+import org.apache.hyracks.storage.am.btree.api.IBTreeInteriorFrame;
+import org.apache.hyracks.storage.am.common.api.ITreeIndexFrameFactory;
+import org.apache.hyracks.storage.am.common.api.ITreeIndexTupleReference;
+import org.apache.hyracks.storage.am.common.ophelpers.MultiComparator;
+import org.apache.hyracks.storage.common.buffercache.IBufferCache;
+import org.apache.hyracks.storage.common.buffercache.ICachedPage;
+import org.apache.hyracks.storage.common.file.BufferedFileHandle;
+
+/**
+ * An in-memory copy of the lowest interior level of a B-tree that is no longer modified, which lets a search find
+ * its leaf page without pinning any interior page. The leaves are kept in key order together with the separator keys
+ * between them: every key of leaf i is less than or equal to fence i, and greater than fence i - 1. The last leaf has
+ * no fence.
+ * The fences are the separator keys of the interior nodes rather than the first keys of the leaves, so building them
+ * reads only the interior pages, which are a small fraction of the tree.
+ */
+public class BTreeFencePointers {
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final int keyFieldCount;
+    private byte[] keys = new byte[INITIAL_CAPACITY * 16];
+    private int keysLength;
+    // the end of each field of each fence in keys
+    private int[] fieldEnds;
+    private int[] leafPageIds = new int[INITIAL_CAPACITY];
+    private int numLeaves;
+
+    private BTreeFencePointers(int keyFieldCount) {
+        this.keyFieldCount = keyFieldCount;
+        this.fieldEnds = new int[INITIAL_CAPACITY * keyFieldCount];
+    }
+
+    /**
+     * Reads the fence pointers of a tree from its interior pages.
+     *
+     * @return the fence pointers, or null if the root of the tree is a leaf
+     */
+    public static BTreeFencePointers build(IBufferCache bufferCache, int fileId, int rootPage,
+            ITreeIndexFrameFactory interiorFrameFactory, MultiComparator cmp) throws HyracksDataException {
+        IBTreeInteriorFrame rootFrame = (IBTreeInteriorFrame) interiorFrameFactory.createFrame();
+        rootFrame.setMultiComparator(cmp);
+        ICachedPage root = bufferCache.pin(BufferedFileHandle.getDiskPageId(fileId, rootPage), false);
+        root.acquireReadLatch();
+        try {
+            rootFrame.setPage(root);
+            if (rootFrame.isLeaf()) {
+                return null;
+            }
+            // the nodes on the path from the root are kept pinned, and each level needs its own frame
+            IBTreeInteriorFrame[] frames = new IBTreeInteriorFrame[rootFrame.getLevel() + 1];
+            frames[rootFrame.getLevel()] = rootFrame;
+            for (int i = 1; i < rootFrame.getLevel(); i++) {
+                frames[i] = (IBTreeInteriorFrame) interiorFrameFactory.createFrame();
+                frames[i].setMultiComparator(cmp);
+            }
+            BTreeFencePointers fencePointers = new BTreeFencePointers(cmp.getKeyFieldCount());
+            fencePointers.addNode(bufferCache, fileId, frames, rootFrame.getLevel(), null);
+            return fencePointers;
+        } finally {
+            root.releaseReadLatch();
+            bufferCache.unpin(root);
+        }
+    }
+
+    /**
+     * Adds the leaves below the node in the frame of the given level, followed by the separator key that bounds the
+     * node in its parent, if there is one.
+     */
+    private void addNode(IBufferCache bufferCache, int fileId, IBTreeInteriorFrame[] frames, int level,
+            ITupleReference upperFence) throws HyracksDataException {
+        IBTreeInteriorFrame frame = frames[level];
+        ITreeIndexTupleReference tuple = frame.createTupleReference();
+        int tupleCount = frame.getTupleCount();
+        for (int i = 0; i <= tupleCount; i++) {
+            ITupleReference fence;
+            int childPageId;
+            if (i < tupleCount) {
+                tuple.resetByTupleIndex(frame, i);
+                fence = tuple;
+                int lastField = tuple.getFieldCount() - 1;
+                childPageId = IntegerPointable.getInteger(tuple.getFieldData(lastField),
+                        tuple.getFieldStart(lastField) + tuple.getFieldLength(lastField));
+            } else {
+                fence = upperFence;
+                childPageId = frame.getRightmostChildPageId();
+            }
+            if (level == 1) {
+                addLeaf(childPageId);
+                if (fence != null) {
+                    addFence(fence);
+                }
+            } else {
+                ICachedPage child = bufferCache.pin(BufferedFileHandle.getDiskPageId(fileId, childPageId), false);
+                child.acquireReadLatch();
+                try {
+                    frames[level - 1].setPage(child);
+                    addNode(bufferCache, fileId, frames, level - 1, fence);
+                } finally {
+                    child.releaseReadLatch();
+                    bufferCache.unpin(child);
+                }
+            }
+        }
+    }
+
+    private void addLeaf(int pageId) {
+        if (numLeaves == leafPageIds.length) {
+            leafPageIds = Arrays.copyOf(leafPageIds, numLeaves * 2);
+            fieldEnds = Arrays.copyOf(fieldEnds, numLeaves * 2 * keyFieldCount);
+        }
+        leafPageIds[numLeaves++] = pageId;
+    }
+
+    private void addFence(ITupleReference fence) {
+        int fenceIndex = numLeaves - 1;
+        for (int f = 0; f < keyFieldCount; f++) {
+            int length = fence.getFieldLength(f);
+            if (keysLength + length > keys.length) {
+                keys = Arrays.copyOf(keys, Math.max(keys.length * 2, keysLength + length));
+            }
+            System.arraycopy(fence.getFieldData(f), fence.getFieldStart(f), keys, keysLength, length);
+            keysLength += length;
+            fieldEnds[fenceIndex * keyFieldCount + f] = keysLength;
+        }
+    }
+
+    /**
+     * @return the page id of the leaf where a search with the given predicate starts, which is the leaf the search
+     *         would reach descending from the root
+     */
+    public int findLeafPageId(RangePredicate pred) throws HyracksDataException {
+        ITupleReference lowKey = pred.getLowKey();
+        if (lowKey == null) {
+            return leafPageIds[0];
+        }
+        // the comparator may be on a prefix of the key fields
+        MultiComparator cmp = pred.getLowKeyComparator();
+        boolean inclusive = pred.isLowKeyInclusive();
+        FenceTuple fence = new FenceTuple();
+        // find the first fence that is not below the key
+        int low = 0;
+        int high = numLeaves - 1;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            fence.reset(mid);
+            int c = cmp.compare(lowKey, fence);
+            if (c < 0 || (c == 0 && inclusive)) {
+                high = mid;
+            } else {
+                low = mid + 1;
+            }
+        }
+        return leafPageIds[low];
+    }
+
+    public int getNumLeaves() {
+        return numLeaves;
+    }
+
+    /**
+     * @return the number of bytes taken by the fence pointers
+     */
+    public long getSize() {
+        return keys.length + 4L * (fieldEnds.length + leafPageIds.length);
+    }
+
+    private class FenceTuple implements ITupleReference {
+        private int fieldEndsOff;
+
+        void reset(int fenceIndex) {
+            fieldEndsOff = fenceIndex * keyFieldCount;
+        }
+
+        @Override
+        public int getFieldCount() {
+            return keyFieldCount;
+        }
+
+        @Override
+        public byte[] getFieldData(int fIdx) {
+            return keys;
+        }
+
+        @Override
+        public int getFieldStart(int fIdx) {
+            int i = fieldEndsOff + fIdx;
+            return i == 0 ? 0 : fieldEnds[i - 1];
+        }
+
+        @Override
+        public int getFieldLength(int fIdx) {
+            return fieldEnds[fieldEndsOff + fIdx] - getFieldStart(fIdx);
+        }
+    }
+}
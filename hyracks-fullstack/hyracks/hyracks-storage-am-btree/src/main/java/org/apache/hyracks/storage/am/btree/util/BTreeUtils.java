@@ -88,6 +88,9 @@ public class BTreeUtils {
             case FIELD_PREFIX_COMPRESSED_NSM: {
                 return new BTreeFieldPrefixNSMLeafFrameFactory(tupleWriterFactory);
             }
+            case DELTA_COMPRESSED_NSM: {
+                return new BTreeNSMLeafFrameFactory(tupleWriterFactory, true);
+            }
             default: {
                 throw new BTreeException("Unknown BTreeLeafFrameType: " + leafType.toString());
             }
@@ -0,0 +1,32 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.hyracks.storage.am.common.api;
+
+/**
+ * A frame whose pages may store their tuples in an encoded form that cannot be read in place.
+ * Tuple references read the tuples of such pages through a decoder created by the frame.
+ */
+public interface ITreeIndexEncodedFrame extends ITreeIndexFrame {
+    /**
+     * @return true if the tuples of the current page are encoded
+     */
+    public boolean isEncoded();
+
+    public ITreeIndexTupleDecoder createTupleDecoder();
+}
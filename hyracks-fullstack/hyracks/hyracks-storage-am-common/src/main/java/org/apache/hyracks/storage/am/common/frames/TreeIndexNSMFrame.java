@@ -43,6 +43,7 @@ public abstract class TreeIndexNSMFrame implements ITreeIndexFrame {
 
     protected static final byte smFlagBit           = 0x1;
     protected static final byte largeFlagBit        = 0x2;
+    protected static final byte deltaFlagBit        = 0x4;
 
     protected ICachedPage page = null;
     protected ByteBuffer buf = null;
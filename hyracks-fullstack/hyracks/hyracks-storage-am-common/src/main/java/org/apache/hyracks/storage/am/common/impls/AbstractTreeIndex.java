@@ -40,6 +40,7 @@ import org.apache.hyracks.storage.am.common.ophelpers.MultiComparator;
 import org.apache.hyracks.storage.common.buffercache.IBufferCache;
 import org.apache.hyracks.storage.common.buffercache.ICachedPage;
 import org.apache.hyracks.storage.common.buffercache.IFIFOPageQueue;
+import org.apache.hyracks.storage.common.buffercache.PageLookasideTable;
 import org.apache.hyracks.storage.common.file.BufferedFileHandle;
 import org.apache.hyracks.storage.common.file.IFileMapProvider;
 
@@ -67,6 +68,8 @@ public abstract class AbstractTreeIndex implements ITreeIndex {
     //an index is activated or not from the outside.
     protected boolean hasEverBeenActivated = false;
     protected boolean appendOnly = false;
+    // whether the file is created with compressed pages; existing files are opened the way they were created
+    protected boolean pageCompression = false;
 
     protected int bulkloadLeafStart = 0;
 
@@ -113,6 +116,9 @@ public abstract class AbstractTreeIndex implements ITreeIndex {
                 throw e;
             }
         }
+        if (pageCompression) {
+            bufferCache.enablePageCompression(fileId);
+        }
 
         freePageManager.open(fileId);
         setRootAndMetadataPages(appendOnly);
@@ -231,6 +237,7 @@ public abstract class AbstractTreeIndex implements ITreeIndex {
         }
         bufferCache.deleteFile(fileId, false);
         file.delete();
+        PageLookasideTable.delete(file);
         fileId = -1;
     }
 
@@ -281,6 +288,13 @@ public abstract class AbstractTreeIndex implements ITreeIndex {
         return fileId;
     }
 
+    /**
+     * Sets whether the pages of the index are stored compressed when it is created.
+     */
+    public void setPageCompression(boolean pageCompression) {
+        this.pageCompression = pageCompression;
+    }
+
     public FileReference getFileReference() {
         return file;
     }
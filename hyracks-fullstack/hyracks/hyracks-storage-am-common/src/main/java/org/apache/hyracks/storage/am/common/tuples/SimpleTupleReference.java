@@ -21,7 +21,9 @@ package org.apache.hyracks.storage.am.common.tuples;
 
 import java.nio.ByteBuffer;
 
+import org.apache.hyracks.storage.am.common.api.ITreeIndexEncodedFrame;
 import org.apache.hyracks.storage.am.common.api.ITreeIndexFrame;
+import org.apache.hyracks.storage.am.common.api.ITreeIndexTupleDecoder;
 import org.apache.hyracks.storage.am.common.api.ITreeIndexTupleReference;
 
 public class SimpleTupleReference implements ITreeIndexTupleReference {
@@ -32,6 +34,8 @@ public class SimpleTupleReference implements ITreeIndexTupleReference {
     protected int tupleStartOff;
     protected int nullFlagsBytes;
     protected int fieldSlotsBytes;
+    // created on the first read from an encoded page
+    protected ITreeIndexTupleDecoder decoder;
 
     @Override
     public void resetByTupleOffset(ByteBuffer buf, int tupleStartOff) {
@@ -41,6 +45,14 @@ public class SimpleTupleReference implements ITreeIndexTupleReference {
 
     @Override
     public void resetByTupleIndex(ITreeIndexFrame frame, int tupleIndex) {
+        if (frame instanceof ITreeIndexEncodedFrame && ((ITreeIndexEncodedFrame) frame).isEncoded()) {
+            ITreeIndexEncodedFrame encodedFrame = (ITreeIndexEncodedFrame) frame;
+            if (decoder == null) {
+                decoder = encodedFrame.createTupleDecoder();
+            }
+            resetByTupleOffset(decoder.decode(encodedFrame, tupleIndex), 0);
+            return;
+        }
         resetByTupleOffset(frame.getBuffer(), frame.getTupleOffset(tupleIndex));
     }
 
@@ -65,7 +65,29 @@ public class SimpleTupleWriter implements ITreeIndexTupleWriter {
 
     @Override
     public int writeTuple(ITupleReference tuple, ByteBuffer targetBuf, int targetOff) {
-        return writeTuple(tuple, targetBuf.array(), targetOff);
+        if (targetBuf.hasArray()) {
+            return writeTuple(tuple, targetBuf.array(), targetOff);
+        }
+        // a direct buffer, the fields are copied into it without staging the tuple in a byte array
+        int runner = targetOff;
+        int nullFlagsBytes = getNullFlagsBytes(tuple);
+        int fieldSlotsBytes = getFieldSlotsBytes(tuple);
+        for (int i = 0; i < nullFlagsBytes; i++) {
+            targetBuf.put(runner++, (byte) 0);
+        }
+        runner += fieldSlotsBytes;
+        ByteBuffer fieldBuf = targetBuf.duplicate();
+        int fieldEndOff = 0;
+        for (int i = 0; i < tuple.getFieldCount(); i++) {
+            fieldBuf.position(runner);
+            fieldBuf.put(tuple.getFieldData(i), tuple.getFieldStart(i), tuple.getFieldLength(i));
+            fieldEndOff += tuple.getFieldLength(i);
+            runner += tuple.getFieldLength(i);
+            int slotOff = targetOff + nullFlagsBytes + i * 2;
+            targetBuf.put(slotOff, (byte) (fieldEndOff >> 8));
+            targetBuf.put(slotOff + 1, (byte) fieldEndOff);
+        }
+        return runner - targetOff;
     }
 
     @Override
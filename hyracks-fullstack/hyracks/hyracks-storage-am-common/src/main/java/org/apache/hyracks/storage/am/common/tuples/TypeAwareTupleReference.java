@@ -22,7 +22,9 @@ package org.apache.hyracks.storage.am.common.tuples;
 import java.nio.ByteBuffer;
 
 import org.apache.hyracks.api.dataflow.value.ITypeTraits;
+import org.apache.hyracks.storage.am.common.api.ITreeIndexEncodedFrame;
 import org.apache.hyracks.storage.am.common.api.ITreeIndexFrame;
+import org.apache.hyracks.storage.am.common.api.ITreeIndexTupleDecoder;
 import org.apache.hyracks.storage.am.common.api.ITreeIndexTupleReference;
 import org.apache.hyracks.util.encoding.VarLenIntEncoderDecoder;
 import org.apache.hyracks.util.encoding.VarLenIntEncoderDecoder.VarLenIntDecoder;
@@ -38,6 +40,8 @@ public class TypeAwareTupleReference implements ITreeIndexTupleReference {
     protected final ITypeTraits[] typeTraits;
     protected VarLenIntDecoder encDec = VarLenIntEncoderDecoder.createDecoder();
     protected int[] decodedFieldSlots;
+    // created on the first read from an encoded page
+    protected ITreeIndexTupleDecoder decoder;
 
     public TypeAwareTupleReference(ITypeTraits[] typeTraits) {
         this.typeTraits = typeTraits;
@@ -69,6 +73,14 @@ public class TypeAwareTupleReference implements ITreeIndexTupleReference {
 
     @Override
     public void resetByTupleIndex(ITreeIndexFrame frame, int tupleIndex) {
+        if (frame instanceof ITreeIndexEncodedFrame && ((ITreeIndexEncodedFrame) frame).isEncoded()) {
+            ITreeIndexEncodedFrame encodedFrame = (ITreeIndexEncodedFrame) frame;
+            if (decoder == null) {
+                decoder = encodedFrame.createTupleDecoder();
+            }
+            resetByTupleOffset(decoder.decode(encodedFrame, tupleIndex), 0);
+            return;
+        }
         resetByTupleOffset(frame.getBuffer(), frame.getTupleOffset(tupleIndex));
     }
 
@@ -69,6 +69,10 @@ public class TreeIndexStats {
         // nothing here currently
     }
 
+    public TreeIndexNodeTypeStats getLeafStats() {
+        return leafStats;
+    }
+
     @Override
     public String toString() {
         StringBuilder strBuilder = new StringBuilder();
@@ -29,10 +29,14 @@ import org.apache.hyracks.api.dataflow.value.IBinaryComparatorFactory;
 import org.apache.hyracks.api.exceptions.HyracksDataException;
 import org.apache.hyracks.api.io.FileReference;
 import org.apache.hyracks.data.std.primitive.IntegerPointable;
+import org.apache.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
+import org.apache.hyracks.dataflow.common.comm.io.ArrayTupleReference;
 import org.apache.hyracks.dataflow.common.data.accessors.ITupleReference;
+import org.apache.hyracks.dataflow.common.util.TupleUtils;
 import org.apache.hyracks.storage.am.bloomfilter.impls.BloomCalculations;
 import org.apache.hyracks.storage.am.bloomfilter.impls.BloomFilterFactory;
 import org.apache.hyracks.storage.am.bloomfilter.impls.BloomFilterSpecification;
+import org.apache.hyracks.storage.am.btree.api.IBTreeInteriorFrame;
 import org.apache.hyracks.storage.am.btree.impls.BTree;
 import org.apache.hyracks.storage.am.btree.impls.BTree.BTreeAccessor;
 import org.apache.hyracks.storage.am.btree.impls.BTree.BTreeBulkLoader;
@@ -47,7 +51,10 @@ import org.apache.hyracks.storage.am.common.api.ISearchOperationCallback;
 import org.apache.hyracks.storage.am.common.api.ISearchPredicate;
 import org.apache.hyracks.storage.am.common.api.ITreeIndex;
 import org.apache.hyracks.storage.am.common.api.ITreeIndexCursor;
+import org.apache.hyracks.storage.am.common.api.ITreeIndexFrame;
 import org.apache.hyracks.storage.am.common.api.ITreeIndexFrameFactory;
+import org.apache.hyracks.storage.am.common.api.ITreeIndexTupleReference;
+import org.apache.hyracks.storage.am.common.api.ITreeIndexTupleWriterFactory;
 import org.apache.hyracks.storage.am.common.api.IndexException;
 import org.apache.hyracks.storage.am.common.api.TreeIndexException;
 import org.apache.hyracks.storage.am.common.exceptions.TreeIndexDuplicateKeyException;
@@ -78,8 +85,12 @@ import org.apache.hyracks.storage.am.lsm.common.impls.LSMComponentFileReferences
 import org.apache.hyracks.storage.am.lsm.common.impls.LSMComponentFilterManager;
 import org.apache.hyracks.storage.am.lsm.common.impls.LSMIndexSearchCursor;
 import org.apache.hyracks.storage.am.lsm.common.impls.LSMTreeIndexAccessor;
+import org.apache.hyracks.storage.am.lsm.common.impls.ParallelMergeCursor;
+import org.apache.hyracks.storage.am.lsm.common.impls.PipelinedBulkLoader;
 import org.apache.hyracks.storage.am.lsm.common.impls.TreeIndexFactory;
 import org.apache.hyracks.storage.common.buffercache.IBufferCache;
+import org.apache.hyracks.storage.common.buffercache.ICachedPage;
+import org.apache.hyracks.storage.common.file.BufferedFileHandle;
 import org.apache.hyracks.storage.common.file.IFileMapProvider;
 
 public class LSMBTree extends AbstractLSMIndex implements ITreeIndex {
@@ -99,6 +110,10 @@ public class LSMBTree extends AbstractLSMIndex implements ITreeIndex {
     private final int[] btreeFields;
     // Primary LSMBTree has a Bloomfilter, but Secondary one doesn't have. 
     private final boolean hasBloomFilter;
+    // The number of threads that a single merge may use to merge disjoint key ranges of its components
+    private final int mergeParallelism;
+    // Whether new disk components build their Bloom filter on a separate thread while they build their B-tree
+    private final boolean pipelinedLoad;
 
     public LSMBTree(List<IVirtualBufferCache> virtualBufferCaches, ITreeIndexFrameFactory interiorFrameFactory,
             ITreeIndexFrameFactory insertLeafFrameFactory, ITreeIndexFrameFactory deleteLeafFrameFactory,
@@ -109,7 +124,7 @@ public class LSMBTree extends AbstractLSMIndex implements ITreeIndex {
             IFileMapProvider diskFileMapProvider, int fieldCount, IBinaryComparatorFactory[] cmpFactories,
             ILSMMergePolicy mergePolicy, ILSMOperationTracker opTracker, ILSMIOOperationScheduler ioScheduler,
             ILSMIOOperationCallback ioOpCallback, boolean needKeyDupCheck, int[] btreeFields, int[] filterFields,
-            boolean durable) {
+            boolean durable, int mergeParallelism, boolean pipelinedLoad) {
         super(virtualBufferCaches, diskBTreeFactory.getBufferCache(), fileManager, diskFileMapProvider,
                 bloomFilterFalsePositiveRate, mergePolicy, opTracker, ioScheduler, ioOpCallback, filterFrameFactory,
                 filterManager, filterFields, durable);
@@ -134,6 +149,8 @@ public class LSMBTree extends AbstractLSMIndex implements ITreeIndex {
         this.needKeyDupCheck = needKeyDupCheck;
         this.btreeFields = btreeFields;
         this.hasBloomFilter = needKeyDupCheck;
+        this.mergeParallelism = mergeParallelism;
+        this.pipelinedLoad = pipelinedLoad;
     }
 
     // Without memory components
@@ -155,6 +172,8 @@ public class LSMBTree extends AbstractLSMIndex implements ITreeIndex {
         this.btreeFields = null;
         //TODO remove BloomFilter from external dataset's secondary LSMBTree index
         this.hasBloomFilter = true;
+        this.mergeParallelism = 1;
+        this.pipelinedLoad = false;
     }
 
     @Override
@@ -300,12 +319,16 @@ public class LSMBTree extends AbstractLSMIndex implements ITreeIndex {
                         if (c.getLSMComponentFilter().satisfy(
                                 ((AbstractSearchPredicate) ctx.getSearchPredicate()).getMinFilterTuple(),
                                 ((AbstractSearchPredicate) ctx.getSearchPredicate()).getMaxFilterTuple(),
-                                ((LSMBTreeOpContext) ctx).filterCmp)) {
+                                ((LSMBTreeOpContext) ctx).filterCmp) && isInKeyRange(c, ctx)) {
                             operationalComponents.add(c);
                         }
                     }
                 } else {
-                    operationalComponents.addAll(immutableComponents);
+                    for (ILSMComponent c : immutableComponents) {
+                        if (isInKeyRange(c, ctx)) {
+                            operationalComponents.add(c);
+                        }
+                    }
                 }
 
                 break;
@@ -461,8 +484,7 @@ public class LSMBTree extends AbstractLSMIndex implements ITreeIndex {
         IIndexBulkLoader bulkLoader = component.getBTree().createBulkLoader(1.0f, false, numElements, false, true);
         IIndexBulkLoader builder = null;
         if (hasBloomFilter) {
-            builder = component.getBloomFilter().createBuilder(numElements, bloomFilterSpec.getNumHashes(),
-                    bloomFilterSpec.getNumBucketsPerElements());
+            builder = createBloomFilterBuilder(component, numElements, bloomFilterSpec);
         }
 
         IIndexCursor scanCursor = accessor.createSearchCursor(false);
@@ -491,6 +513,7 @@ public class LSMBTree extends AbstractLSMIndex implements ITreeIndex {
         }
         component.setMostRecentMarkerLSN(flushOp.getPrevMarkerLSN());
         bulkLoader.end();
+        readKeyRange(component);
 
         return component;
     }
@@ -523,11 +546,14 @@ public class LSMBTree extends AbstractLSMIndex implements ITreeIndex {
     public ILSMComponent merge(ILSMIOOperation operation) throws HyracksDataException, IndexException {
         LSMBTreeMergeOperation mergeOp = (LSMBTreeMergeOperation) operation;
         ITreeIndexCursor cursor = mergeOp.getCursor();
-        RangePredicate rangePred = new RangePredicate(null, null, true, true, null, null);
-        ILSMIndexOperationContext opCtx = ((LSMIndexSearchCursor) cursor).getOpCtx();
-        opCtx.getComponentHolder().addAll(mergeOp.getMergingComponents());
-        search(opCtx, cursor, rangePred);
         List<ILSMComponent> mergedComponents = mergeOp.getMergingComponents();
+        ILSMIndexOperationContext opCtx = ((LSMIndexSearchCursor) cursor).getOpCtx();
+        opCtx.getComponentHolder().addAll(mergedComponents);
+        List<ITupleReference> splitKeys = getMergeSplitKeys(mergedComponents);
+        if (splitKeys.isEmpty()) {
+            RangePredicate rangePred = new RangePredicate(null, null, true, true, null, null);
+            search(opCtx, cursor, rangePred);
+        }
 
         long numElements = 0L;
         BloomFilterSpecification bloomFilterSpec = null;
@@ -546,20 +572,25 @@ public class LSMBTree extends AbstractLSMIndex implements ITreeIndex {
                 mergedComponent.getBTree().createBulkLoader(1.0f, false, numElements, false, true);
         IIndexBulkLoader builder = null;
         if (hasBloomFilter) {
-            builder = mergedComponent.getBloomFilter().createBuilder(numElements, bloomFilterSpec.getNumHashes(),
-                    bloomFilterSpec.getNumBucketsPerElements());
+            builder = createBloomFilterBuilder(mergedComponent, numElements, bloomFilterSpec);
+        }
+        IIndexCursor mergeCursor = cursor;
+        if (!splitKeys.isEmpty()) {
+            mergeCursor = openParallelMergeCursor(mergedComponents, splitKeys,
+                    ((LSMIndexSearchCursor) cursor).isReturnDeletedTuples(),
+                    mergedComponent.getBTree().getLeafFrameFactory().getTupleWriterFactory());
         }
         try {
-            while (cursor.hasNext()) {
-                cursor.next();
-                ITupleReference frameTuple = cursor.getTuple();
+            while (mergeCursor.hasNext()) {
+                mergeCursor.next();
+                ITupleReference frameTuple = mergeCursor.getTuple();
                 if (hasBloomFilter) {
                     builder.add(frameTuple);
                 }
                 bulkLoader.add(frameTuple);
             }
         } finally {
-            cursor.close();
+            mergeCursor.close();
             if (hasBloomFilter) {
                 builder.end();
             }
@@ -577,10 +608,157 @@ public class LSMBTree extends AbstractLSMIndex implements ITreeIndex {
         mergedComponent
                 .setMostRecentMarkerLSN(mergedComponents.get(mergedComponents.size() - 1).getMostRecentMarkerLSN());
         bulkLoader.end();
+        readKeyRange(mergedComponent);
 
         return mergedComponent;
     }
 
+    /**
+     * Creates the builder of the Bloom filter of a new disk component. If the index pipelines loads, the
+     * builder hashes the keys on a worker thread while the caller builds the B-tree of the component.
+     */
+    private IIndexBulkLoader createBloomFilterBuilder(LSMBTreeDiskComponent component, long numElements,
+            BloomFilterSpecification bloomFilterSpec) throws HyracksDataException {
+        IIndexBulkLoader builder = component.getBloomFilter().createBuilder(numElements,
+                bloomFilterSpec.getNumHashes(), bloomFilterSpec.getNumBucketsPerElements());
+        if (!pipelinedLoad) {
+            return builder;
+        }
+        int numFields = 0;
+        for (int keyField : componentFactory.getBloomFilterKeyFields()) {
+            numFields = Math.max(numFields, keyField + 1);
+        }
+        return new PipelinedBulkLoader(builder, numFields);
+    }
+
+    /**
+     * @return false if the key range of the disk component shows that none of its keys can satisfy the search
+     *         predicate of the operation
+     */
+    private static boolean isInKeyRange(ILSMComponent c, ILSMIndexOperationContext ctx) throws HyracksDataException {
+        MultiComparator cmp = ((LSMBTreeOpContext) ctx).cmp;
+        if (!(ctx.getSearchPredicate() instanceof RangePredicate) || cmp == null) {
+            return true;
+        }
+        return ((LSMBTreeDiskComponent) c).isInKeyRange((RangePredicate) ctx.getSearchPredicate(), cmp);
+    }
+
+    /**
+     * Reads the smallest and the largest key of a disk component from its leftmost and rightmost leaf, so that
+     * searches can skip the component if their key range does not overlap it.
+     */
+    private void readKeyRange(LSMBTreeDiskComponent component) throws HyracksDataException {
+        component.setKeyRange(readBoundaryKey(component.getBTree(), true),
+                readBoundaryKey(component.getBTree(), false));
+    }
+
+    private ITupleReference readBoundaryKey(BTree btree, boolean smallest) throws HyracksDataException {
+        IBufferCache bufferCache = btree.getBufferCache();
+        IBTreeInteriorFrame interiorFrame = (IBTreeInteriorFrame) btree.getInteriorFrameFactory().createFrame();
+        // the comparator sets the number of fields of the separators
+        interiorFrame.setMultiComparator(MultiComparator.create(cmpFactories));
+        ITreeIndexFrame leafFrame = btree.getLeafFrameFactory().createFrame();
+        int pageId = btree.getRootPageId();
+        while (true) {
+            ICachedPage node = bufferCache.pin(BufferedFileHandle.getDiskPageId(btree.getFileId(), pageId), false);
+            node.acquireReadLatch();
+            try {
+                interiorFrame.setPage(node);
+                if (!interiorFrame.isLeaf()) {
+                    pageId = smallest ? interiorFrame.getLeftmostChildPageId()
+                            : interiorFrame.getRightmostChildPageId();
+                    continue;
+                }
+                leafFrame.setPage(node);
+                int tupleCount = leafFrame.getTupleCount();
+                if (tupleCount == 0) {
+                    return null;
+                }
+                ITreeIndexTupleReference tuple = leafFrame.createTupleReference();
+                tuple.resetByTupleIndex(leafFrame, smallest ? 0 : tupleCount - 1);
+                ArrayTupleBuilder keyBuilder = new ArrayTupleBuilder(cmpFactories.length);
+                TupleUtils.copyTuple(keyBuilder, tuple, cmpFactories.length);
+                ArrayTupleReference key = new ArrayTupleReference();
+                key.reset(keyBuilder.getFieldEndOffsets(), keyBuilder.getByteArray());
+                return key;
+            } finally {
+                node.releaseReadLatch();
+                bufferCache.unpin(node);
+            }
+        }
+    }
+
+    /**
+     * Picks keys that split the merging components into ranges of about the same size, so that the ranges can be
+     * merged in parallel. The keys are taken from the separators in the root of the largest merging component.
+     *
+     * @return up to the merge parallelism of the index - 1 keys in ascending order, or an empty list if the
+     *         merge should run on a single thread
+     */
+    private List<ITupleReference> getMergeSplitKeys(List<ILSMComponent> mergingComponents)
+            throws HyracksDataException {
+        List<ITupleReference> splitKeys = new ArrayList<ITupleReference>();
+        if (mergeParallelism <= 1) {
+            return splitKeys;
+        }
+        LSMBTreeDiskComponent largestComponent = null;
+        for (ILSMComponent c : mergingComponents) {
+            LSMBTreeDiskComponent component = (LSMBTreeDiskComponent) c;
+            if (largestComponent == null || component.getComponentSize() > largestComponent.getComponentSize()) {
+                largestComponent = component;
+            }
+        }
+        BTree btree = largestComponent.getBTree();
+        IBufferCache bufferCache = btree.getBufferCache();
+        ITreeIndexFrame interiorFrame = btree.getInteriorFrameFactory().createFrame();
+        interiorFrame.setMultiComparator(MultiComparator.create(cmpFactories));
+        ICachedPage rootNode = bufferCache.pin(BufferedFileHandle.getDiskPageId(btree.getFileId(),
+                btree.getRootPageId()), false);
+        rootNode.acquireReadLatch();
+        try {
+            interiorFrame.setPage(rootNode);
+            if (interiorFrame.isLeaf()) {
+                return splitKeys;
+            }
+            int numSeparators = interiorFrame.getTupleCount();
+            int numRanges = Math.min(mergeParallelism, numSeparators + 1);
+            ITreeIndexTupleReference separator = interiorFrame.createTupleReference();
+            for (int i = 1; i < numRanges; i++) {
+                separator.resetByTupleIndex(interiorFrame, i * numSeparators / numRanges);
+                splitKeys.add(TupleUtils.copyTuple(separator));
+            }
+        } finally {
+            rootNode.releaseReadLatch();
+            bufferCache.unpin(rootNode);
+        }
+        return splitKeys;
+    }
+
+    /**
+     * Creates a merge cursor for each of the key ranges between the split keys and merges the ranges in parallel.
+     */
+    private IIndexCursor openParallelMergeCursor(List<ILSMComponent> mergingComponents,
+            List<ITupleReference> splitKeys, boolean returnDeletedTuples,
+            ITreeIndexTupleWriterFactory tupleWriterFactory) throws HyracksDataException, IndexException {
+        List<ParallelMergeCursor.Range> ranges = new ArrayList<ParallelMergeCursor.Range>(splitKeys.size() + 1);
+        for (int i = 0; i <= splitKeys.size(); i++) {
+            ITupleReference lowKey = i == 0 ? null : splitKeys.get(i - 1);
+            ITupleReference highKey = i == splitKeys.size() ? null : splitKeys.get(i);
+            // comparators are not shared between the threads of the ranges
+            MultiComparator cmp = MultiComparator.create(cmpFactories);
+            RangePredicate rangePred = new RangePredicate(lowKey, highKey, true, false, cmp, cmp);
+            LSMBTreeOpContext opCtx = createOpContext(NoOpOperationCallback.INSTANCE, NoOpOperationCallback.INSTANCE);
+            opCtx.setOperation(IndexOperation.MERGE);
+            opCtx.getComponentHolder().addAll(mergingComponents);
+            opCtx.searchInitialState.reset(rangePred, opCtx.getComponentHolder());
+            ranges.add(new ParallelMergeCursor.Range(new LSMBTreeRangeSearchCursor(opCtx, returnDeletedTuples),
+                    opCtx.searchInitialState, rangePred));
+        }
+        IIndexCursor mergeCursor = new ParallelMergeCursor(ranges, tupleWriterFactory);
+        mergeCursor.open(null, null);
+        return mergeCursor;
+    }
+
     protected LSMBTreeDiskComponent createDiskComponent(LSMBTreeDiskComponentFactory factory,
             FileReference btreeFileRef, FileReference bloomFilterFileRef, boolean createComponent)
             throws HyracksDataException, IndexException {
@@ -600,6 +778,13 @@ public class LSMBTree extends AbstractLSMIndex implements ITreeIndex {
 
         if (!createComponent) {
             component.readMostRecentMarkerLSN(component.getBTree());
+            readKeyRange(component);
+            // components found on disk were validated before
+            IBufferCache bufferCache = component.getBTree().getBufferCache();
+            bufferCache.markImmutable(component.getBTree().getFileId());
+            if (hasBloomFilter) {
+                bufferCache.markImmutable(component.getBloomFilter().getFileId());
+            }
         }
 
         return component;
@@ -660,8 +845,8 @@ public class LSMBTree extends AbstractLSMIndex implements ITreeIndex {
                 int maxBucketsPerElement = BloomCalculations.maxBucketsPerElement(numElementsHint);
                 BloomFilterSpecification bloomFilterSpec =
                         BloomCalculations.computeBloomSpec(maxBucketsPerElement, bloomFilterFalsePositiveRate);
-                builder = ((LSMBTreeDiskComponent) component).getBloomFilter().createBuilder(numElementsHint,
-                        bloomFilterSpec.getNumHashes(), bloomFilterSpec.getNumBucketsPerElements());
+                builder = createBloomFilterBuilder((LSMBTreeDiskComponent) component, numElementsHint,
+                        bloomFilterSpec);
             } else {
                 builder = null;
             }
@@ -740,6 +925,7 @@ public class LSMBTree extends AbstractLSMIndex implements ITreeIndex {
                 if (isEmptyComponent) {
                     cleanupArtifacts();
                 } else {
+                    readKeyRange((LSMBTreeDiskComponent) component);
                     lsmHarness.addBulkLoadedComponent(component);
                 }
             }
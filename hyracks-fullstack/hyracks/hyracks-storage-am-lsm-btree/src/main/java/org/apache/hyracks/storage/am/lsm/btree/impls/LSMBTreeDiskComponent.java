@@ -19,15 +19,21 @@
 package org.apache.hyracks.storage.am.lsm.btree.impls;
 
 import org.apache.hyracks.api.exceptions.HyracksDataException;
+import org.apache.hyracks.dataflow.common.data.accessors.ITupleReference;
 import org.apache.hyracks.storage.am.bloomfilter.impls.BloomFilter;
 import org.apache.hyracks.storage.am.btree.impls.BTree;
+import org.apache.hyracks.storage.am.btree.impls.RangePredicate;
 import org.apache.hyracks.storage.am.common.api.IMetaDataPageManager;
+import org.apache.hyracks.storage.am.common.ophelpers.MultiComparator;
 import org.apache.hyracks.storage.am.lsm.common.api.ILSMComponentFilter;
 import org.apache.hyracks.storage.am.lsm.common.impls.AbstractDiskLSMComponent;
 
 public class LSMBTreeDiskComponent extends AbstractDiskLSMComponent {
     private final BTree btree;
     private final BloomFilter bloomFilter;
+    // the smallest and the largest key of the component (including deleted keys), or null if not known
+    private volatile ITupleReference minKey;
+    private volatile ITupleReference maxKey;
 
     public LSMBTreeDiskComponent(BTree btree, BloomFilter bloomFilter, ILSMComponentFilter filter) {
         super(filter);
@@ -64,6 +70,47 @@ public class LSMBTreeDiskComponent extends AbstractDiskLSMComponent {
         return btree.getBufferCache().getFileReferenceCount(btree.getFileId());
     }
 
+    public void setKeyRange(ITupleReference minKey, ITupleReference maxKey) {
+        this.minKey = minKey;
+        this.maxKey = maxKey;
+    }
+
+    public ITupleReference getMinKey() {
+        return minKey;
+    }
+
+    public ITupleReference getMaxKey() {
+        return maxKey;
+    }
+
+    /**
+     * @param cmp
+     *            the comparator of the keys, used where the predicate has no comparator of its own
+     * @return false if none of the keys of the component can satisfy the predicate
+     */
+    public boolean isInKeyRange(RangePredicate pred, MultiComparator cmp) throws HyracksDataException {
+        ITupleReference min = minKey;
+        ITupleReference max = maxKey;
+        if (min == null || max == null) {
+            return true;
+        }
+        if (pred.getLowKey() != null) {
+            MultiComparator lowKeyCmp = pred.getLowKeyComparator() != null ? pred.getLowKeyComparator() : cmp;
+            int c = lowKeyCmp.compare(pred.getLowKey(), max);
+            if (c > 0 || (c == 0 && !pred.isLowKeyInclusive())) {
+                return false;
+            }
+        }
+        if (pred.getHighKey() != null) {
+            MultiComparator highKeyCmp = pred.getHighKeyComparator() != null ? pred.getHighKeyComparator() : cmp;
+            int c = highKeyCmp.compare(pred.getHighKey(), min);
+            if (c < 0 || (c == 0 && !pred.isHighKeyInclusive())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public void readMostRecentMarkerLSN(BTree treeIndex) throws HyracksDataException {
         IMetaDataPageManager treeMetaManager = treeIndex.getMetaManager();
         mostRecentMarkerLSN = treeMetaManager.getLastMarkerLSN();
@@ -37,6 +37,7 @@ import org.apache.hyracks.storage.am.common.api.IndexException;
 import org.apache.hyracks.storage.am.lsm.common.impls.AbstractLSMIndexFileManager;
 import org.apache.hyracks.storage.am.lsm.common.impls.LSMComponentFileReferences;
 import org.apache.hyracks.storage.am.lsm.common.impls.TreeIndexFactory;
+import org.apache.hyracks.storage.common.buffercache.PageLookasideTable;
 import org.apache.hyracks.storage.common.file.IFileMapProvider;
 
 public class LSMBTreeFileManager extends AbstractLSMIndexFileManager {
@@ -162,6 +163,7 @@ public class LSMBTreeFileManager extends AbstractLSMIndexFileManager {
                 // Invalid files are completely contained in last interval.
                 File invalidBTreeFile = new File(currentBTree.fullPath);
                 invalidBTreeFile.delete();
+                PageLookasideTable.delete(currentBTree.fileRef);
                 if (hasBloomFilter) {
                     File invalidBloomFilterFile = new File(currentBloomFilter.fullPath);
                     invalidBloomFilterFile.delete();
@@ -22,7 +22,6 @@ package org.apache.hyracks.storage.am.lsm.btree.tuples;
 import java.nio.ByteBuffer;
 
 import org.apache.hyracks.api.dataflow.value.ITypeTraits;
-import org.apache.hyracks.storage.am.common.api.ITreeIndexFrame;
 import org.apache.hyracks.storage.am.common.tuples.TypeAwareTupleReference;
 import org.apache.hyracks.storage.am.lsm.common.api.ILSMTreeTupleReference;
 
@@ -70,11 +69,6 @@ public class LSMBTreeTupleReference extends TypeAwareTupleReference implements I
         super.resetByTupleOffset(buf, tupleStartOff);
     }
 
-    @Override
-    public void resetByTupleIndex(ITreeIndexFrame frame, int tupleIndex) {
-        resetByTupleOffset(frame.getBuffer(), frame.getTupleOffset(tupleIndex));
-    }
-
     @Override
     protected int getNullFlagsBytes() {
         // +1.0 is for matter/antimatter bit.
@@ -27,6 +27,7 @@ import java.util.List;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.hyracks.api.exceptions.HyracksDataException;
 import org.apache.hyracks.api.replication.IReplicationJob.ReplicationExecutionType;
@@ -46,6 +47,7 @@ import org.apache.hyracks.storage.am.lsm.common.api.ILSMMergePolicy;
 import org.apache.hyracks.storage.am.lsm.common.api.ILSMOperationTracker;
 import org.apache.hyracks.storage.am.lsm.common.api.IVirtualBufferCache;
 import org.apache.hyracks.storage.am.lsm.common.api.LSMOperationType;
+import org.apache.hyracks.storage.common.buffercache.BufferCacheStats;
 import org.apache.hyracks.storage.common.buffercache.IBufferCache;
 import org.apache.hyracks.storage.common.file.IFileMapProvider;
 
@@ -76,6 +78,13 @@ public abstract class AbstractLSMIndex implements ILSMIndexInternal {
     protected final AtomicBoolean[] flushRequests;
     protected boolean memoryComponentsAllocated = false;
 
+    // bytes of the disk components that were flushed or bulk loaded / created by merges
+    protected final AtomicLong addedComponentBytes = new AtomicLong();
+    protected final AtomicLong mergedComponentBytes = new AtomicLong();
+    // writers that had to wait for a writable memory component, and the time they waited
+    protected final AtomicLong writeStalls = new AtomicLong();
+    protected final AtomicLong writeStallNanos = new AtomicLong();
+
     public AbstractLSMIndex(List<IVirtualBufferCache> virtualBufferCaches, IBufferCache diskBufferCache,
             ILSMIndexFileManager fileManager, IFileMapProvider diskFileMapProvider, double bloomFilterFalsePositiveRate,
             ILSMMergePolicy mergePolicy, ILSMOperationTracker opTracker, ILSMIOOperationScheduler ioScheduler,
@@ -142,17 +151,21 @@ public abstract class AbstractLSMIndex implements ILSMIndexInternal {
         if (durable) {
             bufferCache.force(fileId, true);
         }
+        // a valid disk component is never modified again
+        bufferCache.markImmutable(fileId);
     }
 
     protected void markAsValidInternal(IBufferCache bufferCache, BloomFilter filter) throws HyracksDataException {
         if (durable) {
             bufferCache.force(filter.getFileId(), true);
         }
+        bufferCache.markImmutable(filter.getFileId());
     }
 
     @Override
     public void addComponent(ILSMComponent c) throws HyracksDataException {
         diskComponents.add(0, c);
+        addedComponentBytes.addAndGet(((AbstractDiskLSMComponent) c).getComponentSize());
     }
 
     @Override
@@ -161,6 +174,7 @@ public abstract class AbstractLSMIndex implements ILSMIndexInternal {
         int swapIndex = diskComponents.indexOf(mergedComponents.get(0));
         diskComponents.removeAll(mergedComponents);
         diskComponents.add(swapIndex, newComponent);
+        mergedComponentBytes.addAndGet(((AbstractDiskLSMComponent) newComponent).getComponentSize());
     }
 
     @Override
@@ -216,6 +230,51 @@ public abstract class AbstractLSMIndex implements ILSMIndexInternal {
         return diskComponents.isEmpty() && !isModified;
     }
 
+    /**
+     * @return the page access counters of the index's files in the disk buffer cache
+     */
+    public BufferCacheStats getBufferCacheStats() {
+        return diskBufferCache.getFileStats(fileManager.getBaseDir());
+    }
+
+    public int getDiskComponentCount() {
+        return diskComponents.size();
+    }
+
+    public long getAddedComponentBytes() {
+        return addedComponentBytes.get();
+    }
+
+    public long getMergedComponentBytes() {
+        return mergedComponentBytes.get();
+    }
+
+    /**
+     * @return the bytes of all disk components written since the index was activated per byte of the flushed or bulk
+     *         loaded ones, or 0 if none were added yet
+     */
+    public double getWriteAmplification() {
+        long added = addedComponentBytes.get();
+        return added == 0 ? 0.0 : (double) (added + mergedComponentBytes.get()) / added;
+    }
+
+    /**
+     * Records a writer that waited for a writable memory component, e.g. because all memory components were full
+     * and the oldest of them was still being flushed.
+     */
+    public void addWriteStall(long nanos) {
+        writeStalls.incrementAndGet();
+        writeStallNanos.addAndGet(nanos);
+    }
+
+    public long getWriteStallCount() {
+        return writeStalls.get();
+    }
+
+    public long getWriteStallNanos() {
+        return writeStallNanos.get();
+    }
+
     @Override
     public String toString() {
         return "LSMIndex [" + fileManager.getBaseDir() + "]";
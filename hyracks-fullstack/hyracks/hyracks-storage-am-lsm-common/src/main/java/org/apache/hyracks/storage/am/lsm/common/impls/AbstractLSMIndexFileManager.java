@@ -41,6 +41,7 @@ import org.apache.hyracks.storage.am.common.api.IndexException;
 import org.apache.hyracks.storage.am.lsm.common.api.ILSMIndexFileManager;
 import org.apache.hyracks.storage.common.buffercache.IBufferCache;
 import org.apache.hyracks.storage.common.buffercache.ICachedPage;
+import org.apache.hyracks.storage.common.buffercache.PageLookasideTable;
 import org.apache.hyracks.storage.common.file.BufferedFileHandle;
 import org.apache.hyracks.storage.common.file.IFileMapProvider;
 
@@ -115,6 +116,7 @@ public abstract class AbstractLSMIndexFileManager implements ILSMIndexFileManage
                 allFiles.add(new ComparableFileName(fileRef));
             } else {
                 file.delete();
+                PageLookasideTable.delete(fileRef);
             }
         }
     }
@@ -132,6 +134,7 @@ public abstract class AbstractLSMIndexFileManager implements ILSMIndexFileManage
             } else {
                 File invalidFile = new File(cmpFileName.fullPath);
                 invalidFile.delete();
+                PageLookasideTable.delete(cmpFileName.fileRef);
             }
         }
     }
@@ -228,6 +231,7 @@ public abstract class AbstractLSMIndexFileManager implements ILSMIndexFileManage
                 // last file. Thus the last file must contain at least as much information
                 // as the current file, so delete the current file.
                 current.fileRef.delete();
+                PageLookasideTable.delete(current.fileRef);
             } else {
                 // This scenario should not be possible since timestamps are monotonically increasing.
                 throw new HyracksDataException("Found LSM files with overlapping timestamp intervals, "
@@ -0,0 +1,142 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.hyracks.storage.am.lsm.common.impls;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hyracks.api.exceptions.HyracksDataException;
+import org.apache.hyracks.storage.am.common.api.IndexException;
+import org.apache.hyracks.storage.am.common.impls.NoOpOperationCallback;
+import org.apache.hyracks.storage.am.lsm.common.api.ILSMComponent;
+import org.apache.hyracks.storage.am.lsm.common.api.ILSMComponent.ComponentState;
+import org.apache.hyracks.storage.am.lsm.common.api.ILSMIndex;
+import org.apache.hyracks.storage.am.lsm.common.api.ILSMIndexAccessor;
+import org.apache.hyracks.storage.am.lsm.common.api.ILSMMergePolicy;
+
+/**
+ * Common parts of the merge policies that pick the components to merge by their sizes.
+ * Like the other policies, at most one merge per index runs at a time, and a merge always covers a contiguous range
+ * of components, so that newer entries keep shadowing older ones. Components larger than the max mergable component
+ * size are never merged, and flushes are held back while the newest mergable components exceed the tolerance count
+ * (see {@link PrefixMergePolicy#isMergeLagging(ILSMIndex)}).
+ */
+public abstract class AbstractSizeBasedMergePolicy implements ILSMMergePolicy {
+    public static final String MAX_MERGABLE_COMPONENT_SIZE = "max-mergable-component-size";
+    public static final String MAX_TOLERANCE_COMPONENT_COUNT = "max-tolerance-component-count";
+
+    protected long maxMergableComponentSize;
+    protected int maxToleranceComponentCount;
+
+    @Override
+    public void diskComponentAdded(final ILSMIndex index, boolean fullMergeIsRequested)
+            throws HyracksDataException, IndexException {
+        List<ILSMComponent> immutableComponents = new ArrayList<ILSMComponent>(index.getImmutableComponents());
+        if (!areComponentsReadableUnwritable(immutableComponents)) {
+            return;
+        }
+        if (fullMergeIsRequested) {
+            ILSMIndexAccessor accessor = index.createAccessor(NoOpOperationCallback.INSTANCE,
+                    NoOpOperationCallback.INSTANCE);
+            accessor.scheduleFullMerge(index.getIOOperationCallback());
+            return;
+        }
+        List<ILSMComponent> mergableComponents = getComponentsToMerge(immutableComponents);
+        if (mergableComponents != null) {
+            scheduleMerge(index, mergableComponents);
+        }
+    }
+
+    @Override
+    public void configure(Map<String, String> properties) {
+        maxMergableComponentSize = Long.parseLong(properties.get(MAX_MERGABLE_COMPONENT_SIZE));
+        maxToleranceComponentCount = Integer.parseInt(properties.get(MAX_TOLERANCE_COMPONENT_COUNT));
+    }
+
+    @Override
+    public boolean isMergeLagging(ILSMIndex index) throws HyracksDataException, IndexException {
+        List<ILSMComponent> immutableComponents = index.getImmutableComponents();
+        int mergableComponentCount = getMergableComponentCount(immutableComponents);
+        if (mergableComponentCount < maxToleranceComponentCount) {
+            return false;
+        }
+        for (ILSMComponent c : immutableComponents) {
+            if (c.getState() == ComponentState.READABLE_MERGING) {
+                return true;
+            }
+        }
+        // no merge is running, e.g. after a restart, so one has to be scheduled or the flushes would hang
+        if (!areComponentsReadableUnwritable(immutableComponents)) {
+            throw new IllegalStateException();
+        }
+        List<ILSMComponent> mergableComponents = getComponentsToMerge(immutableComponents);
+        if (mergableComponents == null) {
+            mergableComponents = new ArrayList<ILSMComponent>(immutableComponents.subList(0, mergableComponentCount));
+        }
+        scheduleMerge(index, mergableComponents);
+        return true;
+    }
+
+    /**
+     * @param immutableComponents
+     *            the disk components of the index from the newest to the oldest, none of which is being merged
+     * @return a contiguous range of at least two of the given components, in the same order, or null if nothing
+     *         should be merged
+     */
+    protected abstract List<ILSMComponent> getComponentsToMerge(List<ILSMComponent> immutableComponents);
+
+    protected boolean isMergable(ILSMComponent c) {
+        return c.getState() == ComponentState.READABLE_UNWRITABLE && getSize(c) <= maxMergableComponentSize;
+    }
+
+    protected static long getSize(ILSMComponent c) {
+        return ((AbstractDiskLSMComponent) c).getComponentSize();
+    }
+
+    /**
+     * @return the number of mergable components before the first one that is not mergable, from the newest
+     */
+    private int getMergableComponentCount(List<ILSMComponent> immutableComponents) {
+        int count = 0;
+        for (ILSMComponent c : immutableComponents) {
+            if (!isMergable(c)) {
+                break;
+            }
+            ++count;
+        }
+        return count;
+    }
+
+    private static boolean areComponentsReadableUnwritable(List<ILSMComponent> immutableComponents) {
+        for (ILSMComponent c : immutableComponents) {
+            if (c.getState() != ComponentState.READABLE_UNWRITABLE) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void scheduleMerge(ILSMIndex index, List<ILSMComponent> mergableComponents)
+            throws HyracksDataException, IndexException {
+        ILSMIndexAccessor accessor = index.createAccessor(NoOpOperationCallback.INSTANCE,
+                NoOpOperationCallback.INSTANCE);
+        accessor.scheduleMerge(index.getIOOperationCallback(), mergableComponents);
+    }
+}
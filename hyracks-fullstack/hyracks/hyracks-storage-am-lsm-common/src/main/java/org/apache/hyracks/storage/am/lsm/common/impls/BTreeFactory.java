@@ -31,18 +31,40 @@ import org.apache.hyracks.storage.common.file.IFileMapProvider;
 
 public class BTreeFactory extends TreeIndexFactory<BTree> {
 
+    private final boolean pageCompression;
+    private final boolean fencePointers;
+
     public BTreeFactory(IBufferCache bufferCache, IFileMapProvider fileMapProvider,
             IMetadataManagerFactory freePageManagerFactory, ITreeIndexFrameFactory interiorFrameFactory,
             ITreeIndexFrameFactory leafFrameFactory, IBinaryComparatorFactory[] cmpFactories, int fieldCount) {
+        this(bufferCache, fileMapProvider, freePageManagerFactory, interiorFrameFactory, leafFrameFactory,
+                cmpFactories, fieldCount, false, false);
+    }
+
+    /**
+     * @param pageCompression
+     *            whether the files of the created B-trees store their pages compressed
+     * @param fencePointers
+     *            whether the created B-trees keep fence pointers to their leaves, see {@link BTree#setFencePointers}
+     */
+    public BTreeFactory(IBufferCache bufferCache, IFileMapProvider fileMapProvider,
+            IMetadataManagerFactory freePageManagerFactory, ITreeIndexFrameFactory interiorFrameFactory,
+            ITreeIndexFrameFactory leafFrameFactory, IBinaryComparatorFactory[] cmpFactories, int fieldCount,
+            boolean pageCompression, boolean fencePointers) {
         super(bufferCache, fileMapProvider, freePageManagerFactory, interiorFrameFactory, leafFrameFactory,
                 cmpFactories, fieldCount);
+        this.pageCompression = pageCompression;
+        this.fencePointers = fencePointers;
     }
 
     @Override
     public BTree createIndexInstance(FileReference file) throws IndexException {
         try {
-            return new BTree(bufferCache, fileMapProvider, freePageManagerFactory.createFreePageManager(),
+            BTree btree = new BTree(bufferCache, fileMapProvider, freePageManagerFactory.createFreePageManager(),
                     interiorFrameFactory, leafFrameFactory, cmpFactories, fieldCount, file);
+            btree.setPageCompression(pageCompression);
+            btree.setFencePointers(fencePointers);
+            return btree;
         } catch (HyracksDataException e) {
             throw new IndexException(e);
         }
@@ -73,6 +73,8 @@ public class LSMHarness implements ILSMHarness {
     protected boolean getAndEnterComponents(ILSMIndexOperationContext ctx, LSMOperationType opType,
             boolean isTryOperation) throws HyracksDataException {
         validateOperationEnterComponentsState(ctx);
+        boolean isWrite = opType == LSMOperationType.MODIFICATION || opType == LSMOperationType.FORCE_MODIFICATION;
+        long stallStart = 0L;
         synchronized (opTracker) {
             while (true) {
                 lsmIndex.getOperationalComponents(ctx);
@@ -116,6 +118,9 @@ public class LSMHarness implements ILSMHarness {
                         break;
                 }
                 if (enterComponents(ctx, opType)) {
+                    if (stallStart != 0L) {
+                        ((AbstractLSMIndex) lsmIndex).addWriteStall(System.nanoTime() - stallStart);
+                    }
                     return true;
                 } else if (isTryOperation) {
                     return false;
@@ -124,6 +129,9 @@ public class LSMHarness implements ILSMHarness {
                     // Flush and merge operations should never reach this wait call, because they are always try operations.
                     // If they fail to enter the components, then it means that there are an ongoing flush/merge operation on
                     // the same components, so they should not proceed.
+                    if (isWrite && stallStart == 0L) {
+                        stallStart = System.nanoTime();
+                    }
                     opTracker.wait();
                 } catch (InterruptedException e) {
                     throw new HyracksDataException(e);
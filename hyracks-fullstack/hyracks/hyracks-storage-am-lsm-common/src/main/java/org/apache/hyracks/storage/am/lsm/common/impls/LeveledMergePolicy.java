@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.hyracks.storage.am.lsm.common.impls;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hyracks.storage.am.lsm.common.api.ILSMComponent;
+
+/**
+ * Keeps at most one component per level. Level 0 holds components of up to level-0-component-size bytes, and every
+ * further level holds components up to size-ratio times larger than the previous one. Whenever the newest components
+ * would share a level with an older component, they are merged into it, so lookups see about one component per level
+ * while every entry is rewritten up to size-ratio times per level.
+ * Components cover the whole key range, so unlike leveling over partitioned runs, a merge into a level rewrites the
+ * whole component of that level.
+ */
+public class LeveledMergePolicy extends AbstractSizeBasedMergePolicy {
+    public static final String LEVEL_0_COMPONENT_SIZE = "level-0-component-size";
+    public static final String SIZE_RATIO = "size-ratio";
+
+    private long level0ComponentSize;
+    private int sizeRatio;
+
+    @Override
+    public void configure(Map<String, String> properties) {
+        super.configure(properties);
+        level0ComponentSize = Math.max(1, Long.parseLong(properties.get(LEVEL_0_COMPONENT_SIZE)));
+        sizeRatio = Math.max(2, Integer.parseInt(properties.get(SIZE_RATIO)));
+    }
+
+    @Override
+    protected List<ILSMComponent> getComponentsToMerge(List<ILSMComponent> immutableComponents) {
+        if (immutableComponents.isEmpty() || !isMergable(immutableComponents.get(0))) {
+            return null;
+        }
+        // the newest components are merged as long as their total size reaches the level of the next older one
+        long totalSize = getSize(immutableComponents.get(0));
+        int end = 1;
+        while (end < immutableComponents.size()) {
+            ILSMComponent c = immutableComponents.get(end);
+            if (!isMergable(c) || getLevel(totalSize) < getLevel(getSize(c))) {
+                break;
+            }
+            totalSize += getSize(c);
+            end++;
+        }
+        return end >= 2 ? new ArrayList<ILSMComponent>(immutableComponents.subList(0, end)) : null;
+    }
+
+    protected int getLevel(long size) {
+        int level = 0;
+        long levelSize = level0ComponentSize;
+        while (size > levelSize) {
+            level++;
+            if (levelSize > Long.MAX_VALUE / sizeRatio) {
+                break;
+            }
+            levelSize *= sizeRatio;
+        }
+        return level;
+    }
+}
@@ -25,6 +25,7 @@ import org.apache.hyracks.api.exceptions.HyracksDataException;
 import org.apache.hyracks.api.io.FileReference;
 import org.apache.hyracks.api.replication.IIOReplicationManager;
 import org.apache.hyracks.storage.am.lsm.common.api.IVirtualBufferCache;
+import org.apache.hyracks.storage.common.buffercache.BufferCacheStats;
 import org.apache.hyracks.storage.common.buffercache.ICachedPage;
 import org.apache.hyracks.storage.common.buffercache.IExtraPageBlockHelper;
 import org.apache.hyracks.storage.common.buffercache.IFIFOPageQueue;
@@ -213,6 +214,26 @@ public class MultitenantVirtualBufferCache implements IVirtualBufferCache {
 
     }
 
+    @Override
+    public void markImmutable(int fileId) throws HyracksDataException {
+        vbc.markImmutable(fileId);
+    }
+
+    @Override
+    public void enablePageCompression(int fileId) throws HyracksDataException {
+        vbc.enablePageCompression(fileId);
+    }
+
+    @Override
+    public BufferCacheStats getFileStats(String directory) {
+        return vbc.getFileStats(directory);
+    }
+
+    @Override
+    public void saveWarmupPages() throws HyracksDataException {
+        vbc.saveWarmupPages();
+    }
+
     @Override
     public void resizePage(ICachedPage page, int multiplier, IExtraPageBlockHelper extraPageBlockHelper)
             throws HyracksDataException {
@@ -0,0 +1,326 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.hyracks.storage.am.lsm.common.impls;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hyracks.api.exceptions.HyracksDataException;
+import org.apache.hyracks.dataflow.common.data.accessors.ITupleReference;
+import org.apache.hyracks.storage.am.common.api.ICursorInitialState;
+import org.apache.hyracks.storage.am.common.api.IIndexCursor;
+import org.apache.hyracks.storage.am.common.api.ISearchPredicate;
+import org.apache.hyracks.storage.am.common.api.ITreeIndexTupleReference;
+import org.apache.hyracks.storage.am.common.api.ITreeIndexTupleWriter;
+import org.apache.hyracks.storage.am.common.api.ITreeIndexTupleWriterFactory;
+import org.apache.hyracks.storage.am.common.api.IndexException;
+
+/**
+ * Merges disjoint key ranges of the merging components in parallel and returns their tuples in key order.
+ * Each range is read by its own merge cursor on a worker thread, which copies the tuples into batches with the tuple
+ * writer of the merge target. The cursor is also opened on that thread, since the latches it holds must be released
+ * by the thread that acquired them. The consumer bulk loads the batches of the first range while the workers of the
+ * later ranges merge ahead, up to a bounded number of batches per range, so reading and merging the components no
+ * longer runs on the thread that builds the new component.
+ */
+public class ParallelMergeCursor implements IIndexCursor {
+    private static final int BATCH_SIZE = 256 * 1024;
+    private static final int MAX_QUEUED_BATCHES = 16;
+    private static final long POLL_MILLIS = 100;
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "LSM Merge Worker");
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    private final List<Range> ranges;
+    private final ITreeIndexTupleWriterFactory tupleWriterFactory;
+    private final List<BlockingQueue<Batch>> rangeQueues;
+    private final Queue<Batch> freeBatches = new ConcurrentLinkedQueue<Batch>();
+    private final ITreeIndexTupleReference tuple;
+    private CountDownLatch finishedWorkers;
+    private volatile boolean closed;
+
+    private int currentRange;
+    private Batch currentBatch;
+    private int currentTupleIndex;
+    private boolean started;
+
+    /**
+     * @param ranges
+     *            consecutive key ranges, in key order
+     * @param tupleWriterFactory
+     *            creates tuple writers that write the tuples of the range cursors as they are written to the merge
+     *            target
+     */
+    public ParallelMergeCursor(List<Range> ranges, ITreeIndexTupleWriterFactory tupleWriterFactory) {
+        this.ranges = ranges;
+        this.tupleWriterFactory = tupleWriterFactory;
+        this.tuple = tupleWriterFactory.createTupleWriter().createTupleReference();
+        this.rangeQueues = new ArrayList<BlockingQueue<Batch>>(ranges.size());
+        for (int i = 0; i < ranges.size(); i++) {
+            rangeQueues.add(new ArrayBlockingQueue<Batch>(MAX_QUEUED_BATCHES));
+        }
+    }
+
+    /**
+     * Starts merging the ranges. The arguments are ignored, each range has its own.
+     */
+    @Override
+    public void open(ICursorInitialState initialState, ISearchPredicate searchPred) {
+        if (started) {
+            return;
+        }
+        started = true;
+        finishedWorkers = new CountDownLatch(ranges.size());
+        for (int i = 0; i < ranges.size(); i++) {
+            final Range range = ranges.get(i);
+            final BlockingQueue<Batch> queue = rangeQueues.get(i);
+            EXECUTOR.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        mergeRange(range, queue);
+                    } finally {
+                        finishedWorkers.countDown();
+                    }
+                }
+            });
+        }
+    }
+
+    private void mergeRange(Range range, BlockingQueue<Batch> queue) {
+        ITreeIndexTupleWriter tupleWriter = tupleWriterFactory.createTupleWriter();
+        IIndexCursor cursor = range.cursor;
+        Batch batch = null;
+        try {
+            cursor.open(range.initialState, range.searchPred);
+            try {
+                while (!closed && cursor.hasNext()) {
+                    cursor.next();
+                    ITupleReference t = cursor.getTuple();
+                    int size = tupleWriter.bytesRequired(t);
+                    if (batch != null && !batch.fits(size)) {
+                        publish(queue, batch);
+                        batch = null;
+                    }
+                    if (batch == null) {
+                        batch = getBatch(size);
+                    }
+                    batch.add(tupleWriter, t, size);
+                }
+            } finally {
+                cursor.close();
+            }
+            if (batch != null) {
+                publish(queue, batch);
+            }
+            publish(queue, Batch.END);
+        } catch (Throwable th) {
+            publishFailure(queue, th);
+        }
+    }
+
+    /**
+     * Waits until the queue takes the batch or the cursor is closed.
+     *
+     * @throws InterruptedException
+     *             if the worker is interrupted, in which case the batch is not published
+     */
+    private void publish(BlockingQueue<Batch> queue, Batch batch) throws InterruptedException {
+        while (!closed && !queue.offer(batch, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+            // wait for the consumer or for close()
+        }
+    }
+
+    /**
+     * Publishes the failure of a range, even if the worker is interrupted, since the consumer waits for the end of
+     * the range.
+     */
+    private void publishFailure(BlockingQueue<Batch> queue, Throwable failure) {
+        boolean interrupted = failure instanceof InterruptedException;
+        Batch batch = new Batch(failure);
+        while (true) {
+            try {
+                publish(queue, batch);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Batch getBatch(int minSize) {
+        Batch batch = freeBatches.poll();
+        if (batch == null || batch.buffer.capacity() < minSize) {
+            return new Batch(Math.max(BATCH_SIZE, minSize));
+        }
+        batch.reset();
+        return batch;
+    }
+
+    @Override
+    public boolean hasNext() throws HyracksDataException {
+        while (currentBatch == null || currentTupleIndex >= currentBatch.count) {
+            if (currentRange >= rangeQueues.size()) {
+                return false;
+            }
+            if (currentBatch != null) {
+                freeBatches.offer(currentBatch);
+                currentBatch = null;
+            }
+            Batch batch;
+            try {
+                batch = rangeQueues.get(currentRange).take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new HyracksDataException(e);
+            }
+            if (batch.failure != null) {
+                throw new HyracksDataException(batch.failure);
+            }
+            if (batch == Batch.END) {
+                currentRange++;
+            } else {
+                currentBatch = batch;
+                currentTupleIndex = 0;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public void next() {
+        tuple.resetByTupleOffset(currentBatch.buffer, currentBatch.offsets[currentTupleIndex++]);
+    }
+
+    @Override
+    public ITupleReference getTuple() {
+        return tuple;
+    }
+
+    /**
+     * Stops the workers and waits until they have closed their range cursors.
+     */
+    @Override
+    public void close() throws HyracksDataException {
+        closed = true;
+        if (!started) {
+            return;
+        }
+        try {
+            finishedWorkers.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HyracksDataException(e);
+        }
+    }
+
+    /**
+     * Stops the workers like {@link #close()} and drops the batches they merged, so that the next call to
+     * {@link #open(ICursorInitialState, ISearchPredicate)} merges the ranges from their start again.
+     */
+    @Override
+    public void reset() throws HyracksDataException, IndexException {
+        close();
+        for (BlockingQueue<Batch> queue : rangeQueues) {
+            Batch batch;
+            while ((batch = queue.poll()) != null) {
+                if (batch != Batch.END && batch.failure == null) {
+                    freeBatches.offer(batch);
+                }
+            }
+        }
+        if (currentBatch != null) {
+            freeBatches.offer(currentBatch);
+            currentBatch = null;
+        }
+        currentRange = 0;
+        currentTupleIndex = 0;
+        started = false;
+        closed = false;
+    }
+
+    public static class Range {
+        private final IIndexCursor cursor;
+        private final ICursorInitialState initialState;
+        private final ISearchPredicate searchPred;
+
+        public Range(IIndexCursor cursor, ICursorInitialState initialState, ISearchPredicate searchPred) {
+            this.cursor = cursor;
+            this.initialState = initialState;
+            this.searchPred = searchPred;
+        }
+    }
+
+    private static class Batch {
+        static final Batch END = new Batch(0);
+
+        final ByteBuffer buffer;
+        int[] offsets = new int[64];
+        int count;
+        final Throwable failure;
+
+        Batch(int size) {
+            this.buffer = ByteBuffer.allocate(size);
+            this.failure = null;
+        }
+
+        Batch(Throwable failure) {
+            this.buffer = null;
+            this.failure = failure;
+        }
+
+        boolean fits(int size) {
+            return buffer.position() + size <= buffer.capacity();
+        }
+
+        void add(ITreeIndexTupleWriter tupleWriter, ITupleReference t, int size) {
+            int offset = buffer.position();
+            tupleWriter.writeTuple(t, buffer.array(), offset);
+            buffer.position(offset + size);
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            offsets[count++] = offset;
+        }
+
+        void reset() {
+            buffer.clear();
+            count = 0;
+        }
+    }
+}
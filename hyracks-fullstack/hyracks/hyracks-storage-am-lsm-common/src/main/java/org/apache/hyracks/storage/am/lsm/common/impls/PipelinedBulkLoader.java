@@ -0,0 +1,222 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.hyracks.storage.am.lsm.common.impls;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hyracks.api.exceptions.HyracksDataException;
+import org.apache.hyracks.dataflow.common.data.accessors.ITupleReference;
+import org.apache.hyracks.storage.am.common.api.IIndexBulkLoader;
+import org.apache.hyracks.storage.am.common.api.IndexException;
+import org.apache.hyracks.storage.am.common.tuples.SimpleTupleReference;
+import org.apache.hyracks.storage.am.common.tuples.SimpleTupleWriter;
+
+/**
+ * Runs a bulk loader on a worker thread, so that the thread that adds the tuples only copies them. Flushes, merges
+ * and bulk loads of LSM components use it to build the Bloom filter of a new component while its B-tree is built on
+ * the calling thread. The leading fields of the tuples that the loader needs are copied into batches, and at most a
+ * bounded number of batches is queued for the worker, so a slow worker holds back the caller instead of buffering
+ * the whole component.
+ */
+public class PipelinedBulkLoader implements IIndexBulkLoader {
+    private static final int BATCH_SIZE = 64 * 1024;
+    private static final int MAX_QUEUED_BATCHES = 8;
+    private static final long POLL_MILLIS = 100;
+    private static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "LSM Bulk Load Worker");
+            t.setDaemon(true);
+            return t;
+        }
+    });
+
+    private final IIndexBulkLoader loader;
+    private final int numFields;
+    private final BlockingQueue<Batch> queue = new ArrayBlockingQueue<Batch>(MAX_QUEUED_BATCHES);
+    // the batches that the worker has loaded, for the caller to reuse
+    private final BlockingQueue<Batch> freeBatches = new ArrayBlockingQueue<Batch>(MAX_QUEUED_BATCHES + 2);
+    private final CountDownLatch finished = new CountDownLatch(1);
+    private volatile Throwable failure;
+    private volatile boolean aborted;
+    private Batch batch;
+
+    /**
+     * Starts the worker of the loader.
+     *
+     * @param numFields
+     *            the number of leading fields of the tuples that the loader reads
+     */
+    public PipelinedBulkLoader(IIndexBulkLoader loader, int numFields) {
+        this.loader = loader;
+        this.numFields = numFields;
+        EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                load();
+            }
+        });
+    }
+
+    private void load() {
+        SimpleTupleReference tuple = SimpleTupleWriter.INSTANCE.createTupleReference();
+        tuple.setFieldCount(numFields);
+        try {
+            while (!aborted) {
+                Batch b = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (b == null) {
+                    continue;
+                }
+                if (b == Batch.END) {
+                    return;
+                }
+                for (int i = 0; i < b.count; i++) {
+                    tuple.resetByTupleOffset(b.buffer, b.offsets[i]);
+                    loader.add(tuple);
+                }
+                b.reset();
+                freeBatches.offer(b);
+            }
+        } catch (Throwable th) {
+            failure = th;
+        } finally {
+            finished.countDown();
+        }
+    }
+
+    @Override
+    public void add(ITupleReference tuple) throws IndexException, HyracksDataException {
+        int size = SimpleTupleWriter.INSTANCE.bytesRequired(tuple, 0, numFields);
+        if (batch != null && !batch.fits(size)) {
+            publish(batch);
+            batch = null;
+        }
+        if (batch == null) {
+            batch = getBatch(size);
+        }
+        batch.add(tuple, numFields, size);
+    }
+
+    private void publish(Batch b) throws IndexException, HyracksDataException {
+        try {
+            while (!queue.offer(b, POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                // the queue stays full if the worker failed
+                checkFailure();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HyracksDataException(e);
+        }
+    }
+
+    private Batch getBatch(int minSize) {
+        Batch b = freeBatches.poll();
+        if (b == null || b.buffer.capacity() < minSize) {
+            return new Batch(Math.max(BATCH_SIZE, minSize));
+        }
+        return b;
+    }
+
+    /**
+     * Waits until the worker has loaded all tuples, and ends the loader on the calling thread.
+     */
+    @Override
+    public void end() throws IndexException, HyracksDataException {
+        if (batch != null) {
+            publish(batch);
+            batch = null;
+        }
+        publish(Batch.END);
+        awaitWorker();
+        checkFailure();
+        loader.end();
+    }
+
+    /**
+     * Stops the worker and aborts the loader.
+     */
+    @Override
+    public void abort() throws HyracksDataException {
+        aborted = true;
+        awaitWorker();
+        loader.abort();
+    }
+
+    private void awaitWorker() throws HyracksDataException {
+        try {
+            finished.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HyracksDataException(e);
+        }
+    }
+
+    private void checkFailure() throws IndexException, HyracksDataException {
+        Throwable th = failure;
+        if (th == null) {
+            return;
+        }
+        if (th instanceof IndexException) {
+            throw (IndexException) th;
+        }
+        if (th instanceof HyracksDataException) {
+            throw (HyracksDataException) th;
+        }
+        throw new HyracksDataException(th);
+    }
+
+    private static class Batch {
+        static final Batch END = new Batch(0);
+
+        final ByteBuffer buffer;
+        int[] offsets = new int[64];
+        int count;
+
+        Batch(int size) {
+            this.buffer = ByteBuffer.allocate(size);
+        }
+
+        boolean fits(int size) {
+            return buffer.position() + size <= buffer.capacity();
+        }
+
+        void add(ITupleReference t, int numFields, int size) {
+            int offset = buffer.position();
+            SimpleTupleWriter.INSTANCE.writeTupleFields(t, 0, numFields, buffer.array(), offset);
+            buffer.position(offset + size);
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            offsets[count++] = offset;
+        }
+
+        void reset() {
+            buffer.clear();
+            count = 0;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.hyracks.storage.am.lsm.common.impls;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.hyracks.api.exceptions.HyracksDataException;
+import org.apache.hyracks.api.io.IODeviceHandle;
+import org.apache.hyracks.storage.am.lsm.common.api.ILSMIOOperation;
+import org.apache.hyracks.storage.am.lsm.common.api.ILSMIOOperation.LSMIOOpertionType;
+import org.apache.hyracks.storage.am.lsm.common.api.ILSMIOOperationScheduler;
+import org.apache.hyracks.storage.common.buffercache.IORateLimiter;
+
+/**
+ * An asynchronous scheduler that bounds the number of flushes and merges running on each I/O device.
+ * An operation only starts when every device it reads from or writes to runs fewer than the maximum number of
+ * operations, and a merge also requires fewer than the maximum number of merges on each of its devices. Keeping the
+ * merge limit below the operation limit leaves room for flushes, which also go first whenever a device frees up.
+ * Operations that cannot start yet wait in the scheduler, not on a thread. As in {@link AsynchronousScheduler}, the
+ * flushes of an index run one at a time, in the order of their components. Merges can optionally be limited to a
+ * total write rate that is shared by all merges.
+ */
+public class PrioritizedIOScheduler implements ILSMIOOperationScheduler {
+    private static final Logger LOGGER = Logger.getLogger(PrioritizedIOScheduler.class.getName());
+
+    private final ExecutorService executor;
+    private final int maxOperationsPerDevice;
+    private final int maxMergesPerDevice;
+    private final IORateLimiter mergeRateLimiter;
+
+    // all of the following are guarded by this
+    private final Map<IODeviceHandle, DeviceLoad> deviceLoads = new HashMap<IODeviceHandle, DeviceLoad>();
+    private final Set<String> runningFlushIndexes = new HashSet<String>();
+    private final Map<String, PriorityQueue<ILSMIOOperation>> waitingFlushOperations =
+            new LinkedHashMap<String, PriorityQueue<ILSMIOOperation>>();
+    private final LinkedList<ILSMIOOperation> waitingMergeOperations = new LinkedList<ILSMIOOperation>();
+    private long numCompletedFlushes;
+    private long numCompletedMerges;
+
+    /**
+     * @param maxOperationsPerDevice
+     *            the maximum number of flushes and merges running on a device
+     * @param maxMergesPerDevice
+     *            the maximum number of merges running on a device, at most maxOperationsPerDevice
+     * @param mergeBytesPerSecond
+     *            the maximum rate at which all merges together write pages, or 0 for no limit
+     */
+    public PrioritizedIOScheduler(ThreadFactory threadFactory, int maxOperationsPerDevice, int maxMergesPerDevice,
+            long mergeBytesPerSecond) {
+        if (maxOperationsPerDevice <= 0 || maxMergesPerDevice <= 0) {
+            throw new IllegalArgumentException("The number of operations per device must be positive");
+        }
+        this.executor = Executors.newCachedThreadPool(threadFactory);
+        this.maxOperationsPerDevice = maxOperationsPerDevice;
+        this.maxMergesPerDevice = Math.min(maxMergesPerDevice, maxOperationsPerDevice);
+        this.mergeRateLimiter = mergeBytesPerSecond > 0 ? new IORateLimiter(mergeBytesPerSecond) : null;
+    }
+
+    @Override
+    public synchronized void scheduleOperation(ILSMIOOperation operation) throws HyracksDataException {
+        if (operation.getIOOpertionType() == LSMIOOpertionType.MERGE) {
+            waitingMergeOperations.add(operation);
+        } else {
+            String id = operation.getIndexUniqueIdentifier();
+            PriorityQueue<ILSMIOOperation> q = waitingFlushOperations.get(id);
+            if (q == null) {
+                q = new PriorityQueue<ILSMIOOperation>();
+                waitingFlushOperations.put(id, q);
+            }
+            q.offer(operation);
+        }
+        startOperations();
+    }
+
+    /**
+     * Starts the waiting operations that the device limits admit, flushes first.
+     */
+    private void startOperations() {
+        Iterator<Map.Entry<String, PriorityQueue<ILSMIOOperation>>> flushIter =
+                waitingFlushOperations.entrySet().iterator();
+        while (flushIter.hasNext()) {
+            Map.Entry<String, PriorityQueue<ILSMIOOperation>> entry = flushIter.next();
+            if (runningFlushIndexes.contains(entry.getKey())) {
+                continue;
+            }
+            ILSMIOOperation operation = entry.getValue().peek();
+            if (canStart(operation)) {
+                entry.getValue().poll();
+                if (entry.getValue().isEmpty()) {
+                    flushIter.remove();
+                }
+                runningFlushIndexes.add(entry.getKey());
+                start(operation);
+            }
+        }
+        Iterator<ILSMIOOperation> mergeIter = waitingMergeOperations.iterator();
+        while (mergeIter.hasNext()) {
+            ILSMIOOperation operation = mergeIter.next();
+            if (canStart(operation)) {
+                mergeIter.remove();
+                start(operation);
+            }
+        }
+    }
+
+    private boolean canStart(ILSMIOOperation operation) {
+        boolean isMerge = operation.getIOOpertionType() == LSMIOOpertionType.MERGE;
+        for (IODeviceHandle device : getDevices(operation)) {
+            DeviceLoad load = deviceLoads.get(device);
+            if (load != null && (load.operations >= maxOperationsPerDevice
+                    || (isMerge && load.merges >= maxMergesPerDevice))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void start(final ILSMIOOperation operation) {
+        final boolean isMerge = operation.getIOOpertionType() == LSMIOOpertionType.MERGE;
+        final Set<IODeviceHandle> devices = getDevices(operation);
+        for (IODeviceHandle device : devices) {
+            DeviceLoad load = deviceLoads.get(device);
+            if (load == null) {
+                load = new DeviceLoad();
+                deviceLoads.put(device, load);
+            }
+            load.operations++;
+            if (isMerge) {
+                load.merges++;
+            }
+        }
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (isMerge) {
+                        IORateLimiter.setThreadRateLimiter(mergeRateLimiter);
+                    }
+                    operation.call();
+                } catch (Throwable th) {
+                    if (LOGGER.isLoggable(Level.SEVERE)) {
+                        LOGGER.log(Level.SEVERE, "Failed to run " + operation.getIOOpertionType() + " of "
+                                + operation.getIndexUniqueIdentifier(), th);
+                    }
+                } finally {
+                    IORateLimiter.setThreadRateLimiter(null);
+                    completed(operation, isMerge, devices);
+                }
+            }
+        });
+    }
+
+    private synchronized void completed(ILSMIOOperation operation, boolean isMerge, Set<IODeviceHandle> devices) {
+        for (IODeviceHandle device : devices) {
+            DeviceLoad load = deviceLoads.get(device);
+            load.operations--;
+            if (isMerge) {
+                load.merges--;
+            }
+            if (load.operations == 0) {
+                deviceLoads.remove(device);
+            }
+        }
+        if (isMerge) {
+            numCompletedMerges++;
+        } else {
+            runningFlushIndexes.remove(operation.getIndexUniqueIdentifier());
+            numCompletedFlushes++;
+        }
+        startOperations();
+    }
+
+    private static Set<IODeviceHandle> getDevices(ILSMIOOperation operation) {
+        Set<IODeviceHandle> devices = new HashSet<IODeviceHandle>(operation.getWriteDevices());
+        devices.addAll(operation.getReadDevices());
+        return devices;
+    }
+
+    public synchronized int getNumRunningOperations(IODeviceHandle device) {
+        DeviceLoad load = deviceLoads.get(device);
+        return load == null ? 0 : load.operations;
+    }
+
+    public synchronized int getNumRunningMerges(IODeviceHandle device) {
+        DeviceLoad load = deviceLoads.get(device);
+        return load == null ? 0 : load.merges;
+    }
+
+    public synchronized int getNumWaitingOperations() {
+        int count = waitingMergeOperations.size();
+        for (PriorityQueue<ILSMIOOperation> q : waitingFlushOperations.values()) {
+            count += q.size();
+        }
+        return count;
+    }
+
+    public synchronized long getNumCompletedFlushes() {
+        return numCompletedFlushes;
+    }
+
+    public synchronized long getNumCompletedMerges() {
+        return numCompletedMerges;
+    }
+
+    private static class DeviceLoad {
+        int operations;
+        int merges;
+    }
+}
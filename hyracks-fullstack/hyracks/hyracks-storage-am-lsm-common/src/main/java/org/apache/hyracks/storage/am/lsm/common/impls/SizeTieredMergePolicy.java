@@ -0,0 +1,80 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.hyracks.storage.am.lsm.common.impls;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.hyracks.storage.am.lsm.common.api.ILSMComponent;
+
+/**
+ * Merges components of similar size. Contiguous components whose sizes are within the size ratio of each other form
+ * a tier, and once a tier has min-merge-component-count components, up to max-merge-component-count of them are
+ * merged into one component of the next tier. Every entry is rewritten about once per tier, i.e. logarithmically
+ * often in the size of the index, at the cost of up to min-merge-component-count - 1 components per tier on lookups.
+ */
+public class SizeTieredMergePolicy extends AbstractSizeBasedMergePolicy {
+    public static final String MIN_MERGE_COMPONENT_COUNT = "min-merge-component-count";
+    public static final String MAX_MERGE_COMPONENT_COUNT = "max-merge-component-count";
+    public static final String SIZE_RATIO = "size-ratio";
+
+    private int minMergeComponentCount;
+    private int maxMergeComponentCount;
+    private double sizeRatio;
+
+    @Override
+    public void configure(Map<String, String> properties) {
+        super.configure(properties);
+        minMergeComponentCount = Math.max(2, Integer.parseInt(properties.get(MIN_MERGE_COMPONENT_COUNT)));
+        maxMergeComponentCount = Math.max(minMergeComponentCount,
+                Integer.parseInt(properties.get(MAX_MERGE_COMPONENT_COUNT)));
+        sizeRatio = Math.max(1.0, Double.parseDouble(properties.get(SIZE_RATIO)));
+    }
+
+    @Override
+    protected List<ILSMComponent> getComponentsToMerge(List<ILSMComponent> immutableComponents) {
+        // tiers are looked at from the newest (and smallest) one
+        int start = 0;
+        while (start < immutableComponents.size()) {
+            if (!isMergable(immutableComponents.get(start))) {
+                start++;
+                continue;
+            }
+            long minSize = getSize(immutableComponents.get(start));
+            long maxSize = minSize;
+            int end = start + 1;
+            while (end < immutableComponents.size() && end - start < maxMergeComponentCount) {
+                ILSMComponent c = immutableComponents.get(end);
+                long size = getSize(c);
+                if (!isMergable(c) || Math.max(maxSize, size) > sizeRatio * Math.min(minSize, size)) {
+                    break;
+                }
+                minSize = Math.min(minSize, size);
+                maxSize = Math.max(maxSize, size);
+                end++;
+            }
+            if (end - start >= minMergeComponentCount) {
+                return new ArrayList<ILSMComponent>(immutableComponents.subList(start, end));
+            }
+            start = end;
+        }
+        return null;
+    }
+}
@@ -19,8 +19,8 @@
 package org.apache.hyracks.storage.am.lsm.common.impls;
 
 import java.nio.ByteBuffer;
-import java.util.ArrayList;
-import java.util.Collections;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
@@ -32,6 +32,7 @@ import org.apache.hyracks.api.exceptions.HyracksDataException;
 import org.apache.hyracks.api.io.FileReference;
 import org.apache.hyracks.api.replication.IIOReplicationManager;
 import org.apache.hyracks.storage.am.lsm.common.api.IVirtualBufferCache;
+import org.apache.hyracks.storage.common.buffercache.BufferCacheStats;
 import org.apache.hyracks.storage.common.buffercache.ICacheMemoryAllocator;
 import org.apache.hyracks.storage.common.buffercache.ICachedPage;
 import org.apache.hyracks.storage.common.buffercache.IExtraPageBlockHelper;
@@ -41,33 +42,63 @@ import org.apache.hyracks.storage.common.file.BufferedFileHandle;
 import org.apache.hyracks.storage.common.file.IFileMapManager;
 import org.apache.hyracks.storage.common.file.TransientFileMapManager;
 
+/**
+ * The buffer cache of the in-memory components. Pages are never evicted, so the page table only needs a lock to link
+ * in new pages: lookups of existing pages walk the bucket chains without locking. Pages released by deleted files are
+ * kept in free page pools that are partitioned by thread, so concurrent writers neither serialize on a shared list of
+ * pages nor contend on a single queue.
+ */
 public class VirtualBufferCache implements IVirtualBufferCache {
     private static final Logger LOGGER = Logger.getLogger(ExternalIndexHarness.class.getName());
 
-    private static final int OVERFLOW_PADDING = 8;
+    private static final int NUM_FREE_PAGE_PARTITIONS =
+            Math.min(Integer.highestOneBit(Runtime.getRuntime().availableProcessors()), 16);
 
     private final ICacheMemoryAllocator allocator;
     private final IFileMapManager fileMapManager;
     private final int pageSize;
     private final int numPages;
+    // the number of pages at which the cache reports itself full, so that its component is flushed
+    private final int flushPages;
 
     private final CacheBucket[] buckets;
-    private final ArrayList<VirtualPage> pages;
+    private final Queue<VirtualPage>[] freePages;
 
-    private volatile int nextFree;
+    // regular pages that were allocated / that are assigned to a page id
+    private final AtomicInteger allocatedPages;
+    private final AtomicInteger usedPages;
     private final AtomicInteger largePages;
 
     private boolean open;
 
     public VirtualBufferCache(ICacheMemoryAllocator allocator, int pageSize, int numPages) {
+        this(allocator, pageSize, numPages, 1.0);
+    }
+
+    /**
+     * @param flushThreshold
+     *            the fraction of the pages that have to be used for the cache to be full. Below 1, the component
+     *            of the cache is flushed early, and the writers that are still in it can use the remaining pages
+     *            while the next component takes new writes.
+     */
+    @SuppressWarnings("unchecked")
+    public VirtualBufferCache(ICacheMemoryAllocator allocator, int pageSize, int numPages, double flushThreshold) {
+        if (flushThreshold <= 0 || flushThreshold > 1) {
+            throw new IllegalArgumentException("Flush threshold must be in (0, 1]: " + flushThreshold);
+        }
         this.allocator = allocator;
         this.fileMapManager = new TransientFileMapManager();
         this.pageSize = pageSize;
         this.numPages = 2 * (numPages / 2) + 1;
+        this.flushPages = Math.max(1, (int) Math.ceil(this.numPages * flushThreshold));
 
         buckets = new CacheBucket[this.numPages];
-        pages = new ArrayList<>();
-        nextFree = 0;
+        freePages = new Queue[NUM_FREE_PAGE_PARTITIONS];
+        for (int i = 0; i < freePages.length; i++) {
+            freePages[i] = new ConcurrentLinkedQueue<>();
+        }
+        allocatedPages = new AtomicInteger(0);
+        usedPages = new AtomicInteger(0);
         largePages = new AtomicInteger(0);
         open = false;
     }
@@ -109,11 +140,11 @@ public class VirtualBufferCache implements IVirtualBufferCache {
                     if (BufferedFileHandle.getFileId(curr.dpid) == fileId) {
                         if (prev == null) {
                             bucket.cachedPage = curr.next;
-                            curr.reset();
+                            freePage(curr);
                             curr = bucket.cachedPage;
                         } else {
                             prev.next = curr.next;
-                            curr.reset();
+                            freePage(curr);
                             curr = prev.next;
                         }
                     } else {
@@ -125,41 +156,6 @@ public class VirtualBufferCache implements IVirtualBufferCache {
                 bucket.bucketLock.unlock();
             }
         }
-        defragPageList();
-    }
-
-    private void defragPageList() {
-        synchronized (pages) {
-            int start = 0;
-            int end = nextFree - 1;
-            while (start < end) {
-                VirtualPage lastUsed = pages.get(end);
-                while (end > 0 && lastUsed.dpid == -1) {
-                    --end;
-                    lastUsed = pages.get(end);
-                }
-
-                if (end == 0) {
-                    nextFree = lastUsed.dpid == -1 ? 0 : 1;
-                    break;
-                }
-
-                VirtualPage firstUnused = pages.get(start);
-                while (start < end && firstUnused.dpid != -1) {
-                    ++start;
-                    firstUnused = pages.get(start);
-                }
-
-                if (start >= end) {
-                    break;
-                }
-
-                Collections.swap(pages, start, end);
-                nextFree = end;
-                --end;
-                ++start;
-            }
-        }
     }
 
     @Override
@@ -169,18 +165,19 @@ public class VirtualBufferCache implements IVirtualBufferCache {
 
     @Override
     public ICachedPage pin(long dpid, boolean newPage) throws HyracksDataException {
-        VirtualPage page = null;
         int hash = hash(dpid);
         CacheBucket bucket = buckets[hash];
+        // a page is fully initialized before it is linked in, and pages are only unlinked when their file is deleted
+        VirtualPage page = findPage(bucket, dpid);
+        if (page != null) {
+            return page;
+        }
 
         bucket.bucketLock.lock();
         try {
-            page = bucket.cachedPage;
-            while (page != null) {
-                if (page.dpid == dpid) {
-                    return page;
-                }
-                page = page.next;
+            page = findPage(bucket, dpid);
+            if (page != null) {
+                return page;
             }
 
             if (!newPage) {
@@ -188,7 +185,7 @@ public class VirtualBufferCache implements IVirtualBufferCache {
                         + fileMapManager.lookupFileName(BufferedFileHandle.getFileId(dpid)));
             }
 
-            page = getOrAllocPage(dpid);
+            page = allocPage(dpid);
             page.next = bucket.cachedPage;
             bucket.cachedPage = page;
         } finally {
@@ -203,22 +200,55 @@ public class VirtualBufferCache implements IVirtualBufferCache {
         return hashValue % buckets.length;
     }
 
-    private VirtualPage getOrAllocPage(long dpid) {
-        VirtualPage page;
-        synchronized (pages) {
-            if (nextFree >= pages.size()) {
-                page = new VirtualPage(allocator.allocate(pageSize, 1)[0]);
-                page.multiplier = 1;
-                pages.add(page);
-            } else {
-                page = pages.get(nextFree);
+    private static VirtualPage findPage(CacheBucket bucket, long dpid) {
+        VirtualPage page = bucket.cachedPage;
+        while (page != null) {
+            if (page.dpid == dpid) {
+                return page;
             }
-            ++nextFree;
-            page.dpid = dpid;
+            page = page.next;
         }
+        return null;
+    }
+
+    private VirtualPage allocPage(long dpid) {
+        VirtualPage page = pollFreePage();
+        if (page == null) {
+            page = new VirtualPage(allocator.allocate(pageSize, 1)[0]);
+            page.multiplier = 1;
+            allocatedPages.incrementAndGet();
+        }
+        usedPages.incrementAndGet();
+        page.dpid = dpid;
         return page;
     }
 
+    private VirtualPage pollFreePage() {
+        int partition = getFreePagePartition();
+        for (int i = 0; i < freePages.length; i++) {
+            VirtualPage page = freePages[(partition + i) & (freePages.length - 1)].poll();
+            if (page != null) {
+                return page;
+            }
+        }
+        return null;
+    }
+
+    private void freePage(VirtualPage page) {
+        page.reset();
+        if (page.multiplier == 1) {
+            usedPages.decrementAndGet();
+            freePages[getFreePagePartition()].offer(page);
+        } else {
+            // large pages are not reused
+            largePages.getAndAdd(-page.multiplier);
+        }
+    }
+
+    private int getFreePagePartition() {
+        return (int) Thread.currentThread().getId() & (freePages.length - 1);
+    }
+
     @Override
     public void resizePage(ICachedPage cPage, int multiplier, IExtraPageBlockHelper extraPageBlockHelper) {
         ByteBuffer oldBuffer = cPage.getBuffer();
@@ -227,12 +257,6 @@ public class VirtualBufferCache implements IVirtualBufferCache {
             // no-op
             return;
         }
-        if (origMultiplier == 1) {
-            synchronized (pages) {
-                pages.remove(cPage);
-                nextFree--;
-            }
-        }
         ByteBuffer newBuffer = allocator.allocate(pageSize * multiplier, 1)[0];
         oldBuffer.position(0);
         if (multiplier < origMultiplier) {
@@ -240,11 +264,13 @@ public class VirtualBufferCache implements IVirtualBufferCache {
         }
         newBuffer.put(oldBuffer);
         if (origMultiplier == 1) {
+            usedPages.decrementAndGet();
+            allocatedPages.decrementAndGet();
             largePages.getAndAdd(multiplier);
         } else if (multiplier == 1) {
             largePages.getAndAdd(-origMultiplier);
-            pages.add(0, (VirtualPage) cPage);
-            nextFree++;
+            allocatedPages.incrementAndGet();
+            usedPages.incrementAndGet();
         } else {
             largePages.getAndAdd(multiplier - origMultiplier);
         }
@@ -279,29 +305,39 @@ public class VirtualBufferCache implements IVirtualBufferCache {
         if (open) {
             throw new HyracksDataException("Failed to open virtual buffercache since it is already open.");
         }
-        pages.trimToSize();
-        pages.ensureCapacity(numPages + OVERFLOW_PADDING);
         allocator.reserveAllocation(pageSize, numPages);
         for (int i = 0; i < numPages; i++) {
             buckets[i] = new CacheBucket();
         }
-        nextFree = 0;
+        allocatedPages.set(0);
+        usedPages.set(0);
         largePages.set(0);
         open = true;
     }
 
     @Override
     public void reset() {
+        // all pages become free; pages allocated beyond the capacity are released
         for (int i = 0; i < numPages; i++) {
+            VirtualPage page = buckets[i].cachedPage;
             buckets[i].cachedPage = null;
+            while (page != null) {
+                VirtualPage next = page.next;
+                page.reset();
+                if (page.multiplier == 1 && allocatedPages.get() <= numPages) {
+                    freePages[i & (freePages.length - 1)].offer(page);
+                } else if (page.multiplier == 1) {
+                    allocatedPages.decrementAndGet();
+                }
+                page = next;
+            }
         }
-        int excess = pages.size() - numPages;
-        if (excess > 0) {
-            for (int i = numPages + excess - 1; i >= numPages; i--) {
-                pages.remove(i);
+        for (int i = 0; i < freePages.length && allocatedPages.get() > numPages; i++) {
+            while (allocatedPages.get() > numPages && freePages[i].poll() != null) {
+                allocatedPages.decrementAndGet();
             }
         }
-        nextFree = 0;
+        usedPages.set(0);
         largePages.set(0);
     }
 
@@ -311,10 +347,15 @@ public class VirtualBufferCache implements IVirtualBufferCache {
             throw new HyracksDataException("Failed to close virtual buffercache since it is already closed.");
         }
 
-        pages.clear();
+        for (Queue<VirtualPage> partition : freePages) {
+            partition.clear();
+        }
         for (int i = 0; i < numPages; i++) {
             buckets[i].cachedPage = null;
         }
+        allocatedPages.set(0);
+        usedPages.set(0);
+        largePages.set(0);
         open = false;
     }
 
@@ -322,9 +363,10 @@ public class VirtualBufferCache implements IVirtualBufferCache {
         StringBuilder sb = new StringBuilder();
         sb.append(String.format("Page size = %d\n", pageSize));
         sb.append(String.format("Capacity = %d\n", numPages));
-        sb.append(String.format("Allocated pages = %d\n", pages.size()));
+        sb.append(String.format("Flush threshold = %d\n", flushPages));
+        sb.append(String.format("Allocated pages = %d\n", allocatedPages.get()));
         sb.append(String.format("Allocated large pages = %d\n", largePages.get()));
-        sb.append(String.format("Next free page = %d\n", nextFree));
+        sb.append(String.format("Used pages = %d\n", usedPages.get()));
         return sb.toString();
     }
 
@@ -335,12 +377,12 @@ public class VirtualBufferCache implements IVirtualBufferCache {
 
     @Override
     public boolean isFull() {
-        return (nextFree  + largePages.get()) >= numPages;
+        return (usedPages.get() + largePages.get()) >= flushPages;
     }
 
     private static class CacheBucket {
         private final ReentrantLock bucketLock;
-        private VirtualPage cachedPage;
+        private volatile VirtualPage cachedPage;
 
         public CacheBucket() {
             this.bucketLock = new ReentrantLock();
@@ -352,7 +394,7 @@ public class VirtualBufferCache implements IVirtualBufferCache {
         final ReadWriteLock latch;
         volatile long dpid;
         int multiplier;
-        VirtualPage next;
+        volatile VirtualPage next;
 
         public VirtualPage(ByteBuffer buffer) {
             this.buffer = buffer;
@@ -499,4 +541,25 @@ public class VirtualBufferCache implements IVirtualBufferCache {
 
     }
 
+    @Override
+    public void markImmutable(int fileId) throws HyracksDataException {
+        // in-memory files are always mutable
+    }
+
+    @Override
+    public void enablePageCompression(int fileId) throws HyracksDataException {
+        // in-memory pages are never written to disk
+    }
+
+    @Override
+    public BufferCacheStats getFileStats(String directory) {
+        // in-memory pages are neither read nor evicted
+        return new BufferCacheStats();
+    }
+
+    @Override
+    public void saveWarmupPages() {
+        // in-memory pages do not survive a restart
+    }
+
 }
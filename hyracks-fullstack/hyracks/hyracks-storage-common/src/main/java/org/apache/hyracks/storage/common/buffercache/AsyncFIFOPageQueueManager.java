@@ -19,6 +19,8 @@
 
 package org.apache.hyracks.storage.common.buffercache;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -33,6 +35,8 @@ public class AsyncFIFOPageQueueManager implements Runnable {
     protected AtomicBoolean poisoned = new AtomicBoolean(false);
     protected BufferCache bufferCache;
     volatile protected PageQueue pageQueue;
+    // only used by the writer thread
+    private final List<ICachedPage> writeRun = new ArrayList<>(BufferCache.MAX_WRITE_BATCH_PAGES);
 
     public AsyncFIFOPageQueueManager(BufferCache bufferCache){
         this.bufferCache = bufferCache;
@@ -58,6 +62,10 @@ public class AsyncFIFOPageQueueManager implements Runnable {
 
         @Override
         public void put(ICachedPage page) throws HyracksDataException {
+            IORateLimiter rateLimiter = IORateLimiter.getThreadRateLimiter();
+            if (rateLimiter != null) {
+                rateLimiter.acquire(page.getBuffer().capacity());
+            }
             try {
                 if(!poisoned.get()) {
                     queue.put(page);
@@ -164,11 +172,44 @@ public class AsyncFIFOPageQueueManager implements Runnable {
                     + BufferedFileHandle.getPageId(((CachedPage)entry).dpid));
 
             try {
-                pageQueue.getWriter().write(entry, bufferCache);
+                if (BufferCache.isBatchable(entry)) {
+                    writeRun(entry);
+                } else {
+                    pageQueue.getWriter().write(entry, bufferCache);
+                }
             } catch (HyracksDataException e) {
                 //TODO: What do we do, if we could not write the page?
                 e.printStackTrace();
             }
         }
     }
+
+    /**
+     * Writes the given page together with the pages queued right after it that directly follow it in the same file,
+     * so that a component written page by page is written back with few large writes.
+     * Only this thread takes pages off the queue, so the head that is peeked is the head that is polled.
+     */
+    private void writeRun(ICachedPage first) throws HyracksDataException {
+        writeRun.add(first);
+        try {
+            ICachedPage last = first;
+            while (writeRun.size() < BufferCache.MAX_WRITE_BATCH_PAGES) {
+                ICachedPage next = queue.peek();
+                if (next == null || next.getQueueInfo() != null || !BufferCache.isBatchable(next)
+                        || !BufferCache.isContiguous(last, next)) {
+                    break;
+                }
+                queue.poll();
+                writeRun.add(next);
+                last = next;
+            }
+            if (writeRun.size() == 1) {
+                pageQueue.getWriter().write(first, bufferCache);
+            } else {
+                pageQueue.getWriter().write(writeRun, bufferCache);
+            }
+        } finally {
+            writeRun.clear();
+        }
+    }
 }
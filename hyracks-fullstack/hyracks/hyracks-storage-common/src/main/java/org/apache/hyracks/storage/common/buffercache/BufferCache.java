@@ -18,10 +18,20 @@
  */
 package org.apache.hyracks.storage.common.buffercache;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -34,9 +44,13 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.function.Supplier;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -47,6 +61,9 @@ import org.apache.hyracks.api.io.IFileHandle;
 import org.apache.hyracks.api.io.IIOManager;
 import org.apache.hyracks.api.lifecycle.ILifeCycleComponent;
 import org.apache.hyracks.api.replication.IIOReplicationManager;
+import org.apache.hyracks.storage.common.arraylist.IntArrayList;
+import org.apache.hyracks.storage.common.compression.IPageCompressor;
+import org.apache.hyracks.storage.common.compression.LZ4PageCompressor;
 import org.apache.hyracks.storage.common.file.BufferedFileHandle;
 import org.apache.hyracks.storage.common.file.IFileMapManager;
 
@@ -58,7 +75,16 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
     private static final int MIN_CLEANED_COUNT_DIFF = 3;
     private static final int PIN_MAX_WAIT_TIME = 50;
     private static final int MAX_PIN_ATTEMPT_CYCLES = 3;
+    public static final int DEFAULT_MAX_READ_AHEAD_PAGES = 32;
+    private static final int MIN_READ_AHEAD_PAGES = 2;
+    // a single read-ahead never pins more than this fraction of the cache
+    private static final int READ_AHEAD_CACHE_FRACTION = 8;
+    // the largest run of contiguous dirty pages that is written back with a single write
+    public static final int MAX_WRITE_BATCH_PAGES = 32;
+    // counts the accesses to pages of files that are not tracked (anymore)
+    private static final BufferCacheStats UNTRACKED_FILE_STATS = new BufferCacheStats();
     public static final boolean DEBUG = false;
+    private static final int WARMUP_FILE_VERSION = 1;
 
     private final int pageSize;
     private final int maxOpenFiles;
@@ -72,6 +98,25 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
     private final Set<Integer> virtualFiles;
     private final AsyncFIFOPageQueueManager fifoWriter;
     private final Queue<BufferCacheHeaderHelper> headerPageCache = new ConcurrentLinkedQueue<>();
+    // pins of existing pages that found the page valid in the cache / had to read it from disk
+    private final LongAdder pageHits = new LongAdder();
+    private final LongAdder pageMisses = new LongAdder();
+    private final Map<Integer, SequentialReadAheadTracker> readAheadTrackers = new ConcurrentHashMap<>();
+    // buffers holding runs of pages with their headers, for read-ahead and batched write-back
+    private final Queue<ByteBuffer> blockBuffers = new ConcurrentLinkedQueue<>();
+    private volatile int maxReadAheadPages = DEFAULT_MAX_READ_AHEAD_PAGES;
+    private volatile IIOManager.FileReadWriteMode fileReadWriteMode = IIOManager.FileReadWriteMode.READ_WRITE;
+    private volatile boolean memoryMappedReads;
+    // immutable files whose missing pages are copied from a memory mapping instead of being read
+    private final Map<Integer, MappedFile> mappedFiles = new ConcurrentHashMap<>();
+    // open files whose pages are stored compressed, see PageLookasideTable
+    private final Map<Integer, PageLookasideTable> lookasideTables = new ConcurrentHashMap<>();
+    private final IPageCompressor pageCompressor = LZ4PageCompressor.INSTANCE;
+    // page access counters of the registered files that have been opened
+    private final Map<Integer, BufferCacheStats> fileStats = new ConcurrentHashMap<>();
+    private volatile File warmupFile;
+    // saved page ids by file path, of the files that have not been opened since the cache was created
+    private final Map<String, int[]> warmupPages = new ConcurrentHashMap<>();
 
     //DEBUG
     private ArrayList<CachedPage> confiscatedPages;
@@ -100,8 +145,8 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
         this.fileMapManager = fileMapManager;
 
         Executor executor = Executors.newCachedThreadPool(threadFactory);
-        fileInfoMap = new HashMap<>();
-        virtualFiles = new HashSet<>();
+        fileInfoMap = new ConcurrentHashMap<>();
+        virtualFiles = ConcurrentHashMap.newKeySet();
         cleanerThread = new CleanerThread();
         executor.execute(cleanerThread);
         closed = false;
@@ -133,11 +178,118 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
         return pageSize + RESERVED_HEADER_BYTES;
     }
 
+    /**
+     * @return the space that a page with its header takes in a file. For direct I/O, every page is stored in a slot
+     *         of whole blocks, so that the write of a page never has to read a block that it covers only partly.
+     */
+    private int getPageSlotSize() {
+        return getWriteLength(getPageSizeWithHeader());
+    }
+
+    /**
+     * @return the length of a write of the given length, which is rounded up to whole blocks for direct I/O
+     */
+    private int getWriteLength(int length) {
+        if (fileReadWriteMode != IIOManager.FileReadWriteMode.READ_WRITE_DIRECT) {
+            return length;
+        }
+        return alignUp(length);
+    }
+
+    private static int alignUp(int length) {
+        return (length + IIOManager.DIRECT_IO_ALIGNMENT - 1) & -IIOManager.DIRECT_IO_ALIGNMENT;
+    }
+
+    /**
+     * Zeroes the buffer from its position to the given position, which pads a write to whole blocks for direct I/O.
+     */
+    private static void pad(ByteBuffer buf, int end) {
+        Arrays.fill(buf.array(), buf.arrayOffset() + buf.position(), buf.arrayOffset() + end, (byte) 0);
+        buf.position(end);
+    }
+
     @Override
     public int getNumPages() {
         return pageReplacementStrategy.getMaxAllowedNumPages();
     }
 
+    /**
+     * Changes the number of pages the cache may hold at runtime. A larger cache allocates its additional pages on
+     * demand. A smaller cache releases its clean unpinned pages beyond the new size right away and the others when
+     * they are next chosen as victims. The page table keeps the size it was created with, so a cache that grows far
+     * beyond its initial size has longer hash chains.
+     */
+    public void setNumPages(int numPages) {
+        if (LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.info("Resizing buffer cache from " + getNumPages() + " to " + numPages + " pages");
+        }
+        pageReplacementStrategy.setMaxAllowedNumPages(numPages);
+    }
+
+    /**
+     * @return the number of pages that are currently allocated
+     */
+    public int getNumAllocatedPages() {
+        return pageReplacementStrategy.getNumPages();
+    }
+
+    public long getPageHitCount() {
+        return pageHits.sum();
+    }
+
+    public long getPageMissCount() {
+        return pageMisses.sum();
+    }
+
+    /**
+     * @return the fraction of pins of existing pages that did not have to read the page from disk
+     */
+    public double getPageHitRatio() {
+        long hits = pageHits.sum();
+        long total = hits + pageMisses.sum();
+        return total == 0 ? 0.0 : (double) hits / total;
+    }
+
+    public void resetPageHitCounters() {
+        pageHits.reset();
+        pageMisses.reset();
+    }
+
+    private BufferCacheStats getStats(long dpid) {
+        BufferCacheStats stats = fileStats.get(BufferedFileHandle.getFileId(dpid));
+        return stats != null ? stats : UNTRACKED_FILE_STATS;
+    }
+
+    /**
+     * @return the page access counters of the file, or null if the file has not been opened or has been deleted
+     */
+    public BufferCacheStats getFileStats(int fileId) {
+        return fileStats.get(fileId);
+    }
+
+    @Override
+    public BufferCacheStats getFileStats(String directory) {
+        String prefix = new File(directory).getAbsolutePath() + File.separator;
+        BufferCacheStats total = new BufferCacheStats();
+        for (Map.Entry<Integer, BufferCacheStats> entry : fileStats.entrySet()) {
+            String path = getFilePath(entry.getKey());
+            if (path != null && path.startsWith(prefix)) {
+                total.add(entry.getValue());
+            }
+        }
+        return total;
+    }
+
+    private String getFilePath(int fileId) {
+        try {
+            return fileMapManager.isMapped(fileId) ? fileMapManager.lookupFileName(fileId).getFile().getAbsolutePath()
+                    : null;
+        } catch (HyracksDataException e) {
+            // the file was unregistered concurrently
+            return null;
+        }
+    }
+
     private void pinSanityCheck(long dpid) throws HyracksDataException {
         if (closed) {
             throw new HyracksDataException("pin called on a closed cache");
@@ -145,10 +297,7 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
 
         // check whether file has been created and opened
         int fileId = BufferedFileHandle.getFileId(dpid);
-        BufferedFileHandle fInfo;
-        synchronized (fileInfoMap) {
-            fInfo = fileInfoMap.get(fileId);
-        }
+        BufferedFileHandle fInfo = fileInfoMap.get(fileId);
         if (fInfo == null && !virtualFiles.contains(fileId)) {
             throw new HyracksDataException("pin called on a fileId " + fileId + " that has not been created.");
         } else if (fInfo != null && fInfo.getReferenceCount() <= 0) {
@@ -159,13 +308,17 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
     @Override
     public ICachedPage tryPin(long dpid) throws HyracksDataException {
         // Calling the pinSanityCheck should be used only for debugging, since
-        // the synchronized block over the fileInfoMap is a hot spot.
+        // it adds two map lookups to every pin.
         if (DEBUG) {
             pinSanityCheck(dpid);
         }
-        CachedPage cPage = null;
         int hash = hash(dpid);
         CacheBucket bucket = pageMap[hash];
+        CachedPage cPage = bucket.optimisticPin(dpid);
+        if (cPage != null) {
+            pageReplacementStrategy.notifyCachePageAccess(cPage);
+            return cPage;
+        }
         bucket.bucketLock.lock();
         try {
             cPage = bucket.cachedPage;
@@ -186,11 +339,13 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
     @Override
     public ICachedPage pin(long dpid, boolean newPage) throws HyracksDataException {
         // Calling the pinSanityCheck should be used only for debugging, since
-        // the synchronized block over the fileInfoMap is a hot spot.
+        // it adds two map lookups to every pin.
         if (DEBUG) {
             pinSanityCheck(dpid);
         }
         CachedPage cPage = findPage(dpid);
+        BufferCacheStats stats = getStats(dpid);
+        stats.pinned();
         if (!newPage) {
             if (DEBUG) {
                 confiscateLock.lock();
@@ -206,14 +361,34 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
             }
             // Resolve race of multiple threads trying to read the page from
             // disk.
+            boolean sequentialCandidate;
             synchronized (cPage) {
+                awaitPendingReadAhead(cPage);
                 if (!cPage.valid) {
                     read(cPage);
                     cPage.valid = true;
+                    pageMisses.increment();
+                    stats.missed();
+                    sequentialCandidate = true;
+                } else {
+                    pageHits.increment();
+                    stats.hit();
+                    sequentialCandidate = cPage.readAhead;
+                    if (sequentialCandidate) {
+                        cPage.readAhead = false;
+                    }
                 }
             }
+            if (sequentialCandidate) {
+                scheduleReadAhead(dpid);
+            }
         } else {
-            cPage.valid = true;
+            synchronized (cPage) {
+                // a read-ahead of the page must not copy the old image over the new page while it is being filled
+                awaitPendingReadAhead(cPage);
+                cPage.valid = true;
+                cPage.readAhead = false;
+            }
         }
         pageReplacementStrategy.notifyCachePageAccess(cPage);
         if(DEBUG){
@@ -234,6 +409,11 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
              */
             int hash = hash(dpid);
             CacheBucket bucket = pageMap[hash];
+            // Resident pages are found without taking the bucket lock.
+            cPage = bucket.optimisticPin(dpid);
+            if (cPage != null) {
+                return cPage;
+            }
             bucket.bucketLock.lock();
             try {
                 cPage = bucket.cachedPage;
@@ -292,7 +472,7 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
                     /*
                      * Case 1.
                      */
-                    bucket.bucketLock.lock();
+                    bucket.lockForUpdate();
                     try {
                         if (!victim.pinCount.compareAndSet(0, 1)) {
                             continue;
@@ -329,7 +509,7 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
                         victim.next = bucket.cachedPage;
                         bucket.cachedPage = victim;
                     } finally {
-                        bucket.bucketLock.unlock();
+                        bucket.unlockForUpdate();
                     }
 
                     if(DEBUG) {
@@ -342,7 +522,7 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
                     /*
                      * Case 2a.
                      */
-                    bucket.bucketLock.lock();
+                    bucket.lockForUpdate();
                     try {
                         if (!victim.pinCount.compareAndSet(0, 1)) {
                             continue;
@@ -375,9 +555,10 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
                             }
                             cPage = cPage.next;
                         }
+                        getStats(victim.dpid).evicted();
                         victim.reset(dpid);
                     } finally {
-                        bucket.bucketLock.unlock();
+                        bucket.unlockForUpdate();
                     }
                     if(DEBUG) {
                         assert !victim.confiscated.get();
@@ -389,11 +570,11 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
                      */
                     CacheBucket victimBucket = pageMap[victimHash];
                     if (victimHash < hash) {
-                        victimBucket.bucketLock.lock();
-                        bucket.bucketLock.lock();
+                        victimBucket.lockForUpdate();
+                        bucket.lockForUpdate();
                     } else {
-                        bucket.bucketLock.lock();
-                        victimBucket.bucketLock.lock();
+                        bucket.lockForUpdate();
+                        victimBucket.lockForUpdate();
                     }
                     try {
                         if (!victim.pinCount.compareAndSet(0, 1)) {
@@ -434,12 +615,13 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
                             }
                             victimPrev.next = victim.next;
                         }
+                        getStats(victim.dpid).evicted();
                         victim.reset(dpid);
                         victim.next = bucket.cachedPage;
                         bucket.cachedPage = victim;
                     } finally {
-                        victimBucket.bucketLock.unlock();
-                        bucket.bucketLock.unlock();
+                        victimBucket.unlockForUpdate();
+                        bucket.unlockForUpdate();
                     }
                     if(DEBUG) {
                         assert !victim.confiscated.get();
@@ -462,6 +644,7 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
                 // just try to pin again immediately.
                 continue;
             }
+            getStats(dpid).waitedForDirtyPage();
             synchronized (cleanerThread.cleanNotification) {
                 try {
                     // it's OK to not loop on this wait, as we do not rely on any condition to be true on notify
@@ -484,8 +667,15 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
         buffer.append("Buffer cache state\n");
         buffer.append("Page Size: ").append(pageSize).append('\n');
         buffer.append("Number of physical pages: ").append(pageReplacementStrategy.getMaxAllowedNumPages())
-                .append('\n');
+                .append(", allocated: ").append(pageReplacementStrategy.getNumPages()).append('\n');
         buffer.append("Hash table size: ").append(pageMap.length).append('\n');
+        buffer.append("Page hits: ").append(getPageHitCount()).append(", page misses: ")
+                .append(getPageMissCount()).append(", hit ratio: ").append(getPageHitRatio()).append('\n');
+        buffer.append("File Stats:\n");
+        for (Map.Entry<Integer, BufferCacheStats> entry : fileStats.entrySet()) {
+            buffer.append("   ").append(entry.getKey()).append(" (").append(getFilePath(entry.getKey()))
+                    .append(") -> [").append(entry.getValue()).append("]\n");
+        }
         buffer.append("Page Map:\n");
         buffer.append("cpid -> [fileId:pageId, pinCount, valid/invalid, confiscated/physical, dirty/clean]");
         int nCachedPages = 0;
@@ -568,7 +758,17 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
     }
 
     private void read(CachedPage cPage) throws HyracksDataException {
+        getStats(cPage.dpid).read();
+        MappedFile mappedFile = mappedFiles.get(BufferedFileHandle.getFileId(cPage.dpid));
+        if (mappedFile != null && mappedFile.read(BufferedFileHandle.getPageId(cPage.dpid), cPage)) {
+            return;
+        }
         BufferedFileHandle fInfo = getFileInfo(cPage);
+        PageLookasideTable lookasideTable = lookasideTables.get(fInfo.getFileId());
+        if (lookasideTable != null) {
+            readCompressed(fInfo, lookasideTable, cPage);
+            return;
+        }
         cPage.buffer.clear();
         BufferCacheHeaderHelper header = checkoutHeaderHelper();
         try {
@@ -595,8 +795,507 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
         }
     }
 
+    /**
+     * Reads the image of a page of a compressed file and decompresses it into the cached page.
+     */
+    private void readCompressed(BufferedFileHandle fInfo, PageLookasideTable lookasideTable, CachedPage cPage)
+            throws HyracksDataException {
+        final int pageId = BufferedFileHandle.getPageId(cPage.dpid);
+        final long offset;
+        final int storedLength;
+        final int multiplier;
+        synchronized (lookasideTable) {
+            offset = lookasideTable.getOffset(pageId);
+            storedLength = lookasideTable.getStoredLength(pageId);
+            multiplier = lookasideTable.getFrameSizeMultiplier(pageId);
+        }
+        cPage.buffer.clear();
+        if (storedLength == 0) {
+            // like a read beyond the end of an uncompressed file
+            return;
+        }
+        final int readLength = Math.abs(storedLength);
+        final int imageLength = RESERVED_HEADER_BYTES + multiplier * pageSize;
+        ByteBuffer stored = checkoutBlockBuffer(readLength);
+        ByteBuffer image = storedLength < 0 ? stored : checkoutBlockBuffer(imageLength);
+        try {
+            stored.limit(readLength);
+            int bytesRead = ioManager.syncRead(fInfo.getFileHandle(), offset, stored);
+            if (bytesRead != readLength) {
+                throw new HyracksDataException("Failed to read a complete compressed page: " + bytesRead);
+            }
+            if (image != stored && pageCompressor.decompress(stored.array(), 0, readLength, image.array(), 0,
+                    imageLength) != imageLength) {
+                throw new HyracksDataException("Failed to decompress a complete page of file " + fInfo.getFileId());
+            }
+            image.limit(imageLength);
+            image.position(RESERVED_HEADER_BYTES);
+            cPage.setFrameSizeMultiplier(image.getInt(BufferCacheHeaderHelper.FRAME_MULTIPLIER_OFF));
+            cPage.setExtraBlockPageId(image.getInt(BufferCacheHeaderHelper.EXTRA_BLOCK_PAGE_ID_OFF));
+            if (multiplier > 1) {
+                pageReplacementStrategy.fixupCapacityOnLargeRead(cPage);
+            }
+            cPage.buffer.clear();
+            cPage.buffer.put(image);
+        } finally {
+            if (image != stored) {
+                returnBlockBuffer(image);
+            }
+            returnBlockBuffer(stored);
+        }
+    }
+
+    /**
+     * Compresses the images (the header followed by the page) of consecutive pages of a compressed file, appends
+     * them to the file with a single write and points the lookaside table entries of the pages to them. An image is
+     * never overwritten: a reader that looked up the previous image of a page can still read it, and after a crash
+     * the table only points to images that were made durable before their entries were written.
+     *
+     * @param images
+     *            the images of the pages, one after the other
+     * @param endPageId
+     *            the page id after the last page the images cover, including the extra block of a large page
+     */
+    private void writeCompressed(BufferedFileHandle fInfo, PageLookasideTable lookasideTable, ByteBuffer images,
+            int firstPageId, int count, int imageLength, int multiplier, int endPageId) throws HyracksDataException {
+        int maxLength = getWriteLength(count * pageCompressor.getMaxCompressedLength(imageLength));
+        ByteBuffer out = checkoutBlockBuffer(maxLength);
+        try {
+            int[] storedLengths = new int[count];
+            long[] offsets = new long[count];
+            int length = 0;
+            for (int i = 0; i < count; i++) {
+                int compressedLength = pageCompressor.compress(images.array(), i * imageLength, imageLength,
+                        out.array(), length);
+                if (compressedLength < imageLength) {
+                    storedLengths[i] = compressedLength;
+                } else {
+                    System.arraycopy(images.array(), i * imageLength, out.array(), length, imageLength);
+                    storedLengths[i] = -imageLength;
+                }
+                offsets[i] = length;
+                length += Math.abs(storedLengths[i]);
+            }
+            // for direct I/O, the run of images is padded to whole blocks, so the next run starts at a block
+            out.position(length);
+            length = getWriteLength(length);
+            pad(out, length);
+            out.flip();
+            long offset = lookasideTable.allocate(length);
+            long bytesWritten = ioManager.syncWrite(fInfo.getFileHandle(), offset, out);
+            if (bytesWritten != length) {
+                throw new HyracksDataException("Failed to write completely: " + bytesWritten);
+            }
+            for (int i = 0; i < count; i++) {
+                offsets[i] += offset;
+            }
+            ioManager.sync(fInfo.getFileHandle(), false);
+            lookasideTable.update(firstPageId, count, offsets, storedLengths, multiplier, endPageId);
+        } finally {
+            returnBlockBuffer(out);
+        }
+    }
+
+    /**
+     * Stores the pages of the open file compressed. Must be called before the first page of the file is written.
+     */
+    @Override
+    public void enablePageCompression(int fileId) throws HyracksDataException {
+        synchronized (fileInfoMap) {
+            BufferedFileHandle fInfo = getFileInfo(fileId);
+            if (lookasideTables.containsKey(fileId)) {
+                return;
+            }
+            if (ioManager.getSize(fInfo.getFileHandle()) > 0) {
+                throw new HyracksDataException("Cannot compress the pages of file " + fileId
+                        + ", which already has uncompressed pages");
+            }
+            lookasideTables.put(fileId,
+                    PageLookasideTable.create(ioManager, fileMapManager.lookupFileName(fileId), pageSize));
+        }
+    }
+
+    private void closeLookasideTable(int fileId) throws HyracksDataException {
+        PageLookasideTable lookasideTable = lookasideTables.remove(fileId);
+        if (lookasideTable != null) {
+            lookasideTable.close();
+        }
+    }
+
+    /**
+     * Sets whether files opened from now on bypass the operating system's page cache, so that pages are cached only
+     * once, in this buffer cache. The pages of files for direct I/O are stored in slots of whole blocks, so the
+     * setting must not change for existing files, like the page size.
+     */
+    public void setDirectIO(boolean directIO) {
+        this.fileReadWriteMode =
+                directIO ? IIOManager.FileReadWriteMode.READ_WRITE_DIRECT : IIOManager.FileReadWriteMode.READ_WRITE;
+    }
+
+    /**
+     * Sets whether pages of files that were marked immutable are copied from a read-only memory mapping of the file
+     * on a miss, instead of being read with a system call. Ignored for direct I/O, which bypasses the page cache that
+     * backs the mapping.
+     */
+    public void setMemoryMappedReads(boolean memoryMappedReads) {
+        this.memoryMappedReads = memoryMappedReads;
+    }
+
+    @Override
+    public void markImmutable(int fileId) throws HyracksDataException {
+        if (!memoryMappedReads || fileReadWriteMode == IIOManager.FileReadWriteMode.READ_WRITE_DIRECT) {
+            return;
+        }
+        BufferedFileHandle fInfo = fileInfoMap.get(fileId);
+        if (fInfo == null) {
+            // the file is not open, so there is nothing to map
+            return;
+        }
+        synchronized (fInfo) {
+            // the images of compressed pages are not at fixed offsets
+            if (!fInfo.fileHasBeenDeleted() && !mappedFiles.containsKey(fileId)
+                    && !lookasideTables.containsKey(fileId)) {
+                mappedFiles.put(fileId, new MappedFile(fInfo.getFileHandle()));
+            }
+        }
+    }
+
+    /**
+     * Releases the memory mapping of the file, if it has one.
+     */
+    private void unmapFile(int fileId) {
+        MappedFile mappedFile = mappedFiles.remove(fileId);
+        if (mappedFile != null) {
+            mappedFile.unmap();
+        }
+    }
+
+    /**
+     * Sets the maximum number of pages that are read ahead of a sequential reader of a file. 0 disables read-ahead.
+     */
+    public void setMaxReadAheadPages(int maxReadAheadPages) {
+        this.maxReadAheadPages = maxReadAheadPages;
+    }
+
+    /**
+     * Reports a miss, or the first hit of a page that was read ahead, to the file's read-ahead tracker and submits
+     * the read-ahead it asks for to the executor of the IO manager.
+     */
+    private void scheduleReadAhead(long dpid) {
+        final int maxWindow = Math.min(maxReadAheadPages, getNumPages() / READ_AHEAD_CACHE_FRACTION);
+        final Executor executor = ioManager.getExecutor();
+        if (maxWindow < MIN_READ_AHEAD_PAGES || executor == null) {
+            return;
+        }
+        final int fileId = BufferedFileHandle.getFileId(dpid);
+        if (mappedFiles.containsKey(fileId) || lookasideTables.containsKey(fileId)) {
+            // misses of a mapped file do not wait on the disk, compressed pages are read one at a time
+            return;
+        }
+        SequentialReadAheadTracker tracker = getReadAheadTracker(fileId, maxWindow);
+        final long range = tracker.access(BufferedFileHandle.getPageId(dpid));
+        if (range == SequentialReadAheadTracker.NO_READ_AHEAD) {
+            return;
+        }
+        final SequentialReadAheadTracker readAheadTracker = tracker;
+        try {
+            executor.execute(() -> readAhead(readAheadTracker, fileId,
+                    SequentialReadAheadTracker.getStartPageId(range), SequentialReadAheadTracker.getEndPageId(range)));
+        } catch (RejectedExecutionException e) {
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.log(Level.FINE, "Read-ahead rejected for file " + fileId, e);
+            }
+        }
+    }
+
+    private SequentialReadAheadTracker getReadAheadTracker(int fileId, int maxWindow) {
+        SequentialReadAheadTracker tracker = readAheadTrackers.get(fileId);
+        if (tracker == null) {
+            tracker = new SequentialReadAheadTracker(MIN_READ_AHEAD_PAGES, maxWindow);
+            SequentialReadAheadTracker existing = readAheadTrackers.putIfAbsent(fileId, tracker);
+            if (existing != null) {
+                tracker = existing;
+            }
+        }
+        return tracker;
+    }
+
+    /**
+     * Sets the file that the ids of the cached pages are saved to when the cache is closed or
+     * {@link #saveWarmupPages()} is called, and loads the page ids that were saved to it before. When a file whose
+     * pages were saved is opened, the pages are read in the background, the pages that were hot first.
+     */
+    public void setWarmupFile(File warmupFile) {
+        this.warmupFile = warmupFile;
+        warmupPages.clear();
+        if (!warmupFile.exists()) {
+            return;
+        }
+        int numPages = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(warmupFile)))) {
+            if (in.readInt() != WARMUP_FILE_VERSION) {
+                throw new IOException("Unknown version");
+            }
+            int numFiles = in.readInt();
+            for (int i = 0; i < numFiles; i++) {
+                String path = in.readUTF();
+                int[] pageIds = new int[in.readInt()];
+                for (int j = 0; j < pageIds.length; j++) {
+                    pageIds[j] = in.readInt();
+                }
+                warmupPages.put(path, pageIds);
+                numPages += pageIds.length;
+            }
+        } catch (IOException e) {
+            if (LOGGER.isLoggable(Level.WARNING)) {
+                LOGGER.log(Level.WARNING, "Ignoring unreadable buffer cache warm-up file " + warmupFile, e);
+            }
+            warmupPages.clear();
+            return;
+        }
+        if (LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.info("Loaded " + numPages + " pages of " + warmupPages.size() + " files to warm up the cache");
+        }
+    }
+
+    /**
+     * Saves the ids of the cached pages of all files to the warm-up file, if one was set. The pages of each file are
+     * saved in the order in which they will be prefetched: the pages the replacement strategy considers hot (e.g.
+     * interior B-tree pages and metadata pages), then the others, each by page id.
+     */
+    @Override
+    public void saveWarmupPages() throws HyracksDataException {
+        final File file = warmupFile;
+        if (file == null) {
+            return;
+        }
+        Map<Integer, IntArrayList> hotPages = new HashMap<>();
+        Map<Integer, IntArrayList> otherPages = new HashMap<>();
+        List<ICachedPageInternal> pages;
+        synchronized (cachedPages) {
+            pages = new ArrayList<>(cachedPages);
+        }
+        for (ICachedPageInternal page : pages) {
+            CachedPage cPage = (CachedPage) page;
+            long dpid = cPage == null ? -1 : cPage.dpid;
+            if (dpid < 0 || !cPage.valid || cPage.confiscated.get()
+                    || virtualFiles.contains(BufferedFileHandle.getFileId(dpid))) {
+                continue;
+            }
+            Map<Integer, IntArrayList> target = pageReplacementStrategy.isHot(cPage) ? hotPages : otherPages;
+            target.computeIfAbsent(BufferedFileHandle.getFileId(dpid), k -> new IntArrayList(64, 64))
+                    .add(BufferedFileHandle.getPageId(dpid));
+        }
+        Set<Integer> fileIds = new HashSet<>(hotPages.keySet());
+        fileIds.addAll(otherPages.keySet());
+        File tmpFile = new File(file.getPath() + ".tmp");
+        synchronized (warmupPages) {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+                List<String> paths = new ArrayList<>();
+                List<int[]> pageIds = new ArrayList<>();
+                for (Integer fileId : fileIds) {
+                    String path = getFilePath(fileId);
+                    if (path != null) {
+                        paths.add(path);
+                        pageIds.add(concatSorted(hotPages.get(fileId), otherPages.get(fileId)));
+                    }
+                }
+                out.writeInt(WARMUP_FILE_VERSION);
+                out.writeInt(paths.size());
+                for (int i = 0; i < paths.size(); i++) {
+                    out.writeUTF(paths.get(i));
+                    out.writeInt(pageIds.get(i).length);
+                    for (int pageId : pageIds.get(i)) {
+                        out.writeInt(pageId);
+                    }
+                }
+            } catch (IOException e) {
+                throw new HyracksDataException(e);
+            }
+            try {
+                Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                throw new HyracksDataException(e);
+            }
+        }
+    }
+
+    private static int[] concatSorted(IntArrayList first, IntArrayList second) {
+        int firstSize = first == null ? 0 : first.size();
+        int secondSize = second == null ? 0 : second.size();
+        int[] pageIds = new int[firstSize + secondSize];
+        for (int i = 0; i < firstSize; i++) {
+            pageIds[i] = first.get(i);
+        }
+        for (int i = 0; i < secondSize; i++) {
+            pageIds[firstSize + i] = second.get(i);
+        }
+        Arrays.sort(pageIds, 0, firstSize);
+        Arrays.sort(pageIds, firstSize, pageIds.length);
+        return pageIds;
+    }
+
+    /**
+     * Reads the saved pages of a file that was just opened, in the order they were saved. Each run of contiguous
+     * page ids is read like a read-ahead, so readers of the pages wait for it instead of reading them again.
+     */
+    private void scheduleWarmup(int fileId, int[] pageIds) {
+        final Executor executor = ioManager.getExecutor();
+        if (executor == null) {
+            return;
+        }
+        final int maxWindow = Math.max(MIN_READ_AHEAD_PAGES,
+                Math.min(maxReadAheadPages, getNumPages() / READ_AHEAD_CACHE_FRACTION));
+        final SequentialReadAheadTracker tracker = getReadAheadTracker(fileId, maxWindow);
+        try {
+            executor.execute(() -> {
+                int runStart = 0;
+                while (runStart < pageIds.length && !closed) {
+                    int runEnd = runStart + 1;
+                    while (runEnd < pageIds.length && runEnd - runStart < DEFAULT_MAX_READ_AHEAD_PAGES
+                            && pageIds[runEnd] == pageIds[runEnd - 1] + 1) {
+                        runEnd++;
+                    }
+                    readAhead(tracker, fileId, pageIds[runStart], pageIds[runEnd - 1] + 1);
+                    runStart = runEnd;
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.log(Level.FINE, "Warm-up rejected for file " + fileId, e);
+            }
+        }
+    }
+
+    // must be called while holding the page's monitor
+    private static void awaitPendingReadAhead(CachedPage cPage) {
+        try {
+            while (cPage.readAheadPending) {
+                cPage.wait();
+            }
+        } catch (InterruptedException e) {
+            // Re-interrupt the thread and read the page ourselves
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void readAhead(SequentialReadAheadTracker tracker, int fileId, int startPageId, int endPageId) {
+        if (!tracker.beginReadAhead()) {
+            return;
+        }
+        CachedPage[] pages = null;
+        try {
+            BufferedFileHandle fInfo = fileInfoMap.get(fileId);
+            if (closed || fInfo == null || fInfo.fileHasBeenDeleted() || fInfo.getReferenceCount() <= 0
+                    || lookasideTables.containsKey(fileId)) {
+                return;
+            }
+            int numFilePages = (int) (ioManager.getSize(fInfo.getFileHandle()) / getPageSlotSize());
+            endPageId = Math.min(endPageId, numFilePages);
+            if (endPageId <= startPageId) {
+                return;
+            }
+            // pin the pages that are not in the cache yet, readers of these pages wait until they are read
+            pages = new CachedPage[endPageId - startPageId];
+            for (int i = 0; i < pages.length; i++) {
+                CachedPage cPage = findPage(BufferedFileHandle.getDiskPageId(fileId, startPageId + i));
+                synchronized (cPage) {
+                    if (!cPage.valid && !cPage.readAheadPending) {
+                        cPage.readAheadPending = true;
+                        pages[i] = cPage;
+                    }
+                }
+                if (pages[i] == null) {
+                    cPage.pinCount.decrementAndGet();
+                }
+            }
+            // read each run of contiguous missing pages with a single read
+            int runStart = 0;
+            while (runStart < pages.length) {
+                if (pages[runStart] == null) {
+                    runStart++;
+                    continue;
+                }
+                int runEnd = runStart + 1;
+                while (runEnd < pages.length && pages[runEnd] != null) {
+                    runEnd++;
+                }
+                readAheadPages(fInfo, startPageId + runStart, pages, runStart, runEnd);
+                runStart = runEnd;
+            }
+        } catch (HyracksDataException e) {
+            if (LOGGER.isLoggable(Level.FINE)) {
+                LOGGER.log(Level.FINE, "Read-ahead failed for file " + fileId, e);
+            }
+        } finally {
+            if (pages != null) {
+                for (CachedPage cPage : pages) {
+                    if (cPage != null) {
+                        synchronized (cPage) {
+                            cPage.readAheadPending = false;
+                            cPage.notifyAll();
+                        }
+                        cPage.pinCount.decrementAndGet();
+                    }
+                }
+            }
+            tracker.endReadAhead();
+        }
+    }
+
+    private void readAheadPages(BufferedFileHandle fInfo, int firstPageId, CachedPage[] pages, int from, int to)
+            throws HyracksDataException {
+        final int slotSize = getPageSlotSize();
+        final int length = (to - from) * slotSize;
+        ByteBuffer buf = checkoutBlockBuffer(length);
+        try {
+            buf.limit(length);
+            int bytesRead = ioManager.syncRead(fInfo.getFileHandle(), getOffsetForPage(firstPageId), buf);
+            for (int i = from; i < to && (i - from + 1) * slotSize <= bytesRead; i++) {
+                CachedPage cPage = pages[i];
+                // a page that is latched is in use, which means that it does not need the image from disk anymore
+                boolean latched = cPage.latch.writeLock().tryLock();
+                try {
+                    synchronized (cPage) {
+                        // a reader may have read the page on its own in the meantime
+                        if (latched && !cPage.valid && BufferCacheHeaderHelper.copyFromBlock(buf,
+                                (i - from) * slotSize, cPage, pageSize)) {
+                            cPage.valid = true;
+                            cPage.readAhead = true;
+                            getStats(cPage.dpid).read();
+                        }
+                        cPage.readAheadPending = false;
+                        cPage.notifyAll();
+                    }
+                } finally {
+                    if (latched) {
+                        cPage.latch.writeLock().unlock();
+                    }
+                }
+            }
+        } finally {
+            returnBlockBuffer(buf);
+        }
+    }
+
+    /**
+     * Stops read-ahead on the file and waits for the running ones, so that the file's pages can be swept.
+     */
+    private void awaitReadAheads(int fileId) throws HyracksDataException {
+        SequentialReadAheadTracker tracker = readAheadTrackers.remove(fileId);
+        if (tracker != null) {
+            try {
+                tracker.disableAndAwait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new HyracksDataException(e);
+            }
+        }
+    }
+
     private long getOffsetForPage(long pageId) {
-        return pageId * getPageSizeWithHeader();
+        return pageId * getPageSlotSize();
     }
 
     @Override
@@ -610,13 +1309,11 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
     }
 
     BufferedFileHandle getFileInfo(int fileId) throws HyracksDataException {
-        synchronized (fileInfoMap) {
-            BufferedFileHandle fInfo = fileInfoMap.get(fileId);
-            if (fInfo == null) {
-                throw new HyracksDataException("No such file mapped");
-            }
-            return fInfo;
+        BufferedFileHandle fInfo = fileInfoMap.get(fileId);
+        if (fInfo == null) {
+            throw new HyracksDataException("No such file mapped");
         }
+        return fInfo;
     }
     private BufferCacheHeaderHelper checkoutHeaderHelper() {
         BufferCacheHeaderHelper helper = headerPageCache.poll();
@@ -630,39 +1327,193 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
         headerPageCache.offer(buffer);
     }
 
+    private ByteBuffer checkoutBlockBuffer(int length) {
+        ByteBuffer buf = blockBuffers.poll();
+        if (buf == null || buf.capacity() < length) {
+            buf = ByteBuffer.allocate(
+                    Math.max(Math.max(maxReadAheadPages, MAX_WRITE_BATCH_PAGES) * getPageSlotSize(), length));
+        }
+        buf.clear();
+        return buf;
+    }
+
+    private void returnBlockBuffer(ByteBuffer buf) {
+        blockBuffers.offer(buf);
+    }
+
+    /**
+     * @return true if the page can be written back as part of a run of pages, i.e. it is not a large page
+     */
+    static boolean isBatchable(ICachedPage page) {
+        return page.getFrameSizeMultiplier() == 1;
+    }
+
+    /**
+     * @return true if the second page directly follows the first one in the same file
+     */
+    static boolean isContiguous(ICachedPage first, ICachedPage second) {
+        long dpid = ((CachedPage) first).dpid;
+        long nextDpid = ((CachedPage) second).dpid;
+        return BufferedFileHandle.getFileId(dpid) == BufferedFileHandle.getFileId(nextDpid)
+                && BufferedFileHandle.getPageId(dpid) + 1 == BufferedFileHandle.getPageId(nextDpid);
+    }
+
+    /**
+     * Writes a run of regular sized pages of one file with contiguous page ids. The pages are copied with their
+     * headers into one buffer, which is written with a single positional write.
+     */
+    void write(List<? extends ICachedPage> pages) throws HyracksDataException {
+        CachedPage first = (CachedPage) pages.get(0);
+        BufferedFileHandle fInfo = getFileInfo(first);
+        // synchronize on fInfo to prevent the file handle from being deleted until the pages are written.
+        synchronized (fInfo) {
+            if (fInfo.fileHasBeenDeleted()) {
+                return;
+            }
+            PageLookasideTable lookasideTable = lookasideTables.get(fInfo.getFileId());
+            // the images of compressed pages are compressed from the pages with their headers, without padding
+            final int stride = lookasideTable != null ? getPageSizeWithHeader() : getPageSlotSize();
+            final int length = pages.size() * stride;
+            ByteBuffer buf = checkoutBlockBuffer(length);
+            try {
+                for (int i = 0; i < pages.size(); i++) {
+                    CachedPage cPage = (CachedPage) pages.get(i);
+                    assert isBatchable(cPage) && (i == 0 || isContiguous(pages.get(i - 1), cPage));
+                    BufferCacheHeaderHelper.putPage(buf, cPage, pageSize);
+                    pad(buf, (i + 1) * stride);
+                }
+                buf.flip();
+                final int firstPageId = BufferedFileHandle.getPageId(first.dpid);
+                if (lookasideTable != null) {
+                    writeCompressed(fInfo, lookasideTable, buf, firstPageId, pages.size(), getPageSizeWithHeader(),
+                            1, firstPageId + pages.size());
+                } else {
+                    long bytesWritten = ioManager.syncWrite(fInfo.getFileHandle(), getOffsetForPage(firstPageId),
+                            buf);
+                    if (bytesWritten != length) {
+                        throw new HyracksDataException("Failed to write completely: " + bytesWritten);
+                    }
+                }
+                getStats(first.dpid).written(pages.size());
+            } finally {
+                returnBlockBuffer(buf);
+            }
+        }
+    }
+
     void write(CachedPage cPage) throws HyracksDataException {
         BufferedFileHandle fInfo = getFileInfo(cPage);
         // synchronize on fInfo to prevent the file handle from being deleted until the page is written.
         synchronized (fInfo) {
-            if (!fInfo.fileHasBeenDeleted()) {
-                ByteBuffer buf = cPage.buffer.duplicate();
+            PageLookasideTable lookasideTable = lookasideTables.get(fInfo.getFileId());
+            if (lookasideTable != null && isBatchable(cPage)) {
+                // the image of a page is compressed from a copy of the page with its header
+                write(Collections.singletonList(cPage));
+            } else if (lookasideTable != null && !fInfo.fileHasBeenDeleted()) {
+                writeCompressedLargePage(fInfo, lookasideTable, cPage);
+            } else if (!fInfo.fileHasBeenDeleted()) {
                 final int totalPages = cPage.getFrameSizeMultiplier();
                 final int extraBlockPageId = cPage.getExtraBlockPageId();
                 final boolean contiguousLargePages = (BufferedFileHandle.getPageId(cPage.dpid) + 1) == extraBlockPageId;
-                BufferCacheHeaderHelper header = checkoutHeaderHelper();
+                final int slotSize = getPageSlotSize();
+                // the extra block of a contiguous large page starts in the slot of the next page
+                final int length =
+                        contiguousLargePages ? slotSize + getWriteLength((totalPages - 1) * pageSize) : slotSize;
+                // the header is copied in front of the page, so that both are written with a single write
+                BufferCacheHeaderHelper header = contiguousLargePages ? null : checkoutHeaderHelper();
+                ByteBuffer buf =
+                        contiguousLargePages ? checkoutBlockBuffer(length) : header.prepareWrite(cPage, slotSize);
                 try {
-                    buf.limit(contiguousLargePages ? pageSize * totalPages : pageSize);
-                    buf.position(0);
+                    if (contiguousLargePages) {
+                        BufferCacheHeaderHelper.putPage(buf, cPage, pageSize);
+                        pad(buf, slotSize);
+                        buf.put(getExtraBlock(cPage));
+                        pad(buf, length);
+                        buf.flip();
+                    }
                     long bytesWritten = ioManager.syncWrite(fInfo.getFileHandle(),
-                            getOffsetForPage(BufferedFileHandle.getPageId(cPage.dpid)),
-                            header.prepareWrite(cPage, buf));
-
-                    if (bytesWritten !=
-                            (contiguousLargePages ? pageSize * (totalPages - 1) : 0) + getPageSizeWithHeader()) {
+                            getOffsetForPage(BufferedFileHandle.getPageId(cPage.dpid)), buf);
+                    if (bytesWritten != length) {
                         throw new HyracksDataException("Failed to write completely: " + bytesWritten);
                     }
                 } finally {
-                    returnHeaderHelper(header);
+                    if (contiguousLargePages) {
+                        returnBlockBuffer(buf);
+                    } else {
+                        returnHeaderHelper(header);
+                    }
                 }
                 if (totalPages > 1 && !contiguousLargePages) {
-                    buf.limit(totalPages * pageSize);
-                    ioManager.syncWrite(fInfo.getFileHandle(), getOffsetForPage(extraBlockPageId), buf);
+                    writeExtraBlock(fInfo, cPage);
                 }
-                assert buf.capacity() == (pageSize * totalPages);
+                getStats(cPage.dpid).written(1);
+                assert cPage.buffer.capacity() == (pageSize * totalPages);
             }
         }
     }
 
+    /**
+     * @return the pages of a large page after the first one, which are stored in the extra block of the large page
+     */
+    private ByteBuffer getExtraBlock(CachedPage cPage) {
+        ByteBuffer extraBlock = cPage.buffer.duplicate();
+        extraBlock.limit(cPage.getFrameSizeMultiplier() * pageSize);
+        extraBlock.position(pageSize);
+        return extraBlock;
+    }
+
+    /**
+     * Writes the extra block of a large page that is not stored after its first page. For direct I/O, the extra
+     * block is copied into a block buffer and padded to whole blocks.
+     */
+    private void writeExtraBlock(BufferedFileHandle fInfo, CachedPage cPage) throws HyracksDataException {
+        ByteBuffer extraBlock = getExtraBlock(cPage);
+        final int length = getWriteLength(extraBlock.remaining());
+        ByteBuffer buf = length != extraBlock.remaining() ? checkoutBlockBuffer(length) : null;
+        try {
+            if (buf != null) {
+                buf.put(extraBlock);
+                pad(buf, length);
+                buf.flip();
+            }
+            long bytesWritten = ioManager.syncWrite(fInfo.getFileHandle(),
+                    getOffsetForPage(cPage.getExtraBlockPageId()), buf != null ? buf : extraBlock);
+            if (bytesWritten != length) {
+                throw new HyracksDataException("Failed to write completely: " + bytesWritten);
+            }
+        } finally {
+            if (buf != null) {
+                returnBlockBuffer(buf);
+            }
+        }
+    }
+
+    /**
+     * Writes a large page of a compressed file, including its extra block, as a single image.
+     */
+    private void writeCompressedLargePage(BufferedFileHandle fInfo, PageLookasideTable lookasideTable,
+            CachedPage cPage) throws HyracksDataException {
+        final int totalPages = cPage.getFrameSizeMultiplier();
+        final int imageLength = RESERVED_HEADER_BYTES + totalPages * pageSize;
+        final int pageId = BufferedFileHandle.getPageId(cPage.dpid);
+        ByteBuffer image = checkoutBlockBuffer(imageLength);
+        try {
+            image.putInt(BufferCacheHeaderHelper.FRAME_MULTIPLIER_OFF, totalPages);
+            image.putInt(BufferCacheHeaderHelper.EXTRA_BLOCK_PAGE_ID_OFF, cPage.getExtraBlockPageId());
+            image.position(RESERVED_HEADER_BYTES);
+            ByteBuffer page = cPage.buffer.duplicate();
+            page.limit(totalPages * pageSize);
+            page.position(0);
+            image.put(page);
+            image.flip();
+            writeCompressed(fInfo, lookasideTable, image, pageId, 1, imageLength, totalPages,
+                    Math.max(pageId + 1, cPage.getExtraBlockPageId() + totalPages - 1));
+            getStats(cPage.dpid).written(1);
+        } finally {
+            returnBlockBuffer(image);
+        }
+    }
+
     @Override
     public void unpin(ICachedPage page) throws HyracksDataException {
         if (closed) {
@@ -680,13 +1531,62 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
         return hashValue % pageMap.length;
     }
 
+    /**
+     * A hash bucket of the page map. Lookups of resident pages go through {@link #optimisticPin(long)} and do not
+     * take the bucket lock. Any thread that links, unlinks or re-purposes a page of the bucket must hold the lock
+     * through {@link #lockForUpdate()} so that concurrent optimistic readers can detect the change and retry under
+     * the lock.
+     */
     private static class CacheBucket {
         private final Lock bucketLock;
-        private CachedPage cachedPage;
+        // even while the bucket is stable, odd while a writer holds the bucket for update
+        private volatile int version;
+        private volatile CachedPage cachedPage;
 
         public CacheBucket() {
             bucketLock = new ReentrantLock();
         }
+
+        private void lockForUpdate() {
+            bucketLock.lock();
+            // only the lock holder writes the version
+            version++;
+        }
+
+        private void unlockForUpdate() {
+            version++;
+            bucketLock.unlock();
+        }
+
+        /**
+         * Pins the page with the given dpid if it is resident and the bucket was not modified during the lookup.
+         * The version is re-read after the pin is taken: a writer bumps the version before it tries to claim a
+         * victim with pinCount.compareAndSet(0, 1), so it either sees our pin or we see its update.
+         *
+         * @return the pinned page, or null if the page was not found or a concurrent update was detected
+         */
+        private CachedPage optimisticPin(long dpid) {
+            final int startVersion = version;
+            if ((startVersion & 1) != 0) {
+                return null;
+            }
+            CachedPage cPage = cachedPage;
+            while (cPage != null) {
+                if (cPage.dpid == dpid) {
+                    cPage.pinCount.incrementAndGet();
+                    if (version == startVersion && cPage.dpid == dpid) {
+                        return cPage;
+                    }
+                    cPage.pinCount.decrementAndGet();
+                    return null;
+                }
+                if (version != startVersion) {
+                    return null;
+                }
+                cPage = cPage.next;
+            }
+            return null;
+        }
     }
 
     @Override
@@ -705,6 +1605,9 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
         // Used to implement wait-for-cleanerthread heuristic optimizations.
         // A waiter can detect whether pages have been cleaned.
         private volatile int cleanedCount = 0;
+        // dirty pages found by a clean cycle, and the run of contiguous pages that is being written back
+        private final List<DirtyPage> dirtyPages = new ArrayList<>();
+        private final List<CachedPage> writeRun = new ArrayList<>(MAX_WRITE_BATCH_PAGES);
 
         public void cleanPage(CachedPage cPage, boolean force) {
             if (cPage.dirty.get() && !cPage.confiscated.get()) {
@@ -737,21 +1640,89 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
             if (!cPage.dirty.get()) {
                 return;
             }
-            boolean cleaned = true;
             try {
                 write(cPage);
             } catch (HyracksDataException e) {
                 LOGGER.log(Level.WARNING, "Unable to write dirty page", e);
-                cleaned = false;
+                return;
             }
-            if (cleaned) {
-                cPage.dirty.set(false);
-                cPage.pinCount.decrementAndGet();
-                // this increment of a volatile is OK as there is only one writer
-                cleanedCount++;
-                synchronized (cleanNotification) {
-                    cleanNotification.notifyAll();
+            cPage.dirty.set(false);
+            cPage.pinCount.decrementAndGet();
+            notifyCleaned(1);
+        }
+
+        private void notifyCleaned(int count) {
+            // this increment of a volatile is OK as there is only one writer
+            cleanedCount += count;
+            synchronized (cleanNotification) {
+                cleanNotification.notifyAll();
+            }
+        }
+
+        /**
+         * Writes back the dirty pages found by a clean cycle in page id order, so that runs of contiguous pages of a
+         * file are written with a single write. Like {@link #cleanPage(CachedPage, boolean)} without force, pages
+         * whose read latch is not immediately available are skipped.
+         */
+        private void cleanPages() {
+            Collections.sort(dirtyPages);
+            try {
+                for (DirtyPage dirtyPage : dirtyPages) {
+                    CachedPage cPage = dirtyPage.cPage;
+                    if (!cPage.latch.readLock().tryLock()) {
+                        if (shutdownStart) {
+                            throw new IllegalStateException(
+                                    "Cache closed, but unable to acquire read lock on dirty page: " + cPage.dpid);
+                        }
+                        continue;
+                    }
+                    // the page may have been cleaned and reused since it was found
+                    if (!cPage.dirty.get() || cPage.confiscated.get() || cPage.dpid != dirtyPage.dpid) {
+                        cPage.latch.readLock().unlock();
+                        continue;
+                    }
+                    if (!isBatchable(cPage)) {
+                        try {
+                            cleanPageLocked(cPage);
+                        } finally {
+                            cPage.latch.readLock().unlock();
+                        }
+                        continue;
+                    }
+                    if (!writeRun.isEmpty() && (writeRun.size() == MAX_WRITE_BATCH_PAGES
+                            || !isContiguous(writeRun.get(writeRun.size() - 1), cPage))) {
+                        writeRun();
+                    }
+                    writeRun.add(cPage);
+                }
+                writeRun();
+            } finally {
+                for (CachedPage cPage : writeRun) {
+                    cPage.latch.readLock().unlock();
+                }
+                writeRun.clear();
+                dirtyPages.clear();
+            }
+        }
+
+        private void writeRun() {
+            if (writeRun.isEmpty()) {
+                return;
+            }
+            try {
+                write(writeRun);
+                for (CachedPage cPage : writeRun) {
+                    cPage.dirty.set(false);
+                    cPage.pinCount.decrementAndGet();
+                }
+                notifyCleaned(writeRun.size());
+            } catch (HyracksDataException e) {
+                LOGGER.log(Level.WARNING, "Unable to write dirty pages", e);
+            } finally {
+                for (CachedPage cPage : writeRun) {
+                    cPage.latch.readLock().unlock();
                 }
+                writeRun.clear();
             }
         }
 
@@ -781,20 +1752,100 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
                         break;
                     }
                     CachedPage cPage = (CachedPage) cachedPages.get(curPage);
-                    if (cPage != null) {
-                        cleanPage(cPage, false);
+                    if (cPage != null && cPage.dirty.get() && !cPage.confiscated.get()) {
+                        dirtyPages.add(new DirtyPage(cPage));
                     }
                 }
                 curPage++;
             }
+            cleanPages();
             if (!shutdownStart) {
                 pageCleanerPolicy.notifyCleanCycleFinish(threadLock);
             }
         }
     }
 
+    /**
+     * A read-only memory mapping of an immutable file. Files can be larger than a single mapping, so the file is
+     * mapped in regions of whole pages. The mapping is released when the file is swept, once no read is copying from
+     * it anymore; reads that come later fall back to reading the page.
+     */
+    private class MappedFile {
+        private final int pagesPerRegion;
+        private final int numPages;
+        private final ByteBuffer[] regions;
+        // reads copy from the regions under the read lock, unmap() releases them under the write lock
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private boolean unmapped;
+
+        private MappedFile(IFileHandle fileHandle) throws HyracksDataException {
+            final int slotSize = getPageSlotSize();
+            pagesPerRegion = Integer.MAX_VALUE / slotSize;
+            numPages = (int) (ioManager.getSize(fileHandle) / slotSize);
+            regions = new ByteBuffer[(numPages + pagesPerRegion - 1) / pagesPerRegion];
+            for (int i = 0; i < regions.length; i++) {
+                int regionPages = Math.min(pagesPerRegion, numPages - i * pagesPerRegion);
+                regions[i] = ioManager.map(fileHandle, getOffsetForPage((long) i * pagesPerRegion),
+                        (long) regionPages * slotSize);
+            }
+        }
+
+        /**
+         * @return false if the page is beyond the mapped part of the file or a large page, which has to be read, or
+         *         if the file is being unmapped
+         */
+        private boolean read(int pageId, CachedPage cPage) {
+            if (pageId < 0 || pageId >= numPages || !lock.readLock().tryLock()) {
+                return false;
+            }
+            try {
+                return !unmapped && BufferCacheHeaderHelper.copyFromBlock(regions[pageId / pagesPerRegion],
+                        (pageId % pagesPerRegion) * getPageSlotSize(), cPage, pageSize);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private void unmap() {
+            lock.writeLock().lock();
+            try {
+                unmapped = true;
+                for (ByteBuffer region : regions) {
+                    ioManager.unmap(region);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * A dirty page found by the cleaner, with the disk page id it had at that time.
+     */
+    private static class DirtyPage implements Comparable<DirtyPage> {
+        private final CachedPage cPage;
+        private final long dpid;
+
+        private DirtyPage(CachedPage cPage) {
+            this.cPage = cPage;
+            this.dpid = cPage.dpid;
+        }
+
+        @Override
+        public int compareTo(DirtyPage o) {
+            return Long.compare(dpid, o.dpid);
+        }
+    }
+
     @Override
     public void close() {
+        try {
+            saveWarmupPages();
+        } catch (HyracksDataException e) {
+            if (LOGGER.isLoggable(Level.WARNING)) {
+                LOGGER.log(Level.WARNING, "Failed to save the buffer cache warm-up pages", e);
+            }
+        }
         closed = true;
         fifoWriter.destroyQueue();
         try {
@@ -817,6 +1868,7 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
                     if (!fileHasBeenDeleted) {
                         ioManager.close(entry.getValue().getFileHandle());
                     }
+                    closeLookasideTable(entry.getKey());
                 } catch (HyracksDataException e) {
                     if (LOGGER.isLoggable(Level.WARNING)) {
                         LOGGER.log(Level.WARNING, "Error flushing file id: " + entry.getKey(), e);
@@ -846,9 +1898,7 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
         synchronized (fileInfoMap) {
             fileId = fileMapManager.registerMemoryFile();
         }
-        synchronized (virtualFiles) {
-            virtualFiles.add(fileId);
-        }
+        virtualFiles.add(fileId);
         return fileId;
 
     }
@@ -875,6 +1925,7 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
                             if (!fileHasBeenDeleted) {
                                 ioManager.close(entry.getValue().getFileHandle());
                             }
+                            closeLookasideTable(entryFileId);
                             fileInfoMap.remove(entryFileId);
                             unreferencedFileFound = true;
                             // for-each iterator is invalid because we changed
@@ -891,18 +1942,38 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
 
                 // create, open, and map new file reference
                 FileReference fileRef = fileMapManager.lookupFileName(fileId);
-                IFileHandle fh = ioManager.open(fileRef, IIOManager.FileReadWriteMode.READ_WRITE,
+                IFileHandle fh = ioManager.open(fileRef, fileReadWriteMode,
                         IIOManager.FileSyncMode.METADATA_ASYNC_DATA_ASYNC);
+                PageLookasideTable lookasideTable;
+                try {
+                    lookasideTable = PageLookasideTable.open(ioManager, fileRef, fh, pageSize);
+                } catch (HyracksDataException e) {
+                    ioManager.close(fh);
+                    throw e;
+                }
+                if (lookasideTable != null) {
+                    lookasideTables.put(fileId, lookasideTable);
+                }
                 fInfo = new BufferedFileHandle(fileId, fh);
                 fileInfoMap.put(fileId, fInfo);
+                fileStats.putIfAbsent(fileId, new BufferCacheStats());
+                fInfo.incReferenceCount();
+                int[] pageIds = warmupPages.isEmpty() ? null
+                        : warmupPages.remove(fileRef.getFile().getAbsolutePath());
+                if (pageIds != null) {
+                    scheduleWarmup(fileId, pageIds);
+                }
+            } else {
+                fInfo.incReferenceCount();
             }
-            fInfo.incReferenceCount();
         }
     }
 
     private void sweepAndFlush(int fileId, boolean flushDirtyPages) throws HyracksDataException {
+        awaitReadAheads(fileId);
+        unmapFile(fileId);
         for (final CacheBucket bucket : pageMap) {
-            bucket.bucketLock.lock();
+            bucket.lockForUpdate();
             try {
                 CachedPage prev = bucket.cachedPage;
                 while (prev != null) {
@@ -926,7 +1997,7 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
                     }
                 }
             } finally {
-                bucket.bucketLock.unlock();
+                bucket.unlockForUpdate();
             }
         }
     }
@@ -987,11 +2058,13 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
 
     @Override
     public void force(int fileId, boolean metadata) throws HyracksDataException {
-        BufferedFileHandle fInfo;
-        synchronized (fileInfoMap) {
-            fInfo = fileInfoMap.get(fileId);
-        }
+        BufferedFileHandle fInfo = fileInfoMap.get(fileId);
         ioManager.sync(fInfo.getFileHandle(), metadata);
+        // the lookaside table entries are made durable after the page images they point to
+        PageLookasideTable lookasideTable = lookasideTables.get(fileId);
+        if (lookasideTable != null) {
+            lookasideTable.force(metadata);
+        }
     }
 
     @Override
@@ -1009,6 +2082,7 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
                 }
             } finally {
                 fileMapManager.unregisterFile(fileId);
+                fileStats.remove(fileId);
                 if (fInfo != null) {
                     // Mark the fInfo as deleted,
                     // such that when its pages are reclaimed in openFile(),
@@ -1016,6 +2090,7 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
                     synchronized (fInfo) {
                         if (!fInfo.fileHasBeenDeleted()) {
                             ioManager.close(fInfo.getFileHandle());
+                            closeLookasideTable(fileId);
                             fInfo.markAsDeleted();
                         }
                     }
@@ -1026,13 +2101,11 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
 
     @Override
     public synchronized int getFileReferenceCount(int fileId) {
-        synchronized (fileInfoMap) {
-            BufferedFileHandle fInfo = fileInfoMap.get(fileId);
-            if (fInfo != null) {
-                return fInfo.getReferenceCount();
-            } else {
-                return 0;
-            }
+        BufferedFileHandle fInfo = fileInfoMap.get(fileId);
+        if (fInfo != null) {
+            return fInfo.getReferenceCount();
+        } else {
+            return 0;
         }
     }
 
@@ -1042,9 +2115,7 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
         if (LOGGER.isLoggable(Level.INFO)) {
             LOGGER.info("Deleting memory file: " + fileId + " in cache: " + this);
         }
-        synchronized (virtualFiles) {
-            virtualFiles.remove(fileId);
-        }
+        virtualFiles.remove(fileId);
         synchronized (fileInfoMap) {
             fileMapManager.unregisterMemFile(fileId);
         }
@@ -1097,7 +2168,7 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
             // Case 2a/b
             int pageHash = hash(victim.dpid);
             CacheBucket bucket = pageMap[pageHash];
-            bucket.bucketLock.lock();
+            bucket.lockForUpdate();
             try {
                 if (!victim.pinCount.compareAndSet(0, 1)) {
                     return false;
@@ -1108,6 +2179,7 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
                     victim.pinCount.decrementAndGet();
                     return false;
                 }
+                getStats(victim.dpid).evicted();
                 // readjust the next pointers to remove this page from
                 // the pagemap
                 CachedPage curr = bucket.cachedPage;
@@ -1146,7 +2218,7 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
                 }
                 assert found;
             } finally {
-                bucket.bucketLock.unlock();
+                bucket.unlockForUpdate();
             }
         }
         synchronized (cachedPages) {
@@ -1170,10 +2242,14 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
             if (fInfo == null) {
                 throw new HyracksDataException("No such file mapped for fileId:" + fileId);
             }
+            PageLookasideTable lookasideTable = lookasideTables.get(fileId);
+            if (lookasideTable != null) {
+                return lookasideTable.getNumPages();
+            }
             if(DEBUG) {
-                assert ioManager.getSize(fInfo.getFileHandle()) % getPageSizeWithHeader() == 0;
+                assert ioManager.getSize(fInfo.getFileHandle()) % getPageSlotSize() == 0;
             }
-            return (int) (ioManager.getSize(fInfo.getFileHandle()) / getPageSizeWithHeader());
+            return (int) (ioManager.getSize(fInfo.getFileHandle()) / getPageSlotSize());
         }
     }
 
@@ -1223,7 +2299,7 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
                     // Case 2a/b
                     int pageHash = hash(victim.getDiskPageId());
                     CacheBucket bucket = pageMap[pageHash];
-                    bucket.bucketLock.lock();
+                    bucket.lockForUpdate();
                     try {
                         // readjust the next pointers to remove this page from
                         // the pagemap
@@ -1265,11 +2341,12 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
                             curr = curr.next;
                         }
                         if (found) {
+                            getStats(victim.dpid).evicted();
                             returnPage = victim;
                             ((CachedPage) returnPage).dpid = dpid;
                         } //otherwise, someone took the same victim before we acquired the lock. try again!
                     } finally {
-                        bucket.bucketLock.unlock();
+                        bucket.unlockForUpdate();
                     }
                 }
             }
@@ -1336,7 +2413,7 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
         if (reinsert) {
             int hash = hash(cPage.dpid);
             bucket = pageMap[hash];
-            bucket.bucketLock.lock();
+            bucket.lockForUpdate();
             if(DEBUG) {
                 confiscateLock.lock();
             }
@@ -1354,7 +2431,7 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
                     confiscatedPagesOwner.remove(cPage);
                 }
             } finally {
-                bucket.bucketLock.unlock();
+                bucket.unlockForUpdate();
                 if(DEBUG) {
                     confiscateLock.unlock();
                 }
@@ -1420,11 +2497,15 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
      */
     public void purgeHandle(int fileId) throws HyracksDataException{
         synchronized(fileInfoMap){
+                awaitReadAheads(fileId);
+                unmapFile(fileId);
                 BufferedFileHandle fh = fileInfoMap.get(fileId);
                 if(fh != null){
                     ioManager.close(fh.getFileHandle());
+                    closeLookasideTable(fileId);
                     fileInfoMap.remove(fileId);
                     fileMapManager.unregisterFile(fileId);
+                    fileStats.remove(fileId);
                 }
         }
     }
@@ -1433,29 +2514,69 @@ public class BufferCache implements IBufferCacheInternal, ILifeCycleComponent {
         private static final int FRAME_MULTIPLIER_OFF = 0;
         private static final int EXTRA_BLOCK_PAGE_ID_OFF = FRAME_MULTIPLIER_OFF + 4;  // 4
 
+        private final int pageSize;
         private final ByteBuffer buf;
-        private final ByteBuffer [] array;
 
         private BufferCacheHeaderHelper(int pageSize) {
-            buf = ByteBuffer.allocate(RESERVED_HEADER_BYTES + pageSize);
-            array = new ByteBuffer[] { buf, null };
+            this.pageSize = pageSize;
+            // with room for the padding of a page slot for direct I/O
+            buf = ByteBuffer.allocate(alignUp(RESERVED_HEADER_BYTES + pageSize));
+        }
+
+        /**
+         * Copies the header and the content of a regular sized page, or of the first page of a large page, into the
+         * buffer of the helper and pads them to the given slot size.
+         */
+        private ByteBuffer prepareWrite(CachedPage cPage, int slotSize) {
+            buf.clear();
+            putPage(buf, cPage, pageSize);
+            pad(buf, slotSize);
+            buf.flip();
+            return buf;
         }
 
-        private ByteBuffer[] prepareWrite(CachedPage cPage, ByteBuffer pageBuffer) {
-            buf.position(0);
-            buf.limit(RESERVED_HEADER_BYTES);
-            buf.putInt(FRAME_MULTIPLIER_OFF, cPage.getFrameSizeMultiplier());
-            buf.putInt(EXTRA_BLOCK_PAGE_ID_OFF, cPage.getExtraBlockPageId());
-            array[1] = pageBuffer;
-            return array;
+        /**
+         * Appends the header and the first length bytes of the page to a block of pages.
+         */
+        private static void putPage(ByteBuffer dst, CachedPage cPage, int length) {
+            int headerStart = dst.position();
+            dst.putInt(headerStart + FRAME_MULTIPLIER_OFF, cPage.getFrameSizeMultiplier());
+            dst.putInt(headerStart + EXTRA_BLOCK_PAGE_ID_OFF, cPage.getExtraBlockPageId());
+            dst.position(headerStart + RESERVED_HEADER_BYTES);
+            ByteBuffer page = cPage.buffer.duplicate();
+            page.limit(length);
+            page.position(0);
+            dst.put(page);
         }
 
         private ByteBuffer prepareRead() {
             buf.position(0);
-            buf.limit(buf.capacity());
+            buf.limit(RESERVED_HEADER_BYTES + pageSize);
             return buf;
         }
 
+        /**
+         * Copies a page out of a block of pages stored with their headers, i.e. a block that was read ahead or a
+         * memory mapped file, into the cached page.
+         *
+         * @return false if the page is a large page, which is only read on demand
+         */
+        private static boolean copyFromBlock(ByteBuffer src, int offset, CachedPage cPage, int pageSize) {
+            int multiplier = src.getInt(offset + FRAME_MULTIPLIER_OFF);
+            if (multiplier > 1) {
+                return false;
+            }
+            ByteBuffer page = src.duplicate();
+            // the page buffer may be larger if it held a large page before
+            page.limit(offset + RESERVED_HEADER_BYTES + pageSize);
+            page.position(offset + RESERVED_HEADER_BYTES);
+            cPage.buffer.clear();
+            cPage.buffer.put(page);
+            cPage.setFrameSizeMultiplier(multiplier);
+            cPage.setExtraBlockPageId(src.getInt(offset + EXTRA_BLOCK_PAGE_ID_OFF));
+            return true;
+        }
+
         private int processRead(CachedPage cPage) {
             buf.position(RESERVED_HEADER_BYTES);
             cPage.buffer.position(0);
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.hyracks.storage.common.buffercache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Page access counters of a file in the buffer cache, or the sum of the counters of several files (e.g. of the files
+ * of an LSM index).
+ */
+public class BufferCacheStats {
+    // pins of the file's pages, of existing and of new pages
+    private final LongAdder pins = new LongAdder();
+    // pins of existing pages that found the page valid in the cache / had to read it
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    // pages read from / written to the file, including read-ahead and write-back
+    private final LongAdder reads = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    // cached pages of the file that were replaced by other pages
+    private final LongAdder evictions = new LongAdder();
+    // pins of the file's pages that had to wait for the cleaner to free a page
+    private final LongAdder dirtyPageWaits = new LongAdder();
+
+    void pinned() {
+        pins.increment();
+    }
+
+    void hit() {
+        hits.increment();
+    }
+
+    void missed() {
+        misses.increment();
+    }
+
+    void read() {
+        reads.increment();
+    }
+
+    void written(int numPages) {
+        writes.add(numPages);
+    }
+
+    void evicted() {
+        evictions.increment();
+    }
+
+    void waitedForDirtyPage() {
+        dirtyPageWaits.increment();
+    }
+
+    /**
+     * Adds the counters of another file to these counters.
+     */
+    public void add(BufferCacheStats other) {
+        pins.add(other.getPinCount());
+        hits.add(other.getHitCount());
+        misses.add(other.getMissCount());
+        reads.add(other.getReadCount());
+        writes.add(other.getWriteCount());
+        evictions.add(other.getEvictionCount());
+        dirtyPageWaits.add(other.getDirtyPageWaitCount());
+    }
+
+    public long getPinCount() {
+        return pins.sum();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the fraction of pins of existing pages that did not have to read the page
+     */
+    public double getHitRatio() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    public long getReadCount() {
+        return reads.sum();
+    }
+
+    public long getWriteCount() {
+        return writes.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public long getDirtyPageWaitCount() {
+        return dirtyPageWaits.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "pins: " + getPinCount() + ", hits: " + getHitCount() + ", misses: " + getMissCount() + ", hit ratio: "
+                + getHitRatio() + ", reads: " + getReadCount() + ", writes: " + getWriteCount() + ", evictions: "
+                + getEvictionCount() + ", dirty page waits: " + getDirtyPageWaitCount();
+    }
+}
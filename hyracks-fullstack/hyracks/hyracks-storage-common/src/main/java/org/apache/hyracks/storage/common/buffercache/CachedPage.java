@@ -35,8 +35,12 @@ public class CachedPage implements ICachedPageInternal {
     private final Object replacementStrategyObject;
     private final IPageReplacementStrategy pageReplacementStrategy;
     volatile long dpid; // disk page id (composed of file id and page id)
-    CachedPage next;
+    volatile CachedPage next;
     volatile boolean valid;
+    // set when the page was read ahead and has not been pinned since
+    volatile boolean readAhead;
+    // set while a read-ahead of the page is in flight, guarded by the page's monitor
+    boolean readAheadPending;
     final AtomicBoolean confiscated;
     private IQueueInfo queueInfo;
     private int multiplier;
@@ -78,6 +82,7 @@ public class CachedPage implements ICachedPageInternal {
         this.dpid = dpid;
         dirty.set(false);
         valid = false;
+        readAhead = false;
         confiscated.set(false);
         pageReplacementStrategy.notifyCachePageReset(this);
         queueInfo = null;
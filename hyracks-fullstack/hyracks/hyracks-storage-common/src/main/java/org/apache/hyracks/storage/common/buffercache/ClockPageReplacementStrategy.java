@@ -37,7 +37,7 @@ public class ClockPageReplacementStrategy implements IPageReplacementStrategy {
     private AtomicInteger numPages;
     private AtomicInteger cpIdCounter;
     private final int pageSize;
-    private final int maxAllowedNumPages;
+    private volatile int maxAllowedNumPages;
     private final ConcurrentLinkedQueue<Integer> cpIdFreeList;
 
     public ClockPageReplacementStrategy(ICacheMemoryAllocator allocator, int pageSize, int maxAllowedNumPages) {
@@ -89,7 +89,8 @@ public class ClockPageReplacementStrategy implements IPageReplacementStrategy {
                 return null;
             }
             int multiple = victim.getFrameSizeMultiplier();
-            if (multiple == multiplier) {
+            // a victim is only reused if the cache is not above its budget, which it is after it was shrunk
+            if (multiple == multiplier && numPages.get() <= maxAllowedNumPages) {
                 return victim;
             } else if (bufferCache.removePage(victim)) {
                 cpIdFreeList.add(victim.getCachedPageId());
@@ -109,21 +110,8 @@ public class ClockPageReplacementStrategy implements IPageReplacementStrategy {
         boolean looped = false;
         while (true) {
             ICachedPageInternal cPage = bufferCache.getPage(clockPtr);
-            if (cPage != null) {
-                /*
-                 * We do two things here:
-                 * 1. If the page has been accessed, then we skip it -- The CAS would return
-                 * false if the current value is false which makes the page a possible candidate
-                 * for replacement.
-                 * 2. We check with the buffer manager if it feels it's a good idea to use this
-                 * page as a victim.
-                 */
-                AtomicBoolean accessedFlag = getPerPageObject(cPage);
-                if (!accessedFlag.compareAndSet(true, false)) {
-                    if (cPage.isGoodVictim()) {
-                        return cPage;
-                    }
-                }
+            if (cPage != null && isVictim(cPage)) {
+                return cPage;
             }
             if (clockPtr < lastClockPtr) {
                 looped = true;
@@ -144,6 +132,24 @@ public class ClockPageReplacementStrategy implements IPageReplacementStrategy {
         }
     }
 
+    /**
+     * Called when the clock hand passes over a page.
+     *
+     * @return true if the page should be evicted
+     */
+    protected boolean isVictim(ICachedPageInternal cPage) {
+        /*
+         * We do two things here:
+         * 1. If the page has been accessed, then we skip it -- The CAS would return
+         * false if the current value is false which makes the page a possible candidate
+         * for replacement.
+         * 2. We check with the buffer manager if it feels it's a good idea to use this
+         * page as a victim.
+         */
+        AtomicBoolean accessedFlag = getPerPageObject(cPage);
+        return !accessedFlag.compareAndSet(true, false) && cPage.isGoodVictim();
+    }
+
     @Override
     public int getNumPages() {
         return numPages.get();
@@ -258,6 +264,31 @@ public class ClockPageReplacementStrategy implements IPageReplacementStrategy {
         return maxAllowedNumPages;
     }
 
+    @Override
+    public void setMaxAllowedNumPages(int maxAllowedNumPages) {
+        if (maxAllowedNumPages <= 0) {
+            throw new IllegalArgumentException("Invalid number of pages: " + maxAllowedNumPages);
+        }
+        this.maxAllowedNumPages = maxAllowedNumPages;
+        // release what can be released now, pinned and dirty pages are released by later victim searches
+        while (numPages.get() > maxAllowedNumPages) {
+            ICachedPageInternal victim = findVictimByEviction();
+            if (victim == null) {
+                break;
+            }
+            final int victimMultiplier = victim.getFrameSizeMultiplier();
+            if (bufferCache.removePage(victim)) {
+                cpIdFreeList.add(victim.getCachedPageId());
+                numPages.getAndAdd(-victimMultiplier);
+            }
+        }
+    }
+
+    @Override
+    public boolean isHot(ICachedPageInternal cPage) {
+        return getPerPageObject(cPage).get();
+    }
+
     @Override
     public void adviseWontNeed(ICachedPageInternal cPage) {
         //make the page appear as if it wasn't accessed even if it was
@@ -255,6 +255,26 @@ public class DebugBufferCache implements IBufferCache {
         bufferCache.purgeHandle(fileId);
     }
 
+    @Override
+    public void markImmutable(int fileId) throws HyracksDataException {
+        bufferCache.markImmutable(fileId);
+    }
+
+    @Override
+    public void enablePageCompression(int fileId) throws HyracksDataException {
+        bufferCache.enablePageCompression(fileId);
+    }
+
+    @Override
+    public BufferCacheStats getFileStats(String directory) {
+        return bufferCache.getFileStats(directory);
+    }
+
+    @Override
+    public void saveWarmupPages() throws HyracksDataException {
+        bufferCache.saveWarmupPages();
+    }
+
     @Override
     public void resizePage(ICachedPage page, int multiplier, IExtraPageBlockHelper extraPageBlockHelper)
             throws HyracksDataException {
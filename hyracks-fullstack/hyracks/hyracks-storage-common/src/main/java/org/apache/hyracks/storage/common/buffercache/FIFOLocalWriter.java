@@ -15,6 +15,8 @@
 
 package org.apache.hyracks.storage.common.buffercache;
 
+import java.util.List;
+
 import org.apache.hyracks.api.exceptions.HyracksDataException;
 
 public class FIFOLocalWriter implements IFIFOPageWriter {
@@ -41,6 +43,17 @@ public class FIFOLocalWriter implements IFIFOPageWriter {
         }
     }
 
+    @Override
+    public void write(List<ICachedPage> pages, BufferCache bufferCache) throws HyracksDataException {
+        try {
+            bufferCache.write(pages);
+        } finally {
+            for (ICachedPage page : pages) {
+                bufferCache.returnPage((CachedPage) page);
+            }
+        }
+    }
+
     @Override
     public void sync(int fileId, BufferCache bufferCache) throws HyracksDataException {
         bufferCache.force(fileId,true);
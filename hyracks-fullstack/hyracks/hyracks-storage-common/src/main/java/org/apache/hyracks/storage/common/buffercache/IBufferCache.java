@@ -86,4 +86,28 @@ public interface IBufferCache {
 
     void resizePage(ICachedPage page, int multiplier, IExtraPageBlockHelper extraPageBlockHelper)
             throws HyracksDataException;
+
+    /**
+     * Tells the cache that the open file will not be written anymore, e.g. because it belongs to a validated LSM
+     * disk component, so that the cache may serve its pages from a read-only memory mapping.
+     */
+    void markImmutable(int fileId) throws HyracksDataException;
+
+    /**
+     * Stores the pages of the open file compressed, e.g. because it belongs to an LSM disk component of a dataset
+     * that asked for compression. Must be called before the first page of the file is written. Files whose pages are
+     * stored compressed are recognized when they are opened again.
+     */
+    void enablePageCompression(int fileId) throws HyracksDataException;
+
+    /**
+     * @return the sum of the page access counters of the cached files in the given directory and its subdirectories
+     */
+    BufferCacheStats getFileStats(String directory);
+
+    /**
+     * Saves the ids of the cached pages, so that the cache can be warmed up with them if the node restarts. Does
+     * nothing if the cache does not support warm-ups.
+     */
+    void saveWarmupPages() throws HyracksDataException;
 }
@@ -15,11 +15,18 @@
 
 package org.apache.hyracks.storage.common.buffercache;
 
+import java.util.List;
+
 import org.apache.hyracks.api.exceptions.HyracksDataException;
 
 
 public interface IFIFOPageWriter {
     public void write(ICachedPage page, BufferCache bufferCache) throws HyracksDataException;
 
+    /**
+     * Writes a run of regular sized pages of one file with contiguous page ids, in the order they were queued.
+     */
+    public void write(List<ICachedPage> pages, BufferCache bufferCache) throws HyracksDataException;
+
     void sync(int fileId, BufferCache bufferCache) throws HyracksDataException;
 }
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.hyracks.storage.common.buffercache;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the rate at which a group of threads writes pages.
+ * A thread that has a rate limiter set is held back in {@link IFIFOPageQueue#put(ICachedPage)} whenever the pages
+ * written by all threads sharing the limiter would exceed its rate, while threads without a limiter (e.g. flushes)
+ * are not affected. Bursts of up to {@link #MAX_BURST_NANOS} worth of bytes pass without waiting.
+ */
+public class IORateLimiter {
+    private static final long MAX_BURST_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final ThreadLocal<IORateLimiter> THREAD_RATE_LIMITER = new ThreadLocal<IORateLimiter>();
+
+    private final long bytesPerSecond;
+    // the time at which all bytes acquired so far have been written at the limited rate
+    private long nextFreeNanos;
+
+    public IORateLimiter(long bytesPerSecond) {
+        if (bytesPerSecond <= 0) {
+            throw new IllegalArgumentException("Rate must be positive: " + bytesPerSecond);
+        }
+        this.bytesPerSecond = bytesPerSecond;
+        this.nextFreeNanos = System.nanoTime();
+    }
+
+    /**
+     * Waits until the given number of bytes may be written.
+     */
+    public void acquire(long bytes) {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            nextFreeNanos = Math.max(nextFreeNanos, now - MAX_BURST_NANOS)
+                    + (long) (bytes * (double) TimeUnit.SECONDS.toNanos(1) / bytesPerSecond);
+            waitNanos = nextFreeNanos - now;
+        }
+        if (waitNanos > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    public long getBytesPerSecond() {
+        return bytesPerSecond;
+    }
+
+    /**
+     * Sets the rate limiter of the pages written by the current thread, or removes it if the limiter is null.
+     */
+    public static void setThreadRateLimiter(IORateLimiter rateLimiter) {
+        if (rateLimiter == null) {
+            THREAD_RATE_LIMITER.remove();
+        } else {
+            THREAD_RATE_LIMITER.set(rateLimiter);
+        }
+    }
+
+    public static IORateLimiter getThreadRateLimiter() {
+        return THREAD_RATE_LIMITER.get();
+    }
+}
@@ -33,6 +33,11 @@ public interface IPageReplacementStrategy {
 
     public void adviseWontNeed(ICachedPageInternal cPage);
 
+    /**
+     * @return true if the page was accessed recently or repeatedly enough that it should be kept over other pages
+     */
+    public boolean isHot(ICachedPageInternal cPage);
+
     public ICachedPageInternal findVictim();
 
     public ICachedPageInternal findVictim(int multiplier);
@@ -46,6 +51,12 @@ public interface IPageReplacementStrategy {
 
     public int getMaxAllowedNumPages();
 
+    /**
+     * Changes the number of pages the strategy may allocate. When the budget shrinks, pages beyond it are released
+     * as soon as they can be evicted.
+     */
+    public void setMaxAllowedNumPages(int maxAllowedNumPages);
+
     void resizePage(ICachedPageInternal page, int multiplier, IExtraPageBlockHelper extraPageBlockHelper)
             throws HyracksDataException;
 }
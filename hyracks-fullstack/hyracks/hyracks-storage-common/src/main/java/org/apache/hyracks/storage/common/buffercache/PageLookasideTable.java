@@ -0,0 +1,250 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.hyracks.storage.common.buffercache;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.apache.hyracks.api.exceptions.HyracksDataException;
+import org.apache.hyracks.api.io.FileReference;
+import org.apache.hyracks.api.io.IFileHandle;
+import org.apache.hyracks.api.io.IIOManager;
+
+/**
+ * Maps the page ids of a file with compressed pages to the place of their page images in the file.
+ * The pages of a compressed file are not stored at fixed offsets: every write of a page appends its compressed image
+ * (the page header followed by the page) to the end of the file, makes it durable and only then points the page's
+ * entry to it. Images are never overwritten, so the space of a replaced image is not reused. The table is kept
+ * in memory and in a hidden file next to the data file, see {@link #getFile(FileReference)}, which is made durable
+ * together with the data file. A page whose image did not compress is stored as is, which its entry records with a
+ * negative length.
+ */
+public class PageLookasideTable {
+    private static final String FILE_PREFIX = ".";
+    private static final String FILE_SUFFIX = ".laf";
+    private static final int MAGIC = 0x4C414631;
+    // magic, page size, number of pages, unused
+    private static final int HEADER_SIZE = 16;
+    private static final int NUM_PAGES_OFF = 8;
+    // offset of the image, stored length of the image, frame size multiplier of the page
+    private static final int ENTRY_SIZE = 16;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final IIOManager ioManager;
+    private final IFileHandle handle;
+    private final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+    private long[] offsets;
+    private int[] storedLengths;
+    private int[] multipliers;
+    private int numPages;
+    private long appendOffset;
+
+    private PageLookasideTable(IIOManager ioManager, IFileHandle handle, int capacity, long appendOffset) {
+        this.ioManager = ioManager;
+        this.handle = handle;
+        this.offsets = new long[capacity];
+        this.storedLengths = new int[capacity];
+        this.multipliers = new int[capacity];
+        this.appendOffset = appendOffset;
+    }
+
+    /**
+     * @return the file that holds the lookaside table of the given data file
+     */
+    public static FileReference getFile(FileReference dataFile) {
+        File file = dataFile.getFile();
+        return new FileReference(new File(file.getParentFile(), FILE_PREFIX + file.getName() + FILE_SUFFIX));
+    }
+
+    /**
+     * Deletes the lookaside table of the given data file, if there is one.
+     */
+    public static void delete(FileReference dataFile) {
+        getFile(dataFile).delete();
+    }
+
+    /**
+     * Creates an empty table for an empty data file, replacing any table that was left behind by an earlier file
+     * with the same name.
+     */
+    static PageLookasideTable create(IIOManager ioManager, FileReference dataFile, int pageSize)
+            throws HyracksDataException {
+        FileReference tableFile = getFile(dataFile);
+        tableFile.delete();
+        IFileHandle handle = ioManager.open(tableFile, IIOManager.FileReadWriteMode.READ_WRITE,
+                IIOManager.FileSyncMode.METADATA_ASYNC_DATA_ASYNC);
+        PageLookasideTable table = new PageLookasideTable(ioManager, handle, INITIAL_CAPACITY, 0);
+        try {
+            table.header.putInt(0, MAGIC);
+            table.header.putInt(4, pageSize);
+            table.writeHeader();
+        } catch (HyracksDataException e) {
+            ioManager.close(handle);
+            throw e;
+        }
+        return table;
+    }
+
+    /**
+     * Loads the table of a data file that was opened.
+     *
+     * @return the table, or null if the file does not have compressed pages
+     */
+    static PageLookasideTable open(IIOManager ioManager, FileReference dataFile, IFileHandle dataHandle,
+            int pageSize) throws HyracksDataException {
+        FileReference tableFile = getFile(dataFile);
+        if (!tableFile.getFile().exists()) {
+            return null;
+        }
+        IFileHandle handle = ioManager.open(tableFile, IIOManager.FileReadWriteMode.READ_WRITE,
+                IIOManager.FileSyncMode.METADATA_ASYNC_DATA_ASYNC);
+        try {
+            long size = ioManager.getSize(handle);
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                throw new HyracksDataException("Invalid page lookaside table " + tableFile + " of size " + size);
+            }
+            ByteBuffer buf = ByteBuffer.allocate((int) size);
+            int bytesRead = ioManager.syncRead(handle, 0, buf);
+            if (bytesRead != size) {
+                throw new HyracksDataException("Failed to read the page lookaside table " + tableFile + ": "
+                        + bytesRead);
+            }
+            if (buf.getInt(0) != MAGIC || buf.getInt(4) != pageSize) {
+                throw new HyracksDataException("Page lookaside table " + tableFile + " does not belong to a file with "
+                        + pageSize + " byte pages");
+            }
+            // a crash may have left a partially written entry at the end, which was never made durable
+            int numEntries = (int) ((size - HEADER_SIZE) / ENTRY_SIZE);
+            PageLookasideTable table = new PageLookasideTable(ioManager, handle,
+                    Math.max(INITIAL_CAPACITY, numEntries), ioManager.getSize(dataHandle));
+            System.arraycopy(buf.array(), 0, table.header.array(), 0, HEADER_SIZE);
+            table.numPages = buf.getInt(NUM_PAGES_OFF);
+            for (int i = 0; i < numEntries; i++) {
+                int entryOff = HEADER_SIZE + i * ENTRY_SIZE;
+                table.offsets[i] = buf.getLong(entryOff);
+                table.storedLengths[i] = buf.getInt(entryOff + 8);
+                table.multipliers[i] = buf.getInt(entryOff + 12);
+            }
+            return table;
+        } catch (HyracksDataException e) {
+            ioManager.close(handle);
+            throw e;
+        }
+    }
+
+    /**
+     * Reserves space for page images at the end of the data file.
+     *
+     * @return the offset of the reserved space
+     */
+    synchronized long allocate(int length) {
+        long offset = appendOffset;
+        appendOffset += length;
+        return offset;
+    }
+
+    /**
+     * Points the entries of consecutive pages to their images and writes the entries to the table file.
+     *
+     * @param offsets
+     *            the offsets of the images of the pages
+     * @param endPageId
+     *            the page id after the last page that the images cover, which is beyond the last page if it is a
+     *            large page with a separate extra block
+     */
+    synchronized void update(int firstPageId, int count, long[] offsets, int[] imageLengths, int multiplier,
+            int endPageId) throws HyracksDataException {
+        ensureCapacity(firstPageId + count);
+        ByteBuffer entries = ByteBuffer.allocate(count * ENTRY_SIZE);
+        for (int i = 0; i < count; i++) {
+            int pageId = firstPageId + i;
+            this.offsets[pageId] = offsets[i];
+            storedLengths[pageId] = imageLengths[i];
+            multipliers[pageId] = multiplier;
+            entries.putLong(offsets[i]);
+            entries.putInt(imageLengths[i]);
+            entries.putInt(multiplier);
+        }
+        entries.flip();
+        write(HEADER_SIZE + (long) firstPageId * ENTRY_SIZE, entries);
+        if (endPageId > numPages) {
+            numPages = endPageId;
+            header.putInt(NUM_PAGES_OFF, numPages);
+            writeHeader();
+        }
+    }
+
+    /**
+     * @return the offset of the page's image, which is only valid if {@link #getStoredLength(int)} is not 0
+     */
+    synchronized long getOffset(int pageId) {
+        return pageId < offsets.length ? offsets[pageId] : 0;
+    }
+
+    /**
+     * @return the length of the page's image; negative if the image is not compressed, 0 if the page was never
+     *         written
+     */
+    synchronized int getStoredLength(int pageId) {
+        return pageId < storedLengths.length ? storedLengths[pageId] : 0;
+    }
+
+    synchronized int getFrameSizeMultiplier(int pageId) {
+        return pageId < multipliers.length ? multipliers[pageId] : 0;
+    }
+
+    /**
+     * @return the number of pages of the file, including the extra blocks of its large pages
+     */
+    synchronized int getNumPages() {
+        return numPages;
+    }
+
+    void force(boolean metadata) throws HyracksDataException {
+        ioManager.sync(handle, metadata);
+    }
+
+    void close() throws HyracksDataException {
+        ioManager.close(handle);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > offsets.length) {
+            int newCapacity = Math.max(capacity, offsets.length * 2);
+            offsets = Arrays.copyOf(offsets, newCapacity);
+            storedLengths = Arrays.copyOf(storedLengths, newCapacity);
+            multipliers = Arrays.copyOf(multipliers, newCapacity);
+        }
+    }
+
+    private void writeHeader() throws HyracksDataException {
+        ByteBuffer buf = header.duplicate();
+        buf.clear();
+        write(0, buf);
+    }
+
+    private void write(long offset, ByteBuffer buf) throws HyracksDataException {
+        int length = buf.remaining();
+        int bytesWritten = ioManager.syncWrite(handle, offset, buf);
+        if (bytesWritten != length) {
+            throw new HyracksDataException("Failed to write the page lookaside table completely: " + bytesWritten);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.hyracks.storage.common.buffercache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Detects sequential page access on a single file and decides which pages to read ahead.
+ * The buffer cache reports a page access only when it misses or when it hits a page that was brought in by read-ahead,
+ * so random hits never touch the tracker. Once {@link #SEQUENTIAL_RUN_THRESHOLD} sequential accesses are seen, a
+ * window of pages following the current one is scheduled. When the reader reaches the first page of that window, the
+ * next window is scheduled right after it, doubling its size up to the maximum.
+ */
+class SequentialReadAheadTracker {
+    static final int SEQUENTIAL_RUN_THRESHOLD = 2;
+    static final long NO_READ_AHEAD = -1L;
+
+    private final int minWindow;
+    private final int maxWindow;
+
+    private int lastPageId = -2;
+    private int runLength;
+    private int window;
+    private int nextTriggerPageId = -1;
+    private int scheduledEndPageId = -1;
+
+    // read-aheads that are running on the file; the file must not be swept while there are any
+    private final AtomicInteger pendingReadAheads = new AtomicInteger();
+    private volatile boolean disabled;
+
+    SequentialReadAheadTracker(int minWindow, int maxWindow) {
+        this.minWindow = minWindow;
+        this.maxWindow = maxWindow;
+    }
+
+    /**
+     * @return the range of pages to read ahead as {@code (startPageId << 32) | endPageId} (end exclusive), or
+     *         {@link #NO_READ_AHEAD}
+     */
+    synchronized long access(int pageId) {
+        if (pageId == lastPageId) {
+            return NO_READ_AHEAD;
+        }
+        // pages of the scheduled window that were resident already are not reported, so allow gaps within it
+        if (pageId == lastPageId + 1 || (pageId > lastPageId && pageId < scheduledEndPageId)) {
+            runLength++;
+        } else {
+            runLength = 1;
+            window = 0;
+            nextTriggerPageId = -1;
+            scheduledEndPageId = -1;
+        }
+        lastPageId = pageId;
+        if (runLength < SEQUENTIAL_RUN_THRESHOLD || pageId < nextTriggerPageId) {
+            return NO_READ_AHEAD;
+        }
+        int start = Math.max(pageId + 1, scheduledEndPageId);
+        window = window == 0 ? minWindow : Math.min(window * 2, maxWindow);
+        int end = start + window;
+        if (end < start) {
+            // page id overflow
+            return NO_READ_AHEAD;
+        }
+        nextTriggerPageId = start;
+        scheduledEndPageId = end;
+        return ((long) start << 32) | end;
+    }
+
+    static int getStartPageId(long range) {
+        return (int) (range >>> 32);
+    }
+
+    static int getEndPageId(long range) {
+        return (int) range;
+    }
+
+    /**
+     * @return true if the read-ahead may proceed, in which case {@link #endReadAhead()} must be called when it is done
+     */
+    boolean beginReadAhead() {
+        pendingReadAheads.incrementAndGet();
+        if (disabled) {
+            endReadAhead();
+            return false;
+        }
+        return true;
+    }
+
+    void endReadAhead() {
+        if (pendingReadAheads.decrementAndGet() == 0 && disabled) {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Prevents any further read-ahead and waits for the running ones to finish.
+     */
+    void disableAndAwait() throws InterruptedException {
+        disabled = true;
+        synchronized (this) {
+            while (pendingReadAheads.get() > 0) {
+                wait();
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.hyracks.storage.common.buffercache;
+
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A scan resistant variant of the clock strategy that approximates 2Q on a single clock.
+ * Pages enter the cache cold. A cold page that is referenced again after the access that loaded it is promoted to
+ * hot when the clock hand next passes it, as long as the hot set is below its budget. Cold pages that were accessed
+ * only once (e.g. pages read by a scan or a merge) are evicted the first time the hand reaches them, while hot pages
+ * (e.g. interior B-tree pages) have to stay unreferenced for a full clock cycle before they are demoted to cold.
+ * Like the A1out queue of 2Q, the ids of recently evicted cold pages are remembered, and a page that is loaded again
+ * while its id is remembered counts as re-referenced.
+ */
+public class TwoQueueClockPageReplacementStrategy extends ClockPageReplacementStrategy {
+    public static final double DEFAULT_HOT_PAGE_FRACTION = 0.75;
+    public static final double DEFAULT_GHOST_PAGE_FRACTION = 0.5;
+
+    private static final int COLD = 0;
+    private static final int HOT = 1;
+    private static final int REFERENCED = 2;
+    // set on reset; the access that loads the page does not count as a reference
+    private static final int NEW = 4;
+
+    private final double hotPageFraction;
+    private volatile int maxHotPages;
+    private final AtomicInteger hotPages;
+    private volatile int maxGhostPages;
+    private final Set<Long> ghostPages;
+    private final Queue<Long> ghostPageQueue;
+    private final AtomicInteger ghostPageQueueSize;
+
+    public TwoQueueClockPageReplacementStrategy(ICacheMemoryAllocator allocator, int pageSize,
+            int maxAllowedNumPages) {
+        this(allocator, pageSize, maxAllowedNumPages, DEFAULT_HOT_PAGE_FRACTION);
+    }
+
+    public TwoQueueClockPageReplacementStrategy(ICacheMemoryAllocator allocator, int pageSize,
+            int maxAllowedNumPages, double hotPageFraction) {
+        super(allocator, pageSize, maxAllowedNumPages);
+        if (hotPageFraction <= 0 || hotPageFraction >= 1) {
+            throw new IllegalArgumentException("Hot page fraction must be in (0, 1): " + hotPageFraction);
+        }
+        this.hotPageFraction = hotPageFraction;
+        this.maxHotPages = (int) (maxAllowedNumPages * hotPageFraction);
+        this.hotPages = new AtomicInteger();
+        this.maxGhostPages = Math.max(1, (int) (maxAllowedNumPages * DEFAULT_GHOST_PAGE_FRACTION));
+        this.ghostPages = ConcurrentHashMap.newKeySet();
+        this.ghostPageQueue = new ConcurrentLinkedQueue<>();
+        this.ghostPageQueueSize = new AtomicInteger();
+    }
+
+    @Override
+    public void setMaxAllowedNumPages(int maxAllowedNumPages) {
+        // hot pages beyond a smaller budget are demoted when the clock hand passes them
+        maxHotPages = (int) (maxAllowedNumPages * hotPageFraction);
+        maxGhostPages = Math.max(1, (int) (maxAllowedNumPages * DEFAULT_GHOST_PAGE_FRACTION));
+        super.setMaxAllowedNumPages(maxAllowedNumPages);
+    }
+
+    @Override
+    public Object createPerPageStrategyObject(int cpid) {
+        return new AtomicInteger(NEW);
+    }
+
+    @Override
+    public void notifyCachePageReset(ICachedPageInternal cPage) {
+        long dpid = cPage.getDiskPageId();
+        int state = dpid >= 0 && ghostPages.remove(dpid) ? REFERENCED : NEW;
+        if ((getState(cPage).getAndSet(state) & HOT) != 0) {
+            hotPages.decrementAndGet();
+        }
+    }
+
+    @Override
+    public void notifyCachePageAccess(ICachedPageInternal cPage) {
+        AtomicInteger state = getState(cPage);
+        while (true) {
+            int s = state.get();
+            if ((s & REFERENCED) != 0) {
+                return;
+            }
+            int next = (s & NEW) != 0 ? s & ~NEW : s | REFERENCED;
+            if (state.compareAndSet(s, next)) {
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void adviseWontNeed(ICachedPageInternal cPage) {
+        //make the page appear as a cold page that wasn't accessed even if it was
+        if ((getState(cPage).getAndSet(COLD) & HOT) != 0) {
+            hotPages.decrementAndGet();
+        }
+    }
+
+    @Override
+    public boolean isHot(ICachedPageInternal cPage) {
+        return (getState(cPage).get() & (HOT | REFERENCED)) != 0;
+    }
+
+    @Override
+    protected boolean isVictim(ICachedPageInternal cPage) {
+        AtomicInteger state = getState(cPage);
+        while (true) {
+            int s = state.get();
+            if ((s & HOT) != 0) {
+                // a referenced hot page gets a second chance, an unreferenced one is demoted
+                int next = (s & REFERENCED) != 0 ? HOT : COLD;
+                if (state.compareAndSet(s, next)) {
+                    if (next == COLD) {
+                        hotPages.decrementAndGet();
+                    }
+                    return false;
+                }
+            } else if ((s & REFERENCED) != 0) {
+                // a cold page that was re-referenced is promoted if the hot set has room
+                boolean promote = hotPages.get() < maxHotPages;
+                if (state.compareAndSet(s, promote ? HOT : COLD)) {
+                    if (promote) {
+                        hotPages.incrementAndGet();
+                    }
+                    return false;
+                }
+            } else if (cPage.isGoodVictim()) {
+                rememberEvictedPage(cPage.getDiskPageId());
+                return true;
+            } else {
+                return false;
+            }
+        }
+    }
+
+    private void rememberEvictedPage(long dpid) {
+        if (dpid < 0 || !ghostPages.add(dpid)) {
+            return;
+        }
+        ghostPageQueue.offer(dpid);
+        // the queue may still hold ids that were removed from the set by a reload, so trim it by its own length
+        ghostPageQueueSize.incrementAndGet();
+        while (ghostPageQueueSize.get() > maxGhostPages) {
+            Long oldest = ghostPageQueue.poll();
+            if (oldest == null) {
+                break;
+            }
+            ghostPageQueueSize.decrementAndGet();
+            ghostPages.remove(oldest);
+        }
+    }
+
+    public int getNumHotPages() {
+        return hotPages.get();
+    }
+
+    private static AtomicInteger getState(ICachedPageInternal cPage) {
+        return (AtomicInteger) cPage.getReplacementStrategyObject();
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.hyracks.storage.common.compression;
+
+import org.apache.hyracks.api.exceptions.HyracksDataException;
+
+/**
+ * Compresses the images of buffer cache pages before they are written to a compressed file. Implementations must be
+ * thread safe.
+ */
+public interface IPageCompressor {
+
+    /**
+     * @return the size of the largest output that compressing {@code length} bytes may produce
+     */
+    int getMaxCompressedLength(int length);
+
+    /**
+     * Compresses src[srcOff, srcOff + srcLen) into dst at dstOff, which must have room for
+     * {@link #getMaxCompressedLength(int)} bytes.
+     *
+     * @return the length of the compressed data
+     */
+    int compress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff);
+
+    /**
+     * Decompresses src[srcOff, srcOff + srcLen) into dst at dstOff, writing at most dstLen bytes.
+     *
+     * @return the length of the decompressed data
+     * @throws HyracksDataException
+     *             if the compressed data is corrupt or does not fit into dstLen bytes
+     */
+    int decompress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff, int dstLen)
+            throws HyracksDataException;
+}
@@ -0,0 +1,211 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.hyracks.storage.common.compression;
+
+import java.util.Arrays;
+
+import org.apache.hyracks.api.exceptions.HyracksDataException;
+
+/**
+ * A pure Java compressor that writes the LZ4 block format: a sequence of literal runs, each followed by a back
+ * reference of at least 4 bytes into the last 64KB of output. Matches are found with a single probe into a hash
+ * table of 4 byte prefixes, which trades compression ratio for speed like the fast mode of the reference
+ * implementation. The decompressor checks every length and offset against its input and output bounds.
+ */
+public class LZ4PageCompressor implements IPageCompressor {
+    public static final LZ4PageCompressor INSTANCE = new LZ4PageCompressor();
+
+    private static final int MIN_MATCH = 4;
+    // the last 5 bytes are always literals, and the last match starts at least 12 bytes before the end
+    private static final int LAST_LITERALS = 5;
+    private static final int MF_LIMIT = 12;
+    private static final int MAX_DISTANCE = 0xFFFF;
+    private static final int RUN_MASK = 0xF;
+    private static final int HASH_LOG = 12;
+    // the search step grows by one every 2^SKIP_STRENGTH probes without a match, to skip incompressible data quickly
+    private static final int SKIP_STRENGTH = 6;
+
+    private LZ4PageCompressor() {
+    }
+
+    @Override
+    public int getMaxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    @Override
+    public int compress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff) {
+        final int srcEnd = srcOff + srcLen;
+        final int matchLimit = srcEnd - LAST_LITERALS;
+        final int mfLimit = srcEnd - MF_LIMIT;
+        int anchor = srcOff;
+        int dOff = dstOff;
+        if (srcLen > MF_LIMIT) {
+            final int[] hashTable = new int[1 << HASH_LOG];
+            Arrays.fill(hashTable, -1);
+            int sOff = srcOff + 1;
+            int searchCount = 1 << SKIP_STRENGTH;
+            while (sOff < mfLimit) {
+                int sequence = readInt(src, sOff);
+                int h = hash(sequence);
+                int ref = hashTable[h];
+                hashTable[h] = sOff;
+                if (ref < 0 || sOff - ref > MAX_DISTANCE || readInt(src, ref) != sequence) {
+                    sOff += searchCount++ >>> SKIP_STRENGTH;
+                    continue;
+                }
+                searchCount = 1 << SKIP_STRENGTH;
+                // extend the match backwards into the pending literals
+                while (sOff > anchor && ref > srcOff && src[sOff - 1] == src[ref - 1]) {
+                    sOff--;
+                    ref--;
+                }
+                int matchLen = MIN_MATCH;
+                while (sOff + matchLen < matchLimit && src[sOff + matchLen] == src[ref + matchLen]) {
+                    matchLen++;
+                }
+                dOff = writeSequence(src, anchor, sOff - anchor, sOff - ref, matchLen, dst, dOff);
+                sOff += matchLen;
+                anchor = sOff;
+                if (sOff < mfLimit) {
+                    hashTable[hash(readInt(src, sOff - 2))] = sOff - 2;
+                }
+            }
+        }
+        // the remaining bytes are a final run of literals without a match
+        int literalLen = srcEnd - anchor;
+        int tokenOff = dOff++;
+        dOff = writeLength(literalLen, dst, tokenOff, 4, dOff);
+        System.arraycopy(src, anchor, dst, dOff, literalLen);
+        return dOff + literalLen - dstOff;
+    }
+
+    private static int writeSequence(byte[] src, int literalOff, int literalLen, int offset, int matchLen, byte[] dst,
+            int dOff) {
+        int tokenOff = dOff++;
+        dOff = writeLength(literalLen, dst, tokenOff, 4, dOff);
+        System.arraycopy(src, literalOff, dst, dOff, literalLen);
+        dOff += literalLen;
+        dst[dOff++] = (byte) offset;
+        dst[dOff++] = (byte) (offset >>> 8);
+        return writeLength(matchLen - MIN_MATCH, dst, tokenOff, 0, dOff);
+    }
+
+    /**
+     * Stores a length in the token nibble at the given shift, and its remainder, if any, in bytes following dOff.
+     */
+    private static int writeLength(int length, byte[] dst, int tokenOff, int shift, int dOff) {
+        if (shift == 4) {
+            dst[tokenOff] = 0;
+        }
+        if (length < RUN_MASK) {
+            dst[tokenOff] |= (byte) (length << shift);
+            return dOff;
+        }
+        dst[tokenOff] |= (byte) (RUN_MASK << shift);
+        length -= RUN_MASK;
+        while (length >= 0xFF) {
+            dst[dOff++] = (byte) 0xFF;
+            length -= 0xFF;
+        }
+        dst[dOff++] = (byte) length;
+        return dOff;
+    }
+
+    @Override
+    public int decompress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff, int dstLen)
+            throws HyracksDataException {
+        final int srcEnd = srcOff + srcLen;
+        final int dstEnd = dstOff + dstLen;
+        int sOff = srcOff;
+        int dOff = dstOff;
+        while (true) {
+            if (sOff >= srcEnd) {
+                throw corrupt(sOff - srcOff);
+            }
+            int token = src[sOff++] & 0xFF;
+            int literalLen = token >>> 4;
+            if (literalLen == RUN_MASK) {
+                int b;
+                do {
+                    if (sOff >= srcEnd) {
+                        throw corrupt(sOff - srcOff);
+                    }
+                    b = src[sOff++] & 0xFF;
+                    literalLen += b;
+                } while (b == 0xFF);
+            }
+            if (literalLen > srcEnd - sOff || literalLen > dstEnd - dOff) {
+                throw corrupt(sOff - srcOff);
+            }
+            System.arraycopy(src, sOff, dst, dOff, literalLen);
+            sOff += literalLen;
+            dOff += literalLen;
+            if (sOff == srcEnd) {
+                // the last sequence has no match
+                return dOff - dstOff;
+            }
+            if (srcEnd - sOff < 2) {
+                throw corrupt(sOff - srcOff);
+            }
+            int offset = (src[sOff] & 0xFF) | ((src[sOff + 1] & 0xFF) << 8);
+            sOff += 2;
+            if (offset == 0 || offset > dOff - dstOff) {
+                throw corrupt(sOff - srcOff);
+            }
+            int matchLen = token & RUN_MASK;
+            if (matchLen == RUN_MASK) {
+                int b;
+                do {
+                    if (sOff >= srcEnd) {
+                        throw corrupt(sOff - srcOff);
+                    }
+                    b = src[sOff++] & 0xFF;
+                    matchLen += b;
+                } while (b == 0xFF);
+            }
+            matchLen += MIN_MATCH;
+            if (matchLen > dstEnd - dOff) {
+                throw corrupt(sOff - srcOff);
+            }
+            int ref = dOff - offset;
+            if (offset >= matchLen) {
+                System.arraycopy(dst, ref, dst, dOff, matchLen);
+                dOff += matchLen;
+            } else {
+                // the match overlaps the bytes it produces, e.g. a run of a repeated byte
+                for (int end = dOff + matchLen; dOff < end;) {
+                    dst[dOff++] = dst[ref++];
+                }
+            }
+        }
+    }
+
+    private static HyracksDataException corrupt(int position) {
+        return new HyracksDataException("Corrupt compressed page at input position " + position);
+    }
+
+    private static int readInt(byte[] b, int off) {
+        return (b[off] & 0xFF) | ((b[off + 1] & 0xFF) << 8) | ((b[off + 2] & 0xFF) << 16) | ((b[off + 3] & 0xFF) << 24);
+    }
+
+    private static int hash(int sequence) {
+        return (sequence * -1640531535) >>> (32 - HASH_LOG);
+    }
+}
@@ -40,6 +40,7 @@ import org.apache.hyracks.storage.am.bloomfilter.impls.BloomFilter;
 import org.apache.hyracks.storage.am.bloomfilter.impls.BloomFilterSpecification;
 import org.apache.hyracks.storage.am.bloomfilter.util.AbstractBloomFilterTest;
 import org.apache.hyracks.storage.am.common.api.IIndexBulkLoader;
+import org.apache.hyracks.storage.common.buffercache.BufferCache;
 import org.apache.hyracks.storage.common.buffercache.IBufferCache;
 
 @SuppressWarnings("rawtypes")
@@ -168,4 +169,75 @@ public class BloomFilterTest extends AbstractBloomFilterTest {
         bf.deactivate();
         bf.destroy();
     }
+
+    /**
+     * Builds a standard and a blocked filter on the same keys and compares the pins and the time of negative lookups
+     * and the false positive rates.
+     */
+    @Test
+    public void blockedLayoutTest() throws Exception {
+        if (LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.info("TESTING BLOCKED BLOOM FILTER");
+        }
+
+        BufferCache bufferCache = (BufferCache) harness.getBufferCache();
+
+        int numElements = 10000;
+        int[] keyFields = { 0 };
+        double acceptanleFalsePositiveRate = 0.01;
+        int maxBucketsPerElement = BloomCalculations.maxBucketsPerElement(numElements);
+        BloomFilterSpecification bloomFilterSpec = BloomCalculations.computeBloomSpec(maxBucketsPerElement,
+                acceptanleFalsePositiveRate);
+
+        ArrayTupleBuilder tupleBuilder = new ArrayTupleBuilder(1);
+        ArrayTupleReference tuple = new ArrayTupleReference();
+        long[] hashes = new long[2];
+        for (boolean blocked : new boolean[] { false, true }) {
+            BloomFilter bf = new BloomFilter(bufferCache, harness.getFileMapProvider(), harness.getFileReference(),
+                    keyFields, blocked);
+            bf.create();
+            bf.activate();
+            IIndexBulkLoader builder = bf.createBuilder(numElements, bloomFilterSpec.getNumHashes(),
+                    bloomFilterSpec.getNumBucketsPerElements());
+            for (int i = 0; i < numElements; ++i) {
+                TupleUtils.createIntegerTuple(tupleBuilder, tuple, i);
+                builder.add(tuple);
+            }
+            builder.end();
+
+            // the layout is read back from the metadata page
+            bf.deactivate();
+            bf.activate();
+            Assert.assertEquals(blocked, bf.isBlocked());
+            for (int i = 0; i < numElements; ++i) {
+                TupleUtils.createIntegerTuple(tupleBuilder, tuple, i);
+                Assert.assertTrue(bf.contains(tuple, hashes));
+            }
+
+            long pins = bufferCache.getFileStats(bf.getFileId()).getPinCount();
+            int falsePositives = 0;
+            long start = System.nanoTime();
+            for (int i = numElements; i < 2 * numElements; ++i) {
+                TupleUtils.createIntegerTuple(tupleBuilder, tuple, i);
+                if (bf.contains(tuple, hashes)) {
+                    falsePositives++;
+                }
+            }
+            long nanos = System.nanoTime() - start;
+            pins = bufferCache.getFileStats(bf.getFileId()).getPinCount() - pins;
+            double falsePositiveRate = (double) falsePositives / numElements;
+            if (LOGGER.isLoggable(Level.INFO)) {
+                LOGGER.info((blocked ? "blocked" : "standard") + " layout: " + ((double) pins / numElements)
+                        + " pins and " + (nanos / numElements) + " ns per negative lookup, false positive rate "
+                        + falsePositiveRate);
+            }
+            if (blocked) {
+                Assert.assertEquals(numElements, pins);
+            }
+            Assert.assertTrue(falsePositiveRate < 3 * acceptanleFalsePositiveRate);
+
+            bf.deactivate();
+            bf.destroy();
+        }
+    }
 }
@@ -35,7 +35,7 @@ public class BTreeBulkLoadTest extends OrderedIndexBulkLoadTest {
     private final BTreeTestHarness harness = new BTreeTestHarness();
 
     public BTreeBulkLoadTest() {
-        super(BTreeTestHarness.LEAF_FRAMES_TO_TEST, 1);
+        super(BTreeTestHarness.BULK_LOAD_LEAF_FRAMES_TO_TEST, 1);
     }
 
     @Before
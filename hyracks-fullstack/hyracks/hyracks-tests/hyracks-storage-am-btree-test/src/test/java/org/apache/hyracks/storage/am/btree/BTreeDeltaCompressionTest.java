@@ -0,0 +1,182 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.hyracks.storage.am.btree;
+
+import java.util.Arrays;
+import java.util.logging.Level;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.hyracks.api.dataflow.value.IBinaryComparatorFactory;
+import org.apache.hyracks.api.dataflow.value.ISerializerDeserializer;
+import org.apache.hyracks.api.dataflow.value.ITypeTraits;
+import org.apache.hyracks.data.std.accessors.PointableBinaryComparatorFactory;
+import org.apache.hyracks.data.std.primitive.IntegerPointable;
+import org.apache.hyracks.data.std.primitive.UTF8StringPointable;
+import org.apache.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
+import org.apache.hyracks.dataflow.common.comm.io.ArrayTupleReference;
+import org.apache.hyracks.dataflow.common.data.accessors.ITupleReference;
+import org.apache.hyracks.dataflow.common.data.marshalling.IntegerSerializerDeserializer;
+import org.apache.hyracks.dataflow.common.data.marshalling.UTF8StringSerializerDeserializer;
+import org.apache.hyracks.dataflow.common.util.TupleUtils;
+import org.apache.hyracks.storage.am.btree.frames.BTreeLeafFrameType;
+import org.apache.hyracks.storage.am.btree.impls.BTree;
+import org.apache.hyracks.storage.am.btree.impls.RangePredicate;
+import org.apache.hyracks.storage.am.btree.util.AbstractBTreeTest;
+import org.apache.hyracks.storage.am.btree.util.BTreeUtils;
+import org.apache.hyracks.storage.am.common.TestOperationCallback;
+import org.apache.hyracks.storage.am.common.api.IIndexBulkLoader;
+import org.apache.hyracks.storage.am.common.api.IIndexCursor;
+import org.apache.hyracks.storage.am.common.api.ITreeIndexAccessor;
+import org.apache.hyracks.storage.am.common.ophelpers.MultiComparator;
+import org.apache.hyracks.storage.am.common.util.TreeIndexStats;
+import org.apache.hyracks.storage.am.common.util.TreeIndexStatsGatherer;
+
+/**
+ * Bulk loads the same composite string keys into a B-tree with regular and with delta compressed leaf pages, and
+ * compares the number of leaf pages, the results of scans and searches, and the scan times.
+ */
+@SuppressWarnings("rawtypes")
+public class BTreeDeltaCompressionTest extends AbstractBTreeTest {
+    private static final int NUM_TUPLES = 40000;
+    private static final int ORDERS_PER_CUSTOMER = 8;
+    private static final int SCAN_ROUNDS = 5;
+
+    private final ISerializerDeserializer[] fieldSerdes = { new UTF8StringSerializerDeserializer(),
+            new UTF8StringSerializerDeserializer(), IntegerSerializerDeserializer.INSTANCE };
+    private final ITypeTraits[] typeTraits = { UTF8StringPointable.TYPE_TRAITS, UTF8StringPointable.TYPE_TRAITS,
+            IntegerPointable.TYPE_TRAITS };
+    private final IBinaryComparatorFactory[] cmpFactories = {
+            PointableBinaryComparatorFactory.of(UTF8StringPointable.FACTORY),
+            PointableBinaryComparatorFactory.of(UTF8StringPointable.FACTORY) };
+
+    private static class LoadResult {
+        long leafPages;
+        long numTuples;
+        long checksum;
+        long bestScanNanos = Long.MAX_VALUE;
+    }
+
+    @Test
+    public void deltaCompressedLeafPagesTest() throws Exception {
+        LoadResult regular = loadAndScan(BTreeLeafFrameType.REGULAR_NSM);
+        LoadResult delta = loadAndScan(BTreeLeafFrameType.DELTA_COMPRESSED_NSM);
+        if (LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.info("Regular leaf pages: " + regular.leafPages + ", best scan: " + regular.bestScanNanos / 1000
+                    + "us");
+            LOGGER.info("Delta compressed leaf pages: " + delta.leafPages + ", best scan: "
+                    + delta.bestScanNanos / 1000 + "us");
+        }
+        Assert.assertEquals(NUM_TUPLES, regular.numTuples);
+        Assert.assertEquals(regular.numTuples, delta.numTuples);
+        Assert.assertEquals(regular.checksum, delta.checksum);
+        Assert.assertTrue(delta.leafPages < regular.leafPages);
+    }
+
+    private static String customer(int i) {
+        return String.format("customer#%09d", i / ORDERS_PER_CUSTOMER);
+    }
+
+    private static String order(int i) {
+        return String.format("order#%012d", i);
+    }
+
+    private LoadResult loadAndScan(BTreeLeafFrameType leafType) throws Exception {
+        BTree btree = BTreeUtils.createBTree(harness.getBufferCache(), harness.getFileMapProvider(), typeTraits,
+                cmpFactories, leafType, harness.getFileReference());
+        btree.create();
+        btree.activate();
+
+        ArrayTupleBuilder tb = new ArrayTupleBuilder(fieldSerdes.length);
+        ArrayTupleReference tuple = new ArrayTupleReference();
+        IIndexBulkLoader bulkLoader = btree.createBulkLoader(1.0f, true, NUM_TUPLES, true);
+        for (int i = 0; i < NUM_TUPLES; i++) {
+            TupleUtils.createTuple(tb, tuple, fieldSerdes, customer(i), order(i), i);
+            bulkLoader.add(tuple);
+        }
+        bulkLoader.end();
+
+        LoadResult result = new LoadResult();
+        TreeIndexStatsGatherer statsGatherer = new TreeIndexStatsGatherer(harness.getBufferCache(),
+                btree.getMetaManager(), btree.getFileId(), btree.getRootPageId());
+        TreeIndexStats stats = statsGatherer.gatherStats(btree.getLeafFrameFactory().createFrame(),
+                btree.getInteriorFrameFactory().createFrame(), btree.getMetaManager().getMetaDataFrameFactory()
+                        .createFrame());
+        result.leafPages = stats.getLeafStats().getNumPages();
+
+        ITreeIndexAccessor accessor = btree.createAccessor(TestOperationCallback.INSTANCE,
+                TestOperationCallback.INSTANCE);
+        IIndexCursor cursor = accessor.createSearchCursor(false);
+        for (int round = 0; round < SCAN_ROUNDS; round++) {
+            long start = System.nanoTime();
+            long numTuples = 0;
+            long checksum = 0;
+            accessor.search(cursor, new RangePredicate(null, null, true, true, null, null));
+            try {
+                while (cursor.hasNext()) {
+                    cursor.next();
+                    ITupleReference frameTuple = cursor.getTuple();
+                    for (int f = 0; f < frameTuple.getFieldCount(); f++) {
+                        int fieldStart = frameTuple.getFieldStart(f);
+                        int fieldEnd = fieldStart + frameTuple.getFieldLength(f);
+                        checksum = checksum * 31
+                                + Arrays.hashCode(Arrays.copyOfRange(frameTuple.getFieldData(f), fieldStart, fieldEnd));
+                    }
+                    numTuples++;
+                }
+            } finally {
+                cursor.close();
+            }
+            result.bestScanNanos = Math.min(result.bestScanNanos, System.nanoTime() - start);
+            result.numTuples = numTuples;
+            result.checksum = checksum;
+        }
+
+        MultiComparator cmp = MultiComparator.create(cmpFactories);
+        MultiComparator prefixCmp = BTreeUtils.getSearchMultiComparator(cmpFactories,
+                TupleUtils.createTuple(fieldSerdes, customer(0)));
+        for (int i = 0; i < NUM_TUPLES; i += 97) {
+            ITupleReference key = TupleUtils.createTuple(fieldSerdes, customer(i), order(i));
+            Assert.assertEquals(1, countMatches(accessor, cursor, new RangePredicate(key, key, true, true, cmp, cmp)));
+            ITupleReference prefixKey = TupleUtils.createTuple(fieldSerdes, customer(i));
+            Assert.assertEquals(ORDERS_PER_CUSTOMER, countMatches(accessor, cursor,
+                    new RangePredicate(prefixKey, prefixKey, true, true, prefixCmp, prefixCmp)));
+        }
+
+        btree.deactivate();
+        btree.destroy();
+        return result;
+    }
+
+    private static int countMatches(ITreeIndexAccessor accessor, IIndexCursor cursor, RangePredicate pred)
+            throws Exception {
+        int matches = 0;
+        accessor.search(cursor, pred);
+        try {
+            while (cursor.hasNext()) {
+                cursor.next();
+                matches++;
+            }
+        } finally {
+            cursor.close();
+        }
+        return matches;
+    }
+}
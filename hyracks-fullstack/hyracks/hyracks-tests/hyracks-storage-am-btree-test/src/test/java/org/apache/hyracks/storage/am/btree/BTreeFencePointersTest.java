@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.hyracks.storage.am.btree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.hyracks.api.dataflow.value.IBinaryComparatorFactory;
+import org.apache.hyracks.api.dataflow.value.ISerializerDeserializer;
+import org.apache.hyracks.api.dataflow.value.ITypeTraits;
+import org.apache.hyracks.data.std.accessors.PointableBinaryComparatorFactory;
+import org.apache.hyracks.data.std.primitive.IntegerPointable;
+import org.apache.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
+import org.apache.hyracks.dataflow.common.comm.io.ArrayTupleReference;
+import org.apache.hyracks.dataflow.common.data.accessors.ITupleReference;
+import org.apache.hyracks.dataflow.common.data.marshalling.IntegerSerializerDeserializer;
+import org.apache.hyracks.dataflow.common.util.TupleUtils;
+import org.apache.hyracks.storage.am.btree.frames.BTreeLeafFrameType;
+import org.apache.hyracks.storage.am.btree.impls.BTree;
+import org.apache.hyracks.storage.am.btree.impls.BTreeFencePointers;
+import org.apache.hyracks.storage.am.btree.impls.RangePredicate;
+import org.apache.hyracks.storage.am.btree.util.AbstractBTreeTest;
+import org.apache.hyracks.storage.am.btree.util.BTreeUtils;
+import org.apache.hyracks.storage.am.common.TestOperationCallback;
+import org.apache.hyracks.storage.am.common.api.IIndexBulkLoader;
+import org.apache.hyracks.storage.am.common.api.IIndexCursor;
+import org.apache.hyracks.storage.am.common.api.ITreeIndexAccessor;
+import org.apache.hyracks.storage.am.common.ophelpers.MultiComparator;
+import org.apache.hyracks.storage.am.common.util.TreeIndexStats;
+import org.apache.hyracks.storage.am.common.util.TreeIndexStatsGatherer;
+
+/**
+ * Bulk loads a B-tree with several interior levels and checks that searches that find their leaf through the fence
+ * pointers return the same results as searches that descend from the root, for full and prefix keys with inclusive
+ * and exclusive bounds.
+ */
+@SuppressWarnings("rawtypes")
+public class BTreeFencePointersTest extends AbstractBTreeTest {
+    private static final int NUM_TUPLES = 20000;
+    private static final int TUPLES_PER_PREFIX = 8;
+    private static final int NUM_SEARCHES = 500;
+    // the number of results of a search that are compared
+    private static final int MAX_RESULTS = 10;
+
+    private final ISerializerDeserializer[] fieldSerdes = { IntegerSerializerDeserializer.INSTANCE,
+            IntegerSerializerDeserializer.INSTANCE, IntegerSerializerDeserializer.INSTANCE };
+    private final ITypeTraits[] typeTraits = { IntegerPointable.TYPE_TRAITS, IntegerPointable.TYPE_TRAITS,
+            IntegerPointable.TYPE_TRAITS };
+    private final IBinaryComparatorFactory[] cmpFactories = {
+            PointableBinaryComparatorFactory.of(IntegerPointable.FACTORY),
+            PointableBinaryComparatorFactory.of(IntegerPointable.FACTORY) };
+
+    @Test
+    public void fencePointersTest() throws Exception {
+        BTree btree = BTreeUtils.createBTree(harness.getBufferCache(), harness.getFileMapProvider(), typeTraits,
+                cmpFactories, BTreeLeafFrameType.REGULAR_NSM, harness.getFileReference());
+        btree.setFencePointers(true);
+        btree.create();
+        btree.activate();
+        Assert.assertNull(btree.getFencePointers());
+
+        ArrayTupleBuilder tb = new ArrayTupleBuilder(fieldSerdes.length);
+        ArrayTupleReference tuple = new ArrayTupleReference();
+        IIndexBulkLoader bulkLoader = btree.createBulkLoader(0.8f, true, NUM_TUPLES, true);
+        // leave gaps between the keys, so that searches also look for keys that are not in the tree
+        for (int i = 0; i < NUM_TUPLES; i++) {
+            TupleUtils.createTuple(tb, tuple, fieldSerdes, i / TUPLES_PER_PREFIX * 2, i * 2, i);
+            bulkLoader.add(tuple);
+        }
+        bulkLoader.end();
+
+        BTreeFencePointers fencePointers = btree.getFencePointers();
+        Assert.assertNotNull(fencePointers);
+        TreeIndexStatsGatherer statsGatherer = new TreeIndexStatsGatherer(harness.getBufferCache(),
+                btree.getMetaManager(), btree.getFileId(), btree.getRootPageId());
+        TreeIndexStats stats = statsGatherer.gatherStats(btree.getLeafFrameFactory().createFrame(),
+                btree.getInteriorFrameFactory().createFrame(), btree.getMetaManager().getMetaDataFrameFactory()
+                        .createFrame());
+        // with small pages, a thousand leaves take more than one level of interior nodes
+        Assert.assertTrue(fencePointers.getNumLeaves() > 500);
+        Assert.assertEquals(stats.getLeafStats().getNumPages(), fencePointers.getNumLeaves());
+
+        List<RangePredicate> preds = createPredicates(new Random(harness.getRandom().nextLong()));
+        List<List<Integer>> fenceResults = search(btree, preds);
+
+        // reactivating the tree without fence pointers makes the searches descend from the root
+        btree.deactivate();
+        btree.setFencePointers(false);
+        btree.activate();
+        Assert.assertNull(btree.getFencePointers());
+        Assert.assertEquals(search(btree, preds), fenceResults);
+
+        // the fence pointers are rebuilt when the tree is activated, and dropped when it is modified
+        btree.deactivate();
+        btree.setFencePointers(true);
+        btree.activate();
+        Assert.assertEquals(fencePointers.getNumLeaves(), btree.getFencePointers().getNumLeaves());
+        Assert.assertEquals(search(btree, preds), fenceResults);
+        ITreeIndexAccessor accessor = btree.createAccessor(TestOperationCallback.INSTANCE,
+                TestOperationCallback.INSTANCE);
+        accessor.insert(TupleUtils.createTuple(fieldSerdes, 1, 1, -1));
+        Assert.assertNull(btree.getFencePointers());
+
+        btree.deactivate();
+        btree.destroy();
+    }
+
+    private List<RangePredicate> createPredicates(Random rnd) throws Exception {
+        MultiComparator cmp = MultiComparator.create(cmpFactories);
+        MultiComparator prefixCmp = BTreeUtils.getSearchMultiComparator(cmpFactories,
+                TupleUtils.createTuple(fieldSerdes, 0));
+        int maxKey = NUM_TUPLES * 2 + 2;
+        List<RangePredicate> preds = new ArrayList<>();
+        preds.add(new RangePredicate(null, null, true, true, cmp, cmp));
+        for (int i = 0; i < NUM_SEARCHES; i++) {
+            int key = rnd.nextInt(maxKey) - 1;
+            int prefix = key / TUPLES_PER_PREFIX;
+            boolean lowKeyInclusive = rnd.nextBoolean();
+            ITupleReference fullKey = TupleUtils.createTuple(fieldSerdes, prefix, key);
+            ITupleReference highKey = TupleUtils.createTuple(fieldSerdes, prefix + 1, key + 16);
+            ITupleReference prefixKey = TupleUtils.createTuple(fieldSerdes, prefix);
+            preds.add(new RangePredicate(fullKey, fullKey, lowKeyInclusive, true, cmp, cmp));
+            preds.add(new RangePredicate(fullKey, highKey, lowKeyInclusive, true, cmp, cmp));
+            preds.add(new RangePredicate(fullKey, null, lowKeyInclusive, true, cmp, null));
+            preds.add(new RangePredicate(prefixKey, prefixKey, lowKeyInclusive, true, prefixCmp, prefixCmp));
+            preds.add(new RangePredicate(prefixKey, null, lowKeyInclusive, true, prefixCmp, null));
+            preds.add(new RangePredicate(null, fullKey, true, true, null, cmp));
+        }
+        return preds;
+    }
+
+    private List<List<Integer>> search(BTree btree, List<RangePredicate> preds) throws Exception {
+        ITreeIndexAccessor accessor = btree.createAccessor(TestOperationCallback.INSTANCE,
+                TestOperationCallback.INSTANCE);
+        IIndexCursor cursor = accessor.createSearchCursor(false);
+        List<List<Integer>> results = new ArrayList<>();
+        for (RangePredicate pred : preds) {
+            List<Integer> result = new ArrayList<>();
+            accessor.search(cursor, pred);
+            try {
+                while (result.size() < MAX_RESULTS && cursor.hasNext()) {
+                    cursor.next();
+                    ITupleReference frameTuple = cursor.getTuple();
+                    result.add(IntegerPointable.getInteger(frameTuple.getFieldData(2), frameTuple.getFieldStart(2)));
+                }
+            } finally {
+                cursor.close();
+            }
+            results.add(result);
+        }
+        return results;
+    }
+}
@@ -37,6 +37,10 @@ import org.apache.hyracks.test.support.TestUtils;
 public class BTreeTestHarness {
     public static final BTreeLeafFrameType[] LEAF_FRAMES_TO_TEST = new BTreeLeafFrameType[] {
             BTreeLeafFrameType.REGULAR_NSM, BTreeLeafFrameType.FIELD_PREFIX_COMPRESSED_NSM };
+    // delta compressed leaf pages are only written by bulk loads
+    public static final BTreeLeafFrameType[] BULK_LOAD_LEAF_FRAMES_TO_TEST = new BTreeLeafFrameType[] {
+            BTreeLeafFrameType.REGULAR_NSM, BTreeLeafFrameType.FIELD_PREFIX_COMPRESSED_NSM,
+            BTreeLeafFrameType.DELTA_COMPRESSED_NSM };
 
     private static final long RANDOM_SEED = 50;
 
@@ -0,0 +1,176 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.hyracks.storage.am.lsm.btree;
+
+import org.apache.hyracks.api.dataflow.value.ISerializerDeserializer;
+import org.apache.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
+import org.apache.hyracks.dataflow.common.comm.io.ArrayTupleReference;
+import org.apache.hyracks.dataflow.common.data.marshalling.IntegerSerializerDeserializer;
+import org.apache.hyracks.dataflow.common.util.SerdeUtils;
+import org.apache.hyracks.dataflow.common.util.TupleUtils;
+import org.apache.hyracks.storage.am.btree.impls.RangePredicate;
+import org.apache.hyracks.storage.am.common.api.IIndexCursor;
+import org.apache.hyracks.storage.am.common.impls.NoOpOperationCallback;
+import org.apache.hyracks.storage.am.common.ophelpers.IndexOperation;
+import org.apache.hyracks.storage.am.common.ophelpers.MultiComparator;
+import org.apache.hyracks.storage.am.lsm.btree.impls.LSMBTree;
+import org.apache.hyracks.storage.am.lsm.btree.impls.LSMBTreeDiskComponent;
+import org.apache.hyracks.storage.am.lsm.btree.impls.LSMBTreeOpContext;
+import org.apache.hyracks.storage.am.lsm.btree.util.LSMBTreeTestHarness;
+import org.apache.hyracks.storage.am.lsm.btree.util.LSMBTreeUtils;
+import org.apache.hyracks.storage.am.lsm.common.api.ILSMComponent;
+import org.apache.hyracks.storage.am.lsm.common.api.ILSMComponent.LSMComponentType;
+import org.apache.hyracks.storage.am.lsm.common.api.ILSMIndexAccessor;
+import org.apache.hyracks.storage.am.lsm.common.impls.NoOpIOOperationCallback;
+import org.apache.hyracks.storage.am.lsm.common.impls.NoOpOperationTrackerProvider;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that the key ranges of disk components are kept across flushes, merges and restarts, and that searches
+ * skip the disk components whose key range does not overlap their own.
+ */
+public class LSMBTreeKeyRangeTest {
+    private static final int NUM_COMPONENTS = 3;
+    private static final int TUPLES_PER_COMPONENT = 100;
+
+    @SuppressWarnings("rawtypes")
+    private final ISerializerDeserializer[] fieldSerdes = { IntegerSerializerDeserializer.INSTANCE,
+            IntegerSerializerDeserializer.INSTANCE };
+    private final LSMBTreeTestHarness harness = new LSMBTreeTestHarness();
+    private final MultiComparator cmp = MultiComparator.create(SerdeUtils.serdesToComparatorFactories(fieldSerdes, 1));
+    private LSMBTree index;
+
+    @Before
+    public void setUp() throws Exception {
+        harness.setUp();
+        index = LSMBTreeUtils.createLSMTree(harness.getVirtualBufferCaches(), harness.getFileReference(),
+                harness.getDiskBufferCache(), harness.getDiskFileMapProvider(),
+                SerdeUtils.serdesToTypeTraits(fieldSerdes), SerdeUtils.serdesToComparatorFactories(fieldSerdes, 1),
+                new int[] { 0 }, harness.getBoomFilterFalsePositiveRate(), harness.getMergePolicy(),
+                NoOpOperationTrackerProvider.INSTANCE.getOperationTracker(null), harness.getIOScheduler(),
+                harness.getIOOperationCallback(), true, null, null, null, null, true);
+        index.create();
+        index.activate();
+        // one disk component per range of keys, the largest keys in the newest component
+        ILSMIndexAccessor accessor = index.createAccessor(NoOpOperationCallback.INSTANCE,
+                NoOpOperationCallback.INSTANCE);
+        ArrayTupleBuilder builder = new ArrayTupleBuilder(fieldSerdes.length);
+        ArrayTupleReference tuple = new ArrayTupleReference();
+        for (int i = 0; i < NUM_COMPONENTS; i++) {
+            for (int j = 0; j < TUPLES_PER_COMPONENT; j++) {
+                int key = i * TUPLES_PER_COMPONENT + j;
+                TupleUtils.createIntegerTuple(builder, tuple, key, key);
+                accessor.insert(tuple);
+            }
+            accessor.scheduleFlush(NoOpIOOperationCallback.INSTANCE);
+        }
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        index.deactivate();
+        index.destroy();
+        harness.tearDown();
+    }
+
+    @Test
+    public void keyRangeTest() throws Exception {
+        Assert.assertEquals(NUM_COMPONENTS, index.getDiskComponentCount());
+        checkKeyRanges();
+
+        // the key ranges of components that are found on disk are read again
+        index.deactivate();
+        index.activate();
+        checkKeyRanges();
+    }
+
+    @Test
+    public void searchTest() throws Exception {
+        checkSearch(150, true, 160, true, 1, 11);
+        checkSearch(99, true, 100, true, 2, 2);
+        checkSearch(99, false, 100, true, 1, 1);
+        checkSearch(99, true, 100, false, 1, 1);
+        checkSearch(50, true, 250, true, 3, 201);
+        checkSearch(NUM_COMPONENTS * TUPLES_PER_COMPONENT, true, null, true, 0, 0);
+        checkSearch(null, true, -1, true, 0, 0);
+        checkSearch(null, true, null, true, 3, NUM_COMPONENTS * TUPLES_PER_COMPONENT);
+    }
+
+    @Test
+    public void mergeTest() throws Exception {
+        ILSMIndexAccessor accessor = index.createAccessor(NoOpOperationCallback.INSTANCE,
+                NoOpOperationCallback.INSTANCE);
+        accessor.scheduleFullMerge(NoOpIOOperationCallback.INSTANCE);
+        Assert.assertEquals(1, index.getDiskComponentCount());
+        LSMBTreeDiskComponent component = (LSMBTreeDiskComponent) index.getImmutableComponents().get(0);
+        checkKeyRange(component, 0, NUM_COMPONENTS * TUPLES_PER_COMPONENT - 1);
+        checkSearch(150, true, 160, true, 1, 11);
+    }
+
+    private void checkKeyRanges() throws Exception {
+        for (int i = 0; i < NUM_COMPONENTS; i++) {
+            // disk components are ordered from the newest to the oldest
+            LSMBTreeDiskComponent component = (LSMBTreeDiskComponent) index.getImmutableComponents()
+                    .get(NUM_COMPONENTS - 1 - i);
+            checkKeyRange(component, i * TUPLES_PER_COMPONENT, (i + 1) * TUPLES_PER_COMPONENT - 1);
+        }
+    }
+
+    private void checkKeyRange(LSMBTreeDiskComponent component, int minKey, int maxKey) throws Exception {
+        Assert.assertEquals(0, cmp.compare(TupleUtils.createIntegerTuple(minKey), component.getMinKey()));
+        Assert.assertEquals(0, cmp.compare(TupleUtils.createIntegerTuple(maxKey), component.getMaxKey()));
+    }
+
+    private void checkSearch(Integer lowKey, boolean lowKeyInclusive, Integer highKey, boolean highKeyInclusive,
+            int expectedComponents, int expectedTuples) throws Exception {
+        RangePredicate pred = new RangePredicate(lowKey == null ? null : TupleUtils.createIntegerTuple(lowKey),
+                highKey == null ? null : TupleUtils.createIntegerTuple(highKey), lowKeyInclusive, highKeyInclusive,
+                cmp, cmp);
+        LSMBTreeOpContext ctx = index.createOpContext(NoOpOperationCallback.INSTANCE,
+                NoOpOperationCallback.INSTANCE);
+        ctx.setOperation(IndexOperation.SEARCH);
+        ctx.setSearchPredicate(pred);
+        index.getOperationalComponents(ctx);
+        int diskComponents = 0;
+        for (ILSMComponent c : ctx.getComponentHolder()) {
+            if (c.getType() == LSMComponentType.DISK) {
+                diskComponents++;
+            }
+        }
+        Assert.assertEquals(expectedComponents, diskComponents);
+
+        ILSMIndexAccessor accessor = index.createAccessor(NoOpOperationCallback.INSTANCE,
+                NoOpOperationCallback.INSTANCE);
+        IIndexCursor cursor = accessor.createSearchCursor(false);
+        accessor.search(cursor, pred);
+        int numTuples = 0;
+        try {
+            while (cursor.hasNext()) {
+                cursor.next();
+                numTuples++;
+            }
+        } finally {
+            cursor.close();
+        }
+        Assert.assertEquals(expectedTuples, numTuples);
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.hyracks.storage.am.lsm.btree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.hyracks.api.dataflow.value.ISerializerDeserializer;
+import org.apache.hyracks.api.exceptions.HyracksDataException;
+import org.apache.hyracks.api.exceptions.HyracksException;
+import org.apache.hyracks.data.std.primitive.IntegerPointable;
+import org.apache.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
+import org.apache.hyracks.dataflow.common.comm.io.ArrayTupleReference;
+import org.apache.hyracks.dataflow.common.data.accessors.ITupleReference;
+import org.apache.hyracks.dataflow.common.util.TupleUtils;
+import org.apache.hyracks.storage.am.btree.OrderedIndexTestContext;
+import org.apache.hyracks.storage.am.btree.frames.BTreeLeafFrameType;
+import org.apache.hyracks.storage.am.common.api.IIndexBulkLoader;
+import org.apache.hyracks.storage.am.common.api.IndexException;
+import org.apache.hyracks.storage.am.common.exceptions.TreeIndexDuplicateKeyException;
+import org.apache.hyracks.storage.am.lsm.btree.util.LSMBTreeTestContext;
+import org.apache.hyracks.storage.am.lsm.btree.util.LSMBTreeTestHarness;
+import org.apache.hyracks.storage.am.lsm.common.impls.PipelinedBulkLoader;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Runs the merge tests with flushes, merges and bulk loads that build the Bloom filters of their components on a
+ * separate thread.
+ */
+@SuppressWarnings("rawtypes")
+public class LSMBTreePipelinedLoadTest extends LSMBTreeMergeTestDriver {
+    private final LSMBTreeTestHarness harness = new LSMBTreeTestHarness();
+
+    public LSMBTreePipelinedLoadTest() {
+        super(LSMBTreeTestHarness.LEAF_FRAMES_TO_TEST);
+    }
+
+    @Before
+    public void setUp() throws HyracksException {
+        harness.setUp();
+    }
+
+    @After
+    public void tearDown() throws HyracksDataException {
+        harness.tearDown();
+    }
+
+    @Override
+    protected OrderedIndexTestContext createTestContext(ISerializerDeserializer[] fieldSerdes, int numKeys,
+            BTreeLeafFrameType leafType) throws Exception {
+        return LSMBTreeTestContext.create(harness.getVirtualBufferCaches(), harness.getFileReference(),
+                harness.getDiskBufferCache(), harness.getDiskFileMapProvider(), fieldSerdes, numKeys,
+                harness.getBoomFilterFalsePositiveRate(), harness.getMergePolicy(), harness.getOperationTracker(),
+                harness.getIOScheduler(), harness.getIOOperationCallback(), false, false, 1, true);
+    }
+
+    @Override
+    protected Random getRandom() {
+        return harness.getRandom();
+    }
+
+    @Test
+    public void pipelinedLoaderTest() throws Exception {
+        int numTuples = 100000;
+        List<Integer> loadedKeys = new ArrayList<Integer>();
+        PipelinedBulkLoader loader = new PipelinedBulkLoader(new KeyCollector(loadedKeys, -1), 1);
+        ArrayTupleBuilder builder = new ArrayTupleBuilder(2);
+        ArrayTupleReference tuple = new ArrayTupleReference();
+        for (int i = 0; i < numTuples; i++) {
+            TupleUtils.createIntegerTuple(builder, tuple, i, -i);
+            loader.add(tuple);
+        }
+        loader.end();
+        Assert.assertEquals(numTuples, loadedKeys.size());
+        for (int i = 0; i < numTuples; i++) {
+            Assert.assertEquals(i, loadedKeys.get(i).intValue());
+        }
+
+        // a failure of the worker is thrown to the caller, by add() once the queue is full or else by end()
+        loader = new PipelinedBulkLoader(new KeyCollector(new ArrayList<Integer>(), 10), 1);
+        try {
+            for (int i = 0; i < numTuples; i++) {
+                TupleUtils.createIntegerTuple(builder, tuple, i, -i);
+                loader.add(tuple);
+            }
+            loader.end();
+            Assert.fail("The failure of the loader was lost");
+        } catch (TreeIndexDuplicateKeyException e) {
+            loader.abort();
+        }
+    }
+
+    /**
+     * Collects the first field of the tuples, and fails at the given key.
+     */
+    private static class KeyCollector implements IIndexBulkLoader {
+        private final List<Integer> keys;
+        private final int failingKey;
+
+        KeyCollector(List<Integer> keys, int failingKey) {
+            this.keys = keys;
+            this.failingKey = failingKey;
+        }
+
+        @Override
+        public void add(ITupleReference tuple) throws IndexException {
+            Assert.assertEquals(1, tuple.getFieldCount());
+            int key = IntegerPointable.getInteger(tuple.getFieldData(0), tuple.getFieldStart(0));
+            if (key == failingKey) {
+                throw new TreeIndexDuplicateKeyException("Key " + key + " was loaded before");
+            }
+            keys.add(key);
+        }
+
+        @Override
+        public void end() {
+        }
+
+        @Override
+        public void abort() {
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.hyracks.storage.am.lsm.btree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.hyracks.api.dataflow.value.ISerializerDeserializer;
+import org.apache.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
+import org.apache.hyracks.dataflow.common.comm.io.ArrayTupleReference;
+import org.apache.hyracks.dataflow.common.data.marshalling.IntegerSerializerDeserializer;
+import org.apache.hyracks.dataflow.common.util.SerdeUtils;
+import org.apache.hyracks.dataflow.common.util.TupleUtils;
+import org.apache.hyracks.storage.am.common.impls.NoOpOperationCallback;
+import org.apache.hyracks.storage.am.lsm.btree.impls.LSMBTree;
+import org.apache.hyracks.storage.am.lsm.btree.util.LSMBTreeTestHarness;
+import org.apache.hyracks.storage.am.lsm.btree.util.LSMBTreeUtils;
+import org.apache.hyracks.storage.am.lsm.common.api.ILSMIOOperation;
+import org.apache.hyracks.storage.am.lsm.common.api.ILSMIOOperationScheduler;
+import org.apache.hyracks.storage.am.lsm.common.api.ILSMIndexAccessor;
+import org.apache.hyracks.storage.am.lsm.common.api.IVirtualBufferCache;
+import org.apache.hyracks.storage.am.lsm.common.impls.NoOpOperationTrackerProvider;
+import org.apache.hyracks.storage.am.lsm.common.impls.SynchronousScheduler;
+import org.apache.hyracks.storage.am.lsm.common.impls.VirtualBufferCache;
+import org.apache.hyracks.storage.common.buffercache.HeapBufferAllocator;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks that memory components are flushed at the flush threshold of their virtual buffer caches, and that writers
+ * that have to wait for a memory component that is still being flushed are counted as write stalls.
+ */
+public class LSMBTreeWriteStallTest {
+    private static final int NUM_MEM_PAGES = 8;
+    private static final double FLUSH_THRESHOLD = 0.5;
+    private static final int MAX_TUPLES = 100000;
+
+    @SuppressWarnings("rawtypes")
+    private final ISerializerDeserializer[] fieldSerdes = { IntegerSerializerDeserializer.INSTANCE,
+            IntegerSerializerDeserializer.INSTANCE };
+    private final LSMBTreeTestHarness harness = new LSMBTreeTestHarness();
+    private final List<ILSMIOOperation> scheduledOperations = Collections.synchronizedList(new ArrayList<>());
+    private final ArrayTupleBuilder builder = new ArrayTupleBuilder(fieldSerdes.length);
+    private final ArrayTupleReference tuple = new ArrayTupleReference();
+    // while set, operations are only run when the test calls them
+    private volatile boolean deferOperations = true;
+    private List<IVirtualBufferCache> virtualBufferCaches;
+    private LSMBTree index;
+
+    @Before
+    public void setUp() throws Exception {
+        harness.setUp();
+        virtualBufferCaches = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            virtualBufferCaches.add(new VirtualBufferCache(new HeapBufferAllocator(), harness.getMemPageSize(),
+                    NUM_MEM_PAGES, FLUSH_THRESHOLD));
+        }
+        ILSMIOOperationScheduler ioScheduler = operation -> {
+            if (deferOperations) {
+                scheduledOperations.add(operation);
+            } else {
+                SynchronousScheduler.INSTANCE.scheduleOperation(operation);
+            }
+        };
+        index = LSMBTreeUtils.createLSMTree(virtualBufferCaches, harness.getFileReference(),
+                harness.getDiskBufferCache(), harness.getDiskFileMapProvider(),
+                SerdeUtils.serdesToTypeTraits(fieldSerdes), SerdeUtils.serdesToComparatorFactories(fieldSerdes, 1),
+                new int[] { 0 }, harness.getBoomFilterFalsePositiveRate(), harness.getMergePolicy(),
+                NoOpOperationTrackerProvider.INSTANCE.getOperationTracker(null), ioScheduler,
+                harness.getIOOperationCallback(), true, null, null, null, null, true);
+        index.create();
+        index.activate();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        deferOperations = false;
+        index.deactivate();
+        index.destroy();
+        harness.tearDown();
+    }
+
+    @Test
+    public void flushThresholdTest() throws Exception {
+        ILSMIndexAccessor accessor = createAccessor();
+        insertUntilFlushRequested(accessor, 0);
+        // the component is flushed well before all of its pages are used
+        Assert.assertTrue(virtualBufferCaches.get(0).isFull());
+        Assert.assertTrue(virtualBufferCaches.get(0).getNumPages() > NUM_MEM_PAGES * FLUSH_THRESHOLD);
+        accessor.scheduleFlush(harness.getIOOperationCallback());
+        Assert.assertEquals(1, scheduledOperations.size());
+        scheduledOperations.remove(0).call();
+        Assert.assertEquals(1, index.getDiskComponentCount());
+        Assert.assertEquals(0, index.getWriteStallCount());
+    }
+
+    @Test
+    public void writeStallTest() throws Exception {
+        ILSMIndexAccessor accessor = createAccessor();
+        // fill both memory components and leave their flushes pending
+        int key = insertUntilFlushRequested(accessor, 0);
+        accessor.scheduleFlush(harness.getIOOperationCallback());
+        key = insertUntilFlushRequested(accessor, key);
+        accessor.scheduleFlush(harness.getIOOperationCallback());
+        Assert.assertEquals(2, scheduledOperations.size());
+        Assert.assertEquals(0, index.getWriteStallCount());
+
+        // the next writer has to wait for the flush of the first component
+        final int stalledKey = key;
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            try {
+                insert(createAccessor(), new ArrayTupleBuilder(fieldSerdes.length), new ArrayTupleReference(),
+                        stalledKey);
+            } catch (Throwable th) {
+                failure.set(th);
+            }
+        });
+        writer.start();
+        while (writer.getState() != Thread.State.WAITING && writer.isAlive()) {
+            Thread.sleep(10);
+        }
+        Assert.assertTrue(writer.isAlive());
+
+        scheduledOperations.remove(0).call();
+        writer.join();
+        Assert.assertNull(failure.get());
+        Assert.assertEquals(1, index.getWriteStallCount());
+        Assert.assertTrue(index.getWriteStallNanos() > 0);
+
+        scheduledOperations.remove(0).call();
+        Assert.assertEquals(2, index.getDiskComponentCount());
+    }
+
+    private ILSMIndexAccessor createAccessor() {
+        return index.createAccessor(NoOpOperationCallback.INSTANCE, NoOpOperationCallback.INSTANCE);
+    }
+
+    private int insertUntilFlushRequested(ILSMIndexAccessor accessor, int key) throws Exception {
+        for (int i = 0; i < MAX_TUPLES; i++) {
+            insert(accessor, builder, tuple, key++);
+            if (index.hasFlushRequestForCurrentMutableComponent()) {
+                return key;
+            }
+        }
+        throw new AssertionError("The memory component was not filled by " + MAX_TUPLES + " tuples");
+    }
+
+    private static void insert(ILSMIndexAccessor accessor, ArrayTupleBuilder builder, ArrayTupleReference tuple,
+            int key) throws Exception {
+        TupleUtils.createIntegerTuple(builder, tuple, key, key);
+        accessor.insert(tuple);
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.hyracks.storage.am.lsm.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.hyracks.api.dataflow.value.ITypeTraits;
+import org.apache.hyracks.api.exceptions.HyracksDataException;
+import org.apache.hyracks.data.std.primitive.IntegerPointable;
+import org.apache.hyracks.dataflow.common.comm.io.ArrayTupleBuilder;
+import org.apache.hyracks.dataflow.common.comm.io.ArrayTupleReference;
+import org.apache.hyracks.dataflow.common.data.accessors.ITupleReference;
+import org.apache.hyracks.dataflow.common.data.marshalling.IntegerSerializerDeserializer;
+import org.apache.hyracks.storage.am.common.api.ICursorInitialState;
+import org.apache.hyracks.storage.am.common.api.IIndexCursor;
+import org.apache.hyracks.storage.am.common.api.ISearchPredicate;
+import org.apache.hyracks.storage.am.common.tuples.TypeAwareTupleWriterFactory;
+import org.apache.hyracks.storage.am.lsm.common.impls.ParallelMergeCursor;
+import org.junit.Test;
+
+public class ParallelMergeCursorTest {
+    private static final int RANGE_SIZE = 100000;
+
+    @Test
+    public void mergeTest() throws Exception {
+        ParallelMergeCursor cursor = createCursor(3, -1);
+        cursor.open(null, null);
+        try {
+            // the tuples of the ranges are returned in key order
+            for (int i = 0; i < 3 * RANGE_SIZE; i++) {
+                assertTrue(cursor.hasNext());
+                cursor.next();
+                assertEquals(i, getKey(cursor.getTuple()));
+            }
+            assertFalse(cursor.hasNext());
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Test
+    public void interruptedWorkerTest() throws Exception {
+        // the worker of the second range is interrupted while it still has tuples to publish
+        ParallelMergeCursor cursor = createCursor(3, RANGE_SIZE + RANGE_SIZE / 2);
+        cursor.open(null, null);
+        int numTuples = 0;
+        try {
+            while (cursor.hasNext()) {
+                cursor.next();
+                assertEquals(numTuples++, getKey(cursor.getTuple()));
+            }
+            fail("The merge did not fail");
+        } catch (HyracksDataException e) {
+            assertTrue(e.getCause() instanceof InterruptedException);
+            assertTrue(numTuples >= RANGE_SIZE && numTuples < 2 * RANGE_SIZE);
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * @param interruptAt
+     *            the key before which the worker that reads it interrupts itself, or -1
+     */
+    private static ParallelMergeCursor createCursor(int numRanges, int interruptAt) {
+        List<ParallelMergeCursor.Range> ranges = new ArrayList<>();
+        for (int i = 0; i < numRanges; i++) {
+            ranges.add(new ParallelMergeCursor.Range(
+                    new RangeCursor(i * RANGE_SIZE, (i + 1) * RANGE_SIZE, interruptAt), null, null));
+        }
+        return new ParallelMergeCursor(ranges,
+                new TypeAwareTupleWriterFactory(new ITypeTraits[] { IntegerPointable.TYPE_TRAITS }));
+    }
+
+    private static int getKey(ITupleReference tuple) {
+        return IntegerPointable.getInteger(tuple.getFieldData(0), tuple.getFieldStart(0));
+    }
+
+    /**
+     * Returns the keys of a range.
+     */
+    private static class RangeCursor implements IIndexCursor {
+        private final int end;
+        private final int interruptAt;
+        private final ArrayTupleBuilder tupleBuilder = new ArrayTupleBuilder(1);
+        private final ArrayTupleReference tuple = new ArrayTupleReference();
+        private int next;
+
+        private RangeCursor(int start, int end, int interruptAt) {
+            this.next = start;
+            this.end = end;
+            this.interruptAt = interruptAt;
+        }
+
+        @Override
+        public void open(ICursorInitialState initialState, ISearchPredicate searchPred) {
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == interruptAt) {
+                Thread.currentThread().interrupt();
+            }
+            return next < end;
+        }
+
+        @Override
+        public void next() throws HyracksDataException {
+            tupleBuilder.reset();
+            tupleBuilder.addField(IntegerSerializerDeserializer.INSTANCE, next++);
+            tuple.reset(tupleBuilder.getFieldEndOffsets(), tupleBuilder.getByteArray());
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void reset() {
+        }
+
+        @Override
+        public ITupleReference getTuple() {
+            return tuple;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.hyracks.storage.am.lsm.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.hyracks.api.exceptions.HyracksDataException;
+import org.apache.hyracks.api.io.IODeviceHandle;
+import org.apache.hyracks.storage.am.lsm.common.api.ILSMIOOperation;
+import org.apache.hyracks.storage.am.lsm.common.api.ILSMIOOperationCallback;
+import org.apache.hyracks.storage.am.lsm.common.impls.PrioritizedIOScheduler;
+import org.apache.hyracks.storage.common.buffercache.IORateLimiter;
+import org.junit.Test;
+
+public class PrioritizedIOSchedulerTest {
+    private final IODeviceHandle device1 = new IODeviceHandle(new File("dev1"), "work");
+    private final IODeviceHandle device2 = new IODeviceHandle(new File("dev2"), "work");
+    private final List<String> startedOperations = Collections.synchronizedList(new ArrayList<String>());
+
+    @Test
+    public void deviceLimitTest() throws Exception {
+        PrioritizedIOScheduler scheduler = new PrioritizedIOScheduler(Executors.defaultThreadFactory(), 3, 2, 0);
+        CountDownLatch release = new CountDownLatch(1);
+        // merges are limited to 2 per device, and do not hold up a device they do not use
+        TestOperation merge1 = new TestOperation("merge1", "index1", false, device1, release);
+        TestOperation merge2 = new TestOperation("merge2", "index2", false, device1, release);
+        TestOperation merge3 = new TestOperation("merge3", "index3", false, device1, release);
+        TestOperation merge4 = new TestOperation("merge4", "index4", false, device2, release);
+        scheduler.scheduleOperation(merge1);
+        scheduler.scheduleOperation(merge2);
+        scheduler.scheduleOperation(merge3);
+        scheduler.scheduleOperation(merge4);
+        merge1.awaitStart();
+        merge2.awaitStart();
+        merge4.awaitStart();
+        assertEquals(2, scheduler.getNumRunningMerges(device1));
+        assertEquals(1, scheduler.getNumRunningMerges(device2));
+        // a flush takes the free slot of the device, further flushes wait even though a merge is waiting too
+        TestOperation flush1 = new TestOperation("flush1", "index5", true, device1, release);
+        TestOperation flush2 = new TestOperation("flush2", "index6", true, device1, release);
+        scheduler.scheduleOperation(flush1);
+        scheduler.scheduleOperation(flush2);
+        flush1.awaitStart();
+        assertEquals(3, scheduler.getNumRunningOperations(device1));
+        assertEquals(2, scheduler.getNumWaitingOperations());
+        assertEquals(4, startedOperations.size());
+
+        release.countDown();
+        merge3.awaitStart();
+        flush2.awaitStart();
+        waitForCompletion(scheduler, 2, 4);
+        assertEquals(0, scheduler.getNumRunningOperations(device1));
+        // the waiting flush started before the merge that was scheduled earlier
+        assertTrue(startedOperations.indexOf("flush2") < startedOperations.indexOf("merge3"));
+    }
+
+    @Test
+    public void flushOrderTest() throws Exception {
+        PrioritizedIOScheduler scheduler = new PrioritizedIOScheduler(Executors.defaultThreadFactory(), 4, 2, 0);
+        CountDownLatch release = new CountDownLatch(1);
+        // flushes of the same index run one at a time, in the order of their components
+        TestOperation flush3 = new TestOperation("flush3", "index1", true, device1, release);
+        TestOperation flush1 = new TestOperation("flush1", "index1", true, device1, release);
+        TestOperation flush2 = new TestOperation("flush2", "index1", true, device1, release);
+        scheduler.scheduleOperation(flush3);
+        flush3.awaitStart();
+        scheduler.scheduleOperation(flush2);
+        scheduler.scheduleOperation(flush1);
+        assertEquals(1, scheduler.getNumRunningOperations(device1));
+        release.countDown();
+        waitForCompletion(scheduler, 3, 0);
+        assertEquals("[flush3, flush1, flush2]", startedOperations.toString());
+    }
+
+    @Test
+    public void mergeRateTest() throws Exception {
+        long rate = 10L << 20;
+        IORateLimiter rateLimiter = new IORateLimiter(rate);
+        long start = System.nanoTime();
+        // the first 100ms worth of bytes pass as a burst
+        for (int i = 0; i < 40; i++) {
+            rateLimiter.acquire(128 << 10);
+        }
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        long expectedMillis = (40L * (128 << 10)) * 1000 / rate - 100;
+        assertTrue("elapsed " + elapsedMillis + "ms", elapsedMillis >= expectedMillis - 20);
+    }
+
+    private static void waitForCompletion(PrioritizedIOScheduler scheduler, long numFlushes, long numMerges)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (scheduler.getNumCompletedFlushes() < numFlushes || scheduler.getNumCompletedMerges() < numMerges) {
+            assertTrue(System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+    }
+
+    private class TestOperation implements ILSMIOOperation, Comparable<TestOperation> {
+        private final String name;
+        private final String indexId;
+        private final boolean isFlush;
+        private final IODeviceHandle device;
+        private final CountDownLatch release;
+        private final CountDownLatch started = new CountDownLatch(1);
+
+        TestOperation(String name, String indexId, boolean isFlush, IODeviceHandle device, CountDownLatch release) {
+            this.name = name;
+            this.indexId = indexId;
+            this.isFlush = isFlush;
+            this.device = device;
+            this.release = release;
+        }
+
+        void awaitStart() throws InterruptedException {
+            assertTrue(name + " did not start", started.await(10, TimeUnit.SECONDS));
+        }
+
+        @Override
+        public Set<IODeviceHandle> getReadDevices() {
+            return isFlush ? Collections.<IODeviceHandle> emptySet() : Collections.singleton(device);
+        }
+
+        @Override
+        public Set<IODeviceHandle> getWriteDevices() {
+            return Collections.singleton(device);
+        }
+
+        @Override
+        public Boolean call() throws HyracksDataException {
+            startedOperations.add(name);
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new HyracksDataException(e);
+            }
+            return true;
+        }
+
+        @Override
+        public ILSMIOOperationCallback getCallback() {
+            return null;
+        }
+
+        @Override
+        public String getIndexUniqueIdentifier() {
+            return indexId;
+        }
+
+        @Override
+        public LSMIOOpertionType getIOOpertionType() {
+            return isFlush ? LSMIOOpertionType.FLUSH : LSMIOOpertionType.MERGE;
+        }
+
+        @Override
+        public int compareTo(TestOperation o) {
+            return name.compareTo(o.name);
+        }
+    }
+}
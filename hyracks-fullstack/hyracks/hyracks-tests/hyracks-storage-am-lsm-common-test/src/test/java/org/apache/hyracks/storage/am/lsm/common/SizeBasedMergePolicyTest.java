@@ -0,0 +1,226 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.hyracks.storage.am.lsm.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.hyracks.storage.am.lsm.common.api.ILSMComponent;
+import org.apache.hyracks.storage.am.lsm.common.impls.AbstractDiskLSMComponent;
+import org.apache.hyracks.storage.am.lsm.common.impls.AbstractSizeBasedMergePolicy;
+import org.apache.hyracks.storage.am.lsm.common.impls.LeveledMergePolicy;
+import org.apache.hyracks.storage.am.lsm.common.impls.SizeTieredMergePolicy;
+import org.junit.Test;
+
+public class SizeBasedMergePolicyTest {
+    private static final Logger LOGGER = Logger.getLogger(SizeBasedMergePolicyTest.class.getName());
+    private static final long FLUSH_SIZE = 1000;
+    private static final int NUM_FLUSHES = 4096;
+
+    @Test
+    public void sizeTieredSelectionTest() {
+        TestSizeTieredMergePolicy policy = new TestSizeTieredMergePolicy();
+        policy.configure(sizeTieredProperties(3, 4, 2.0, Long.MAX_VALUE));
+        // newest first: the two small ones are not enough, the three medium ones form the first tier to merge
+        List<ILSMComponent> components = components(10, 12, 100, 150, 120, 5000);
+        assertSizes(policy.getComponentsToMerge(components), 100, 150, 120);
+        // a tier is merged up to the max component count
+        components = components(10, 11, 12, 13, 14, 15);
+        assertSizes(policy.getComponentsToMerge(components), 10, 11, 12, 13);
+        assertNull(policy.getComponentsToMerge(components(10, 100, 1000, 10000)));
+        // components above the max mergable size split the tiers
+        policy.configure(sizeTieredProperties(3, 4, 2.0, 100));
+        assertNull(policy.getComponentsToMerge(components(10, 10, 1000, 10, 10)));
+    }
+
+    @Test
+    public void leveledSelectionTest() {
+        TestLeveledMergePolicy policy = new TestLeveledMergePolicy();
+        policy.configure(leveledProperties(10, 1000, Long.MAX_VALUE));
+        // levels of 1000, 10000, 100000 bytes
+        assertEquals(0, policy.getLevel(1000));
+        assertEquals(1, policy.getLevel(1001));
+        assertEquals(2, policy.getLevel(100000));
+        // a new level 0 component is merged into the older level 0 component
+        assertSizes(policy.getComponentsToMerge(components(400, 500, 9000)), 400, 500);
+        // once level 0 overflows, it is merged into level 1
+        assertSizes(policy.getComponentsToMerge(components(600, 500, 8000, 90000)), 600, 500, 8000);
+        // a level 0 component is not merged into a higher level on its own
+        assertNull(policy.getComponentsToMerge(components(600, 9000, 90000)));
+        // nothing is merged into a component above the max mergable size
+        policy.configure(leveledProperties(10, 1000, 5000));
+        assertSizes(policy.getComponentsToMerge(components(600, 500, 9000)), 600, 500);
+        assertNull(policy.getComponentsToMerge(components(6000, 500)));
+    }
+
+    @Test
+    public void ingestionTest() {
+        TestSizeTieredMergePolicy sizeTiered = new TestSizeTieredMergePolicy();
+        sizeTiered.configure(sizeTieredProperties(4, 8, 2.0, Long.MAX_VALUE));
+        IngestStats sizeTieredStats = ingest(sizeTiered);
+        // 4096 flushes are merged in 6 tiers of 4 components, so every byte is written once and merged 6 times
+        assertEquals(7.0, sizeTieredStats.writeAmp, 0.0);
+        assertEquals(1, sizeTieredStats.components);
+        // at most 3 components wait for a merge in each of the 6 tiers
+        assertEquals(6 * 3, sizeTieredStats.maxComponents);
+
+        TestLeveledMergePolicy leveled = new TestLeveledMergePolicy();
+        leveled.configure(leveledProperties(4, FLUSH_SIZE, Long.MAX_VALUE));
+        IngestStats leveledStats = ingest(leveled);
+        // leveling rewrites the data of a level into the next one more often, but keeps fewer components
+        assertEquals(9.143, leveledStats.writeAmp, 0.001);
+        assertEquals(5, leveledStats.components);
+        assertEquals(7, leveledStats.maxComponents);
+        // rewriting the whole prefix on every flush would write NUM_FLUSHES / 2 times as much as was flushed
+        assertTrue(leveledStats.writeAmp < NUM_FLUSHES / 2);
+    }
+
+    private static class IngestStats {
+        private double writeAmp;
+        private int maxComponents;
+        private int components;
+    }
+
+    /**
+     * Flushes components of the same size and runs the merges that the policy picks right away.
+     *
+     * @return the write amplification and the number of components during and after the ingestion
+     */
+    private static IngestStats ingest(TestPolicy policy) {
+        List<ILSMComponent> components = new ArrayList<>();
+        long addedBytes = 0;
+        long mergedBytes = 0;
+        int maxComponents = 0;
+        for (int i = 0; i < NUM_FLUSHES; i++) {
+            components.add(0, new TestComponent(FLUSH_SIZE));
+            addedBytes += FLUSH_SIZE;
+            List<ILSMComponent> merge;
+            while ((merge = policy.getComponentsToMerge(components)) != null) {
+                long size = 0;
+                for (ILSMComponent c : merge) {
+                    size += ((AbstractDiskLSMComponent) c).getComponentSize();
+                }
+                int index = components.indexOf(merge.get(0));
+                components.removeAll(merge);
+                components.add(index, new TestComponent(size));
+                mergedBytes += size;
+            }
+            maxComponents = Math.max(maxComponents, components.size());
+        }
+        IngestStats stats = new IngestStats();
+        stats.writeAmp = (double) (addedBytes + mergedBytes) / addedBytes;
+        stats.maxComponents = maxComponents;
+        stats.components = components.size();
+        if (LOGGER.isLoggable(Level.INFO)) {
+            LOGGER.info(policy.getClass().getSimpleName() + ": write amplification " + stats.writeAmp
+                    + ", max components " + maxComponents + ", components " + components.size());
+        }
+        return stats;
+    }
+
+    private static Map<String, String> sizeTieredProperties(int minCount, int maxCount, double sizeRatio,
+            long maxMergableSize) {
+        Map<String, String> properties = new HashMap<>();
+        properties.put(SizeTieredMergePolicy.MIN_MERGE_COMPONENT_COUNT, Integer.toString(minCount));
+        properties.put(SizeTieredMergePolicy.MAX_MERGE_COMPONENT_COUNT, Integer.toString(maxCount));
+        properties.put(SizeTieredMergePolicy.SIZE_RATIO, Double.toString(sizeRatio));
+        properties.put(AbstractSizeBasedMergePolicy.MAX_MERGABLE_COMPONENT_SIZE, Long.toString(maxMergableSize));
+        properties.put(AbstractSizeBasedMergePolicy.MAX_TOLERANCE_COMPONENT_COUNT, "100");
+        return properties;
+    }
+
+    private static Map<String, String> leveledProperties(int sizeRatio, long level0Size, long maxMergableSize) {
+        Map<String, String> properties = new HashMap<>();
+        properties.put(LeveledMergePolicy.SIZE_RATIO, Integer.toString(sizeRatio));
+        properties.put(LeveledMergePolicy.LEVEL_0_COMPONENT_SIZE, Long.toString(level0Size));
+        properties.put(AbstractSizeBasedMergePolicy.MAX_MERGABLE_COMPONENT_SIZE, Long.toString(maxMergableSize));
+        properties.put(AbstractSizeBasedMergePolicy.MAX_TOLERANCE_COMPONENT_COUNT, "100");
+        return properties;
+    }
+
+    private static List<ILSMComponent> components(long... sizes) {
+        List<ILSMComponent> components = new ArrayList<>();
+        for (long size : sizes) {
+            components.add(new TestComponent(size));
+        }
+        return components;
+    }
+
+    private static void assertSizes(List<ILSMComponent> components, long... sizes) {
+        long[] actual = new long[components.size()];
+        for (int i = 0; i < actual.length; i++) {
+            actual[i] = ((AbstractDiskLSMComponent) components.get(i)).getComponentSize();
+        }
+        assertEquals(Arrays.toString(sizes), Arrays.toString(actual));
+    }
+
+    private interface TestPolicy {
+        List<ILSMComponent> getComponentsToMerge(List<ILSMComponent> components);
+    }
+
+    private static class TestSizeTieredMergePolicy extends SizeTieredMergePolicy implements TestPolicy {
+        @Override
+        public List<ILSMComponent> getComponentsToMerge(List<ILSMComponent> components) {
+            return super.getComponentsToMerge(components);
+        }
+    }
+
+    private static class TestLeveledMergePolicy extends LeveledMergePolicy implements TestPolicy {
+        @Override
+        public List<ILSMComponent> getComponentsToMerge(List<ILSMComponent> components) {
+            return super.getComponentsToMerge(components);
+        }
+
+        @Override
+        public int getLevel(long size) {
+            return super.getLevel(size);
+        }
+    }
+
+    private static class TestComponent extends AbstractDiskLSMComponent {
+        private final long size;
+
+        TestComponent(long size) {
+            this.size = size;
+        }
+
+        @Override
+        protected void destroy() {
+        }
+
+        @Override
+        public long getComponentSize() {
+            return size;
+        }
+
+        @Override
+        public int getFileReferenceCount() {
+            return 0;
+        }
+    }
+}
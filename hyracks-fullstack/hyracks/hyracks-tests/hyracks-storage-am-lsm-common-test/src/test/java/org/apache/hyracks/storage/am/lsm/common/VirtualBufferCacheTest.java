@@ -18,13 +18,22 @@
  */
 package org.apache.hyracks.storage.am.lsm.common;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.junit.Test;
 
@@ -36,6 +45,7 @@ import org.apache.hyracks.storage.common.buffercache.ICachedPage;
 import org.apache.hyracks.storage.common.file.BufferedFileHandle;
 
 public class VirtualBufferCacheTest {
+    private static final Logger LOGGER = Logger.getLogger(VirtualBufferCacheTest.class.getName());
     private static final long SEED = 123456789L;
     private static final int NUM_OVERPIN = 128;
     private static final int PAGE_SIZE = 256;
@@ -94,6 +104,105 @@ public class VirtualBufferCacheTest {
         vbc.close();
     }
 
+    /**
+     * Pins new pages and re-pins them from several threads at once, and compares the throughput with a single thread.
+     * Checks that every page id got its own page, that the pages count towards the capacity, and that the pages of
+     * deleted files are reused.
+     */
+    @Test
+    public void concurrentPinTest() throws Exception {
+        final int numPagesPerFile = 4 * NUM_PAGES;
+        int maxThreads = Math.max(2, Math.min(NUM_FILES, Runtime.getRuntime().availableProcessors()));
+        for (int numThreads = 1; numThreads <= maxThreads; numThreads *= 2) {
+            ICacheMemoryAllocator allocator = new HeapBufferAllocator();
+            // the capacity is rounded up to an odd number of pages
+            vbc = new VirtualBufferCache(allocator, PAGE_SIZE, numThreads * numPagesPerFile - 2);
+            vbc.open();
+            createFiles();
+            Set<ICachedPage> pages = ConcurrentHashMap.newKeySet();
+            long nanos = runPinThreads(numThreads, numPagesPerFile, pages);
+            if (LOGGER.isLoggable(Level.INFO)) {
+                LOGGER.info(numThreads + " thread(s): " + (numThreads * numPagesPerFile * 1000000000L / nanos)
+                        + " page pins per second");
+            }
+            assertEquals(numThreads * numPagesPerFile, pages.size());
+            assertTrue(vbc.isFull());
+            assertTrue(vbc.dumpState().contains("Used pages = " + pages.size() + "\n"));
+            String allocated = "Allocated pages = " + pages.size() + "\n";
+            assertTrue(vbc.dumpState().contains(allocated));
+
+            deleteFiles();
+            assertFalse(vbc.isFull());
+            createFiles();
+            pages.clear();
+            runPinThreads(numThreads, numPagesPerFile, pages);
+            assertTrue(vbc.dumpState().contains(allocated));
+            deleteFiles();
+            vbc.close();
+        }
+    }
+
+    /**
+     * Checks that a cache with a flush threshold is full once that fraction of its pages is used, and still hands
+     * out the remaining pages.
+     */
+    @Test
+    public void flushThresholdTest() throws Exception {
+        ICacheMemoryAllocator allocator = new HeapBufferAllocator();
+        vbc = new VirtualBufferCache(allocator, PAGE_SIZE, NUM_PAGES, 0.5);
+        vbc.open();
+        createFiles();
+        int fileId = fileStates[0].fileId;
+        int numPages = vbc.getNumPages();
+        int flushPages = (int) Math.ceil(numPages * 0.5);
+        for (int i = 0; i < flushPages - 1; i++) {
+            vbc.pin(BufferedFileHandle.getDiskPageId(fileId, i), true);
+        }
+        assertFalse(vbc.isFull());
+        vbc.pin(BufferedFileHandle.getDiskPageId(fileId, flushPages - 1), true);
+        assertTrue(vbc.isFull());
+        for (int i = flushPages; i < numPages; i++) {
+            vbc.pin(BufferedFileHandle.getDiskPageId(fileId, i), true);
+        }
+        assertTrue(vbc.dumpState().contains("Used pages = " + numPages + "\n"));
+        deleteFiles();
+        assertFalse(vbc.isFull());
+        vbc.close();
+    }
+
+    private long runPinThreads(int numThreads, int numPagesPerFile, Set<ICachedPage> pages) throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        final List<Throwable> failures = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < numThreads; i++) {
+            final int fileId = fileStates[i].fileId;
+            Thread t = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int j = 0; j < numPagesPerFile; j++) {
+                        pages.add(vbc.pin(BufferedFileHandle.getDiskPageId(fileId, j), true));
+                    }
+                    for (int j = 0; j < numPagesPerFile; j++) {
+                        long dpid = BufferedFileHandle.getDiskPageId(fileId, j);
+                        assertSame(vbc.pin(dpid, true), vbc.pin(dpid, false));
+                    }
+                } catch (Throwable th) {
+                    failures.add(th);
+                }
+            });
+            threads.add(t);
+            t.start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread t : threads) {
+            t.join();
+        }
+        long nanos = System.nanoTime() - begin;
+        assertTrue(failures.toString(), failures.isEmpty());
+        return nanos;
+    }
+
     private boolean pagesDisjointed() {
         boolean disjoint = true;
         for (int i = 0; i < NUM_FILES; i++) {
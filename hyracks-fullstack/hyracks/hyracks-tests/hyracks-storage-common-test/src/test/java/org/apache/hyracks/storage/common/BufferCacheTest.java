@@ -19,29 +19,51 @@
 package org.apache.hyracks.storage.common;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
 
 import org.junit.AfterClass;
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Test;
 
 import org.apache.hyracks.api.context.IHyracksTaskContext;
 import org.apache.hyracks.api.exceptions.HyracksDataException;
 import org.apache.hyracks.api.io.FileReference;
+import org.apache.hyracks.api.io.IIOManager;
+import org.apache.hyracks.storage.common.buffercache.BufferCache;
+import org.apache.hyracks.storage.common.buffercache.BufferCacheStats;
+import org.apache.hyracks.storage.common.buffercache.ClockPageReplacementStrategy;
+import org.apache.hyracks.storage.common.buffercache.DelayPageCleanerPolicy;
+import org.apache.hyracks.storage.common.buffercache.HeapBufferAllocator;
 import org.apache.hyracks.storage.common.buffercache.IBufferCache;
 import org.apache.hyracks.storage.common.buffercache.ICachedPage;
+import org.apache.hyracks.storage.common.buffercache.IFIFOPageQueue;
+import org.apache.hyracks.storage.common.buffercache.IPageReplacementStrategy;
+import org.apache.hyracks.storage.common.buffercache.PageLookasideTable;
+import org.apache.hyracks.storage.common.buffercache.TwoQueueClockPageReplacementStrategy;
 import org.apache.hyracks.storage.common.file.BufferedFileHandle;
+import org.apache.hyracks.storage.common.file.IFileMapManager;
 import org.apache.hyracks.storage.common.file.IFileMapProvider;
+import org.apache.hyracks.storage.common.file.TransientFileMapManager;
 import org.apache.hyracks.test.support.TestStorageManagerComponentHolder;
 import org.apache.hyracks.test.support.TestUtils;
 
 public class BufferCacheTest {
+    private static final Logger LOGGER = Logger.getLogger(BufferCacheTest.class.getName());
     protected static final List<String> openedFiles = new ArrayList<String>();
     protected static final SimpleDateFormat simpleDateFormat = new SimpleDateFormat("ddMMyy-hhmmssSS");
     protected static final String tmpDir = System.getProperty("java.io.tmpdir");
@@ -319,6 +341,609 @@ public class BufferCacheTest {
         bufferCache.close();
     }
 
+    @Test
+    public void concurrentResidentPinTest() throws Exception {
+        TestStorageManagerComponentHolder.init(PAGE_SIZE, NUM_PAGES, MAX_OPEN_FILES);
+        IBufferCache bufferCache = TestStorageManagerComponentHolder.getBufferCache(ctx);
+        IFileMapProvider fmp = TestStorageManagerComponentHolder.getFileMapProvider(ctx);
+        String fileName = getFileName();
+        FileReference file = new FileReference(new File(fileName));
+        bufferCache.createFile(file);
+        int fileId = fmp.lookupFileId(file);
+        bufferCache.openFile(fileId);
+
+        // make a few pages resident and stamp them with their page id
+        int numResidentPages = NUM_PAGES / 2;
+        for (int i = 0; i < numResidentPages; i++) {
+            ICachedPage page = bufferCache.pin(BufferedFileHandle.getDiskPageId(fileId, i), true);
+            page.acquireWriteLatch();
+            try {
+                page.getBuffer().putInt(0, i);
+            } finally {
+                page.releaseWriteLatch(true);
+                bufferCache.unpin(page);
+            }
+        }
+
+        // pin the resident pages from an increasing number of threads and report the throughput
+        final long durationMillis = 500;
+        for (int numThreads = 1; numThreads <= 8; numThreads *= 2) {
+            final AtomicBoolean failed = new AtomicBoolean(false);
+            final AtomicLong pins = new AtomicLong();
+            Thread[] threads = new Thread[numThreads];
+            for (int t = 0; t < numThreads; t++) {
+                final int seed = t;
+                threads[t] = new Thread(() -> {
+                    Random random = new Random(seed);
+                    long localPins = 0;
+                    long end = System.currentTimeMillis() + durationMillis;
+                    try {
+                        while (System.currentTimeMillis() < end) {
+                            int pageId = random.nextInt(numResidentPages);
+                            ICachedPage page = bufferCache.pin(BufferedFileHandle.getDiskPageId(fileId, pageId),
+                                    false);
+                            page.acquireReadLatch();
+                            try {
+                                if (page.getBuffer().getInt(0) != pageId) {
+                                    failed.set(true);
+                                }
+                            } finally {
+                                page.releaseReadLatch();
+                                bufferCache.unpin(page);
+                            }
+                            localPins++;
+                        }
+                    } catch (HyracksDataException e) {
+                        failed.set(true);
+                    }
+                    pins.addAndGet(localPins);
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            Assert.assertFalse(failed.get());
+            LOGGER.info(numThreads + " thread(s): " + (pins.get() * 1000 / durationMillis) + " pins/sec");
+        }
+
+        bufferCache.closeFile(fileId);
+        bufferCache.close();
+    }
+
+    @Test
+    public void scanResistanceTest() throws HyracksDataException {
+        double clockHitRatio = runMixedScanLookupWorkload(
+                new ClockPageReplacementStrategy(new HeapBufferAllocator(), PAGE_SIZE, NUM_PAGES));
+        double twoQueueHitRatio = runMixedScanLookupWorkload(
+                new TwoQueueClockPageReplacementStrategy(new HeapBufferAllocator(), PAGE_SIZE, NUM_PAGES));
+        LOGGER.info("hit ratio of clock: " + clockHitRatio + ", hit ratio of 2q: " + twoQueueHitRatio);
+        Assert.assertTrue(twoQueueHitRatio > clockHitRatio);
+    }
+
+    /**
+     * Repeatedly looks up a small set of hot pages while scanning through a file that is much larger than the cache.
+     *
+     * @return the hit ratio of the buffer cache
+     */
+    private double runMixedScanLookupWorkload(IPageReplacementStrategy prs) throws HyracksDataException {
+        IFileMapManager fileMapManager = new TransientFileMapManager();
+        BufferCache bufferCache = new BufferCache(ctx.getIOManager(), prs, new DelayPageCleanerPolicy(1000),
+                fileMapManager, MAX_OPEN_FILES, r -> new Thread(r));
+        FileReference file = new FileReference(new File(getFileName()));
+        bufferCache.createFile(file);
+        int fileId = fileMapManager.lookupFileId(file);
+        bufferCache.openFile(fileId);
+
+        int numHotPages = NUM_PAGES / 3;
+        int numFilePages = NUM_PAGES * 6;
+        int scanLength = NUM_PAGES;
+        for (int i = 0; i < numFilePages; i++) {
+            ICachedPage page = bufferCache.pin(BufferedFileHandle.getDiskPageId(fileId, i), true);
+            page.acquireWriteLatch();
+            try {
+                page.getBuffer().putInt(0, i);
+            } finally {
+                page.releaseWriteLatch(true);
+                bufferCache.unpin(page);
+            }
+        }
+        bufferCache.resetPageHitCounters();
+
+        int nextScanPage = numHotPages;
+        for (int round = 0; round < 50; round++) {
+            for (int i = 0; i < numHotPages; i++) {
+                readPage(bufferCache, fileId, i);
+            }
+            for (int i = 0; i < scanLength; i++) {
+                readPage(bufferCache, fileId, nextScanPage);
+                nextScanPage = nextScanPage + 1 < numFilePages ? nextScanPage + 1 : numHotPages;
+            }
+        }
+        double hitRatio = bufferCache.getPageHitRatio();
+        bufferCache.closeFile(fileId);
+        bufferCache.close();
+        return hitRatio;
+    }
+
+    private void readPage(IBufferCache bufferCache, int fileId, int pageId) throws HyracksDataException {
+        ICachedPage page = bufferCache.pin(BufferedFileHandle.getDiskPageId(fileId, pageId), false);
+        page.acquireReadLatch();
+        try {
+            Assert.assertEquals(pageId, page.getBuffer().getInt(0));
+        } finally {
+            page.releaseReadLatch();
+            bufferCache.unpin(page);
+        }
+    }
+
+    @Test
+    public void sequentialReadAheadTest() throws HyracksDataException {
+        long missesWithoutReadAhead = runSequentialScan(0);
+        long missesWithReadAhead = runSequentialScan(BufferCache.DEFAULT_MAX_READ_AHEAD_PAGES);
+        LOGGER.info("misses without read-ahead: " + missesWithoutReadAhead + ", misses with read-ahead: "
+                + missesWithReadAhead);
+        Assert.assertTrue(missesWithReadAhead < missesWithoutReadAhead);
+    }
+
+    /**
+     * Scans a file that is larger than the cache from its first to its last page.
+     *
+     * @return the number of pins that had to read the page from disk
+     */
+    private long runSequentialScan(int maxReadAheadPages) throws HyracksDataException {
+        int numCachePages = 64;
+        IFileMapManager fileMapManager = new TransientFileMapManager();
+        BufferCache bufferCache = new BufferCache(ctx.getIOManager(),
+                new ClockPageReplacementStrategy(new HeapBufferAllocator(), PAGE_SIZE, numCachePages),
+                new DelayPageCleanerPolicy(1000), fileMapManager, MAX_OPEN_FILES, r -> new Thread(r));
+        bufferCache.setMaxReadAheadPages(maxReadAheadPages);
+        FileReference file = new FileReference(new File(getFileName()));
+        bufferCache.createFile(file);
+        int fileId = fileMapManager.lookupFileId(file);
+        bufferCache.openFile(fileId);
+
+        int numFilePages = numCachePages * 4;
+        for (int i = 0; i < numFilePages; i++) {
+            ICachedPage page = bufferCache.pin(BufferedFileHandle.getDiskPageId(fileId, i), true);
+            page.acquireWriteLatch();
+            try {
+                page.getBuffer().putInt(0, i);
+            } finally {
+                page.releaseWriteLatch(true);
+                bufferCache.unpin(page);
+            }
+        }
+        // push the first pages of the file out of the cache
+        for (int i = numFilePages - numCachePages; i < numFilePages; i++) {
+            readPage(bufferCache, fileId, i);
+        }
+        bufferCache.resetPageHitCounters();
+
+        for (int i = 0; i < numFilePages - numCachePages; i++) {
+            readPage(bufferCache, fileId, i);
+        }
+        long misses = bufferCache.getPageMissCount();
+        bufferCache.closeFile(fileId);
+        bufferCache.close();
+        return misses;
+    }
+
+    @Test
+    public void fifoBatchedWriteBackTest() throws HyracksDataException {
+        int numCachePages = BufferCache.MAX_WRITE_BATCH_PAGES * 4;
+        IFileMapManager fileMapManager = new TransientFileMapManager();
+        BufferCache bufferCache = createBufferCache(fileMapManager, numCachePages);
+        FileReference file = new FileReference(new File(getFileName()));
+        bufferCache.createFile(file);
+        int fileId = fileMapManager.lookupFileId(file);
+        bufferCache.openFile(fileId);
+
+        // more pages than a single batched write, with a gap that has to split the run
+        int numFilePages = BufferCache.MAX_WRITE_BATCH_PAGES * 2 + 5;
+        int skippedPageId = BufferCache.MAX_WRITE_BATCH_PAGES / 2;
+        IFIFOPageQueue queue = bufferCache.createFIFOQueue();
+        for (int i = 0; i < numFilePages; i++) {
+            int pageId = i == skippedPageId ? numFilePages : i;
+            ICachedPage page = bufferCache.confiscatePage(BufferedFileHandle.getDiskPageId(fileId, pageId));
+            page.getBuffer().putInt(0, pageId);
+            queue.put(page);
+        }
+        bufferCache.finishQueue();
+        bufferCache.closeFile(fileId);
+        bufferCache.close();
+
+        // read the pages back through an empty cache
+        bufferCache = createBufferCache(fileMapManager, numCachePages);
+        bufferCache.openFile(fileId);
+        for (int i = 0; i <= numFilePages; i++) {
+            if (i != skippedPageId) {
+                readPage(bufferCache, fileId, i);
+            }
+        }
+        bufferCache.closeFile(fileId);
+        bufferCache.close();
+    }
+
+    @Test
+    public void directIOTest() throws HyracksDataException {
+        int numCachePages = 16;
+        IFileMapManager fileMapManager = new TransientFileMapManager();
+        BufferCache bufferCache = createBufferCache(fileMapManager, numCachePages);
+        bufferCache.setDirectIO(true);
+        FileReference file = new FileReference(new File(getFileName()));
+        bufferCache.createFile(file);
+        int fileId = fileMapManager.lookupFileId(file);
+        bufferCache.openFile(fileId);
+
+        // every page is stored in a slot of whole blocks, and more pages than the cache are written
+        int numFilePages = numCachePages * 3;
+        for (int i = 0; i < numFilePages; i++) {
+            ICachedPage page = bufferCache.pin(BufferedFileHandle.getDiskPageId(fileId, i), true);
+            page.acquireWriteLatch();
+            try {
+                page.getBuffer().putInt(0, i);
+                page.getBuffer().putInt(PAGE_SIZE - 4, i);
+            } finally {
+                page.releaseWriteLatch(true);
+                bufferCache.unpin(page);
+            }
+        }
+        // the file holds whole slots of the pages that were written so far, also before it is closed
+        Assert.assertTrue(file.getFile().length() > 0);
+        Assert.assertEquals(0, file.getFile().length() % IIOManager.DIRECT_IO_ALIGNMENT);
+        bufferCache.closeFile(fileId);
+        bufferCache.close();
+        Assert.assertEquals((long) numFilePages * IIOManager.DIRECT_IO_ALIGNMENT, file.getFile().length());
+
+        bufferCache = createBufferCache(fileMapManager, numCachePages);
+        bufferCache.setDirectIO(true);
+        bufferCache.openFile(fileId);
+        for (int i = numFilePages - 1; i >= 0; i--) {
+            ICachedPage page = bufferCache.pin(BufferedFileHandle.getDiskPageId(fileId, i), false);
+            page.acquireReadLatch();
+            try {
+                Assert.assertEquals(i, page.getBuffer().getInt(0));
+                Assert.assertEquals(i, page.getBuffer().getInt(PAGE_SIZE - 4));
+            } finally {
+                page.releaseReadLatch();
+                bufferCache.unpin(page);
+            }
+        }
+        bufferCache.closeFile(fileId);
+        bufferCache.close();
+    }
+
+    @Test
+    public void memoryMappedReadTest() throws IOException {
+        int numCachePages = 16;
+        IFileMapManager fileMapManager = new TransientFileMapManager();
+        BufferCache bufferCache = createBufferCache(fileMapManager, numCachePages);
+        FileReference file = new FileReference(new File(getFileName()));
+        bufferCache.createFile(file);
+        int fileId = fileMapManager.lookupFileId(file);
+        bufferCache.openFile(fileId);
+        int numFilePages = numCachePages * 3;
+        for (int i = 0; i < numFilePages; i++) {
+            ICachedPage page = bufferCache.pin(BufferedFileHandle.getDiskPageId(fileId, i), true);
+            page.acquireWriteLatch();
+            try {
+                page.getBuffer().putInt(0, i);
+            } finally {
+                page.releaseWriteLatch(true);
+                bufferCache.unpin(page);
+            }
+        }
+        bufferCache.force(fileId, true);
+        bufferCache.setMemoryMappedReads(true);
+        bufferCache.markImmutable(fileId);
+
+        // pages that are still cached are hits, the others are copied from the mapping
+        for (int round = 0; round < 2; round++) {
+            for (int i = numFilePages - 1; i >= 0; i--) {
+                readPage(bufferCache, fileId, i);
+            }
+        }
+        Assert.assertTrue(bufferCache.getPageMissCount() > 0);
+        Assert.assertTrue(isMapped(file));
+
+        // the mapping is released with the file, without waiting for the garbage collector
+        bufferCache.closeFile(fileId);
+        bufferCache.deleteFile(fileId, false);
+        Assert.assertFalse(isMapped(file));
+        bufferCache.close();
+    }
+
+    /**
+     * @return whether the file is memory mapped by this process, which is only known on Linux
+     */
+    private static boolean isMapped(FileReference file) throws IOException {
+        Path maps = Paths.get("/proc/self/maps");
+        Assume.assumeTrue(Files.isReadable(maps));
+        String path = file.getFile().getAbsolutePath();
+        return Files.readAllLines(maps).stream().anyMatch(line -> line.contains(path));
+    }
+
+    @Test
+    public void fileStatsTest() throws HyracksDataException {
+        int numCachePages = 16;
+        IFileMapManager fileMapManager = new TransientFileMapManager();
+        BufferCache bufferCache = createBufferCache(fileMapManager, numCachePages);
+        FileReference file = new FileReference(new File(getFileName()));
+        bufferCache.createFile(file);
+        int fileId = fileMapManager.lookupFileId(file);
+        bufferCache.openFile(fileId);
+        int numFilePages = numCachePages * 2;
+        for (int i = 0; i < numFilePages; i++) {
+            ICachedPage page = bufferCache.pin(BufferedFileHandle.getDiskPageId(fileId, i), true);
+            page.acquireWriteLatch();
+            try {
+                page.getBuffer().putInt(0, i);
+            } finally {
+                page.releaseWriteLatch(true);
+                bufferCache.unpin(page);
+            }
+        }
+        BufferCacheStats stats = bufferCache.getFileStats(fileId);
+        Assert.assertEquals(numFilePages, stats.getPinCount());
+        Assert.assertEquals(0, stats.getHitCount() + stats.getMissCount());
+        // pages have to be written before they are evicted, the last ones may still be dirty
+        Assert.assertTrue(stats.getEvictionCount() >= numFilePages - numCachePages);
+        Assert.assertTrue(stats.getWriteCount() >= stats.getEvictionCount());
+
+        for (int i = numFilePages - 1; i >= 0; i--) {
+            readPage(bufferCache, fileId, i);
+        }
+        Assert.assertEquals(2 * numFilePages, stats.getPinCount());
+        Assert.assertEquals(numFilePages, stats.getHitCount() + stats.getMissCount());
+        Assert.assertTrue(stats.getMissCount() > 0);
+        Assert.assertTrue(stats.getReadCount() >= stats.getMissCount());
+
+        // the directory of the file holds no other file of this cache
+        BufferCacheStats dirStats = bufferCache.getFileStats(file.getFile().getParent());
+        Assert.assertEquals(stats.getPinCount(), dirStats.getPinCount());
+        Assert.assertEquals(stats.getMissCount(), dirStats.getMissCount());
+        Assert.assertEquals(0, bufferCache.getFileStats(file.getFile().getPath()).getPinCount());
+
+        bufferCache.closeFile(fileId);
+        bufferCache.deleteFile(fileId, false);
+        Assert.assertNull(bufferCache.getFileStats(fileId));
+        bufferCache.close();
+    }
+
+    @Test
+    public void resizeTest() throws HyracksDataException {
+        int numCachePages = 16;
+        IFileMapManager fileMapManager = new TransientFileMapManager();
+        BufferCache bufferCache = createBufferCache(fileMapManager, numCachePages);
+        FileReference file = new FileReference(new File(getFileName()));
+        bufferCache.createFile(file);
+        int fileId = fileMapManager.lookupFileId(file);
+        bufferCache.openFile(fileId);
+        int numFilePages = numCachePages * 2;
+        for (int i = 0; i < numFilePages; i++) {
+            ICachedPage page = bufferCache.pin(BufferedFileHandle.getDiskPageId(fileId, i), true);
+            page.acquireWriteLatch();
+            try {
+                page.getBuffer().putInt(0, i);
+            } finally {
+                page.releaseWriteLatch(true);
+                bufferCache.unpin(page);
+            }
+        }
+        // replace the dirty pages with clean ones
+        for (int i = 0; i < numCachePages; i++) {
+            readPage(bufferCache, fileId, i);
+        }
+        Assert.assertEquals(numCachePages, bufferCache.getNumAllocatedPages());
+
+        int smallerNumPages = numCachePages / 2;
+        bufferCache.setNumPages(smallerNumPages);
+        Assert.assertEquals(smallerNumPages, bufferCache.getNumPages());
+        Assert.assertTrue(bufferCache.getNumAllocatedPages() <= smallerNumPages);
+        for (int i = 0; i < numFilePages; i++) {
+            readPage(bufferCache, fileId, i);
+        }
+        Assert.assertTrue(bufferCache.getNumAllocatedPages() <= smallerNumPages);
+
+        // once the cache holds the whole file, all pins are hits
+        bufferCache.setNumPages(numFilePages);
+        for (int i = 0; i < numFilePages; i++) {
+            readPage(bufferCache, fileId, i);
+        }
+        bufferCache.resetPageHitCounters();
+        for (int i = 0; i < numFilePages; i++) {
+            readPage(bufferCache, fileId, i);
+        }
+        Assert.assertEquals(numFilePages, bufferCache.getPageHitCount());
+        Assert.assertEquals(numFilePages, bufferCache.getNumAllocatedPages());
+        bufferCache.closeFile(fileId);
+        bufferCache.close();
+    }
+
+    @Test
+    public void warmupTest() throws Exception {
+        int numCachePages = 16;
+        IFileMapManager fileMapManager = new TransientFileMapManager();
+        BufferCache bufferCache = createBufferCache(fileMapManager, numCachePages);
+        File warmupFile = new File(getFileName());
+        bufferCache.setWarmupFile(warmupFile);
+        FileReference file = new FileReference(new File(getFileName()));
+        bufferCache.createFile(file);
+        int fileId = fileMapManager.lookupFileId(file);
+        bufferCache.openFile(fileId);
+        int numFilePages = numCachePages * 4;
+        for (int i = 0; i < numFilePages; i++) {
+            ICachedPage page = bufferCache.pin(BufferedFileHandle.getDiskPageId(fileId, i), true);
+            page.acquireWriteLatch();
+            try {
+                page.getBuffer().putInt(0, i);
+            } finally {
+                page.releaseWriteLatch(true);
+                bufferCache.unpin(page);
+            }
+        }
+        int[] cachedPageIds = new int[numCachePages];
+        for (int i = 0; i < numCachePages; i++) {
+            cachedPageIds[i] = i * 3;
+            readPage(bufferCache, fileId, cachedPageIds[i]);
+        }
+        bufferCache.closeFile(fileId);
+        bufferCache.close();
+        Assert.assertTrue(warmupFile.exists());
+
+        // the pages that were cached at shutdown are read in the background when the file is opened
+        bufferCache = createBufferCache(fileMapManager, numCachePages);
+        bufferCache.setWarmupFile(warmupFile);
+        bufferCache.openFile(fileId);
+        BufferCacheStats stats = bufferCache.getFileStats(fileId);
+        for (int i = 0; i < 1000 && stats.getReadCount() < numCachePages; i++) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(numCachePages, stats.getReadCount());
+        for (int pageId : cachedPageIds) {
+            readPage(bufferCache, fileId, pageId);
+        }
+        Assert.assertEquals(0, stats.getMissCount());
+        bufferCache.closeFile(fileId);
+        bufferCache.close();
+    }
+
+    @Test
+    public void compressedPagesTest() throws HyracksDataException {
+        int numCachePages = 16;
+        IFileMapManager fileMapManager = new TransientFileMapManager();
+        BufferCache bufferCache = createBufferCache(fileMapManager, numCachePages);
+        FileReference file = new FileReference(new File(getFileName()));
+        bufferCache.createFile(file);
+        int fileId = fileMapManager.lookupFileId(file);
+        bufferCache.openFile(fileId);
+        bufferCache.enablePageCompression(fileId);
+        // mostly repetitive pages, some of them rewritten after they were evicted, and one incompressible page
+        int numFilePages = numCachePages * 3;
+        byte[] randomBytes = new byte[PAGE_SIZE];
+        rnd.nextBytes(randomBytes);
+        for (int round = 0; round < 2; round++) {
+            for (int i = round * numFilePages / 2; i < numFilePages; i++) {
+                ICachedPage page = bufferCache.pin(BufferedFileHandle.getDiskPageId(fileId, i), round == 0);
+                page.acquireWriteLatch();
+                try {
+                    if (i == numFilePages - 1) {
+                        System.arraycopy(randomBytes, 0, page.getBuffer().array(), 0, PAGE_SIZE);
+                    }
+                    page.getBuffer().putInt(0, i);
+                    page.getBuffer().putInt(PAGE_SIZE - 4, i + round);
+                } finally {
+                    page.releaseWriteLatch(true);
+                    bufferCache.unpin(page);
+                }
+            }
+        }
+        bufferCache.closeFile(fileId);
+        bufferCache.close();
+        Assert.assertTrue(PageLookasideTable.getFile(file).getFile().exists());
+        Assert.assertTrue(
+                file.getFile().length() < (long) numFilePages * (PAGE_SIZE + IBufferCache.RESERVED_HEADER_BYTES));
+
+        // the file is recognized as compressed when it is opened again
+        bufferCache = createBufferCache(fileMapManager, numCachePages);
+        bufferCache.openFile(fileId);
+        Assert.assertEquals(numFilePages, bufferCache.getNumPagesOfFile(fileId));
+        for (int i = numFilePages - 1; i >= 0; i--) {
+            ICachedPage page = bufferCache.pin(BufferedFileHandle.getDiskPageId(fileId, i), false);
+            page.acquireReadLatch();
+            try {
+                Assert.assertEquals(i, page.getBuffer().getInt(0));
+                Assert.assertEquals(i >= numFilePages / 2 ? i + 1 : i, page.getBuffer().getInt(PAGE_SIZE - 4));
+                if (i == numFilePages - 1) {
+                    Assert.assertEquals(randomBytes[PAGE_SIZE / 2], page.getBuffer().get(PAGE_SIZE / 2));
+                }
+            } finally {
+                page.releaseReadLatch();
+                bufferCache.unpin(page);
+            }
+        }
+        bufferCache.closeFile(fileId);
+        bufferCache.deleteFile(fileId, false);
+        PageLookasideTable.delete(file);
+        Assert.assertFalse(PageLookasideTable.getFile(file).getFile().exists());
+        bufferCache.close();
+    }
+
+    @Test
+    public void compressedPageRewriteTest() throws IOException {
+        int numCachePages = 16;
+        IFileMapManager fileMapManager = new TransientFileMapManager();
+        BufferCache bufferCache = createBufferCache(fileMapManager, numCachePages);
+        FileReference file = new FileReference(new File(getFileName()));
+        bufferCache.createFile(file);
+        int fileId = fileMapManager.lookupFileId(file);
+        bufferCache.openFile(fileId);
+        bufferCache.enablePageCompression(fileId);
+        byte[] randomBytes = new byte[PAGE_SIZE];
+        rnd.nextBytes(randomBytes);
+        writeCompressedPage(bufferCache, fileId, 0, true, null, 1);
+        writeCompressedPage(bufferCache, fileId, 1, true, null, 1);
+        byte[] images = Files.readAllBytes(file.getFile().toPath());
+        Assert.assertTrue(images.length > 0);
+
+        // rewrites append the new images and leave the current ones intact, whether they are shorter or longer
+        writeCompressedPage(bufferCache, fileId, 0, false, null, 0);
+        long length = file.getFile().length();
+        Assert.assertTrue(length > images.length);
+        writeCompressedPage(bufferCache, fileId, 0, false, randomBytes, 3);
+        Assert.assertTrue(file.getFile().length() > length);
+        Assert.assertArrayEquals(images,
+                Arrays.copyOf(Files.readAllBytes(file.getFile().toPath()), images.length));
+        bufferCache.closeFile(fileId);
+        bufferCache.close();
+
+        bufferCache = createBufferCache(fileMapManager, numCachePages);
+        bufferCache.openFile(fileId);
+        for (int i = 0; i < 2; i++) {
+            ICachedPage page = bufferCache.pin(BufferedFileHandle.getDiskPageId(fileId, i), false);
+            page.acquireReadLatch();
+            try {
+                Assert.assertEquals(i == 0 ? 3 : 1, page.getBuffer().getInt(0));
+                if (i == 0) {
+                    Assert.assertEquals(randomBytes[PAGE_SIZE / 2], page.getBuffer().get(PAGE_SIZE / 2));
+                }
+            } finally {
+                page.releaseReadLatch();
+                bufferCache.unpin(page);
+            }
+        }
+        bufferCache.closeFile(fileId);
+        bufferCache.deleteFile(fileId, false);
+        PageLookasideTable.delete(file);
+        bufferCache.close();
+    }
+
+    private void writeCompressedPage(BufferCache bufferCache, int fileId, int pageId, boolean newPage,
+            byte[] content, int value) throws HyracksDataException {
+        ICachedPage page = bufferCache.pin(BufferedFileHandle.getDiskPageId(fileId, pageId), newPage);
+        page.acquireWriteLatch();
+        try {
+            if (content != null) {
+                System.arraycopy(content, 0, page.getBuffer().array(), 0, PAGE_SIZE);
+            }
+            page.getBuffer().putInt(0, value);
+        } finally {
+            page.releaseWriteLatch(true);
+        }
+        try {
+            bufferCache.flushDirtyPage(page);
+        } finally {
+            bufferCache.unpin(page);
+        }
+    }
+
+    private BufferCache createBufferCache(IFileMapManager fileMapManager, int numCachePages) {
+        return new BufferCache(ctx.getIOManager(),
+                new ClockPageReplacementStrategy(new HeapBufferAllocator(), PAGE_SIZE, numCachePages),
+                new DelayPageCleanerPolicy(1000), fileMapManager, MAX_OPEN_FILES, r -> new Thread(r));
+    }
+
     @AfterClass
     public static void cleanup() throws Exception {
         for (String s : openedFiles) {
@@ -0,0 +1,95 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.apache.hyracks.storage.common.compression;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.hyracks.api.exceptions.HyracksDataException;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class LZ4PageCompressorTest {
+    private static final int PAGE_SIZE = 32768;
+    private final IPageCompressor compressor = LZ4PageCompressor.INSTANCE;
+    private final Random rnd = new Random(50);
+
+    @Test
+    public void roundTripTest() throws HyracksDataException {
+        // a page of sorted records with shared prefixes, a page of zeros, random bytes and tiny inputs
+        byte[] records = new byte[PAGE_SIZE];
+        for (int off = 0; off + 16 <= PAGE_SIZE; off += 16) {
+            System.arraycopy("key-0000".getBytes(), 0, records, off, 8);
+            records[off + 7] = (byte) (off >>> 4);
+            records[off + 12] = (byte) rnd.nextInt(4);
+        }
+        byte[] random = new byte[PAGE_SIZE];
+        rnd.nextBytes(random);
+        Assert.assertTrue(roundTrip(records) < PAGE_SIZE / 2);
+        Assert.assertTrue(roundTrip(new byte[PAGE_SIZE]) < PAGE_SIZE / 100);
+        Assert.assertTrue(roundTrip(random) <= compressor.getMaxCompressedLength(PAGE_SIZE));
+        for (int length = 0; length < 40; length++) {
+            roundTrip(Arrays.copyOf(records, length));
+        }
+    }
+
+    @Test
+    public void corruptInputTest() throws HyracksDataException {
+        byte[] page = new byte[PAGE_SIZE];
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            page[i] = (byte) (i % 37);
+        }
+        byte[] compressed = new byte[compressor.getMaxCompressedLength(PAGE_SIZE)];
+        int compressedLength = compressor.compress(page, 0, PAGE_SIZE, compressed, 0);
+        byte[] output = new byte[PAGE_SIZE];
+        // truncated input and too small output
+        assertCorrupt(compressed, compressedLength - 1, output, PAGE_SIZE);
+        assertCorrupt(compressed, compressedLength, output, PAGE_SIZE - 1);
+        // random damage must never read or write out of bounds
+        for (int i = 0; i < 1000; i++) {
+            byte[] damaged = Arrays.copyOf(compressed, compressedLength);
+            damaged[rnd.nextInt(compressedLength)] = (byte) rnd.nextInt();
+            try {
+                compressor.decompress(damaged, 0, compressedLength, output, 0, PAGE_SIZE);
+            } catch (HyracksDataException e) {
+                // expected for most damage
+            }
+        }
+    }
+
+    private int roundTrip(byte[] input) throws HyracksDataException {
+        int offset = 3;
+        byte[] compressed = new byte[offset + compressor.getMaxCompressedLength(input.length)];
+        int compressedLength = compressor.compress(input, 0, input.length, compressed, offset);
+        byte[] output = new byte[input.length + offset];
+        int length = compressor.decompress(compressed, offset, compressedLength, output, offset, input.length);
+        Assert.assertEquals(input.length, length);
+        Assert.assertArrayEquals(input, Arrays.copyOfRange(output, offset, offset + length));
+        return compressedLength;
+    }
+
+    private void assertCorrupt(byte[] compressed, int compressedLength, byte[] output, int outputLength) {
+        try {
+            compressor.decompress(compressed, 0, compressedLength, output, 0, outputLength);
+            Assert.fail("Decompressed corrupt input");
+        } catch (HyracksDataException e) {
+            Assert.assertTrue(e.getMessage().startsWith("Corrupt compressed page"));
+        }
+    }
+}